@@ -16,22 +16,23 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import alluxio.Constants;
 import alluxio.client.file.cache.cuckoofilter.SlidingWindowType;
 import alluxio.client.quota.CacheScope;
+import alluxio.collections.AtomicPackedArray;
 import alluxio.util.FormatUtils;
 
-import com.google.common.hash.Funnel;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * This class is a shadow cache with bitmap and clock sketch implementation. A page is hashed to a
+ * single bucket holding its clock, size and scope fingerprint. Buckets are packed bit by bit into
+ * an {@link AtomicPackedArray}, as many as fit without crossing a long, so that the table takes
+ * the memory budget and every bucket is updated atomically with compare-and-set on its long. Readers, writers and the aging sweep never block each other.
+ */
 public class BitMapWithClockSketchCacheManager implements ShadowCache {
-  protected static int mNumBuckets;
-  protected static int mBitsPerSize;
-  protected static int mBitsPerClock;
   private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
   private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
@@ -39,33 +40,37 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
   private final AtomicLong mBucketsSet = new AtomicLong(0);
   private final AtomicLong mTotalSize = new AtomicLong(0);
   private final ScheduledExecutorService mScheduler = Executors.newScheduledThreadPool(0);
+  protected int mNumBuckets;
+  protected int mNumWords;
+  protected int mBucketsPerWord;
+  protected int mBitsPerBucket;
+  protected int mBitsPerSize;
+  protected int mBitsPerClock;
   protected int mBitsPerScope;
   protected long mWindowSize;
-  protected Funnel<PageId> mFunnel;
-  protected HashFunction mHashFunction;
-  protected int[] clockTable;
-  protected int[] sizeTable;
-  // TODO - SCOPE 存储重复，能不能从某一个位置开始都存某个scope的pageid
-  protected long[] scopeTable; // stores the fingerprint of scope
-  protected int mSizeMask;
+  // each bucket packs clock, size and scope fingerprint from the lowest bit
+  protected AtomicPackedArray mTable;
+  protected long mClockMask;
+  protected long mSizeMask;
   protected long mScopeMask;
-  private final Lock lock = new ReentrantLock();
 
   public BitMapWithClockSketchCacheManager(ShadowCacheParameters parameters) {
     mBitsPerClock = parameters.mClockBits;
     mBitsPerSize = parameters.mSizeBits;
     mWindowSize = parameters.mWindowSize;
     mBitsPerScope = parameters.mScopeBits;
-    mFunnel = PageIdFunnel.FUNNEL;
+    mBitsPerBucket = mBitsPerClock + mBitsPerSize + mBitsPerScope;
+    Preconditions.checkArgument(mBitsPerBucket <= Long.SIZE,
+        "bits of clock, size and scope must fit in a long: %s + %s + %s", mBitsPerClock,
+        mBitsPerSize, mBitsPerScope);
     long memoryInBits = FormatUtils.parseSpaceSize(parameters.mMemoryBudget) * 8;
-    mNumBuckets = (int) (memoryInBits
-        / (parameters.mClockBits + parameters.mSizeBits + parameters.mScopeBits));
-    mHashFunction = Hashing.murmur3_32(32713);
-    clockTable = new int[mNumBuckets];
-    sizeTable = new int[mNumBuckets];
-    scopeTable = new long[mNumBuckets];
-    mSizeMask = (mBitsPerSize < 32) ? (1 << mBitsPerSize) - 1 : 0xFFFFFFFF;
-    mScopeMask = (mBitsPerScope < 64) ? (1 << mBitsPerScope) - 1 : -1L;
+    mNumWords = (int) Math.max(1, memoryInBits / Long.SIZE);
+    mBucketsPerWord = Long.SIZE / mBitsPerBucket;
+    mNumBuckets = mNumWords * mBucketsPerWord;
+    mTable = new AtomicPackedArray(mNumBuckets, mBitsPerBucket);
+    mClockMask = mask(mBitsPerClock);
+    mSizeMask = mask(mBitsPerSize);
+    mScopeMask = mask(mBitsPerScope);
     long windowMs = parameters.mWindowSize;
     long agingPeriod = windowMs >> mBitsPerClock;
     if(parameters.mSlidingWindowType == SlidingWindowType.TIME_BASED){
@@ -73,40 +78,89 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
     }
   }
 
+  private static long mask(int bits) {
+    return (bits < Long.SIZE) ? (1L << bits) - 1 : -1L;
+  }
+
+  private long clockOf(long bucket) {
+    return bucket & mClockMask;
+  }
+
+  private int sizeOf(long bucket) {
+    return (int) ((bucket >>> mBitsPerClock) & mSizeMask);
+  }
+
+  private long scopeOf(long bucket) {
+    return (bucket >>> (mBitsPerClock + mBitsPerSize)) & mScopeMask;
+  }
+
+  private long encodeBucket(long clock, long size, long scopefp) {
+    // sizes beyond the size field saturate rather than wrap around
+    long clampedSize = Math.max(1, Math.min(size, mSizeMask));
+    return clock | (clampedSize << mBitsPerClock)
+        | ((scopefp & mScopeMask) << (mBitsPerClock + mBitsPerSize));
+  }
+
   @Override
   public boolean put(PageId pageId, int size, CacheScope scope) {
-    int pos = bucketIndex(pageId, mHashFunction);
+    return putByHash(pageId.getHash(), size, scope);
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByHash(PageId.hash(fileKey, pageIndex), size, ScopeRegistry.scopeOf(scopeId));
+  }
+
+  private boolean putByHash(long hash, int size, CacheScope scope) {
+    int pos = bucketIndex(hash);
     long scopefp = encodeScope(scope);
-    lock.lock();
-    if (clockTable[pos] == 0) {
-      sizeTable[pos] = size & mSizeMask;
-      scopeTable[pos] = scopefp & mScopeMask;
-      clockTable[pos] = (1 << mBitsPerClock) - 1;
-      mBucketsSet.incrementAndGet();
-      mTotalSize.addAndGet(size);
-    } else if (mBitsPerScope > 0 && scopeTable[pos] == scopefp) { // hit
-      clockTable[pos] = (1 << mBitsPerClock) - 1;
-    } else { // collision
-      // no-op
+    while (true) {
+      long word = mTable.getWord(pos);
+      long bucket = mTable.fieldOf(word, pos);
+      long newBucket;
+      if (clockOf(bucket) == 0) {
+        newBucket = encodeBucket(mClockMask, size, scopefp);
+        if (mTable.compareAndSet(pos, word, newBucket)) {
+          mBucketsSet.incrementAndGet();
+          mTotalSize.addAndGet(sizeOf(newBucket));
+          return true;
+        }
+      } else if (mBitsPerScope > 0 && scopeOf(bucket) == scopefp) { // hit
+        if (mTable.compareAndSet(pos, word, bucket | mClockMask)) {
+          return true;
+        }
+      } else { // collision
+        return true;
+      }
     }
-    lock.unlock();
-    return true;
   }
 
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    return getByHash(pageId.getHash(), bytesToRead, scope);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash(PageId.hash(fileKey, pageIndex), bytesToRead, ScopeRegistry.scopeOf(scopeId));
+  }
+
+  private int getByHash(long hash, int bytesToRead, CacheScope scope) {
     mShadowCachePageRead.incrementAndGet();
     mShadowCacheByteRead.addAndGet(bytesToRead);
     long scopefp = encodeScope(scope);
-    int pos = bucketIndex(pageId, mHashFunction);
-    lock.lock();
-    if (clockTable[pos] == 0 || (mBitsPerScope > 0 && scopefp != scopeTable[pos])) {
-      lock.unlock();
-      return 0;
+    int pos = bucketIndex(hash);
+    while (true) {
+      long word = mTable.getWord(pos);
+      long bucket = mTable.fieldOf(word, pos);
+      if (clockOf(bucket) == 0 || (mBitsPerScope > 0 && scopefp != scopeOf(bucket))) {
+        return 0;
+      }
+      // reset CLOCK
+      if (mTable.compareAndSet(pos, word, bucket | mClockMask)) {
+        break;
+      }
     }
-    // reset CLOCK
-    clockTable[pos] = (1 << mBitsPerClock) - 1;
-    lock.unlock();
     mShadowCachePageHit.incrementAndGet();
     mShadowCacheByteHit.addAndGet(bytesToRead);
     return bytesToRead;
@@ -114,24 +168,58 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
 
   @Override
   public boolean delete(PageId pageId) {
-    int pos = bucketIndex(pageId, mHashFunction);
-    lock.lock();
-    clockTable[pos] = 0;
-    lock.unlock();
-    return false;
+    return deleteByHash(pageId.getHash());
   }
 
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return deleteByHash(PageId.hash(fileKey, pageIndex));
+  }
+
+  private boolean deleteByHash(long hash) {
+    int pos = bucketIndex(hash);
+    long bucket;
+    while (true) {
+      long word = mTable.getWord(pos);
+      bucket = mTable.fieldOf(word, pos);
+      if (clockOf(bucket) == 0) {
+        return false;
+      }
+      if (mTable.compareAndSet(pos, word, 0)) {
+        break;
+      }
+    }
+    mBucketsSet.decrementAndGet();
+    mTotalSize.addAndGet(-sizeOf(bucket));
+    return true;
+  }
 
+  @Override
   public void aging() {
-    for (int i = 0; i < mNumBuckets; i++) {
-      if (clockTable[i] > 1) {
-        clockTable[i] -= 1;
-      } else if (clockTable[i] == 1) {
-        mBucketsSet.addAndGet(-1);
-        mTotalSize.addAndGet(-sizeTable[i]);
-        clockTable[i] = 0;
-        sizeTable[i] = 0;
-        scopeTable[i] = 0;
+    for (int i = 0; i < mNumWords; i++) {
+      // a long refreshed or replaced concurrently is retried with its new value
+      while (true) {
+        long word = mTable.getWordAt(i);
+        long newWord = 0;
+        int numExpired = 0;
+        long expiredSize = 0;
+        for (int pos = i * mBucketsPerWord; pos < (i + 1) * mBucketsPerWord; pos++) {
+          long bucket = mTable.fieldOf(word, pos);
+          long clock = clockOf(bucket);
+          if (clock > 1) {
+            newWord = mTable.withField(newWord, pos, bucket - 1);
+          } else if (clock == 1) {
+            numExpired++;
+            expiredSize += sizeOf(bucket);
+          }
+        }
+        if (mTable.compareAndSetWord(i, word, newWord)) {
+          if (numExpired > 0) {
+            mBucketsSet.addAndGet(-numExpired);
+            mTotalSize.addAndGet(-expiredSize);
+          }
+          break;
+        }
       }
     }
   }
@@ -168,7 +256,8 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
     long ones = 0;
     long scopefp = encodeScope(scope);
     for (int i = 0; i < mNumBuckets; ++i) {
-      if (clockTable[i] > 0 && scopefp == scopeTable[i]) {
+      long bucket = mTable.get(i);
+      if (clockOf(bucket) > 0 && scopefp == scopeOf(bucket)) {
         ones++;
       }
     }
@@ -195,9 +284,10 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
     double totalSize = 0.;
     long scopefp = encodeScope(scope);
     for (int i = 0; i < mNumBuckets; ++i) {
-      if (clockTable[i] > 0 && scopeTable[i] == scopefp) {
+      long bucket = mTable.get(i);
+      if (clockOf(bucket) > 0 && scopeOf(bucket) == scopefp) {
         ones++;
-        totalSize += sizeTable[i];
+        totalSize += sizeOf(bucket);
       }
     }
     long zeros = mNumBuckets - ones;
@@ -233,20 +323,19 @@ public class BitMapWithClockSketchCacheManager implements ShadowCache {
 
   @Override
   public long getSpaceBits() {
-    return mNumBuckets * (mBitsPerScope + mBitsPerClock + mBitsPerSize);
+    return mTable.getSpaceBits();
   }
 
   @Override
   public String getSummary() {
-    return "bitmapWithClockSketch\bnumBuckets: " + mNumBuckets + "\nbitsPerClock: " + mBitsPerClock
-        + "\nbitsPerSize: " + mBitsPerSize + "\nbitsPerScope: " + mBitsPerScope + "\nSizeInMB: "
-        + (mNumBuckets * mBitsPerClock / 8.0 / Constants.MB
-            + mNumBuckets * mBitsPerSize / 8.0 / Constants.MB
-            + mNumBuckets * mBitsPerScope / 8.0 / Constants.MB);
+    return "bitmapWithClockSketch\nnumBuckets: " + mNumBuckets + "\nbucketsPerWord: "
+        + mBucketsPerWord + "\nbitsPerClock: " + mBitsPerClock + "\nbitsPerSize: " + mBitsPerSize
+        + "\nbitsPerScope: " + mBitsPerScope + "\nSizeInMB: " + getSpaceBits() / 8.0 / Constants.MB;
   }
 
-  private int bucketIndex(PageId pageId, HashFunction hashFunc) {
-    return Math.abs(hashFunc.newHasher().putObject(pageId, mFunnel).hash().asInt() % mNumBuckets);
+  @VisibleForTesting
+  int bucketIndex(long hash) {
+    return (int) Long.remainderUnsigned(hash, mNumBuckets);
   }
 
   private long encodeScope(CacheScope scope) {
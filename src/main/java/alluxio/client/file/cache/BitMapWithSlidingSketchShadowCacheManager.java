@@ -17,32 +17,56 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import alluxio.Constants;
 import alluxio.client.file.cache.cuckoofilter.SlidingWindowType;
 import alluxio.client.quota.CacheScope;
+import alluxio.collections.AtomicPackedArray;
 import alluxio.util.FormatUtils;
 
-import com.google.common.hash.Funnel;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import com.google.common.base.Preconditions;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * This class is a shadow cache with bitmap and sliding sketch implementation. Each bucket holds the
+ * size of the page last put in the current and the previous period, and aging sweeps the buckets
+ * in a cycle of one window, shifting the current size to the previous one.
+ *
+ * <p>
+ * Buckets are packed into an {@link AtomicPackedArray} without crossing a long, and grouped
+ * into blocks of about a cache line. All positions of a page are derived from one 64-bit
+ * hash: the block from its high half, and the slots in the block by double hashing (Kirsch and
+ * Mitzenmacher) with an odd step, so that they are distinct. A bucket is updated with
+ * compare-and-set on its long, and put and get take no lock.
+ *
+ * <p>
+ * Aging is incremental: a sweep pointer follows the number of buckets which should have been swept
+ * by now, that is one window of ticks per cycle. Threads claim the range between the pointer and
+ * the target with compare-and-set, so that disjoint ranges are swept concurrently without a lock.
+ * A tick is a call of {@link #aging} for count based windows, or a millisecond for time based
+ * windows, where put and get sweep a bounded range each, and a background task catches up when
+ * the shadow cache is idle.
+ */
 public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
+  // the number of bits of a block, which is a cache line
+  private static final int BITS_PER_BLOCK = 512;
+  // the maximum number of buckets swept by a put or get
+  private static final int MAX_SWEEP_PER_OP = 64;
+  // the number of runs of the catch-up task in a window
+  private static final int CATCH_UP_PER_WINDOW = 256;
+
   protected int mBucketNum;
   protected int mBitsPerSize;
   protected int mBitsPerScope;
   protected int mWindowSize;
   protected int mHashNum;
   private double numClearPerTime;
-  private double clears;
-  protected Funnel<PageId> mFunnel;
-  protected List<HashFunction> hashFuncs = new LinkedList<HashFunction>();
-  protected int[] traceSizeNew;
-  protected int[] traceSizeOld;
+  // each bucket packs the size of current period in low bits and that of previous period above
+  protected AtomicPackedArray mTable;
+  protected int mBitsPerBucket;
+  protected int mBucketsPerWord;
+  protected int mBucketsPerBlock;
+  protected int mBlockNum;
+  protected long mSizeMask;
   private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
   private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
@@ -50,63 +74,113 @@ public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
   private final AtomicLong mTotalOnes = new AtomicLong(0);
   private final AtomicLong mTotalSize = new AtomicLong(0);
   private final ScheduledExecutorService mScheduler = Executors.newScheduledThreadPool(0);
-  private final Lock lock = new ReentrantLock();
-  private int currIdx;
+  private final boolean mTimeBased;
+  private final long mStartNanos = System.nanoTime();
+  // the number of ticks of count based windows
+  private final AtomicLong mTicks = new AtomicLong(0);
+  // the number of buckets swept since start, of which the first one not swept is the pointer
+  private final AtomicLong mSwept = new AtomicLong(0);
 
   public BitMapWithSlidingSketchShadowCacheManager(ShadowCacheParameters params) {
     mBitsPerSize = params.mSizeBits;
     mWindowSize = (int)params.mWindowSize;
-    mFunnel = PageIdFunnel.FUNNEL;
     mBitsPerScope = params.mScopeBits;
     mHashNum = params.mNumHashFunctions;
+    mBitsPerBucket = mBitsPerSize * 2;
+    Preconditions.checkArgument(mBitsPerBucket <= Long.SIZE,
+        "bits of size must fit in half a long: %s", mBitsPerSize);
+    mBucketsPerWord = Long.SIZE / mBitsPerBucket;
+    mBucketsPerBlock = Integer.highestOneBit(Math.max(1, BITS_PER_BLOCK / mBitsPerBucket));
+    Preconditions.checkArgument(mHashNum > 0 && mHashNum <= mBucketsPerBlock,
+        "number of hash functions must be in [1, %s]: %s", mBucketsPerBlock, mHashNum);
     long memoryInBits = FormatUtils.parseSpaceSize(params.mMemoryBudget) * 8;
-    mBucketNum = (int) (memoryInBits / ((mBitsPerSize) * 2));
-    for (int i = 0; i < mHashNum; i++) {
-      hashFuncs.add(Hashing.murmur3_32(i + 32713));
-    }
+    int numWords = (int) Math.max(1, memoryInBits / Long.SIZE);
+    mBlockNum = Math.max(1, numWords * mBucketsPerWord / mBucketsPerBlock);
+    mBucketNum = mBlockNum * mBucketsPerBlock;
+    mTable = new AtomicPackedArray(mBucketNum, mBitsPerBucket);
+    mSizeMask = (1L << mBitsPerSize) - 1;
     numClearPerTime = (double)mBucketNum / mWindowSize;
-    traceSizeNew = new int[mBucketNum];
-    traceSizeOld = new int[mBucketNum];
-    int agingPeriod = 1;
-    if(params.mSlidingWindowType == SlidingWindowType.TIME_BASED){
-      mScheduler.scheduleAtFixedRate(this::aging, agingPeriod, agingPeriod, MILLISECONDS);
+    mTimeBased = params.mSlidingWindowType == SlidingWindowType.TIME_BASED;
+    if (mTimeBased) {
+      long catchUpPeriod = Math.max(1, mWindowSize / CATCH_UP_PER_WINDOW);
+      mScheduler.scheduleAtFixedRate(() -> sweep(Long.MAX_VALUE), catchUpPeriod, catchUpPeriod,
+          MILLISECONDS);
     }
   }
 
+  /**
+   * @param hash the hash of a page
+   * @param i the index of position, in [0, mHashNum)
+   * @return the i-th bucket of the page
+   */
+  private int positionOf(long hash, int i) {
+    int blockStart = (int) ((hash >>> 32) % mBlockNum) * mBucketsPerBlock;
+    // an odd step visits distinct slots of a block whose size is a power of 2
+    int step = ((int) hash >>> 16) | 1;
+    return blockStart + (((int) hash + i * step) & (mBucketsPerBlock - 1));
+  }
+
+  private long newSizeOf(long bucket) {
+    return bucket & mSizeMask;
+  }
+
+  private long oldSizeOf(long bucket) {
+    return bucket >>> mBitsPerSize;
+  }
+
   @Override
   public boolean put(PageId pageId, int size, CacheScope scope) {
-    //System.out.println("in put");
-    for (HashFunction hashFunc : hashFuncs) {
-      int pos = Math.abs(hashFunc.newHasher().putObject(pageId, mFunnel).hash().asInt() % mBucketNum);
-      lock.lock();
-      if(traceSizeNew[pos]==0){
-        if(traceSizeOld[pos]==0){
-          mTotalOnes.incrementAndGet();
+    return putByHash(pageId.getHash(), size);
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByHash(PageId.hash(fileKey, pageIndex), size);
+  }
+
+  private boolean putByHash(long hash, int size) {
+    if (mTimeBased) {
+      sweep(MAX_SWEEP_PER_OP);
+    }
+    // a zero size means an empty bucket, so sizes are clamped to be non-zero
+    long newSize = Math.max(1, min(size, mSizeMask));
+    for (int i = 0; i < mHashNum; i++) {
+      int pos = positionOf(hash, i);
+      while (true) {
+        long word = mTable.getWord(pos);
+        long bucket = mTable.fieldOf(word, pos);
+        if (mTable.compareAndSet(pos, word, (bucket & ~mSizeMask) | newSize)) {
+          if (bucket == 0) {
+            mTotalOnes.incrementAndGet();
+          }
+          break;
         }
       }
-      traceSizeNew[pos] = size;
-      lock.unlock();
-      // traceSizeOld[pos] = 0;
     }
-    //System.out.println("put end");
     return true;
   }
 
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope scope) {
-    //System.out.println("in get");
+    return getByHash(pageId.getHash(), bytesToRead);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash(PageId.hash(fileKey, pageIndex), bytesToRead);
+  }
+
+  private int getByHash(long hash, int bytesToRead) {
     mShadowCachePageRead.incrementAndGet();
     mShadowCacheByteRead.addAndGet(bytesToRead);
-    for (HashFunction hashFunc : hashFuncs) {
-      int pos = Math.abs(hashFunc.newHasher().putObject(pageId, mFunnel).hash().asInt() % mBucketNum);
-      lock.lock();
-      if (traceSizeNew[pos] == 0 && traceSizeOld[pos] == 0) {
-        lock.unlock();
-        //System.out.println("out get");
+    if (mTimeBased) {
+      sweep(MAX_SWEEP_PER_OP);
+    }
+    for (int i = 0; i < mHashNum; i++) {
+      int pos = positionOf(hash, i);
+      if (mTable.get(pos) == 0) {
         return 0;
       }
-      lock.unlock();
-      //System.out.println("out get");
     }
     mShadowCachePageHit.incrementAndGet();
     mShadowCacheByteHit.addAndGet(bytesToRead);
@@ -115,41 +189,93 @@ public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
 
   @Override
   public void aging() {
-    lock.lock();
-    clears+=numClearPerTime;
-    int clearsI  = (int)Math.floor(clears);
-    clears -= clearsI;
-    int endPos = (currIdx+clearsI)%mBucketNum;
-
-    if(endPos<currIdx){
-      agingRange(currIdx,mBucketNum);
-      agingRange(0,endPos);
-    }else{
-      agingRange(currIdx,endPos);
+    if (!mTimeBased) {
+      mTicks.incrementAndGet();
     }
-    currIdx = endPos;
-    lock.unlock();
+    sweep(Long.MAX_VALUE);
   }
 
-  private void agingRange(int start,int end){
-    for(int i=start;i<end;i++){
-      if(traceSizeNew[i]==0 && traceSizeOld[i]!=0){
-        mTotalOnes.decrementAndGet();
+  /**
+   * @return the number of buckets which should have been swept since start
+   */
+  private long sweepTarget() {
+    double ticks = mTimeBased ? (System.nanoTime() - mStartNanos) / 1e6 : mTicks.get();
+    return (long) (ticks * numClearPerTime);
+  }
+
+  /**
+   * Sweeps the buckets from the pointer towards the target.
+   *
+   * @param maxBuckets the maximum number of buckets to sweep
+   */
+  private void sweep(long maxBuckets) {
+    long target = sweepTarget();
+    long remaining = maxBuckets;
+    while (remaining > 0) {
+      long swept = mSwept.get();
+      if (swept >= target) {
+        return;
+      }
+      // two cycles clear all buckets, so older sweeps are skipped after a long pause
+      long start = Math.max(swept, target - 2L * mBucketNum);
+      long end = start + Math.min(Math.min(remaining, mBucketNum), target - start);
+      if (mSwept.compareAndSet(swept, end)) {
+        agingRange(start, end);
+        remaining -= end - start;
+      }
+    }
+  }
+
+  /**
+   * Ages the buckets in a range of the sweep order.
+   *
+   * @param start the first index to age, inclusive
+   * @param end the last index to age, exclusive
+   */
+  private void agingRange(long start, long end) {
+    for (long k = start; k < end; k++) {
+      // sweep the same slot of all blocks before the next slot, so that the slots of a page are
+      // aged at times spread over the window rather than all at once
+      int j = (int) (k % mBucketNum);
+      int i = (j % mBlockNum) * mBucketsPerBlock + j / mBlockNum;
+      while (true) {
+        long word = mTable.getWord(i);
+        long bucket = mTable.fieldOf(word, i);
+        long newBucket = newSizeOf(bucket) << mBitsPerSize;
+        if (mTable.compareAndSet(i, word, newBucket)) {
+          if (bucket != 0 && newBucket == 0) {
+            mTotalOnes.decrementAndGet();
+          }
+          break;
+        }
       }
-      traceSizeOld[i] = traceSizeNew[i];
-      traceSizeNew[i] = 0;
     }
   }
 
   @Override
   public boolean delete(PageId pageId) {
-    lock.lock();
-    for (HashFunction hashFunc : hashFuncs) {
-      int pos = Math.abs(hashFunc.newHasher().putObject(pageId, mFunnel).hash().asInt() % mBucketNum);
-      traceSizeNew[pos] = 0;
-      traceSizeOld[pos] = 0;
+    return deleteByHash(pageId.getHash());
+  }
+
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return deleteByHash(PageId.hash(fileKey, pageIndex));
+  }
+
+  private boolean deleteByHash(long hash) {
+    for (int i = 0; i < mHashNum; i++) {
+      int pos = positionOf(hash, i);
+      while (true) {
+        long word = mTable.getWord(pos);
+        long bucket = mTable.fieldOf(word, pos);
+        if (mTable.compareAndSet(pos, word, 0)) {
+          if (bucket != 0) {
+            mTotalOnes.decrementAndGet();
+          }
+          break;
+        }
+      }
     }
-    lock.unlock();
     return true;
   }
 
@@ -189,12 +315,13 @@ public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
     //long ones = mTotalOnes.get();
     long ones = 0;
     for (int i = 0; i < mBucketNum; i++) {
+      long bucket = mTable.get(i);
       // TODO- how to combine
-      double traceSize = traceSizeNew[i] + traceSizeOld[i];
-      if(traceSizeNew[i]!=0){
+      double traceSize = newSizeOf(bucket) + oldSizeOf(bucket);
+      if(newSizeOf(bucket)!=0){
         ones++;
       }
-      if(traceSizeOld[i]!=0){
+      if(oldSizeOf(bucket)!=0){
         ones++;
       }
       sizeSum += traceSize;
@@ -236,7 +363,7 @@ public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
 
   @Override
   public long getSpaceBits() {
-    return (long) mBucketNum * mBitsPerSize * 2;
+    return mTable.getSpaceBits();
   }
 
   @Override
@@ -245,6 +372,7 @@ public class BitMapWithSlidingSketchShadowCacheManager implements ShadowCache {
         + "\nbitsPerSize: " + mBitsPerSize
         + "\nSizeInMB: " + (getSpaceBits() / 8.0 / Constants.MB)
         + "\nClearItemsPerTime: " +  numClearPerTime
-        + "\nHashNum: " + mHashNum;
+        + "\nHashNum: " + mHashNum
+        + "\nBucketsPerBlock: " + mBucketsPerBlock;
   }
 }
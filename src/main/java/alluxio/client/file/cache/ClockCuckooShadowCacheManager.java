@@ -20,6 +20,7 @@ import alluxio.client.quota.CacheScope;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * This class is a shadow cache with {@link ClockCuckooFilter} implementation.
@@ -34,6 +35,10 @@ public class ClockCuckooShadowCacheManager implements ShadowCache {
   private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteHit = new AtomicLong(0);
+  // hits indexed by the number of aging periods since the last access, for miss ratio curve
+  private final AtomicLongArray mPageHitsByAge;
+  private final AtomicLongArray mByteHitsByAge;
+  private final int mMaxAge;
   private long mShadowCacheBytes = 0;
   private long mShadowCachePages = 0;
 
@@ -46,27 +51,36 @@ public class ClockCuckooShadowCacheManager implements ShadowCache {
     long windowMs = conf.mWindowSize;
     int bitsPerClock = conf.mClockBits;
     mFilter = ConcurrentClockCuckooFilter.create(PageIdFunnel.FUNNEL, conf);
+    mMaxAge = (1 << mFilter.getBitsPerClock()) - 1;
+    mPageHitsByAge = new AtomicLongArray(mMaxAge + 1);
+    mByteHitsByAge = new AtomicLongArray(mMaxAge + 1);
     long agingPeriod = windowMs >> bitsPerClock;
     mScheduler.scheduleAtFixedRate(this::aging, agingPeriod, agingPeriod, MILLISECONDS);
   }
 
   @Override
   public boolean put(PageId pageId, int size, CacheScope cacheScope) {
-    return updateClockCuckoo(pageId, size, cacheScope);
+    return updateClockCuckoo(pageId.getHash(), size, cacheScope);
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return updateClockCuckoo(PageId.hash(fileKey, pageIndex), size,
+        ScopeRegistry.scopeOf(scopeId));
   }
 
   /**
    * Put a page into shadow cache if it is not existed.
    *
-   * @param pageId page identifier
+   * @param hash the hash of page, which is the hash value of the filter
    * @param size page size
    * @param cacheScope cache scope
    * @return true if page is put successfully; false otherwise
    */
-  private boolean updateClockCuckoo(PageId pageId, int size, CacheScope cacheScope) {
+  private boolean updateClockCuckoo(long hash, int size, CacheScope cacheScope) {
     boolean ok = true;
-    if (!mFilter.mightContainAndResetClock(pageId)) {
-      ok = mFilter.put(pageId, size, cacheScope);
+    if (!mFilter.mightContainAndResetClockByHash(hash)) {
+      ok = mFilter.putByHash(hash, size, cacheScope);
       updateWorkingSetSize();
     }
     return ok;
@@ -74,19 +88,88 @@ public class ClockCuckooShadowCacheManager implements ShadowCache {
 
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope cacheScope) {
-    boolean seen = mFilter.mightContainAndResetClock(pageId);
+    return getByHash(pageId.getHash(), bytesToRead);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash(PageId.hash(fileKey, pageIndex), bytesToRead);
+  }
+
+  private int getByHash(long hash, int bytesToRead) {
+    int clock = mFilter.getClockAndResetClockByHash(hash);
+    boolean seen = clock >= 0;
     if (seen) {
       mShadowCachePageHit.getAndIncrement();
       mShadowCacheByteHit.getAndAdd(bytesToRead);
+      recordHit(clock, bytesToRead);
     }
     mShadowCachePageRead.getAndIncrement();
     mShadowCacheByteRead.getAndAdd(bytesToRead);
     return seen ? bytesToRead : 0;
   }
 
+  @Override
+  public int putAll(PageId[] pageIds, int[] sizes, CacheScope[] scopes) {
+    int numOk = mFilter.putOrResetClock(pageIds, sizes, scopes, new boolean[pageIds.length]);
+    updateWorkingSetSize();
+    return numOk;
+  }
+
+  @Override
+  public void getAll(PageId[] pageIds, int[] bytesToRead, CacheScope[] scopes, int[] out) {
+    int[] clocks = new int[pageIds.length];
+    int numHit = mFilter.getClockAndResetClock(pageIds, clocks);
+    long bytesRead = 0;
+    long bytesHit = 0;
+    for (int i = 0; i < pageIds.length; i++) {
+      boolean seen = clocks[i] >= 0;
+      bytesRead += bytesToRead[i];
+      if (seen) {
+        bytesHit += bytesToRead[i];
+        recordHit(clocks[i], bytesToRead[i]);
+      }
+      out[i] = seen ? bytesToRead[i] : 0;
+    }
+    mShadowCachePageHit.getAndAdd(numHit);
+    mShadowCacheByteHit.getAndAdd(bytesHit);
+    mShadowCachePageRead.getAndAdd(pageIds.length);
+    mShadowCacheByteRead.getAndAdd(bytesRead);
+  }
+
+  /**
+   * @param clock the clock of the page hit before reset
+   * @param bytesHit the number of bytes hit
+   */
+  private void recordHit(int clock, int bytesHit) {
+    int age = mMaxAge - clock;
+    mPageHitsByAge.getAndIncrement(age);
+    mByteHitsByAge.getAndAdd(age, bytesHit);
+  }
+
+  @Override
+  public MissRatioCurve getMissRatioCurve() {
+    long[] bytesByClock = mFilter.getBytesByClock();
+    long[] bytesByAge = new long[mMaxAge + 1];
+    long[] pageHitsByAge = new long[mMaxAge + 1];
+    long[] byteHitsByAge = new long[mMaxAge + 1];
+    for (int age = 0; age <= mMaxAge; age++) {
+      bytesByAge[age] = bytesByClock[mMaxAge - age];
+      pageHitsByAge[age] = mPageHitsByAge.get(age);
+      byteHitsByAge[age] = mByteHitsByAge.get(age);
+    }
+    return MissRatioCurve.fromAgeHistogram(bytesByAge, pageHitsByAge, byteHitsByAge,
+        mShadowCachePageRead.get(), mShadowCacheByteRead.get());
+  }
+
   @Override
   public boolean delete(PageId pageId) {
-    return mFilter.delete(pageId);
+    return mFilter.deleteByHash(pageId.getHash());
+  }
+
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return mFilter.deleteByHash(PageId.hash(fileKey, pageIndex));
   }
 
   @Override
@@ -157,7 +240,7 @@ public class ClockCuckooShadowCacheManager implements ShadowCache {
 
   @Override
   public long getSpaceBits() {
-    return (mFilter.getBitsPerTag() + mFilter.getBitsPerClock() + mFilter.getBitsPerSize()
+    return (long) (mFilter.getBitsPerTag() + mFilter.getBitsPerClock() + mFilter.getBitsPerSize()
         + mFilter.getBitsPerScope()) * mFilter.getTagsPerBucket() * mFilter.getNumBuckets();
   }
 
@@ -1,70 +1,328 @@
 package alluxio.client.file.cache;
 
 import alluxio.client.quota.CacheScope;
+import alluxio.collections.HyperLogLog;
 import alluxio.util.FormatUtils;
 
-import com.google.common.hash.Funnel;
-import com.google.common.hash.HashFunction;
-import java.util.Map;
-import java.util.Set;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is a shadow cache with Counter Stacks (Wires et al., OSDI'14) implementation.
+ *
+ * <p>
+ * A new HyperLogLog counter is started at the beginning of every interval, and each page access is
+ * added to all live counters, so that counter i counts the distinct pages accessed since its start.
+ * At the end of each interval, the increments of adjacent counters tell how many accesses of the
+ * interval reuse a page last accessed between the starts of the two counters, whose reuse distance
+ * is about the counts of the two counters. Counters are pruned when they converge with an adjacent
+ * counter, dropped once they are older than the window, and bounded by the memory budget.
+ *
+ * <p>
+ * Counter Stacks does not tell whether a single page is in the window, so {@link #get} always
+ * returns 0, and hits are counted in aggregate at the end of each interval.
+ */
+public class CounterStackShadowCacheManager implements ShadowCache {
+  // reuse distances are bucketed into 4 buckets per power of 2
+  private static final int BUCKETS_PER_OCTAVE = 4;
+  private static final int NUM_DISTANCE_BUCKETS = Long.SIZE * BUCKETS_PER_OCTAVE + 1;
 
-public class CounterStackShadowCacheManager implements ShadowCache{
-  private long mWindowSize;
-  private long mTagBits;
-  private long mCounterBuckets;
-  private long mMemoryInBits;
+  private final Lock mLock = new ReentrantLock();
+  private final long mWindowSize;
+  private final long mInterval;
+  private final double mPruneDelta;
+  private final int mPrecision;
+  private final int mMaxCounters;
+  // live counters, from the oldest to the newest
+  private final List<Counter> mCounters = new ArrayList<>();
+  // the number of reuses indexed by the bucket of reuse distance in pages
+  private final long[] mReuseHistogram = new long[NUM_DISTANCE_BUCKETS];
   private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
-  private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
-  private final AtomicLong mShadowCacheByteHit = new AtomicLong(0);
-  private final AtomicLong mBucketsSet = new AtomicLong(0);
-  private final AtomicLong mTotalSize = new AtomicLong(0);
-  public  CounterStackShadowCacheManager(ShadowCacheParameters parameters){
-    mTagBits = parameters.mTagBits;
-    mMemoryInBits = FormatUtils.parseSpaceSize(parameters.mMemoryBudget) * 8;
-    mCounterBuckets = mMemoryInBits / (mWindowSize*mTagBits);
+  private long mShadowCachePageHit = 0;
+  private long mShadowCacheByteHit = 0;
+  private long mIntervalPageRead = 0;
+  private long mIntervalByteRead = 0;
+  private long mTimestamp = 0;
+  private long mShadowCachePages = 0;
+  private long mShadowCacheBytes = 0;
+
+  /**
+   * Create a CounterStackShadowCacheManager.
+   *
+   * @param parameters the shadow cache parameters
+   */
+  public CounterStackShadowCacheManager(ShadowCacheParameters parameters) {
+    mWindowSize = parameters.mWindowSize;
+    mInterval = (parameters.mCounterStackInterval > 0) ? parameters.mCounterStackInterval
+        : Math.max(1, mWindowSize >> 6);
+    mPruneDelta = parameters.mCounterStackPruneDelta;
+    mPrecision = parameters.mHllPrecision;
+    Preconditions.checkArgument(mPruneDelta >= 0 && mPruneDelta < 1,
+        "prune delta must be in [0, 1): %s", mPruneDelta);
+    long memoryInBytes = FormatUtils.parseSpaceSize(parameters.mMemoryBudget);
+    mMaxCounters = (int) Math.max(2, memoryInBytes >> mPrecision);
+    mCounters.add(new Counter(new HyperLogLog(mPrecision), 0));
+  }
+
+  /**
+   * A HyperLogLog counter started at a given time.
+   */
+  private static final class Counter {
+    private final HyperLogLog mHll;
+    private final long mStartTime;
+    // the count at the end of last interval
+    private long mLastCount = 0;
+    private long mCount = 0;
+    // the number and bytes of accesses since start, to estimate the mean page size
+    private long mNumAdds = 0;
+    private long mBytesAdded = 0;
+
+    Counter(HyperLogLog hll, long startTime) {
+      mHll = hll;
+      mStartTime = startTime;
+    }
+  }
 
+  /**
+   * @param hash the hash of page
+   * @param size page size
+   */
+  private void add(long hash, int size) {
+    for (Counter counter : mCounters) {
+      counter.mHll.add(hash);
+      counter.mNumAdds++;
+      counter.mBytesAdded += size;
+    }
   }
 
   @Override
   public boolean put(PageId pageId, int size, CacheScope scope) {
-    return false;
+    return putByHash(pageId.getHash(), size);
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByHash(PageId.hash(fileKey, pageIndex), size);
+  }
+
+  private boolean putByHash(long hash, int size) {
+    mLock.lock();
+    try {
+      // counters are idempotent, so a page read before is not counted twice
+      add(hash, size);
+    } finally {
+      mLock.unlock();
+    }
+    return true;
   }
 
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    return getByHash(pageId.getHash(), bytesToRead);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash(PageId.hash(fileKey, pageIndex), bytesToRead);
+  }
+
+  private int getByHash(long hash, int bytesToRead) {
+    mShadowCachePageRead.incrementAndGet();
+    mShadowCacheByteRead.addAndGet(bytesToRead);
+    mLock.lock();
+    try {
+      add(hash, bytesToRead);
+      mIntervalPageRead++;
+      mIntervalByteRead += bytesToRead;
+    } finally {
+      mLock.unlock();
+    }
     return 0;
   }
 
   @Override
   public boolean delete(PageId pageId) {
+    // a page cannot be removed from HyperLogLog counters
     return false;
   }
 
   @Override
-  public void aging() {
+  public boolean delete(long fileKey, long pageIndex) {
+    return false;
+  }
 
+  @Override
+  public void aging() {
+    // counters are started and dropped by timestamp, see updateTimestamp
   }
 
   @Override
   public void updateWorkingSetSize() {
-
+    mLock.lock();
+    try {
+      Counter oldest = mCounters.get(0);
+      mShadowCachePages = oldest.mHll.cardinality();
+      mShadowCacheBytes = (oldest.mNumAdds == 0) ? 0
+          : (long) (mShadowCachePages * (oldest.mBytesAdded / (double) oldest.mNumAdds));
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
   public void stopUpdate() {
-
   }
 
   @Override
   public void updateTimestamp(long increment) {
+    mLock.lock();
+    try {
+      mTimestamp += increment;
+      if (mTimestamp - mCounters.get(mCounters.size() - 1).mStartTime >= mInterval) {
+        finishInterval();
+      }
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  /**
+   * Count the hits and reuse distances of the accesses in this interval, prune the counters, and
+   * start a new counter. Assume holding the lock.
+   */
+  private void finishInterval() {
+    int numCounters = mCounters.size();
+    long[] increments = new long[numCounters];
+    for (int i = 0; i < numCounters; i++) {
+      Counter counter = mCounters.get(i);
+      counter.mCount = counter.mHll.cardinality();
+      increments[i] = Math.max(0, counter.mCount - counter.mLastCount);
+      counter.mLastCount = counter.mCount;
+    }
+    // accesses new to the oldest counter are either cold or older than the window
+    long pageHits = Math.max(0, mIntervalPageRead - increments[0]);
+    mShadowCachePageHit += pageHits;
+    if (mIntervalPageRead > 0) {
+      mShadowCacheByteHit += (long) (pageHits * (mIntervalByteRead / (double) mIntervalPageRead));
+    }
+    // accesses new to counter (i + 1) but not to counter i reuse a page last accessed between
+    // their starts, and those not new to the newest counter reuse a page within this interval;
+    // negative differences from estimation errors are kept so that they cancel out cumulatively
+    for (int i = 0; i + 1 < numCounters; i++) {
+      Counter older = mCounters.get(i);
+      Counter younger = mCounters.get(i + 1);
+      mReuseHistogram[distanceBucket((older.mCount + younger.mCount) / 2)] +=
+          increments[i + 1] - increments[i];
+    }
+    mReuseHistogram[distanceBucket(mCounters.get(numCounters - 1).mCount / 2)] +=
+        mIntervalPageRead - increments[numCounters - 1];
+    mIntervalPageRead = 0;
+    mIntervalByteRead = 0;
+
+    // drop counters started before the window, but keep one covering the whole window
+    while (mCounters.size() >= 2 && mCounters.get(1).mStartTime <= mTimestamp - mWindowSize) {
+      mCounters.remove(0);
+    }
+    // counters converged with the next younger one have seen almost the same pages since then
+    int i = 0;
+    while (i + 1 < mCounters.size()) {
+      if (mCounters.get(i + 1).mCount >= (1 - mPruneDelta) * mCounters.get(i).mCount) {
+        mCounters.remove(i);
+      } else {
+        i++;
+      }
+    }
+    while (mCounters.size() >= mMaxCounters) {
+      mCounters.remove(mostConvergedCounter());
+    }
+    mCounters.add(new Counter(new HyperLogLog(mPrecision), mTimestamp));
+  }
+
+  /**
+   * @return the index of the older counter of the adjacent pair with the closest counts
+   */
+  private int mostConvergedCounter() {
+    int index = 0;
+    double maxRatio = -1;
+    for (int i = 0; i + 1 < mCounters.size(); i++) {
+      double ratio = mCounters.get(i + 1).mCount / (double) Math.max(1, mCounters.get(i).mCount);
+      if (ratio > maxRatio) {
+        maxRatio = ratio;
+        index = i;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @param distance the reuse distance in pages
+   * @return the bucket of reuse distance
+   */
+  private static int distanceBucket(long distance) {
+    if (distance <= 1) {
+      return 0;
+    }
+    double log2 = Math.log(distance) / Math.log(2);
+    return Math.min(NUM_DISTANCE_BUCKETS - 1, (int) Math.ceil(log2 * BUCKETS_PER_OCTAVE));
+  }
+
+  /**
+   * @param bucket the bucket of reuse distance
+   * @return the largest reuse distance in pages of the bucket
+   */
+  private static long distanceUpperBound(int bucket) {
+    return (long) Math.floor(Math.pow(2, bucket / (double) BUCKETS_PER_OCTAVE));
+  }
+
+  /**
+   * @return the histogram of reuse distances, where bucket b holds the reuses of distances in
+   *         pages between the upper bounds of buckets (b - 1) and b, and the upper bound of bucket
+   *         b is 2^(b / 4); a bucket can be negative due to estimation errors
+   */
+  public long[] getReuseDistanceHistogram() {
+    mLock.lock();
+    try {
+      return mReuseHistogram.clone();
+    } finally {
+      mLock.unlock();
+    }
+  }
 
+  @Override
+  public MissRatioCurve getMissRatioCurve() {
+    long[] histogram = getReuseDistanceHistogram();
+    int numBuckets = histogram.length;
+    while (numBuckets > 0 && histogram[numBuckets - 1] == 0) {
+      numBuckets--;
+    }
+    long pagesRead = mShadowCachePageRead.get();
+    long bytesRead = mShadowCacheByteRead.get();
+    double bytesPerPage = (pagesRead == 0) ? 0 : bytesRead / (double) pagesRead;
+    long[] cacheSizes = new long[numBuckets + 1];
+    double[] missRatios = new double[numBuckets + 1];
+    missRatios[0] = 1.0;
+    long hits = 0;
+    long maxHits = 0;
+    for (int b = 0; b < numBuckets; b++) {
+      hits += histogram[b];
+      // the cumulative hits may drop with negative buckets, but a larger cache never hits less
+      maxHits = Math.min(pagesRead, Math.max(maxHits, hits));
+      cacheSizes[b + 1] = (long) (distanceUpperBound(b) * bytesPerPage);
+      missRatios[b + 1] = (pagesRead == 0) ? 1.0 : 1.0 - maxHits / (double) pagesRead;
+    }
+    // distances are counted in pages, so byte miss ratios assume pages of the mean size
+    return new MissRatioCurve(cacheSizes, missRatios, missRatios.clone());
   }
 
   @Override
   public long getShadowCachePages() {
-    return 0;
+    return mShadowCachePages;
   }
 
   @Override
@@ -74,7 +332,7 @@ public class CounterStackShadowCacheManager implements ShadowCache{
 
   @Override
   public long getShadowCacheBytes() {
-    return 0;
+    return mShadowCacheBytes;
   }
 
   @Override
@@ -84,22 +342,32 @@ public class CounterStackShadowCacheManager implements ShadowCache{
 
   @Override
   public long getShadowCachePageRead() {
-    return 0;
+    return mShadowCachePageRead.get();
   }
 
   @Override
   public long getShadowCachePageHit() {
-    return 0;
+    mLock.lock();
+    try {
+      return mShadowCachePageHit;
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
   public long getShadowCacheByteRead() {
-    return 0;
+    return mShadowCacheByteRead.get();
   }
 
   @Override
   public long getShadowCacheByteHit() {
-    return 0;
+    mLock.lock();
+    try {
+      return mShadowCacheByteHit;
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
@@ -109,11 +377,23 @@ public class CounterStackShadowCacheManager implements ShadowCache{
 
   @Override
   public long getSpaceBits() {
-    return 0;
+    mLock.lock();
+    try {
+      return (long) mCounters.size() * mCounters.get(0).mHll.getSizeInBytes() * 8;
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
   public String getSummary() {
-    return null;
+    mLock.lock();
+    try {
+      return "CounterStackShadowCache:\nwindowSize: " + mWindowSize + "\ninterval: " + mInterval
+          + "\nhllPrecision: " + mPrecision + "\npruneDelta: " + mPruneDelta + "\nmaxCounters: "
+          + mMaxCounters + "\nnumCounters: " + mCounters.size();
+    } finally {
+      mLock.unlock();
+    }
   }
 }
@@ -0,0 +1,94 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.google.common.base.Preconditions;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The instrumentation which records the latency of one in every given number of operations into a
+ * histogram for each operation. Histograms keep a sample biased to the last few minutes, so that
+ * the percentiles follow the current load of a long running process.
+ */
+public class HistogramShadowCacheMetrics implements ShadowCacheMetrics {
+  private final int mSampleInterval;
+  private final Map<Operation, Histogram> mHistograms = new EnumMap<>(Operation.class);
+
+  /**
+   * @param sampleInterval time one in every this number of operations
+   */
+  public HistogramShadowCacheMetrics(int sampleInterval) {
+    Preconditions.checkArgument(sampleInterval > 0, "sample interval must be positive: %s",
+        sampleInterval);
+    mSampleInterval = sampleInterval;
+    for (Operation operation : Operation.values()) {
+      mHistograms.put(operation, new Histogram(new ExponentiallyDecayingReservoir()));
+    }
+  }
+
+  @Override
+  public long startTimer() {
+    if (mSampleInterval > 1 && ThreadLocalRandom.current().nextInt(mSampleInterval) != 0) {
+      return 0;
+    }
+    return System.nanoTime();
+  }
+
+  @Override
+  public void record(Operation operation, long startNanos) {
+    if (startNanos != 0) {
+      mHistograms.get(operation).update(System.nanoTime() - startNanos);
+    }
+  }
+
+  @Override
+  public void record(Operation operation, long startNanos, int numOperations) {
+    if (startNanos != 0 && numOperations > 0) {
+      long meanNanos = (System.nanoTime() - startNanos) / numOperations;
+      Histogram histogram = mHistograms.get(operation);
+      for (int i = 0; i < numOperations; i++) {
+        histogram.update(meanNanos);
+      }
+    }
+  }
+
+  /**
+   * @param operation the operation
+   * @return the histogram of latency in nanoseconds of the operation
+   */
+  public Histogram getHistogram(Operation operation) {
+    return mHistograms.get(operation);
+  }
+
+  @Override
+  public String getSummary() {
+    StringBuilder sb = new StringBuilder("Latency(ns), sampled 1/" + mSampleInterval + ":");
+    sb.append("\nop\tsamples\tmean\tp50\tp99\tp999\tmax");
+    for (Map.Entry<Operation, Histogram> entry : mHistograms.entrySet()) {
+      long count = entry.getValue().getCount();
+      if (count == 0) {
+        continue;
+      }
+      Snapshot snapshot = entry.getValue().getSnapshot();
+      sb.append(String.format("\n%s\t%d\t%.0f\t%.0f\t%.0f\t%.0f\t%d", entry.getKey(), count,
+          snapshot.getMean(), snapshot.getMedian(), snapshot.get99thPercentile(),
+          snapshot.get999thPercentile(), snapshot.getMax()));
+    }
+    return sb.toString();
+  }
+}
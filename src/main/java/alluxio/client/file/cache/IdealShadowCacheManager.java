@@ -14,91 +14,137 @@ package alluxio.client.file.cache;
 import alluxio.Constants;
 import alluxio.client.file.cache.cuckoofilter.SlidingWindowType;
 import alluxio.client.quota.CacheScope;
-import alluxio.util.LRU;
+import alluxio.collections.LongHashIndex;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The exact shadow cache used as the ground truth of accuracy benchmarks. Pages are keyed by their
+ * 64-bit hash, whose collisions are negligible (about 3e-4 expected colliding pairs in 10^8
+ * pages), so that no page id is retained. Each page is an entry of parallel primitive arrays, which
+ * is found by a {@link LongHashIndex} and linked in LRU order by entry indices, taking 40 to 80
+ * bytes per page depending on the growth of arrays, without any object per page.
+ */
 public class IdealShadowCacheManager implements ShadowCache {
-  private final Lock lock;
-  private final LRU itemLRU;
-  private final HashMap<PageId, ItemAttribute> itemToAttribute;
-  private final HashMap<CacheScope, Integer> scopeToNumber;
-  private final HashMap<CacheScope, Long> scopeToSize;
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final int NIL = LongHashIndex.NIL;
+
+  private final Lock mLock = new ReentrantLock();
+
+  // entries of pages, linked from the least recently accessed (head) to the most (tail)
+  private long[] mKeys = new long[INITIAL_CAPACITY];
+  private long[] mTimestamps = new long[INITIAL_CAPACITY];
+  private int[] mSizes = new int[INITIAL_CAPACITY];
+  private int[] mScopeIds = new int[INITIAL_CAPACITY];
+  private int[] mPrev = new int[INITIAL_CAPACITY];
+  private int[] mNext = new int[INITIAL_CAPACITY];
+  private int mHead = NIL;
+  private int mTail = NIL;
+  // entries in [0, mNumAllocated) have been used, the released ones are chained by mNext
+  private int mNumAllocated = 0;
+  private int mFree = NIL;
+
+  private final LongHashIndex mIndex = new LongHashIndex(entry -> mKeys[entry]);
+
+  // pages and bytes of each scope, indexed by scope id
+  private long[] mScopePages = new long[1];
+  private long[] mScopeBytes = new long[1];
 
   private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
   private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
   private final AtomicLong mShadowCacheByteHit = new AtomicLong(0);
 
-  private final int bitsPerItem;
-  private final int bitsPerScope;
-  private final int bitsPerSize;
-  private final int bitsPerTimestamp;
-  private final long windowSize;
-  private long realNumber;
-  private long realSize;
-  private SlidingWindowType mSlidingWindowType;
-  private long timestampNow;
+  private final int mBitsPerItem;
+  private final int mBitsPerScope;
+  private final int mBitsPerSize;
+  private final int mBitsPerTimestamp;
+  private final long mWindowSize;
+  private final SlidingWindowType mSlidingWindowType;
+  private long mNumPages;
+  private long mNumBytes;
+  private long mTimestampNow;
 
   public IdealShadowCacheManager(ShadowCacheParameters params) {
     mSlidingWindowType = params.mSlidingWindowType;
-    this.windowSize = params.mWindowSize;
-    this.lock = new ReentrantLock();
-    this.itemLRU = new LRU();
-    this.itemToAttribute = new HashMap<>();
-    this.scopeToNumber = new HashMap<>();
-    this.scopeToSize = new HashMap<>();
-    this.bitsPerItem = params.mPageBits;
-    this.bitsPerScope = params.mScopeBits;
-    this.bitsPerSize = params.mSizeBits;
-    this.bitsPerTimestamp = 64;
-    this.realNumber = 0;
-    this.realSize = 0;
-    this.timestampNow = 0;
+    mWindowSize = params.mWindowSize;
+    mBitsPerItem = params.mPageBits;
+    mBitsPerScope = params.mScopeBits;
+    mBitsPerSize = params.mSizeBits;
+    mBitsPerTimestamp = 64;
+    mNumPages = 0;
+    mNumBytes = 0;
+    mTimestampNow = 0;
   }
 
   @Override
   public boolean put(PageId pageId, int size, CacheScope scope) {
-    boolean success;
-    lock.lock();
     if (pageId == null) {
       return false;
     }
-    ItemAttribute attribute = itemToAttribute.get(pageId);
-    if (attribute == null) {
-      itemToAttribute.put(pageId, new ItemAttribute(size, scope, getCurrentTimestamp()));
-      success = itemLRU.put(pageId);
-      scopeToSize.put(scope, scopeToSize.getOrDefault(scope, 0L) + size);
-      scopeToNumber.put(scope, scopeToNumber.getOrDefault(scope, 0) + 1);
-      realSize += size;
-    } else {
-      attribute.timeStamp = getCurrentTimestamp();
-      success = itemLRU.put(pageId);
+    return putByKey(pageId.getHash(), size, ScopeRegistry.idOf(scope));
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByKey(PageId.hash(fileKey, pageIndex), size, scopeId);
+  }
+
+  private boolean putByKey(long key, int size, int scopeId) {
+    mLock.lock();
+    try {
+      int entry = find(key);
+      if (entry == NIL) {
+        entry = insert(key);
+        mSizes[entry] = size;
+        mScopeIds[entry] = scopeId;
+        ensureScope(scopeId);
+        mScopePages[scopeId]++;
+        mScopeBytes[scopeId] += size;
+        mNumPages++;
+        mNumBytes += size;
+      } else {
+        unlink(entry);
+      }
+      mTimestamps[entry] = getCurrentTimestamp();
+      append(entry);
+      return true;
+    } finally {
+      mLock.unlock();
     }
-    realNumber = itemLRU.getSize();
-    lock.unlock();
-    return success;
   }
 
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope scope) {
-    lock.lock();
-    // aging();
+    return getByKey(pageId.getHash(), bytesToRead);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByKey(PageId.hash(fileKey, pageIndex), bytesToRead);
+  }
+
+  private int getByKey(long key, int bytesToRead) {
     int nread = 0;
-    ItemAttribute attribute = itemToAttribute.get(pageId);
-    if (attribute != null && attribute.timeStamp >= (getCurrentTimestamp() - windowSize)) {
-      // on cache hit
-      mShadowCachePageHit.incrementAndGet();
-      bytesToRead = attribute.size;
-      nread = bytesToRead;
-      mShadowCacheByteHit.addAndGet(nread);
-      attribute.timeStamp = getCurrentTimestamp();
-      itemLRU.put(pageId);
-    }
-    lock.unlock();
+    mLock.lock();
+    try {
+      int entry = find(key);
+      if (entry != NIL && mTimestamps[entry] >= (getCurrentTimestamp() - mWindowSize)) {
+        // on cache hit
+        mShadowCachePageHit.incrementAndGet();
+        bytesToRead = mSizes[entry];
+        nread = bytesToRead;
+        mShadowCacheByteHit.addAndGet(nread);
+        mTimestamps[entry] = getCurrentTimestamp();
+        unlink(entry);
+        append(entry);
+      }
+    } finally {
+      mLock.unlock();
+    }
     mShadowCachePageRead.incrementAndGet();
     mShadowCacheByteRead.addAndGet(bytesToRead);
     return nread;
@@ -106,49 +152,141 @@ public class IdealShadowCacheManager implements ShadowCache {
 
   @Override
   public boolean delete(PageId pageId) {
-    lock.lock();
-    boolean b1 = itemLRU.remove(pageId);
-    boolean b2 = itemToAttribute.remove(pageId) != null;
-    lock.unlock();
-    return b1 && b2;
+    return deleteByKey(pageId.getHash());
   }
 
-  /**
-   * Assert held lock
-   */
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return deleteByKey(PageId.hash(fileKey, pageIndex));
+  }
+
+  private boolean deleteByKey(long key) {
+    mLock.lock();
+    try {
+      int entry = find(key);
+      if (entry == NIL) {
+        return false;
+      }
+      remove(entry);
+      return true;
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  @Override
   public void aging() {
-    long oldTimestamp = getCurrentTimestamp() - windowSize;
-    if (oldTimestamp > 0) {
-      while (!itemLRU.isEmpty()) {
-        PageId item = itemLRU.peek();
-        ItemAttribute itemAttribute = itemToAttribute.get(item);
-        if (itemAttribute.timeStamp < oldTimestamp) {
-          itemLRU.poll();
-          realSize -= itemAttribute.size;
-          scopeToNumber.put(itemAttribute.scope,
-              scopeToNumber.getOrDefault(itemAttribute.scope, 0) - 1);
-          scopeToSize.put(itemAttribute.scope,
-              scopeToSize.getOrDefault(itemAttribute.scope, 0L) - itemAttribute.size);
-          itemToAttribute.remove(item);
-        } else {
-          break;
+    mLock.lock();
+    try {
+      long oldTimestamp = getCurrentTimestamp() - mWindowSize;
+      if (oldTimestamp > 0) {
+        while (mHead != NIL && mTimestamps[mHead] < oldTimestamp) {
+          remove(mHead);
         }
+      }
+    } finally {
+      mLock.unlock();
+    }
+  }
 
+  /**
+   * @param key the key of page
+   * @return the entry of the key, or NIL if the key is absent
+   */
+  private int find(long key) {
+    return mIndex.find(key);
+  }
+
+  /**
+   * Allocates an entry for an absent key and indexes it. The entry is not linked.
+   *
+   * @param key the key of page
+   * @return the entry
+   */
+  private int insert(long key) {
+    int entry;
+    if (mFree != NIL) {
+      entry = mFree;
+      mFree = mNext[entry];
+    } else {
+      if (mNumAllocated == mKeys.length) {
+        growEntries(mKeys.length * 2);
       }
+      entry = mNumAllocated++;
+    }
+    mKeys[entry] = key;
+    mIndex.add(entry);
+    return entry;
+  }
+
+  /**
+   * Unindexes, unlinks and releases an entry, and removes its page from the statistics.
+   *
+   * @param entry the entry
+   */
+  private void remove(int entry) {
+    mIndex.remove(entry);
+    unlink(entry);
+    int scopeId = mScopeIds[entry];
+    mScopePages[scopeId]--;
+    mScopeBytes[scopeId] -= mSizes[entry];
+    mNumPages--;
+    mNumBytes -= mSizes[entry];
+    mNext[entry] = mFree;
+    mFree = entry;
+  }
+
+  private void growEntries(int newCapacity) {
+    mKeys = Arrays.copyOf(mKeys, newCapacity);
+    mTimestamps = Arrays.copyOf(mTimestamps, newCapacity);
+    mSizes = Arrays.copyOf(mSizes, newCapacity);
+    mScopeIds = Arrays.copyOf(mScopeIds, newCapacity);
+    mPrev = Arrays.copyOf(mPrev, newCapacity);
+    mNext = Arrays.copyOf(mNext, newCapacity);
+  }
+
+  private void ensureScope(int scopeId) {
+    if (scopeId >= mScopePages.length) {
+      int newLength = Math.max(scopeId + 1, mScopePages.length * 2);
+      mScopePages = Arrays.copyOf(mScopePages, newLength);
+      mScopeBytes = Arrays.copyOf(mScopeBytes, newLength);
+    }
+  }
+
+  private void unlink(int entry) {
+    int prev = mPrev[entry];
+    int next = mNext[entry];
+    if (prev == NIL) {
+      mHead = next;
+    } else {
+      mNext[prev] = next;
+    }
+    if (next == NIL) {
+      mTail = prev;
+    } else {
+      mPrev[next] = prev;
+    }
+  }
+
+  private void append(int entry) {
+    mPrev[entry] = mTail;
+    mNext[entry] = NIL;
+    if (mTail == NIL) {
+      mHead = entry;
+    } else {
+      mNext[mTail] = entry;
     }
-    realNumber = itemLRU.getSize();
+    mTail = entry;
   }
 
   private long getCurrentTimestamp() {
     return (mSlidingWindowType == SlidingWindowType.TIME_BASED) ? System.currentTimeMillis()
-        : timestampNow;
+        : mTimestampNow;
   }
 
   @Override
   public void updateWorkingSetSize() {
-    lock.lock();
     aging();
-    lock.unlock();
   }
 
   @Override
@@ -158,27 +296,45 @@ public class IdealShadowCacheManager implements ShadowCache {
 
   @Override
   public void updateTimestamp(long increment) {
-    this.timestampNow += increment;
+    mTimestampNow += increment;
   }
 
   @Override
   public long getShadowCachePages() {
-    return realNumber;
+    return mNumPages;
   }
 
   @Override
   public long getShadowCachePages(CacheScope scope) {
-    return scopeToNumber.get(scope);
+    int scopeId = ScopeRegistry.findId(scope);
+    if (scopeId == ScopeRegistry.UNKNOWN_ID) {
+      return 0;
+    }
+    mLock.lock();
+    try {
+      return scopeId < mScopePages.length ? mScopePages[scopeId] : 0;
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
   public long getShadowCacheBytes() {
-    return realSize;
+    return mNumBytes;
   }
 
   @Override
   public long getShadowCacheBytes(CacheScope scope) {
-    return scopeToSize.get(scope);
+    int scopeId = ScopeRegistry.findId(scope);
+    if (scopeId == ScopeRegistry.UNKNOWN_ID) {
+      return 0;
+    }
+    mLock.lock();
+    try {
+      return scopeId < mScopeBytes.length ? mScopeBytes[scopeId] : 0;
+    } finally {
+      mLock.unlock();
+    }
   }
 
   @Override
@@ -208,30 +364,38 @@ public class IdealShadowCacheManager implements ShadowCache {
 
   @Override
   public long getSpaceBits() {
-    long scopeNum = scopeToNumber.size();
-    long space = realNumber * (bitsPerItem + bitsPerTimestamp + bitsPerScope + bitsPerTimestamp);
-    space += scopeNum * (bitsPerScope * 2 + 32 + bitsPerSize);
+    long scopeNum = 0;
+    for (long pages : mScopePages) {
+      if (pages > 0) {
+        scopeNum++;
+      }
+    }
+    long space = mNumPages * (mBitsPerItem + mBitsPerTimestamp + mBitsPerScope + mBitsPerTimestamp);
+    space += scopeNum * (mBitsPerScope * 2 + 32 + mBitsPerSize);
     return space;
   }
 
-  @Override
-  public String getSummary() {
-    return "MultipleBloomShadowCache:\nbitsPerItem: " + bitsPerItem + "\nbitsPerSize: "
-        + bitsPerSize + "\nbitsPerScope: " + bitsPerScope + "\nSizeInMB: "
-        + (windowSize * (bitsPerItem + bitsPerTimestamp + bitsPerScope + bitsPerTimestamp) / 8.0
-            / Constants.MB
-            + windowSize * (bitsPerScope * 2 + 32 + bitsPerSize) / 8.0 / Constants.MB);
+  /**
+   * @return the bytes of heap taken by the arrays of this shadow cache
+   */
+  public long getHeapBytes() {
+    mLock.lock();
+    try {
+      long perEntry = 2L * Long.BYTES + 4L * Integer.BYTES;
+      return mKeys.length * perEntry + (long) mIndex.capacity() * Integer.BYTES
+          + mScopePages.length * 2L * Long.BYTES;
+    } finally {
+      mLock.unlock();
+    }
   }
 
-  private static class ItemAttribute {
-    int size;
-    CacheScope scope;
-    long timeStamp;
-
-    public ItemAttribute(int size, CacheScope scope, long timeStamp) {
-      this.size = size;
-      this.scope = scope;
-      this.timeStamp = timeStamp;
-    }
+  @Override
+  public String getSummary() {
+    return "IdealShadowCache:\nbitsPerItem: " + mBitsPerItem + "\nbitsPerSize: "
+        + mBitsPerSize + "\nbitsPerScope: " + mBitsPerScope + "\nSizeInMB: "
+        + (mWindowSize * (mBitsPerItem + mBitsPerTimestamp + mBitsPerScope + mBitsPerTimestamp)
+            / 8.0 / Constants.MB
+            + mWindowSize * (mBitsPerScope * 2 + 32 + mBitsPerSize) / 8.0 / Constants.MB)
+        + "\nHeapInMB: " + getHeapBytes() / (double) Constants.MB;
   }
 }
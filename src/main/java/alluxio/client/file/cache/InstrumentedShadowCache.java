@@ -0,0 +1,198 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import alluxio.client.file.cache.ShadowCacheMetrics.Operation;
+import alluxio.client.quota.CacheScope;
+
+/**
+ * A shadow cache which records the latency of the operations of another shadow cache, so that
+ * every shadow cache is instrumented the same way. Batched operations are recorded as one
+ * operation per page with the mean latency of the batch.
+ */
+public class InstrumentedShadowCache implements ShadowCache {
+  private final ShadowCache mShadowCache;
+  private final ShadowCacheMetrics mMetrics;
+
+  /**
+   * @param shadowCache the shadow cache to instrument
+   * @param metrics the instrumentation
+   */
+  public InstrumentedShadowCache(ShadowCache shadowCache, ShadowCacheMetrics metrics) {
+    mShadowCache = shadowCache;
+    mMetrics = metrics;
+  }
+
+  /**
+   * @return the instrumented shadow cache
+   */
+  public ShadowCache getShadowCache() {
+    return mShadowCache;
+  }
+
+  /**
+   * @return the instrumentation
+   */
+  public ShadowCacheMetrics getMetrics() {
+    return mMetrics;
+  }
+
+  @Override
+  public boolean put(PageId pageId, int size, CacheScope scope) {
+    long start = mMetrics.startTimer();
+    boolean ok = mShadowCache.put(pageId, size, scope);
+    mMetrics.record(Operation.PUT, start);
+    return ok;
+  }
+
+  @Override
+  public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    long start = mMetrics.startTimer();
+    int nread = mShadowCache.get(pageId, bytesToRead, scope);
+    mMetrics.record(Operation.GET, start);
+    return nread;
+  }
+
+  @Override
+  public int putAll(PageId[] pageIds, int[] sizes, CacheScope[] scopes) {
+    long start = mMetrics.startTimer();
+    int numOk = mShadowCache.putAll(pageIds, sizes, scopes);
+    mMetrics.record(Operation.PUT, start, pageIds.length);
+    return numOk;
+  }
+
+  @Override
+  public void getAll(PageId[] pageIds, int[] bytesToRead, CacheScope[] scopes, int[] out) {
+    long start = mMetrics.startTimer();
+    mShadowCache.getAll(pageIds, bytesToRead, scopes, out);
+    mMetrics.record(Operation.GET, start, pageIds.length);
+  }
+
+  @Override
+  public boolean delete(PageId pageId) {
+    long start = mMetrics.startTimer();
+    boolean ok = mShadowCache.delete(pageId);
+    mMetrics.record(Operation.DELETE, start);
+    return ok;
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    long start = mMetrics.startTimer();
+    boolean ok = mShadowCache.put(fileKey, pageIndex, size, scopeId);
+    mMetrics.record(Operation.PUT, start);
+    return ok;
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    long start = mMetrics.startTimer();
+    int nread = mShadowCache.get(fileKey, pageIndex, bytesToRead, scopeId);
+    mMetrics.record(Operation.GET, start);
+    return nread;
+  }
+
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    long start = mMetrics.startTimer();
+    boolean ok = mShadowCache.delete(fileKey, pageIndex);
+    mMetrics.record(Operation.DELETE, start);
+    return ok;
+  }
+
+  @Override
+  public void aging() {
+    long start = mMetrics.startTimer();
+    mShadowCache.aging();
+    mMetrics.record(Operation.AGING, start);
+  }
+
+  @Override
+  public void updateWorkingSetSize() {
+    mShadowCache.updateWorkingSetSize();
+  }
+
+  @Override
+  public void stopUpdate() {
+    mShadowCache.stopUpdate();
+  }
+
+  @Override
+  public void updateTimestamp(long increment) {
+    mShadowCache.updateTimestamp(increment);
+  }
+
+  @Override
+  public long getShadowCachePages() {
+    return mShadowCache.getShadowCachePages();
+  }
+
+  @Override
+  public long getShadowCachePages(CacheScope scope) {
+    return mShadowCache.getShadowCachePages(scope);
+  }
+
+  @Override
+  public long getShadowCacheBytes() {
+    return mShadowCache.getShadowCacheBytes();
+  }
+
+  @Override
+  public long getShadowCacheBytes(CacheScope scope) {
+    return mShadowCache.getShadowCacheBytes(scope);
+  }
+
+  @Override
+  public long getShadowCachePageRead() {
+    return mShadowCache.getShadowCachePageRead();
+  }
+
+  @Override
+  public long getShadowCachePageHit() {
+    return mShadowCache.getShadowCachePageHit();
+  }
+
+  @Override
+  public long getShadowCacheByteRead() {
+    return mShadowCache.getShadowCacheByteRead();
+  }
+
+  @Override
+  public long getShadowCacheByteHit() {
+    return mShadowCache.getShadowCacheByteHit();
+  }
+
+  @Override
+  public double getFalsePositiveRatio() {
+    return mShadowCache.getFalsePositiveRatio();
+  }
+
+  @Override
+  public long getSpaceBits() {
+    return mShadowCache.getSpaceBits();
+  }
+
+  @Override
+  public MissRatioCurve getMissRatioCurve() {
+    return mShadowCache.getMissRatioCurve();
+  }
+
+  @Override
+  public String getSummary() {
+    return mShadowCache.getSummary() + "\n" + mMetrics.getSummary();
+  }
+
+  @Override
+  public String dumpDebugInfo() {
+    return mShadowCache.dumpDebugInfo();
+  }
+}
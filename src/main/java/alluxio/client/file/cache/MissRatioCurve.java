@@ -0,0 +1,194 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A miss ratio curve (MRC) of an LRU cache, which gives the page and byte miss ratios of the
+ * accesses seen by a shadow cache as a function of cache size. The curve is piecewise linear
+ * between its points, and flat after the last point.
+ */
+public class MissRatioCurve {
+  private final long[] mCacheSizes;
+  private final double[] mPageMissRatios;
+  private final double[] mByteMissRatios;
+
+  /**
+   * @param cacheSizes the cache sizes in bytes, in ascending order
+   * @param pageMissRatios the page miss ratio of each cache size
+   * @param byteMissRatios the byte miss ratio of each cache size
+   */
+  public MissRatioCurve(long[] cacheSizes, double[] pageMissRatios, double[] byteMissRatios) {
+    Preconditions.checkArgument(cacheSizes.length > 0, "a curve needs at least one point");
+    Preconditions.checkArgument(cacheSizes.length == pageMissRatios.length
+        && cacheSizes.length == byteMissRatios.length, "mismatched number of points");
+    for (int i = 1; i < cacheSizes.length; i++) {
+      Preconditions.checkArgument(cacheSizes[i - 1] <= cacheSizes[i],
+          "cache sizes must be in ascending order");
+    }
+    mCacheSizes = cacheSizes;
+    mPageMissRatios = pageMissRatios;
+    mByteMissRatios = byteMissRatios;
+  }
+
+  /**
+   * Build a curve from a histogram of hits by reuse age, where age is the number of aging periods
+   * passed since the last access of a page, and a snapshot of the bytes of distinct pages by the
+   * age of their last access.
+   *
+   * <p>
+   * The snapshot gives the footprint, i.e. the bytes of distinct pages accessed within an elapsed
+   * time, at the borders of the aging periods. The snapshot may be taken in the middle of a period,
+   * whose phase is estimated from how full the newest age is compared with the next one. A hit of
+   * age a has a reuse time between (a - 1) and (a + 1) periods, so it is assumed to be spread over
+   * (a - 0.5) to (a + 0.5) periods, and its LRU stack distance is the footprint of its reuse time.
+   *
+   * @param bytesByAge the bytes of distinct pages indexed by the age of their last access
+   * @param pageHitsByAge the number of page hits indexed by reuse age
+   * @param byteHitsByAge the number of bytes hit indexed by reuse age
+   * @param pagesRead the total number of pages read
+   * @param bytesRead the total number of bytes read
+   * @return the miss ratio curve
+   */
+  public static MissRatioCurve fromAgeHistogram(long[] bytesByAge, long[] pageHitsByAge,
+      long[] byteHitsByAge, long pagesRead, long bytesRead) {
+    int numAges = bytesByAge.length;
+    Preconditions.checkArgument(numAges > 0, "no age is given");
+    Preconditions.checkArgument(
+        pageHitsByAge.length == numAges && byteHitsByAge.length == numAges,
+        "mismatched number of ages");
+    long[] footprints = new long[numAges];
+    long total = 0;
+    for (int age = 0; age < numAges; age++) {
+      total += bytesByAge[age];
+      footprints[age] = total;
+    }
+    double phase = 1.0;
+    if (numAges > 1 && bytesByAge[1] > 0) {
+      phase = Math.min(1.0, bytesByAge[0] / (double) bytesByAge[1]);
+    }
+    long[] cacheSizes = new long[numAges + 1];
+    double[] pageMissRatios = new double[numAges + 1];
+    double[] byteMissRatios = new double[numAges + 1];
+    long pageHits = 0;
+    long byteHits = 0;
+    // an empty cache hits nothing
+    pageMissRatios[0] = missRatio(0, pagesRead);
+    byteMissRatios[0] = missRatio(0, bytesRead);
+    for (int age = 0; age < numAges; age++) {
+      pageHits += pageHitsByAge[age];
+      byteHits += byteHitsByAge[age];
+      cacheSizes[age + 1] = footprint(footprints, phase, age + 0.5);
+      pageMissRatios[age + 1] = missRatio(pageHits, pagesRead);
+      byteMissRatios[age + 1] = missRatio(byteHits, bytesRead);
+    }
+    return new MissRatioCurve(cacheSizes, pageMissRatios, byteMissRatios);
+  }
+
+  /**
+   * @param footprints the bytes of distinct pages accessed no earlier than each age
+   * @param phase the elapsed time of the current aging period in periods
+   * @param time the elapsed time in periods
+   * @return the footprint of given elapsed time interpolated between the borders of periods
+   */
+  private static long footprint(long[] footprints, double phase, double time) {
+    if (time <= phase) {
+      return (phase == 0) ? footprints[0] : (long) (footprints[0] * time / phase);
+    }
+    // the border between age (a - 1) and age a is at time (phase + a - 1)
+    int age = (int) Math.ceil(time - phase);
+    if (age >= footprints.length) {
+      return footprints[footprints.length - 1];
+    }
+    double fraction = time - phase - (age - 1);
+    return footprints[age - 1] + (long) ((footprints[age] - footprints[age - 1]) * fraction);
+  }
+
+  /**
+   * @param hits the number of hits
+   * @param reads the number of reads
+   * @return the miss ratio, or 1 if nothing is read
+   */
+  private static double missRatio(long hits, long reads) {
+    return (reads == 0) ? 1.0 : 1.0 - Math.min(hits, reads) / (double) reads;
+  }
+
+  /**
+   * @return the cache sizes of the points in bytes
+   */
+  public long[] getCacheSizes() {
+    return mCacheSizes;
+  }
+
+  /**
+   * @return the page miss ratios of the points
+   */
+  public double[] getPageMissRatios() {
+    return mPageMissRatios;
+  }
+
+  /**
+   * @return the byte miss ratios of the points
+   */
+  public double[] getByteMissRatios() {
+    return mByteMissRatios;
+  }
+
+  /**
+   * @param cacheSize the cache size in bytes
+   * @return the page miss ratio of given cache size
+   */
+  public double getPageMissRatio(long cacheSize) {
+    return interpolate(mPageMissRatios, cacheSize);
+  }
+
+  /**
+   * @param cacheSize the cache size in bytes
+   * @return the byte miss ratio of given cache size
+   */
+  public double getByteMissRatio(long cacheSize) {
+    return interpolate(mByteMissRatios, cacheSize);
+  }
+
+  /**
+   * @param missRatios the miss ratios of the points
+   * @param cacheSize the cache size in bytes
+   * @return the miss ratio interpolated between the two points around given cache size
+   */
+  private double interpolate(double[] missRatios, long cacheSize) {
+    if (cacheSize < mCacheSizes[0]) {
+      return missRatios[0];
+    }
+    // find the last point not larger than the cache size, so that a step is taken fully
+    int i = 0;
+    while (i + 1 < mCacheSizes.length && mCacheSizes[i + 1] <= cacheSize) {
+      i++;
+    }
+    if (i + 1 == mCacheSizes.length) {
+      return missRatios[i];
+    }
+    double fraction =
+        (cacheSize - mCacheSizes[i]) / (double) (mCacheSizes[i + 1] - mCacheSizes[i]);
+    return missRatios[i] + (missRatios[i + 1] - missRatios[i]) * fraction;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("CacheSize\tMissRatio(Page)\tMissRatio(Byte)\n");
+    for (int i = 0; i < mCacheSizes.length; i++) {
+      sb.append(String.format("%d\t%.4f\t%.4f\n", mCacheSizes[i], mPageMissRatios[i],
+          mByteMissRatios[i]));
+    }
+    return sb.toString();
+  }
+}
@@ -11,6 +11,8 @@
 
 package alluxio.client.file.cache;
 
+import alluxio.util.MurmurHash3;
+
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 
@@ -23,6 +25,8 @@ import javax.annotation.concurrent.ThreadSafe;
 public class PageId {
   private final String mFileId;
   private final long mPageIndex;
+  // the cached hash, 0 until computed; a page whose hash is 0 recomputes it every time
+  private volatile long mHash;
 
   /**
    * @param fileId file Id
@@ -47,6 +51,34 @@ public class PageId {
     return mPageIndex;
   }
 
+  /**
+   * Get the 64-bit hash shared by shadow caches, which is computed once per page id. It is the
+   * same as {@code Hashing.murmur3_128().hashObject(pageId, PageIdFunnel.FUNNEL).asLong()}, and
+   * an independent hash can be derived with {@link MurmurHash3#fmix64}.
+   *
+   * @return the 64-bit hash of this page id
+   */
+  public long getHash() {
+    long hash = mHash;
+    if (hash == 0) {
+      hash = MurmurHash3.hash64(mFileId, mPageIndex, 0);
+      mHash = hash;
+    }
+    return hash;
+  }
+
+  /**
+   * Get the hash of a page named by primitives, which is to {@link ShadowCache#put(long, long, int,
+   * int)} what {@link #getHash()} is to page ids.
+   *
+   * @param fileKey numeric file identifier
+   * @param pageIndex index of the page in file
+   * @return the 64-bit hash of the page
+   */
+  public static long hash(long fileKey, long pageIndex) {
+    return MurmurHash3.hash64(fileKey, pageIndex, 0);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hashCode(mFileId, mPageIndex);
@@ -7,9 +7,6 @@ import alluxio.util.TinyTable.RankIndexingTechnique.RankIndexingTechnique;
 import alluxio.util.TinyTable.TinyTable;
 import alluxio.util.TinyTable.TinyTableWithCounters;
 
-import com.google.common.hash.Funnel;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 
 import java.util.*;
 
@@ -22,8 +19,6 @@ public class SWAMPCounterSketchShadowCacheManager implements ShadowCache{
   protected static int mBitsPerSize = 16;
   protected static int mBitsPerCounter =  16;
   protected double mLoadF; //said "recommend this be 0.2"
-  protected HashFunction mHashFunction;
-  protected Funnel<PageId> mFunnel;
   protected int curIdx;
   protected long pageNum;
   protected long pageSize;
@@ -58,8 +53,6 @@ public class SWAMPCounterSketchShadowCacheManager implements ShadowCache{
     tinyTableWithCounters = new TinyTableWithCounters(mFingerPrintSize,mBucketCapacity,mBucketNum);
     tinyTable = new TinyTable(mFingerPrintSize,mBucketCapacity,mBucketNum);
     cyclicFingerBuffer = new int[(int)mWindowSize];
-    mHashFunction = Hashing.murmur3_32((int)System.currentTimeMillis());
-    mFunnel = PageIdFunnel.FUNNEL;
     pageNum = 0;
     pageSize = 0;
     debugMapPageToCode = new HashMap<>();
@@ -83,7 +76,7 @@ public class SWAMPCounterSketchShadowCacheManager implements ShadowCache{
   }
 
   public boolean put(PageId pageId,int size, CacheScope scope){
-    int hashcode = mHashFunction.newHasher().putObject(pageId,mFunnel).hash().asInt();
+    int hashcode = (int) pageId.getHash();
     int prev = cyclicFingerBuffer[curIdx];
     pageReadNum++;
     pageReadSize++;
@@ -7,9 +7,7 @@ import alluxio.util.FormatUtils;
 import alluxio.util.TinyTable.TinyTable;
 import alluxio.util.TinyTable.TinyTableWithCounters;
 
-import com.google.common.hash.Funnel;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import com.google.common.base.Preconditions;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,21 +20,26 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * This class is a shadow cache with SWAMP (Sliding Window Approximate Measurement Protocol)
+ * implementation, which keeps the fingerprints of the last window of accesses in a cyclic buffer
+ * and counts them in a TinyTable.
+ *
+ * <p>
+ * The buffer and the table are partitioned into shards by fingerprint, each of which holds its
+ * share of the buffer and buckets under its own lock, so that operations on different shards run
+ * concurrently. Since fingerprints spread evenly over shards, the buffer of a shard holds about the
+ * accesses of the shard within the window.
+ */
 public class SWAMPSketchShadowCacheManager implements ShadowCache{
   protected long mWindowSize;
   protected int mFingerPrintSize;
-  protected int[] cyclicFingerBuffer;
   protected int mBucketCapacity;
   protected int mBitsPerSize;
   protected int mBucketNum;
   protected int mCycleBufferLen;
+  protected int mNumShards;
   protected double mLoadF; //said "recommend this be 0.2"
-  protected HashFunction mHashFunction;
-  protected Funnel<PageId> mFunnel;
-  protected int curIdx;
-  protected int ageIdx;
-  protected long deleteTime;
-  protected long addTime;
   private final ScheduledExecutorService mScheduler = Executors.newScheduledThreadPool(0);
   private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
   private final AtomicLong mShadowCachePageHit = new AtomicLong(0);
@@ -51,15 +54,34 @@ public class SWAMPSketchShadowCacheManager implements ShadowCache{
   protected Set<Integer> debugCodeSet;
 
   // no scope
-  protected TinyTable tinyTable;
+  protected Shard[] mShards;
   protected boolean noBucketMode;
-  private final Lock lock = new ReentrantLock();
+
+  /**
+   * A shard of the cyclic buffer and the TinyTable, which is guarded by its lock.
+   */
+  protected static final class Shard {
+    private final Lock mLock = new ReentrantLock();
+    private final TinyTable mTinyTable;
+    private final int[] mCyclicFingerBuffer;
+    private int mCurIdx;
+    private int mAgeIdx;
+
+    Shard(TinyTable tinyTable, int cycleBufferLen) {
+      mTinyTable = tinyTable;
+      mCyclicFingerBuffer = new int[cycleBufferLen];
+    }
+  }
+
   public SWAMPSketchShadowCacheManager(ShadowCacheParameters params) {
     mWindowSize = params.mWindowSize;
     mFingerPrintSize = params.mTagBits;
     mBucketCapacity = params.mTagsPerBucket;
     mBitsPerSize = params.mSizeBits;
     mSlidingWindowType = params.mSlidingWindowType;
+    mNumShards = params.mSwampShards;
+    Preconditions.checkArgument(mNumShards > 0, "number of shards must be positive: %s",
+        mNumShards);
     noBucketMode = false;
     long memoryInBits = FormatUtils.parseSpaceSize(params.mMemoryBudget) * 8;
     // mCycleBufferLen = (int) memoryInBits/mFingerPrintSize;
@@ -72,15 +94,23 @@ public class SWAMPSketchShadowCacheManager implements ShadowCache{
       mBucketNum=16;
     }
     mLoadF = mBucketCapacity/(mCycleBufferLen/(double)mBucketNum);
-    tinyTable = new TinyTable(mFingerPrintSize,mBitsPerSize,mBucketCapacity,mBucketNum);
-    cyclicFingerBuffer = new int[(int)mCycleBufferLen];
-    mHashFunction = Hashing.murmur3_32((int)System.currentTimeMillis());
-    mFunnel = PageIdFunnel.FUNNEL;
+    // round the buffer and buckets down to multiples of shards
+    int shardBufferLen = Math.max(1, mCycleBufferLen / mNumShards);
+    int shardBucketNum = Math.max(16, mBucketNum / mNumShards);
+    mCycleBufferLen = shardBufferLen * mNumShards;
+    mBucketNum = shardBucketNum * mNumShards;
+    mShards = new Shard[mNumShards];
+    for (int i = 0; i < mNumShards; i++) {
+      mShards[i] = new Shard(
+          new TinyTable(mFingerPrintSize, mBitsPerSize, mBucketCapacity, shardBucketNum),
+          shardBufferLen);
+    }
     debugMapPageToCode = new HashMap<>();
     debugCodeSet =  new HashSet<>();
     debugMode = false;
     if(mSlidingWindowType == SlidingWindowType.TIME_BASED){
-      long agingPeriod = mWindowSize / mCycleBufferLen;
+      // every tick ages one slot of each shard
+      long agingPeriod = mWindowSize / shardBufferLen;
       if(agingPeriod<=0){
         agingPeriod = 1;
       }
@@ -94,83 +124,114 @@ public class SWAMPSketchShadowCacheManager implements ShadowCache{
     }
   }
 
+  private Shard shardOf(int hashcode) {
+    return mShards[(hashcode & Integer.MAX_VALUE) % mNumShards];
+  }
 
+  @Override
+  public boolean put(PageId pageId, int size, CacheScope scope) {
+    return putByHash((int) pageId.getHash(), size);
+  }
 
-  private void updateCurIdx(){
-    if(curIdx==mCycleBufferLen-1){
-      curIdx = 0;
-    }else{
-      curIdx = curIdx + 1;
-    }
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByHash((int) PageId.hash(fileKey, pageIndex), size);
   }
 
-  private void updateAgeIdx(){
-    if(ageIdx==mCycleBufferLen-1){
-      ageIdx = 0;
-    }else{
-      ageIdx = ageIdx + 1;
+  private boolean putByHash(int hashcode, int size) {
+    Shard shard = shardOf(hashcode);
+    shard.mLock.lock();
+    try {
+      return putLocked(shard, hashcode, size);
+    } finally {
+      shard.mLock.unlock();
     }
   }
 
-  @Override
-  public boolean put(PageId pageId, int size, CacheScope scope) {
-    //info(String.format("try to put page:%s\n",pageId.toString()));
-    lock.lock();
-    //System.out.println("[+] in put.");
-    int hashcode = mHashFunction.newHasher().putObject(pageId,mFunnel).hash().asInt();
-    int prev = cyclicFingerBuffer[curIdx];
+  /**
+   * Adds a fingerprint as the newest access of its shard, and evicts the oldest access of the
+   * shard. Assume holding the lock of the shard.
+   *
+   * @param shard the shard of the fingerprint
+   * @param hashcode the fingerprint
+   * @param size page size
+   * @return true if the fingerprint is added
+   */
+  private boolean putLocked(Shard shard, int hashcode, int size) {
+    TinyTable tinyTable = shard.mTinyTable;
+    int prev = shard.mCyclicFingerBuffer[shard.mCurIdx];
     if(prev!=0){
-      long start = System.currentTimeMillis();
-      delete(prev);
-      deleteTime+= System.currentTimeMillis()-start;
+      delete(shard, prev);
+      shard.mCyclicFingerBuffer[shard.mCurIdx] = 0;
     }
     long bucketNum = tinyTable.getNum(hashcode);
-    //System.out.println("bucketBUm:"+bucketNum);
     if(bucketNum>=63){
-      updateCurIdx();
-      lock.unlock();
+      updateCurIdx(shard);
       return false;
     }
 
     boolean isContain = tinyTable.containItemWithSize(hashcode);
-    long start = System.currentTimeMillis();
     if(!tinyTable.addItem(hashcode,size)){
-      addTime += System.currentTimeMillis()-start;;
-      updateCurIdx();
-      lock.unlock();
+      updateCurIdx(shard);
       return false;
     }
-    addTime += System.currentTimeMillis()-start;
-    cyclicFingerBuffer[curIdx] = hashcode;
-    updateCurIdx();
+    shard.mCyclicFingerBuffer[shard.mCurIdx] = hashcode;
+    updateCurIdx(shard);
 
     if(!isContain){
       mBucketsSet.addAndGet(1);
       mTotalSize.addAndGet(size);
     }
-    lock.unlock();
     return true;
   }
 
+  private void updateCurIdx(Shard shard){
+    shard.mCurIdx = (shard.mCurIdx + 1 == shard.mCyclicFingerBuffer.length) ? 0 : shard.mCurIdx + 1;
+  }
+
+  private void updateAgeIdx(Shard shard){
+    shard.mAgeIdx = (shard.mAgeIdx + 1 == shard.mCyclicFingerBuffer.length) ? 0 : shard.mAgeIdx + 1;
+  }
+
   @Override
   public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    return getByHash((int) pageId.getHash(), bytesToRead);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash((int) PageId.hash(fileKey, pageIndex), bytesToRead);
+  }
+
+  private int getByHash(int hashcode, int bytesToRead) {
     mShadowCachePageRead.incrementAndGet();
     mShadowCacheByteRead.addAndGet(bytesToRead);
-    int hashcode = mHashFunction.newHasher().putObject(pageId,mFunnel).hash().asInt();
-    lock.lock();
-    if(!tinyTable.containItemWithSize(hashcode)){
-      lock.unlock();
-      return 0;
+    Shard shard = shardOf(hashcode);
+    shard.mLock.lock();
+    try {
+      if(!shard.mTinyTable.containItemWithSize(hashcode)){
+        return 0;
+      }
+      // refresh the page with the fingerprint at hand, without hashing or locking again
+      putLocked(shard, hashcode, bytesToRead);
+    } finally {
+      shard.mLock.unlock();
     }
-    lock.unlock();
-    this.put(pageId,bytesToRead,scope);
     mShadowCachePageHit.incrementAndGet();
     mShadowCacheByteHit.addAndGet(bytesToRead);
     return bytesToRead;
   }
 
-
-  public boolean delete(int hashcode){
+  /**
+   * Removes an access of a fingerprint from the TinyTable of its shard. Assume holding the lock of
+   * the shard.
+   *
+   * @param shard the shard of the fingerprint
+   * @param hashcode the fingerprint
+   * @return true if the access is removed
+   */
+  private boolean delete(Shard shard, int hashcode){
+    TinyTable tinyTable = shard.mTinyTable;
     long prevSize = tinyTable.getItemSize(hashcode);
     if(prevSize!=-1) {
       tinyTable.RemoveItem(hashcode,(int)prevSize);
@@ -178,26 +239,36 @@ public class SWAMPSketchShadowCacheManager implements ShadowCache{
         mTotalSize.addAndGet(-prevSize);
         mBucketsSet.addAndGet(-1);
       }
-      cyclicFingerBuffer[curIdx] = 0;
       return true;
     }
     return false;
   }
+
   @Override
   public boolean delete(PageId pageId) {
 
     return false;
   }
 
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return false;
+  }
+
   private void timeAging(){
-    lock.lock();
-    //System.out.println("[+] in aging.");
-    int prev = cyclicFingerBuffer[ageIdx];
-    if(prev!=0){
-      delete(prev);
+    for (Shard shard : mShards) {
+      shard.mLock.lock();
+      try {
+        int prev = shard.mCyclicFingerBuffer[shard.mAgeIdx];
+        if(prev!=0){
+          delete(shard, prev);
+          shard.mCyclicFingerBuffer[shard.mAgeIdx] = 0;
+        }
+        updateAgeIdx(shard);
+      } finally {
+        shard.mLock.unlock();
+      }
     }
-    updateAgeIdx();
-    lock.unlock();
   }
 
   @Override
@@ -277,9 +348,6 @@ public class SWAMPSketchShadowCacheManager implements ShadowCache{
         + "\nbucketNum: "+ mBucketNum
         + "\nSizeInMB: " + getSpaceBits() / 8.0 / Constants.MB
         + "\nCycleBufferLen: "+ mCycleBufferLen
-        + "\nDeleteTime: " +deleteTime
-        + "\nTinyAddTime: " +addTime
-        + "\nfindEmptyTime" +tinyTable.findEmptyTime
-        + "\nscaleUpTime: "+tinyTable.addItemTime;
+        + "\nnumShards: " + mNumShards;
   }
 }
@@ -0,0 +1,420 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import alluxio.client.quota.CacheScope;
+import alluxio.util.MurmurHash3;
+
+import com.google.common.base.Preconditions;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Supplier;
+
+/**
+ * A shadow cache which only admits a spatial sample of pages into another shadow cache, in the
+ * way of SHARDS (Spatially Hashed Approximate Reuse Distance Sampling). A page is sampled if the
+ * hash of its id falls under a threshold, so that all accesses of a sampled page are seen by the
+ * inner shadow cache and all accesses of other pages are skipped. Page and byte counts of the
+ * inner shadow cache are scaled up by the inverse of the sampling rate.
+ *
+ * <p>
+ * If the maximum number of sampled pages is set, the sampling rate is lowered whenever the inner
+ * shadow cache holds more pages at aging, so that its memory is bounded. As SHARDS does, the pages
+ * sampled under the previous rate whose hash is not under the new threshold are then deleted from
+ * the inner shadow cache, so that its counts stay unbiased under the new rate. To find them, the
+ * sampled pages of the last age levels are indexed. If the inner shadow cache cannot delete a page,
+ * the page is kept as stale and subtracted from the counts until it ages out.
+ */
+public class SampledShadowCache implements ShadowCache {
+  // the hash space of threshold, which is the same as the modulus of SHARDS
+  private static final long HASH_SPACE = 1L << 24;
+  // a seed to derive a hash independent of the one of shadow caches, so that sampled pages are
+  // spread evenly
+  private static final int SAMPLING_SEED = 0x5a4d5053;
+
+  private final ShadowCache mShadowCache;
+  private final long mMaxSampledPages;
+  private final int mAgeLevels;
+  // sampled pages of the last age levels, only indexed for an adaptive sampling rate
+  private final Map<Long, SampledPage> mSampledPages = new ConcurrentHashMap<>();
+  // pages no longer sampled which the inner shadow cache failed to delete
+  private final Map<Long, SampledPage> mStalePages = new HashMap<>();
+  private final AtomicLong mPageRead = new AtomicLong(0);
+  private final AtomicLong mByteRead = new AtomicLong(0);
+  // hits are scaled by the sampling rate at the time of hit
+  private final DoubleAdder mPageHit = new DoubleAdder();
+  private final DoubleAdder mByteHit = new DoubleAdder();
+  private volatile long mThreshold;
+  // the number of agings so far, which dates the accesses of sampled pages
+  private volatile long mEpoch = 0;
+  private volatile StaleCounts mStaleCounts = new StaleCounts();
+
+  /**
+   * @param shadowCache the shadow cache of sampled pages
+   * @param samplingRate the initial fraction of pages to sample, in (0, 1]
+   * @param maxSampledPages the maximum number of pages to sample, 0 for a fixed sampling rate
+   * @param ageLevels the number of agings after which an idle page leaves the inner shadow cache
+   */
+  public SampledShadowCache(ShadowCache shadowCache, double samplingRate, long maxSampledPages,
+      int ageLevels) {
+    Preconditions.checkArgument(samplingRate > 0 && samplingRate <= 1.0,
+        "sampling rate must be in (0, 1]: %s", samplingRate);
+    Preconditions.checkArgument(maxSampledPages >= 0,
+        "maximum number of sampled pages must be non-negative: %s", maxSampledPages);
+    Preconditions.checkArgument(ageLevels > 0, "age levels must be positive: %s", ageLevels);
+    mShadowCache = shadowCache;
+    mMaxSampledPages = maxSampledPages;
+    mAgeLevels = ageLevels;
+    mThreshold = Math.max(1L, Math.round(samplingRate * HASH_SPACE));
+  }
+
+  /**
+   * @return the current fraction of pages sampled
+   */
+  public double getSamplingRate() {
+    return mThreshold / (double) HASH_SPACE;
+  }
+
+  /**
+   * @param pageHash the hash of page
+   * @return true if the page is sampled
+   */
+  private boolean isSampled(long pageHash) {
+    long hash = MurmurHash3.fmix64(pageHash ^ SAMPLING_SEED);
+    return (hash & (HASH_SPACE - 1)) < mThreshold;
+  }
+
+  /**
+   * @param value the value counted on sampled pages
+   * @return the value scaled up to all pages
+   */
+  private long scale(long value) {
+    return (long) (Math.max(0L, value) / getSamplingRate());
+  }
+
+  /**
+   * Records an access of a sampled page held by the inner shadow cache.
+   *
+   * @param hash the hash of page
+   * @param page the page to index if it is not indexed yet
+   */
+  private void index(long hash, Supplier<SampledPage> page) {
+    long epoch = mEpoch;
+    SampledPage indexed = mSampledPages.get(hash);
+    if (indexed == null) {
+      mSampledPages.put(hash, page.get());
+    } else {
+      indexed.mEpoch = epoch;
+    }
+  }
+
+  @Override
+  public boolean put(PageId pageId, int size, CacheScope scope) {
+    long hash = pageId.getHash();
+    if (!isSampled(hash)) {
+      // pretend to succeed, as the page would be put if it were sampled
+      return true;
+    }
+    boolean success = mShadowCache.put(pageId, size, scope);
+    if (success && mMaxSampledPages > 0) {
+      index(hash, () -> new SampledPage(pageId, size, scope, mEpoch));
+    }
+    return success;
+  }
+
+  @Override
+  public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    mPageRead.incrementAndGet();
+    mByteRead.addAndGet(bytesToRead);
+    long hash = pageId.getHash();
+    if (!isSampled(hash)) {
+      // unknown, reported as a miss
+      return 0;
+    }
+    double samplingRate = getSamplingRate();
+    int nread = recordHit(mShadowCache.get(pageId, bytesToRead, scope), samplingRate);
+    if (nread > 0 && mMaxSampledPages > 0) {
+      index(hash, () -> new SampledPage(pageId, nread, scope, mEpoch));
+    }
+    return nread;
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    long hash = PageId.hash(fileKey, pageIndex);
+    if (!isSampled(hash)) {
+      return true;
+    }
+    boolean success = mShadowCache.put(fileKey, pageIndex, size, scopeId);
+    if (success && mMaxSampledPages > 0) {
+      index(hash, () -> new SampledPage(fileKey, pageIndex, size, scopeId, mEpoch));
+    }
+    return success;
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    mPageRead.incrementAndGet();
+    mByteRead.addAndGet(bytesToRead);
+    long hash = PageId.hash(fileKey, pageIndex);
+    if (!isSampled(hash)) {
+      return 0;
+    }
+    double samplingRate = getSamplingRate();
+    int nread = recordHit(mShadowCache.get(fileKey, pageIndex, bytesToRead, scopeId), samplingRate);
+    if (nread > 0 && mMaxSampledPages > 0) {
+      index(hash, () -> new SampledPage(fileKey, pageIndex, nread, scopeId, mEpoch));
+    }
+    return nread;
+  }
+
+  /**
+   * @param nread the number of bytes read from a sampled page
+   * @param samplingRate the sampling rate before the read
+   * @return the number of bytes read
+   */
+  private int recordHit(int nread, double samplingRate) {
+    if (nread > 0) {
+      mPageHit.add(1 / samplingRate);
+      mByteHit.add(nread / samplingRate);
+    }
+    return nread;
+  }
+
+  @Override
+  public boolean delete(PageId pageId) {
+    long hash = pageId.getHash();
+    if (!isSampled(hash)) {
+      return false;
+    }
+    mSampledPages.remove(hash);
+    return mShadowCache.delete(pageId);
+  }
+
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    long hash = PageId.hash(fileKey, pageIndex);
+    if (!isSampled(hash)) {
+      return false;
+    }
+    mSampledPages.remove(hash);
+    return mShadowCache.delete(fileKey, pageIndex);
+  }
+
+  @Override
+  public void aging() {
+    mShadowCache.aging();
+    if (mMaxSampledPages > 0) {
+      synchronized (mStalePages) {
+        mEpoch++;
+        long oldest = mEpoch - mAgeLevels;
+        mSampledPages.values().removeIf(page -> page.mEpoch < oldest);
+        mStalePages.values().removeIf(page -> page.mEpoch < oldest);
+        adaptSamplingRate();
+        mStaleCounts = new StaleCounts(mStalePages);
+      }
+    }
+  }
+
+  /**
+   * Lower the sampling rate in proportion if the inner shadow cache holds too many pages, and drop
+   * the pages which are no longer sampled from the inner shadow cache.
+   */
+  private void adaptSamplingRate() {
+    mShadowCache.updateWorkingSetSize();
+    long numPages = mShadowCache.getShadowCachePages() - mStaleCounts.mPages;
+    if (numPages <= mMaxSampledPages) {
+      return;
+    }
+    mThreshold = Math.max(1L, mThreshold * mMaxSampledPages / numPages);
+    Iterator<Map.Entry<Long, SampledPage>> iterator = mSampledPages.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Long, SampledPage> entry = iterator.next();
+      if (isSampled(entry.getKey())) {
+        continue;
+      }
+      iterator.remove();
+      if (!entry.getValue().deleteFrom(mShadowCache)) {
+        mStalePages.put(entry.getKey(), entry.getValue());
+      }
+    }
+    mShadowCache.updateWorkingSetSize();
+  }
+
+  @Override
+  public void updateWorkingSetSize() {
+    mShadowCache.updateWorkingSetSize();
+  }
+
+  @Override
+  public void stopUpdate() {
+    mShadowCache.stopUpdate();
+  }
+
+  @Override
+  public void updateTimestamp(long increment) {
+    // windows are measured in all accesses, not only the sampled ones
+    mShadowCache.updateTimestamp(increment);
+  }
+
+  @Override
+  public long getShadowCachePages() {
+    return scale(mShadowCache.getShadowCachePages() - mStaleCounts.mPages);
+  }
+
+  @Override
+  public long getShadowCachePages(CacheScope scope) {
+    return scale(mShadowCache.getShadowCachePages(scope) - mStaleCounts.getPages(scope));
+  }
+
+  @Override
+  public long getShadowCacheBytes() {
+    return scale(mShadowCache.getShadowCacheBytes() - mStaleCounts.mBytes);
+  }
+
+  @Override
+  public long getShadowCacheBytes(CacheScope scope) {
+    return scale(mShadowCache.getShadowCacheBytes(scope) - mStaleCounts.getBytes(scope));
+  }
+
+  @Override
+  public long getShadowCachePageRead() {
+    return mPageRead.get();
+  }
+
+  @Override
+  public long getShadowCachePageHit() {
+    return (long) mPageHit.sum();
+  }
+
+  @Override
+  public long getShadowCacheByteRead() {
+    return mByteRead.get();
+  }
+
+  @Override
+  public long getShadowCacheByteHit() {
+    return (long) mByteHit.sum();
+  }
+
+  @Override
+  public double getFalsePositiveRatio() {
+    return mShadowCache.getFalsePositiveRatio();
+  }
+
+  @Override
+  public long getSpaceBits() {
+    return mShadowCache.getSpaceBits();
+  }
+
+  @Override
+  public MissRatioCurve getMissRatioCurve() {
+    MissRatioCurve curve = mShadowCache.getMissRatioCurve();
+    long[] cacheSizes = curve.getCacheSizes().clone();
+    for (int i = 0; i < cacheSizes.length; i++) {
+      cacheSizes[i] = scale(cacheSizes[i]);
+    }
+    return new MissRatioCurve(cacheSizes, curve.getPageMissRatios(), curve.getByteMissRatios());
+  }
+
+  @Override
+  public String getSummary() {
+    return String.format("SampledShadowCache:\nsamplingRate: %f\nmaxSampledPages: %d\n%s",
+        getSamplingRate(), mMaxSampledPages, mShadowCache.getSummary());
+  }
+
+  @Override
+  public String dumpDebugInfo() {
+    return mShadowCache.dumpDebugInfo();
+  }
+
+  /**
+   * A sampled page with the epoch of its last access. A page accessed through the primitive API
+   * has no page id, and is identified by its file key and page index instead.
+   */
+  private static final class SampledPage {
+    private final PageId mPageId;
+    private final long mFileKey;
+    private final long mPageIndex;
+    private final int mSize;
+    private final CacheScope mScope;
+    private volatile long mEpoch;
+
+    private SampledPage(PageId pageId, int size, CacheScope scope, long epoch) {
+      mPageId = pageId;
+      mFileKey = 0;
+      mPageIndex = 0;
+      mSize = size;
+      mScope = scope;
+      mEpoch = epoch;
+    }
+
+    private SampledPage(long fileKey, long pageIndex, int size, int scopeId, long epoch) {
+      mPageId = null;
+      mFileKey = fileKey;
+      mPageIndex = pageIndex;
+      mSize = size;
+      mScope = ScopeRegistry.scopeOf(scopeId);
+      mEpoch = epoch;
+    }
+
+    /**
+     * @param shadowCache the shadow cache holding the page
+     * @return true if the page is deleted
+     */
+    private boolean deleteFrom(ShadowCache shadowCache) {
+      return mPageId != null ? shadowCache.delete(mPageId)
+          : shadowCache.delete(mFileKey, mPageIndex);
+    }
+  }
+
+  /**
+   * Counts of stale pages, rebuilt at every aging.
+   */
+  private static final class StaleCounts {
+    private final long mPages;
+    private final long mBytes;
+    private final Map<CacheScope, long[]> mScopeCounts = new HashMap<>();
+
+    private StaleCounts() {
+      mPages = 0;
+      mBytes = 0;
+    }
+
+    private StaleCounts(Map<Long, SampledPage> stalePages) {
+      long bytes = 0;
+      for (SampledPage page : stalePages.values()) {
+        bytes += page.mSize;
+        long[] counts = mScopeCounts.computeIfAbsent(page.mScope, scope -> new long[2]);
+        counts[0]++;
+        counts[1] += page.mSize;
+      }
+      mPages = stalePages.size();
+      mBytes = bytes;
+    }
+
+    private long getPages(CacheScope scope) {
+      long[] counts = mScopeCounts.get(scope);
+      return counts == null ? 0 : counts[0];
+    }
+
+    private long getBytes(CacheScope scope) {
+      long[] counts = mScopeCounts.get(scope);
+      return counts == null ? 0 : counts[1];
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import alluxio.client.quota.CacheScope;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to cache scopes for the primitive API of {@link ShadowCache}, so that
+ * callers resolve the id of a scope once and pass ints afterwards. The GLOBAL scope always has id
+ * 0. Ids are shared by all shadow caches of a process and are never reused.
+ */
+public final class ScopeRegistry {
+  /** The id of {@link CacheScope#GLOBAL}. */
+  public static final int GLOBAL_ID = 0;
+  /** The id returned by {@link #findId(CacheScope)} for a scope which is not registered. */
+  public static final int UNKNOWN_ID = -1;
+
+  private static final ConcurrentHashMap<CacheScope, Integer> SCOPE_TO_ID =
+      new ConcurrentHashMap<>();
+  // grown by doubling, the ids in use are [0, sNumScopes)
+  private static volatile CacheScope[] sIdToScope = new CacheScope[] {CacheScope.GLOBAL};
+  private static int sNumScopes = 1;
+
+  static {
+    SCOPE_TO_ID.put(CacheScope.GLOBAL, GLOBAL_ID);
+  }
+
+  private ScopeRegistry() {} // prevent instantiation
+
+  /**
+   * @param scope the cache scope
+   * @return the id of the scope, which is registered if it is seen for the first time
+   */
+  public static int idOf(CacheScope scope) {
+    Integer id = SCOPE_TO_ID.get(scope);
+    return id != null ? id : register(scope);
+  }
+
+  /**
+   * Looks up the id of a scope without registering it, for read-only callers such as getters of
+   * statistics, which must not grow the registry with every scope they are asked about.
+   *
+   * @param scope the cache scope
+   * @return the id of the scope, or {@link #UNKNOWN_ID} if the scope is not registered
+   */
+  public static int findId(CacheScope scope) {
+    Integer id = SCOPE_TO_ID.get(scope);
+    return id != null ? id : UNKNOWN_ID;
+  }
+
+  /**
+   * @param id the id of a registered scope
+   * @return the cache scope
+   */
+  public static CacheScope scopeOf(int id) {
+    CacheScope[] scopes = sIdToScope;
+    Preconditions.checkArgument(id >= 0 && id < scopes.length && scopes[id] != null,
+        "unknown scope id: %s", id);
+    return scopes[id];
+  }
+
+  private static synchronized int register(CacheScope scope) {
+    Integer id = SCOPE_TO_ID.get(scope);
+    if (id != null) {
+      return id;
+    }
+    CacheScope[] scopes = sIdToScope;
+    if (sNumScopes == scopes.length) {
+      scopes = Arrays.copyOf(scopes, scopes.length * 2);
+    }
+    id = sNumScopes++;
+    scopes[id] = scope;
+    // publish the scope before its id, so that any id handed out can be resolved
+    sIdToScope = scopes;
+    SCOPE_TO_ID.put(scope, id);
+    return id;
+  }
+}
@@ -19,27 +19,51 @@ import alluxio.client.quota.CacheScope;
 public interface ShadowCache {
   static ShadowCache create(ShadowCacheParameters parameters) {
     ShadowCacheType type = ShadowCacheType.valueOf(parameters.mShadowCacheType.toUpperCase());
+    ShadowCache shadowCache;
     switch (type) {
       case MBF:
         parameters.mAgeLevels = parameters.mNumBloom;
-        return new MultipleBloomShadowCacheManager(parameters);
+        shadowCache = new MultipleBloomShadowCacheManager(parameters);
+        break;
       case IDEAL:
         parameters.mAgeLevels = 1;
-        return new IdealShadowCacheManager(parameters);
+        shadowCache = new IdealShadowCacheManager(parameters);
+        break;
       case BMC:
         parameters.mAgeLevels = (1 << parameters.mClockBits) - 1;
-        return new BitMapWithClockSketchCacheManager(parameters);
+        shadowCache = new BitMapWithClockSketchCacheManager(parameters);
+        break;
       case BMS:
         parameters.mAgeLevels = (int)parameters.mWindowSize;
-        return new BitMapWithSlidingSketchShadowCacheManager(parameters);
+        shadowCache = new BitMapWithSlidingSketchShadowCacheManager(parameters);
+        break;
       case SWAMP:
         parameters.mAgeLevels = parameters.mClockBits;
-        return new SWAMPSketchShadowCacheManager(parameters);
+        shadowCache = new SWAMPSketchShadowCacheManager(parameters);
+        break;
+      case CS:
+        parameters.mAgeLevels = (parameters.mCounterStackInterval > 0)
+            ? (int) Math.max(1, parameters.mWindowSize / parameters.mCounterStackInterval) : 64;
+        shadowCache = new CounterStackShadowCacheManager(parameters);
+        break;
+      case SHLL:
+        parameters.mAgeLevels = parameters.mHllSegments;
+        shadowCache = new SlidingHyperLogLogShadowCacheManager(parameters);
+        break;
       case CCF:
       default:
         parameters.mAgeLevels = 1 << parameters.mClockBits;
-        return new ClockCuckooShadowCacheManager(parameters);
+        shadowCache = new ClockCuckooShadowCacheManager(parameters);
     }
+    if (parameters.mSamplingRate < 1.0 || parameters.mMaxSampledPages > 0) {
+      shadowCache = new SampledShadowCache(shadowCache, parameters.mSamplingRate,
+          parameters.mMaxSampledPages, Math.max(1, parameters.mAgeLevels));
+    }
+    ShadowCacheMetrics metrics = ShadowCacheMetrics.create(parameters);
+    if (metrics != ShadowCacheMetrics.NOOP) {
+      shadowCache = new InstrumentedShadowCache(shadowCache, metrics);
+    }
+    return shadowCache;
   }
 
   /**
@@ -62,6 +86,42 @@ public interface ShadowCache {
    */
   int get(PageId pageId, int bytesToRead, CacheScope scope);
 
+  /**
+   * Puts a batch of pages into the shadow cache manager. Implementations may amortize hashing and
+   * locking over the batch; by default pages are put one by one.
+   *
+   * @param pageIds page identifiers
+   * @param sizes page sizes
+   * @param scopes cache scopes
+   * @return the number of pages put successfully
+   */
+  default int putAll(PageId[] pageIds, int[] sizes, CacheScope[] scopes) {
+    int numOk = 0;
+    for (int i = 0; i < pageIds.length; i++) {
+      if (put(pageIds[i], sizes[i], scopes[i])) {
+        numOk++;
+      }
+    }
+    return numOk;
+  }
+
+  /**
+   * Reads a batch of pages and refresh the access time of the queried pages found in the cache.
+   * Implementations may amortize hashing and locking over the batch; by default pages are read one
+   * by one.
+   *
+   * @param pageIds page identifiers
+   * @param bytesToRead number of bytes to read in each page
+   * @param scopes cache scopes
+   * @param out the array to store the number of bytes read of each page, 0 if page is not found,
+   *        -1 on errors
+   */
+  default void getAll(PageId[] pageIds, int[] bytesToRead, CacheScope[] scopes, int[] out) {
+    for (int i = 0; i < pageIds.length; i++) {
+      out[i] = get(pageIds[i], bytesToRead[i], scopes[i]);
+    }
+  }
+
   /**
    * Deletes a page from the cache.
    *
@@ -70,6 +130,49 @@ public interface ShadowCache {
    */
   boolean delete(PageId pageId);
 
+  /**
+   * Puts a page named by primitives, for callers which already have numeric file ids and would
+   * otherwise allocate a page id per access. A page is the same page only within one of the two
+   * APIs. By default the page is converted to a page id; shadow caches keyed by the hash of pages
+   * override this without allocation.
+   *
+   * @param fileKey numeric file identifier
+   * @param pageIndex index of the page in file
+   * @param size page size
+   * @param scopeId cache scope id assigned by {@link ScopeRegistry}
+   * @return true if the put was successful, false otherwise
+   */
+  default boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return put(new PageId(Long.toString(fileKey), pageIndex), size,
+        ScopeRegistry.scopeOf(scopeId));
+  }
+
+  /**
+   * Reads the entire page named by primitives and refresh its access time if it is found in the
+   * cache. See {@link #put(long, long, int, int)}.
+   *
+   * @param fileKey numeric file identifier
+   * @param pageIndex index of the page in file
+   * @param bytesToRead number of bytes to read in this page
+   * @param scopeId cache scope id assigned by {@link ScopeRegistry}
+   * @return the number of bytes read, 0 if page is not found, -1 on errors
+   */
+  default int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return get(new PageId(Long.toString(fileKey), pageIndex), bytesToRead,
+        ScopeRegistry.scopeOf(scopeId));
+  }
+
+  /**
+   * Deletes a page named by primitives from the cache. See {@link #put(long, long, int, int)}.
+   *
+   * @param fileKey numeric file identifier
+   * @param pageIndex index of the page in file
+   * @return true if the page is successfully deleted, false otherwise
+   */
+  default boolean delete(long fileKey, long pageIndex) {
+    return delete(new PageId(Long.toString(fileKey), pageIndex));
+  }
+
   /**
    * Aging all the pages stored in this shadow cache. Specifically, aging operation removes all the
    * stale pages which are not accessed for more than a sliding window.
@@ -149,11 +252,23 @@ public interface ShadowCache {
    */
   String getSummary();
 
+  /**
+   * Estimates the miss ratio curve of an LRU cache from the accesses seen by this shadow cache, so
+   * that the hit ratios of many cache sizes are known from one pass over the accesses.
+   *
+   * @return the miss ratio curve
+   * @throws UnsupportedOperationException if this shadow cache cannot estimate reuse distances
+   */
+  default MissRatioCurve getMissRatioCurve() {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support miss ratio curve");
+  }
+
   default String dumpDebugInfo() {
     return "";
   }
 
   enum ShadowCacheType {
-    MBF, CCF, IDEAL, BMC, BMS, SWAMP
+    MBF, CCF, IDEAL, BMC, BMS, SWAMP, CS, SHLL
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+/**
+ * The instrumentation of shadow cache operations. A timer is started before an operation and
+ * recorded after it, so that an implementation can sample which operations to time, and the
+ * disabled instrumentation costs no clock read.
+ */
+public interface ShadowCacheMetrics {
+  /**
+   * The instrumentation which records nothing.
+   */
+  ShadowCacheMetrics NOOP = new ShadowCacheMetrics() {
+    @Override
+    public long startTimer() {
+      return 0;
+    }
+
+    @Override
+    public void record(Operation operation, long startNanos) {
+    }
+
+    @Override
+    public void record(Operation operation, long startNanos, int numOperations) {
+    }
+
+    @Override
+    public String getSummary() {
+      return "";
+    }
+  };
+
+  /**
+   * @param parameters the shadow cache parameters
+   * @return the instrumentation configured by the parameters
+   */
+  static ShadowCacheMetrics create(ShadowCacheParameters parameters) {
+    if (parameters.mLatencySampleInterval <= 0) {
+      return NOOP;
+    }
+    return new HistogramShadowCacheMetrics(parameters.mLatencySampleInterval);
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return the start time in nanoseconds, 0 if the operation is not timed
+   */
+  long startTimer();
+
+  /**
+   * Records an operation if it is timed.
+   *
+   * @param operation the operation
+   * @param startNanos the start time returned by {@link #startTimer}
+   */
+  void record(Operation operation, long startNanos);
+
+  /**
+   * Records a batch of operations if it is timed, each with the mean latency of the batch.
+   *
+   * @param operation the operation of each item in the batch
+   * @param startNanos the start time returned by {@link #startTimer}
+   * @param numOperations the number of operations in the batch
+   */
+  void record(Operation operation, long startNanos, int numOperations);
+
+  /**
+   * @return the summary of recorded operations
+   */
+  String getSummary();
+
+  /**
+   * The operations of a shadow cache.
+   */
+  enum Operation {
+    PUT, GET, DELETE, AGING
+  }
+}
@@ -12,6 +12,7 @@
 package alluxio.client.file.cache;
 
 import alluxio.client.file.cache.cuckoofilter.SlidingWindowType;
+import alluxio.client.file.cache.cuckoofilter.TableLayoutType;
 import alluxio.client.file.cache.cuckoofilter.size.SizeEncodeType;
 import alluxio.collections.BitSet;
 
@@ -47,6 +48,14 @@ public class ShadowCacheParameters extends Parameters {
   @Parameter(names = "--opportunistic_aging", arity = 1)
   public boolean mOpportunisticAging = true;
 
+  // the number of threads which age segments of clock cuckoo filter, 1 to age serially
+  @Parameter(names = "--aging_parallelism")
+  public int mAgingParallelism = 1;
+
+  // the maximum time to wait for the lock of a segment before aging it later, 0 for no limit
+  @Parameter(names = "--aging_deadline_us")
+  public long mAgingDeadlineUs = 0;
+
   @Parameter(names = "--tag_bits")
   public int mTagBits = 8;
 
@@ -68,6 +77,13 @@ public class ShadowCacheParameters extends Parameters {
   @Parameter(names = "--bitset_type", converter = BitSetTypeConverter.class)
   public BitSet.BitSetType mBitSetType = BitSet.BitSetType.DEFAULT;
 
+  // the path prefix of the files which persist tables when bitset_type is mmap
+  @Parameter(names = "--bitset_path")
+  public String mBitSetPath = "";
+
+  @Parameter(names = "--table_layout", converter = TableLayoutTypeConverter.class)
+  public TableLayoutType mTableLayoutType = TableLayoutType.SPLIT;
+
   // for log size encoder
   @Parameter(names = "--size_bucket_first")
   public int mSizeBucketFirst = 512;
@@ -93,6 +109,42 @@ public class ShadowCacheParameters extends Parameters {
   @Parameter(names = "--lock_number")
   public int mLockNumber = 4096;
 
+  // update clocks of the clock cuckoo filter with compare-and-set instead of write locks
+  @Parameter(names = "--lock_free", arity = 1)
+  public boolean mLockFree = false;
+
+  // the number of independently locked shards of swamp
+  @Parameter(names = "--swamp_shards")
+  public int mSwampShards = 16;
+
+  // hyperloglog based shadow caches
+  @Parameter(names = "--hll_precision")
+  public int mHllPrecision = 12;
+
+  // the number of counters splitting the window of sliding window hyperloglog
+  @Parameter(names = "--hll_segments")
+  public int mHllSegments = 8;
+
+  // counter stacks, the interval to start a new counter, 0 for 1/64 of the window
+  @Parameter(names = "--counter_stack_interval")
+  public long mCounterStackInterval = 0;
+
+  // prune a counter if the next younger counter has reached (1 - delta) of its count
+  @Parameter(names = "--counter_stack_prune_delta")
+  public double mCounterStackPruneDelta = 0.02;
+
+  // the fraction of pages admitted into the shadow cache, 1 to admit all pages
+  @Parameter(names = "--sampling_rate")
+  public double mSamplingRate = 1.0;
+
+  // lower the sampling rate to keep at most this number of sampled pages, 0 for a fixed rate
+  @Parameter(names = "--max_sampled_pages")
+  public long mMaxSampledPages = 0;
+
+  // record the latency of one in every this number of operations, 0 to disable
+  @Parameter(names = "--latency_sample_interval")
+  public int mLatencySampleInterval = 0;
+
   public int mAgeLevels = 0;
 
   static class SlidingWindowTypeConverter implements IStringConverter<SlidingWindowType> {
@@ -115,4 +167,11 @@ public class ShadowCacheParameters extends Parameters {
       return BitSet.BitSetType.valueOf(s.toUpperCase());
     }
   }
+
+  static class TableLayoutTypeConverter implements IStringConverter<TableLayoutType> {
+    @Override
+    public TableLayoutType convert(String s) {
+      return TableLayoutType.valueOf(s.toUpperCase());
+    }
+  }
 }
@@ -0,0 +1,331 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import alluxio.Constants;
+import alluxio.client.quota.CacheScope;
+import alluxio.collections.HyperLogLog;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is a shadow cache with sliding window HyperLogLog implementation, which estimates the
+ * working set size in a few KB regardless of the number of distinct pages.
+ *
+ * <p>
+ * The window is split into segments like {@link MultipleBloomShadowCacheManager}, each of which
+ * has a HyperLogLog counter of the pages accessed in it. The working set is the union of the
+ * counters, and aging replaces the oldest counter with an empty one. Bytes are estimated from the
+ * mean size of pages which update a register, as these are a sample of distinct pages regardless
+ * of how often they are accessed. A ring of counters is kept for each scope seen.
+ *
+ * <p>
+ * HyperLogLog does not tell whether a single page is in the window, so {@link #get} always returns
+ * 0, and hits are counted in aggregate at aging: the accesses of the current segment which do not
+ * increase the window count are hits.
+ */
+public class SlidingHyperLogLogShadowCacheManager implements ShadowCache {
+  private final Lock mLock = new ReentrantLock();
+  private final int mPrecision;
+  private final int mNumSegments;
+  private final Window mWindow;
+  private final Map<CacheScope, Window> mScopeWindows = new ConcurrentHashMap<>();
+  private final AtomicLong mShadowCachePageRead = new AtomicLong(0);
+  private final AtomicLong mShadowCacheByteRead = new AtomicLong(0);
+  private int mCurrentSegment = 0;
+  private long mShadowCachePageHit = 0;
+  private long mShadowCacheByteHit = 0;
+  private long mSegmentPageRead = 0;
+  private long mSegmentByteRead = 0;
+  // the window count right after last aging
+  private long mSegmentStartPages = 0;
+  private long mShadowCachePages = 0;
+  private long mShadowCacheBytes = 0;
+
+  /**
+   * Create a SlidingHyperLogLogShadowCacheManager.
+   *
+   * @param parameters the shadow cache parameters
+   */
+  public SlidingHyperLogLogShadowCacheManager(ShadowCacheParameters parameters) {
+    mPrecision = parameters.mHllPrecision;
+    mNumSegments = parameters.mHllSegments;
+    Preconditions.checkArgument(mNumSegments > 0,
+        "number of segments must be positive: %s", mNumSegments);
+    mWindow = new Window();
+  }
+
+  /**
+   * A ring of HyperLogLog counters, one for each segment of the window.
+   */
+  private final class Window {
+    private final HyperLogLog[] mSegments = new HyperLogLog[mNumSegments];
+    // the number and bytes of pages which update a register in each segment
+    private final long[] mNumUpdates = new long[mNumSegments];
+    private final long[] mBytesUpdated = new long[mNumSegments];
+    private final HyperLogLog mUnion = new HyperLogLog(mPrecision);
+
+    Window() {
+      for (int i = 0; i < mNumSegments; i++) {
+        mSegments[i] = new HyperLogLog(mPrecision);
+      }
+    }
+
+    void add(long hash, int size) {
+      if (mSegments[mCurrentSegment].add(hash)) {
+        mNumUpdates[mCurrentSegment]++;
+        mBytesUpdated[mCurrentSegment] += size;
+      }
+    }
+
+    /**
+     * @param excluded the segment to exclude, -1 to count all segments
+     * @return the estimated number of distinct pages in the segments
+     */
+    long countPages(int excluded) {
+      mUnion.clear();
+      for (int i = 0; i < mNumSegments; i++) {
+        if (i != excluded) {
+          mUnion.merge(mSegments[i]);
+        }
+      }
+      return mUnion.cardinality();
+    }
+
+    /**
+     * @param pages the estimated number of distinct pages
+     * @return the estimated number of bytes of these pages
+     */
+    long countBytes(long pages) {
+      long numUpdates = 0;
+      long bytesUpdated = 0;
+      for (int i = 0; i < mNumSegments; i++) {
+        numUpdates += mNumUpdates[i];
+        bytesUpdated += mBytesUpdated[i];
+      }
+      return (numUpdates == 0) ? 0 : (long) (pages * (bytesUpdated / (double) numUpdates));
+    }
+
+    /**
+     * @return true if no page is added in any segment
+     */
+    boolean isEmpty() {
+      for (long numUpdates : mNumUpdates) {
+        if (numUpdates > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void clearSegment(int segment) {
+      mSegments[segment].clear();
+      mNumUpdates[segment] = 0;
+      mBytesUpdated[segment] = 0;
+    }
+  }
+
+  /**
+   * @param hash the hash of page
+   * @param size page size
+   * @param scope cache scope
+   */
+  private void add(long hash, int size, CacheScope scope) {
+    mWindow.add(hash, size);
+    if (scope != null && scope != CacheScope.GLOBAL) {
+      mScopeWindows.computeIfAbsent(scope, k -> new Window()).add(hash, size);
+    }
+  }
+
+  @Override
+  public boolean put(PageId pageId, int size, CacheScope scope) {
+    return putByHash(pageId.getHash(), size, scope);
+  }
+
+  @Override
+  public boolean put(long fileKey, long pageIndex, int size, int scopeId) {
+    return putByHash(PageId.hash(fileKey, pageIndex), size, ScopeRegistry.scopeOf(scopeId));
+  }
+
+  private boolean putByHash(long hash, int size, CacheScope scope) {
+    mLock.lock();
+    try {
+      add(hash, size, scope);
+    } finally {
+      mLock.unlock();
+    }
+    return true;
+  }
+
+  @Override
+  public int get(PageId pageId, int bytesToRead, CacheScope scope) {
+    return getByHash(pageId.getHash(), bytesToRead, scope);
+  }
+
+  @Override
+  public int get(long fileKey, long pageIndex, int bytesToRead, int scopeId) {
+    return getByHash(PageId.hash(fileKey, pageIndex), bytesToRead, ScopeRegistry.scopeOf(scopeId));
+  }
+
+  private int getByHash(long hash, int bytesToRead, CacheScope scope) {
+    mShadowCachePageRead.incrementAndGet();
+    mShadowCacheByteRead.addAndGet(bytesToRead);
+    mLock.lock();
+    try {
+      add(hash, bytesToRead, scope);
+      mSegmentPageRead++;
+      mSegmentByteRead += bytesToRead;
+    } finally {
+      mLock.unlock();
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean delete(PageId pageId) {
+    // a page cannot be removed from HyperLogLog counters
+    return false;
+  }
+
+  @Override
+  public boolean delete(long fileKey, long pageIndex) {
+    return false;
+  }
+
+  @Override
+  public void aging() {
+    mLock.lock();
+    try {
+      // reads which do not add a page to the window reuse a page within the window
+      long newPages = Math.max(0, mWindow.countPages(-1) - mSegmentStartPages);
+      long pageHits = Math.max(0, mSegmentPageRead - newPages);
+      mShadowCachePageHit += pageHits;
+      if (mSegmentPageRead > 0) {
+        mShadowCacheByteHit +=
+            (long) (pageHits * (mSegmentByteRead / (double) mSegmentPageRead));
+      }
+      mSegmentPageRead = 0;
+      mSegmentByteRead = 0;
+      mCurrentSegment = (mCurrentSegment + 1) % mNumSegments;
+      mWindow.clearSegment(mCurrentSegment);
+      mScopeWindows.values().removeIf(window -> {
+        window.clearSegment(mCurrentSegment);
+        return window.isEmpty();
+      });
+      mSegmentStartPages = mWindow.countPages(-1);
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  @Override
+  public void updateWorkingSetSize() {
+    mLock.lock();
+    try {
+      mShadowCachePages = mWindow.countPages(-1);
+      mShadowCacheBytes = mWindow.countBytes(mShadowCachePages);
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  @Override
+  public void stopUpdate() {
+  }
+
+  @Override
+  public void updateTimestamp(long increment) {
+    // segments are switched by aging
+  }
+
+  @Override
+  public long getShadowCachePages() {
+    return mShadowCachePages;
+  }
+
+  @Override
+  public long getShadowCachePages(CacheScope scope) {
+    if (scope == CacheScope.GLOBAL) {
+      return mShadowCachePages;
+    }
+    mLock.lock();
+    try {
+      Window window = mScopeWindows.get(scope);
+      return (window == null) ? 0 : window.countPages(-1);
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  @Override
+  public long getShadowCacheBytes() {
+    return mShadowCacheBytes;
+  }
+
+  @Override
+  public long getShadowCacheBytes(CacheScope scope) {
+    if (scope == CacheScope.GLOBAL) {
+      return mShadowCacheBytes;
+    }
+    mLock.lock();
+    try {
+      Window window = mScopeWindows.get(scope);
+      return (window == null) ? 0 : window.countBytes(window.countPages(-1));
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  @Override
+  public long getShadowCachePageRead() {
+    return mShadowCachePageRead.get();
+  }
+
+  @Override
+  public long getShadowCachePageHit() {
+    return mShadowCachePageHit;
+  }
+
+  @Override
+  public long getShadowCacheByteRead() {
+    return mShadowCacheByteRead.get();
+  }
+
+  @Override
+  public long getShadowCacheByteHit() {
+    return mShadowCacheByteHit;
+  }
+
+  @Override
+  public double getFalsePositiveRatio() {
+    return 0;
+  }
+
+  @Override
+  public long getSpaceBits() {
+    // registers of the segments and the union of each window
+    return (1L + mScopeWindows.size()) * (mNumSegments + 1) * Byte.SIZE * (1L << mPrecision);
+  }
+
+  @Override
+  public String getSummary() {
+    return "SlidingHyperLogLogShadowCache:" + "\nprecision: " + mPrecision + "\nnumSegments: "
+        + mNumSegments + "\nnumScopes: " + mScopeWindows.size() + "\nmemory(KB): "
+        + getSpaceBits() / 8.0 / Constants.KB;
+  }
+}
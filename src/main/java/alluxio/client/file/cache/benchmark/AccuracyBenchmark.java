@@ -12,37 +12,49 @@
 package alluxio.client.file.cache.benchmark;
 
 import alluxio.client.file.cache.IdealShadowCacheManager;
+import alluxio.client.file.cache.InstrumentedShadowCache;
 import alluxio.client.file.cache.PageId;
+import alluxio.client.file.cache.SampledShadowCache;
 import alluxio.client.file.cache.ShadowCache;
 import alluxio.client.file.cache.dataset.Dataset;
 import alluxio.client.file.cache.dataset.DatasetEntry;
-import alluxio.client.file.cache.dataset.GeneralDataset;
 import alluxio.client.file.cache.dataset.generator.EntryGenerator;
 import alluxio.client.file.cache.dataset.generator.MSREntryGenerator;
 import alluxio.client.file.cache.dataset.generator.RandomEntryGenerator;
 import alluxio.client.file.cache.dataset.generator.SequentialEntryGenerator;
 import alluxio.client.file.cache.dataset.generator.TwitterEntryGenerator;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AccuracyBenchmark implements Benchmark {
   private final BenchmarkContext mBenchmarkContext;
   private final BenchmarkParameters mBenchmarkParameters;
-  private final ShadowCache mShadowCache;
-  private final ShadowCache mIdealShadowCache;
+  private ShadowCache mShadowCache;
+  private ShadowCache mIdealShadowCache;
   private Dataset<String> mDataset;
 
   public AccuracyBenchmark(BenchmarkContext benchmarkContext,
       BenchmarkParameters benchmarkParameters) {
     mBenchmarkContext = benchmarkContext;
     mBenchmarkParameters = benchmarkParameters;
-    mShadowCache = ShadowCache.create(benchmarkParameters);
-    mIdealShadowCache = new IdealShadowCacheManager(benchmarkParameters);
+    if (benchmarkParameters.mSamplingRates != null
+        && !benchmarkParameters.mSamplingRates.isEmpty()) {
+      benchmarkParameters.mSamplingRate = benchmarkParameters.mSamplingRates.get(0);
+    }
+    createShadowCaches();
     createDataset();
+  }
+
+  private void createShadowCaches() {
+    mShadowCache = ShadowCache.create(mBenchmarkParameters);
+    mIdealShadowCache = new IdealShadowCacheManager(mBenchmarkParameters);
     mShadowCache.stopUpdate();
   }
 
   private void createDataset() {
     EntryGenerator<String> generator = BenchmarkUtils.createGenerator(mBenchmarkParameters);
-    mDataset = new GeneralDataset<>(generator, (int) mBenchmarkParameters.mWindowSize);
+    mDataset = BenchmarkUtils.createDataset(generator, mBenchmarkParameters);
   }
 
   @Override
@@ -52,6 +64,39 @@ public class AccuracyBenchmark implements Benchmark {
 
   @Override
   public void run() {
+    List<Double> samplingRates = mBenchmarkParameters.mSamplingRates;
+    if (samplingRates == null || samplingRates.isEmpty()) {
+      runOnce();
+      return;
+    }
+    // replay the same trace at each sampling rate, from fresh shadow caches and dataset
+    List<double[]> errors = new ArrayList<>();
+    for (int i = 0; i < samplingRates.size(); i++) {
+      if (i > 0) {
+        mBenchmarkParameters.mSamplingRate = samplingRates.get(i);
+        createShadowCaches();
+        createDataset();
+      }
+      System.out.printf("samplingRate:%f\n", samplingRates.get(i));
+      errors.add(runOnce());
+    }
+    System.out.println();
+    System.out.println("SamplingRate\tARE(Page)\tARE(Byte)\tARE(PageHit)\tARE(ByteHit)"
+        + "\tFinalARE(PageHit)\tFinalARE(ByteHit)");
+    for (int i = 0; i < samplingRates.size(); i++) {
+      double[] error = errors.get(i);
+      System.out.printf("%.6f\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\n",
+          samplingRates.get(i), error[0] * 100, error[1] * 100, error[2] * 100, error[3] * 100,
+          error[4] * 100, error[5] * 100);
+    }
+  }
+
+  /**
+   * Replays the dataset once and prints the statistics of the run.
+   *
+   * @return the ARE of pages, bytes, page hits, byte hits, final page hits and final byte hits
+   */
+  private double[] runOnce() {
     long opsCount = 0;
     long agingCount = 0;
     long agingDuration = 0;
@@ -170,14 +215,20 @@ public class AccuracyBenchmark implements Benchmark {
     System.out.println();
     System.out.println("TotalTime(ms)\t" + totalDuration);
     System.out.println();
+    // the sampling rate at the end of run, which may have been lowered to bound memory
+    ShadowCache shadowCache = (mShadowCache instanceof InstrumentedShadowCache)
+        ? ((InstrumentedShadowCache) mShadowCache).getShadowCache() : mShadowCache;
+    double samplingRate = (shadowCache instanceof SampledShadowCache)
+        ? ((SampledShadowCache) shadowCache).getSamplingRate() : 1.0;
     System.out
         .println("Put/Get(ms)\tAging(ms)\tAgingCnt\tops/sec\tops/sec(aging)\tARE(Page)\tARE(Byte)"
-            + "\tARE(PageHit)\tARE(ByteHit)\tFinalARE(PageHit)\tFinalARE(ByteHit)");
-    System.out.printf("%d\t%d\t%d\t%.2f\t%.2f\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\n",
+            + "\tARE(PageHit)\tARE(ByteHit)\tFinalARE(PageHit)\tFinalARE(ByteHit)\tSamplingRate");
+    System.out.printf(
+        "%d\t%d\t%d\t%.2f\t%.2f\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.4f%%\t%.6f\n",
         cacheDuration, agingDuration, agingCount, opsCount * 1000 / (double) cacheDuration,
         opsCount * 1000 / (double) (cacheDuration + agingDuration), numARE * 100 / errCnt,
         byteARE * 100 / errCnt, pageHitARE * 100 / errCnt, byteHitARE * 100 / errCnt,
-        pageHitAREFinal * 100, byteHitAREFinal * 100);
+        pageHitAREFinal * 100, byteHitAREFinal * 100, samplingRate);
 
     System.out.println();
     System.out.println("FPR(Page)\tFNR(Page)\tER(Page)");
@@ -194,6 +245,8 @@ public class AccuracyBenchmark implements Benchmark {
     if (mBenchmarkParameters.mVerbose) {
       System.out.println(mShadowCache.dumpDebugInfo());
     }
+    return new double[] {numARE / errCnt, byteARE / errCnt, pageHitARE / errCnt,
+        byteHitARE / errCnt, pageHitAREFinal, byteHitAREFinal};
   }
 
   @Override
@@ -0,0 +1,124 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.benchmark;
+
+import alluxio.client.file.cache.PageId;
+import alluxio.client.file.cache.PageIdFunnel;
+import alluxio.client.file.cache.ShadowCache;
+import alluxio.client.file.cache.dataset.DatasetEntry;
+import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+import alluxio.client.quota.CacheScope;
+import alluxio.util.MurmurHash3;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the number of bytes allocated per operation on the hot paths of a shadow cache. Page ids
+ * are materialized before measuring, so only the allocation of shadow cache itself is counted.
+ */
+public class AllocationBenchmark implements Benchmark {
+  private final BenchmarkContext mBenchmarkContext;
+  private final BenchmarkParameters mBenchmarkParameters;
+  private final ShadowCache mShadowCache;
+  private final com.sun.management.ThreadMXBean mThreadMXBean;
+  private final EntryGenerator<String> mEntryGenerator;
+  private PageId[] mItems;
+  private int[] mSizes;
+  private CacheScope[] mScopes;
+
+  public AllocationBenchmark(BenchmarkContext benchmarkContext, BenchmarkParameters parameters) {
+    mBenchmarkContext = benchmarkContext;
+    mBenchmarkParameters = parameters;
+    mEntryGenerator = BenchmarkUtils.createGenerator(parameters);
+    mShadowCache = ShadowCache.create(parameters);
+    mShadowCache.stopUpdate();
+    mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  }
+
+  @Override
+  public boolean prepare() {
+    if (!mThreadMXBean.isThreadAllocatedMemorySupported()) {
+      System.out.println("Error: thread allocated memory is not supported by this JVM");
+      return false;
+    }
+    mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    List<DatasetEntry<String>> entries = new ArrayList<>();
+    while (mEntryGenerator.hasNext() && entries.size() < mBenchmarkParameters.mMaxEntries) {
+      entries.add(mEntryGenerator.next());
+    }
+    int count = entries.size();
+    mItems = new PageId[count];
+    mSizes = new int[count];
+    mScopes = new CacheScope[count];
+    for (int i = 0; i < count; i++) {
+      DatasetEntry<String> entry = entries.get(i);
+      mItems[i] = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
+      mSizes[i] = entry.getSize();
+      mScopes[i] = entry.getScopeInfo();
+    }
+    System.out.printf("Prepare %d entries\n", count);
+    return count > 0;
+  }
+
+  @Override
+  public void run() {
+    System.out.println(mShadowCache.getSummary());
+    HashFunction hashFunction = Hashing.murmur3_128();
+    int count = mItems.length;
+
+    // 1. hashing through a guava hasher, as done before page ids cache their hashes
+    long checksum = 0;
+    long startBytes = allocatedBytes();
+    for (int i = 0; i < count; i++) {
+      checksum +=
+          hashFunction.newHasher().putObject(mItems[i], PageIdFunnel.FUNNEL).hash().asLong();
+    }
+    report("guava hash", allocatedBytes() - startBytes, count);
+
+    // 1b. the hash of page ids, computed in place without a hasher
+    startBytes = allocatedBytes();
+    for (int i = 0; i < count; i++) {
+      checksum += MurmurHash3.hash64(mItems[i].getFileId(), mItems[i].getPageIndex(), 0);
+    }
+    report("hash", allocatedBytes() - startBytes, count);
+
+    // 2. put
+    startBytes = allocatedBytes();
+    for (int i = 0; i < count; i++) {
+      mShadowCache.put(mItems[i], mSizes[i], mScopes[i]);
+    }
+    report("put", allocatedBytes() - startBytes, count);
+
+    // 3. get, all items have been put so this is the hit path
+    startBytes = allocatedBytes();
+    for (int i = 0; i < count; i++) {
+      checksum += mShadowCache.get(mItems[i], mSizes[i], mScopes[i]);
+    }
+    report("get", allocatedBytes() - startBytes, count);
+    System.out.printf("checksum: %d\n", checksum);
+  }
+
+  private long allocatedBytes() {
+    return mThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private void report(String operation, long bytes, int count) {
+    System.out.printf("%s: %d bytes allocated, %.2f bytes/op\n", operation, bytes,
+        bytes / (double) count);
+    mBenchmarkContext.mStream.printf("%s\t%d\t%.2f\n", operation, bytes, bytes / (double) count);
+  }
+}
@@ -15,6 +15,8 @@ import alluxio.client.file.cache.ShadowCacheParameters;
 
 import com.beust.jcommander.Parameter;
 
+import java.util.List;
+
 public class BenchmarkParameters extends ShadowCacheParameters {
   @Parameter(names = "--help")
   public boolean mHelp = false;
@@ -52,6 +54,37 @@ public class BenchmarkParameters extends ShadowCacheParameters {
   @Parameter(names = "--num_scope")
   public int mNumScope = 1;
 
+  // the number of pages each client reads and puts in one call of getAll/putAll, 1 for get/put
+  @Parameter(names = "--batch_size")
+  public int mBatchSize = 1;
+
+  // the shadow cache API driven by throughput benchmark: "object" for page ids and cache scopes,
+  // "primitive" for numeric file keys and scope ids resolved before measuring
+  @Parameter(names = "--api")
+  public String mApi = "object";
+
+  // the sampling rates swept by accuracy benchmark, which replays the trace once per rate and
+  // prints the ARE of each rate; the first rate replaces --sampling_rate
+  @Parameter(names = "--sampling_rates")
+  public List<Double> mSamplingRates;
+
+  // the dataset computing the real WSS of the window: "general" for a dataset on heap, "mapped"
+  // for a dataset spilling the window to a memory-mapped file, which scales to billions of entries
+  @Parameter(names = "--oracle")
+  public String mOracle = "general";
+
+  // put all entries before measuring throughput, so that the measured gets are mostly hits
+  @Parameter(names = "--prefill", arity = 1)
+  public boolean mPrefill = false;
+
+  // the number of cache sizes simulated exactly to check the miss ratio curve
+  @Parameter(names = "--mrc_points")
+  public int mMrcPoints = 16;
+
+  // table benchmark specified parameters
+  @Parameter(names = "--table_mode")
+  public String mTableMode = "access";
+
   @Parameter(names = "--cache_memory")
   public String mCacheMemory = "2GB";
 }
@@ -11,6 +11,9 @@
 
 package alluxio.client.file.cache.benchmark;
 
+import alluxio.client.file.cache.dataset.Dataset;
+import alluxio.client.file.cache.dataset.GeneralDataset;
+import alluxio.client.file.cache.dataset.MappedWindowDataset;
 import alluxio.client.file.cache.dataset.generator.*;
 
 public class BenchmarkUtils {
@@ -26,10 +29,23 @@ public class BenchmarkUtils {
         return new TwitterEntryGenerator(conf.mTrace);
       case "ycsb":
         return new YCSBEntryGenerator(conf.mTrace);
+      case "binary":
+        return new BinaryTraceEntryGenerator(conf.mTrace);
       case "random":
       default:
         return new RandomEntryGenerator(conf.mMaxEntries, 1, (int) conf.mNumUniqueEntries + 1, 1,
             1024, 1, 32749);
     }
   }
+
+  public static Dataset<String> createDataset(EntryGenerator<String> generator,
+      BenchmarkParameters conf) {
+    switch (conf.mOracle) {
+      case "mapped":
+        return new MappedWindowDataset<>(generator, conf.mWindowSize);
+      case "general":
+      default:
+        return new GeneralDataset<>(generator, (int) conf.mWindowSize);
+    }
+  }
 }
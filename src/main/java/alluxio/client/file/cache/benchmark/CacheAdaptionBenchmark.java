@@ -4,7 +4,6 @@ import alluxio.client.file.cache.PageId;
 import alluxio.client.file.cache.ShadowCache;
 import alluxio.client.file.cache.dataset.Dataset;
 import alluxio.client.file.cache.dataset.DatasetEntry;
-import alluxio.client.file.cache.dataset.GeneralDataset;
 import alluxio.client.file.cache.dataset.generator.EntryGenerator;
 import alluxio.util.FormatUtils;
 import alluxio.util.LRU;
@@ -39,7 +38,7 @@ public class CacheAdaptionBenchmark implements Benchmark {
 
     private void createDataset() {
         EntryGenerator<String> generator = BenchmarkUtils.createGenerator(mBenchmarkParameters);
-        mDataset = new GeneralDataset<>(generator, (int) mBenchmarkParameters.mWindowSize);
+        mDataset = BenchmarkUtils.createDataset(generator, mBenchmarkParameters);
     }
 
     @Override
@@ -0,0 +1,144 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.benchmark;
+
+import alluxio.client.file.cache.MissRatioCurve;
+import alluxio.client.file.cache.PageId;
+import alluxio.client.file.cache.ShadowCache;
+import alluxio.client.file.cache.dataset.DatasetEntry;
+import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimates the miss ratio curve of a trace with one pass through a shadow cache, then replays
+ * the trace through exact LRU caches of evenly spaced sizes to measure the error of the curve.
+ */
+public class MrcBenchmark implements Benchmark {
+  private final BenchmarkContext mBenchmarkContext;
+  private final BenchmarkParameters mBenchmarkParameters;
+  private final ShadowCache mShadowCache;
+
+  public MrcBenchmark(BenchmarkContext benchmarkContext, BenchmarkParameters parameters) {
+    mBenchmarkContext = benchmarkContext;
+    mBenchmarkParameters = parameters;
+    mShadowCache = ShadowCache.create(parameters);
+    mShadowCache.stopUpdate();
+  }
+
+  @Override
+  public void run() {
+    long agingPeriod = mBenchmarkParameters.mWindowSize / mBenchmarkParameters.mAgeLevels;
+    if (agingPeriod <= 0) {
+      agingPeriod = 1;
+    }
+    System.out.printf("agingPeriod:%d\n", agingPeriod);
+    System.out.println(mShadowCache.getSummary());
+
+    // 1. estimate the curve in one pass
+    long startTick = System.currentTimeMillis();
+    EntryGenerator<String> generator = BenchmarkUtils.createGenerator(mBenchmarkParameters);
+    long opsCount = 0;
+    while (generator.hasNext() && opsCount < mBenchmarkParameters.mMaxEntries) {
+      opsCount++;
+      DatasetEntry<String> entry = generator.next();
+      PageId item = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
+      if (mShadowCache.get(item, entry.getSize(), entry.getScopeInfo()) <= 0) {
+        mShadowCache.put(item, entry.getSize(), entry.getScopeInfo());
+      }
+      mShadowCache.updateTimestamp(1);
+      if (opsCount % agingPeriod == 0) {
+        mShadowCache.aging();
+      }
+    }
+    MissRatioCurve curve = mShadowCache.getMissRatioCurve();
+    long estimateDuration = System.currentTimeMillis() - startTick;
+    System.out.println(curve);
+
+    // 2. simulate LRU caches of evenly spaced sizes up to the largest size of the curve
+    int numPoints = mBenchmarkParameters.mMrcPoints;
+    long[] curveSizes = curve.getCacheSizes();
+    long maxSize = curveSizes[curveSizes.length - 1];
+    long[] cacheSizes = new long[numPoints];
+    LruCache[] caches = new LruCache[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      cacheSizes[i] = maxSize * (i + 1) / numPoints;
+      caches[i] = new LruCache(cacheSizes[i]);
+    }
+    startTick = System.currentTimeMillis();
+    generator = BenchmarkUtils.createGenerator(mBenchmarkParameters);
+    long bytesRead = 0;
+    for (long n = 0; generator.hasNext() && n < opsCount; n++) {
+      DatasetEntry<String> entry = generator.next();
+      PageId item = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
+      bytesRead += entry.getSize();
+      for (LruCache cache : caches) {
+        cache.access(item, entry.getSize());
+      }
+    }
+    long simulateDuration = System.currentTimeMillis() - startTick;
+
+    // 3. report
+    mBenchmarkContext.mStream.println("#CacheSize\tEst(Page)\tEst(Byte)\tReal(Page)\tReal(Byte)");
+    double absErrorSum = 0;
+    double maxAbsError = 0;
+    for (int i = 0; i < numPoints; i++) {
+      double realPageMiss = 1.0 - caches[i].mPageHits / (double) Math.max(opsCount, 1);
+      double realByteMiss = 1.0 - caches[i].mByteHits / (double) Math.max(bytesRead, 1);
+      double estByteMiss = curve.getByteMissRatio(cacheSizes[i]);
+      mBenchmarkContext.mStream.printf("%d\t%.4f\t%.4f\t%.4f\t%.4f\n", cacheSizes[i],
+          curve.getPageMissRatio(cacheSizes[i]), estByteMiss, realPageMiss, realByteMiss);
+      double absError = Math.abs(estByteMiss - realByteMiss);
+      absErrorSum += absError;
+      maxAbsError = Math.max(maxAbsError, absError);
+    }
+    System.out.printf("MAE: %.4f%%\n", absErrorSum * 100 / numPoints);
+    System.out.printf("MaxAE: %.4f%%\n", maxAbsError * 100);
+    System.out.printf("Estimate(ms): %d\n", estimateDuration);
+    System.out.printf("Simulate(ms): %d for %d sizes\n", simulateDuration, numPoints);
+  }
+
+  /**
+   * An exact LRU cache of limited bytes, which only counts hits.
+   */
+  private static class LruCache {
+    private final long mCapacity;
+    private final LinkedHashMap<PageId, Integer> mPages = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes = 0;
+    private long mPageHits = 0;
+    private long mByteHits = 0;
+
+    LruCache(long capacity) {
+      mCapacity = capacity;
+    }
+
+    void access(PageId pageId, int size) {
+      if (mPages.get(pageId) != null) {
+        mPageHits++;
+        mByteHits += size;
+        return;
+      }
+      if (size > mCapacity) {
+        return;
+      }
+      mPages.put(pageId, size);
+      mBytes += size;
+      Iterator<Map.Entry<PageId, Integer>> iterator = mPages.entrySet().iterator();
+      while (mBytes > mCapacity) {
+        mBytes -= iterator.next().getValue();
+        iterator.remove();
+      }
+    }
+  }
+}
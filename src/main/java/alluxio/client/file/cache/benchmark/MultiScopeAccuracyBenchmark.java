@@ -17,7 +17,6 @@ import alluxio.client.file.cache.ShadowCache;
 import alluxio.client.file.cache.ShadowCacheParameters;
 import alluxio.client.file.cache.dataset.Dataset;
 import alluxio.client.file.cache.dataset.DatasetEntry;
-import alluxio.client.file.cache.dataset.GeneralDataset;
 import alluxio.client.file.cache.dataset.generator.EntryGenerator;
 import alluxio.client.file.cache.dataset.generator.MSREntryGenerator;
 import alluxio.client.file.cache.dataset.generator.RandomEntryGenerator;
@@ -64,7 +63,7 @@ public class MultiScopeAccuracyBenchmark implements Benchmark {
 
   private void createDataset() {
     EntryGenerator<String> generator = BenchmarkUtils.createGenerator(mBenchmarkParameters);
-    mDataset = new GeneralDataset<>(generator, (int) mBenchmarkParameters.mWindowSize);
+    mDataset = BenchmarkUtils.createDataset(generator, mBenchmarkParameters);
   }
 
   @Override
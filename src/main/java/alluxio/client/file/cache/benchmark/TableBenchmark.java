@@ -13,8 +13,11 @@ package alluxio.client.file.cache.benchmark;
 
 import alluxio.Constants;
 import alluxio.client.file.cache.cuckoofilter.CuckooTable;
+import alluxio.client.file.cache.cuckoofilter.InterleavedCuckooTable;
 import alluxio.client.file.cache.cuckoofilter.SimpleCuckooTable;
+import alluxio.client.file.cache.cuckoofilter.TagPosition;
 import alluxio.collections.BitSet;
+import alluxio.util.FormatUtils;
 
 import java.util.Random;
 
@@ -24,21 +27,41 @@ public class TableBenchmark implements Benchmark {
 
   private final BenchmarkContext mBenchmarkContext;
   private final BenchmarkParameters mBenchmarkParameters;
-  private final CuckooTable mTable;
   private final int mBitsPerTag;
-  private final int mNumBuckets;
+  private CuckooTable mTable;
+  private int mNumBuckets;
 
   public TableBenchmark(BenchmarkContext benchmarkContext, BenchmarkParameters parameters) {
     mBenchmarkContext = benchmarkContext;
     mBenchmarkParameters = parameters;
     mBitsPerTag = parameters.mTagBits;
-    mNumBuckets = NUM_BITS / TAGS_PER_BUCKET / mBitsPerTag;
-    mTable = new SimpleCuckooTable(BitSet.createBitSet(parameters.mBitSetType, NUM_BITS),
-        mNumBuckets, TAGS_PER_BUCKET, mBitsPerTag);
   }
 
   @Override
   public void run() {
+    switch (mBenchmarkParameters.mTableMode) {
+      case "layout":
+        runLayout();
+        break;
+      case "aging":
+        runAging();
+        break;
+      case "probe":
+        runProbe();
+        break;
+      case "access":
+      default:
+        runAccess();
+    }
+  }
+
+  /**
+   * Benchmarks the basic read/write/set/clear operations of a single table.
+   */
+  private void runAccess() {
+    mNumBuckets = NUM_BITS / TAGS_PER_BUCKET / mBitsPerTag;
+    mTable = new SimpleCuckooTable(BitSet.createBitSet(mBenchmarkParameters.mBitSetType, NUM_BITS),
+        mNumBuckets, TAGS_PER_BUCKET, mBitsPerTag);
     System.out.printf("tagsPerBucket: %d\n", TAGS_PER_BUCKET);
     System.out.printf("bitsPerTag: %d\n", mBitsPerTag);
     System.out.printf("bitsetType: %s\n", mBenchmarkParameters.mBitSetType);
@@ -113,4 +136,192 @@ public class TableBenchmark implements Benchmark {
     System.out.printf("sequential clear: %d ms, %f Mops/sec\n", duration6,
         1000L * mNumBuckets * TAGS_PER_BUCKET / (double) duration6 / (1000 * 1000));
   }
+
+  /**
+   * Benchmarks the slot access pattern of clock cuckoo filter (probe a bucket, then read and update
+   * all fields of the slot found) on split tables and interleaved tables of the same memory budget.
+   */
+  private void runLayout() {
+    int bitsPerClock = mBenchmarkParameters.mClockBits;
+    int bitsPerSize = mBenchmarkParameters.mSizeBits;
+    int bitsPerScope = mBenchmarkParameters.mScopeBits;
+    int bitsPerSlot = mBitsPerTag + bitsPerClock + bitsPerSize + bitsPerScope;
+    long budgetInBits = FormatUtils.parseSpaceSize(mBenchmarkParameters.mMemoryBudget) * 8;
+    int numBuckets = (int) Long.highestOneBit(budgetInBits / bitsPerSlot / TAGS_PER_BUCKET);
+    int numSlots = numBuckets * TAGS_PER_BUCKET;
+    System.out.printf("tagsPerBucket: %d\n", TAGS_PER_BUCKET);
+    System.out.printf("bitsPerSlot: %d\n", bitsPerSlot);
+    System.out.printf("numBuckets: %d\n", numBuckets);
+    System.out.printf("bitsetType: %s\n", mBenchmarkParameters.mBitSetType);
+
+    // split layout: one table per field
+    BitSet.BitSetType type = mBenchmarkParameters.mBitSetType;
+    CuckooTable[] split = new CuckooTable[] {
+        new SimpleCuckooTable(BitSet.createBitSet(type, numSlots * mBitsPerTag), numBuckets,
+            TAGS_PER_BUCKET, mBitsPerTag),
+        new SimpleCuckooTable(BitSet.createBitSet(type, numSlots * bitsPerClock), numBuckets,
+            TAGS_PER_BUCKET, bitsPerClock),
+        new SimpleCuckooTable(BitSet.createBitSet(type, numSlots * bitsPerSize), numBuckets,
+            TAGS_PER_BUCKET, bitsPerSize),
+        new SimpleCuckooTable(BitSet.createBitSet(type, numSlots * bitsPerScope), numBuckets,
+            TAGS_PER_BUCKET, bitsPerScope)};
+    long duration1 = runSlotAccess(split, numBuckets);
+    System.out.printf("split random slot access: %d ms, %f Mops/sec\n", duration1,
+        1000L * numSlots / (double) duration1 / (1000 * 1000));
+    // release split tables before allocating the interleaved one
+    split = null;
+
+    // interleaved layout: all fields of a slot are adjacent
+    BitSet slotBits = BitSet.createBitSet(type, numSlots * bitsPerSlot);
+    CuckooTable[] interleaved = new CuckooTable[] {
+        new InterleavedCuckooTable(slotBits, numBuckets, TAGS_PER_BUCKET, bitsPerSlot, 0,
+            mBitsPerTag),
+        new InterleavedCuckooTable(slotBits, numBuckets, TAGS_PER_BUCKET, bitsPerSlot,
+            mBitsPerTag, bitsPerClock),
+        new InterleavedCuckooTable(slotBits, numBuckets, TAGS_PER_BUCKET, bitsPerSlot,
+            mBitsPerTag + bitsPerClock, bitsPerSize),
+        new InterleavedCuckooTable(slotBits, numBuckets, TAGS_PER_BUCKET, bitsPerSlot,
+            mBitsPerTag + bitsPerClock + bitsPerSize, bitsPerScope)};
+    long duration2 = runSlotAccess(interleaved, numBuckets);
+    System.out.printf("interleaved random slot access: %d ms, %f Mops/sec\n", duration2,
+        1000L * numSlots / (double) duration2 / (1000 * 1000));
+  }
+
+  /**
+   * @param fields the tables of tag, clock, size and scope fields
+   * @param numBuckets the number of buckets
+   * @return the duration in milliseconds
+   */
+  private long runSlotAccess(CuckooTable[] fields, int numBuckets) {
+    int tagMask = (1 << mBitsPerTag) - 1;
+    Random random = new Random(32749);
+    // fill tags so that probes have something to find
+    for (int i = 0; i < numBuckets; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        fields[0].writeTag(i, j, random.nextInt(tagMask) + 1);
+      }
+    }
+    long checksum = 0;
+    long startTick = System.currentTimeMillis();
+    for (int i = 0; i < numBuckets * TAGS_PER_BUCKET; i++) {
+      int bucketIndex = random.nextInt(numBuckets);
+      int tag = random.nextInt(tagMask) + 1;
+      int slotIndex = TagPosition.slotIndexOf(fields[0].findTagPosition(bucketIndex, tag));
+      if (slotIndex < 0) {
+        slotIndex = i % TAGS_PER_BUCKET;
+      }
+      fields[1].set(bucketIndex, slotIndex);
+      checksum += fields[2].readTag(bucketIndex, slotIndex);
+      checksum += fields[3].readTag(bucketIndex, slotIndex);
+    }
+    long duration = System.currentTimeMillis() - startTick;
+    System.out.printf("checksum: %d\n", checksum);
+    return duration;
+  }
+
+  /**
+   * Benchmarks one aging pass over a clock table of the memory budget, with a scalar loop reading
+   * and writing one clock at a time, and with word-parallel decrement of packed clocks.
+   */
+  private void runAging() {
+    int bitsPerClock = mBenchmarkParameters.mClockBits;
+    long budgetInBits = FormatUtils.parseSpaceSize(mBenchmarkParameters.mMemoryBudget) * 8;
+    int numBuckets = (int) Long.highestOneBit(budgetInBits / bitsPerClock / TAGS_PER_BUCKET);
+    int numSlots = numBuckets * TAGS_PER_BUCKET;
+    System.out.printf("tagsPerBucket: %d\n", TAGS_PER_BUCKET);
+    System.out.printf("bitsPerClock: %d\n", bitsPerClock);
+    System.out.printf("numBuckets: %d\n", numBuckets);
+    System.out.printf("bitsetType: %s\n", mBenchmarkParameters.mBitSetType);
+    CuckooTable table = new SimpleCuckooTable(
+        BitSet.createBitSet(mBenchmarkParameters.mBitSetType, numSlots * bitsPerClock), numBuckets,
+        TAGS_PER_BUCKET, bitsPerClock);
+    Random random = new Random(32749);
+    for (int i = 0; i < numBuckets; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        table.writeTag(i, j, random.nextInt(1 << bitsPerClock));
+      }
+    }
+
+    // 1. scalar aging, the same as the per-slot loop of clock cuckoo filter
+    long numZeros = 0;
+    long startTick = System.currentTimeMillis();
+    for (int i = 0; i < numBuckets; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        int clock = table.readTag(i, j);
+        if (clock > 0) {
+          table.writeTag(i, j, clock - 1);
+        } else {
+          numZeros++;
+        }
+      }
+    }
+    long duration1 = System.currentTimeMillis() - startTick;
+    System.out.printf("scalar aging: %d ms, %f Mops/sec, %d zero clocks\n", duration1,
+        1000L * numSlots / (double) duration1 / (1000 * 1000), numZeros);
+
+    // 2. SWAR aging
+    startTick = System.currentTimeMillis();
+    numZeros = table.decrementTags(0, numBuckets, (b, s) -> true);
+    long duration2 = System.currentTimeMillis() - startTick;
+    System.out.printf("swar aging: %d ms, %f Mops/sec, %d zero clocks\n", duration2,
+        1000L * numSlots / (double) duration2 / (1000 * 1000), numZeros);
+    mBenchmarkContext.mStream.printf("%d\t%d\t%d\n", bitsPerClock, duration1, duration2);
+  }
+
+  /**
+   * Benchmarks probing both candidate buckets of random tags, with a scalar loop reading one slot
+   * at a time, and with the table which compares all slots of a bucket in one word if it can.
+   */
+  private void runProbe() {
+    mNumBuckets = NUM_BITS / TAGS_PER_BUCKET / mBitsPerTag;
+    mTable = new SimpleCuckooTable(BitSet.createBitSet(mBenchmarkParameters.mBitSetType, NUM_BITS),
+        mNumBuckets, TAGS_PER_BUCKET, mBitsPerTag);
+    int numSlots = mNumBuckets * TAGS_PER_BUCKET;
+    int tagMask = (1 << mBitsPerTag) - 1;
+    System.out.printf("tagsPerBucket: %d\n", TAGS_PER_BUCKET);
+    System.out.printf("bitsPerTag: %d\n", mBitsPerTag);
+    System.out.printf("bitsetType: %s\n", mBenchmarkParameters.mBitSetType);
+    Random random = new Random(32749);
+    for (int i = 0; i < mNumBuckets; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        mTable.writeTag(i, j, random.nextInt(tagMask) + 1);
+      }
+    }
+
+    // 1. scalar probe, one slot of each bucket at a time
+    long checksum = 0;
+    random = new Random(32749);
+    long startTick = System.currentTimeMillis();
+    for (int i = 0; i < numSlots; i++) {
+      int b1 = random.nextInt(mNumBuckets);
+      int b2 = random.nextInt(mNumBuckets);
+      int tag = random.nextInt(tagMask) + 1;
+      for (int slotIndex = 0; slotIndex < TAGS_PER_BUCKET; slotIndex++) {
+        if (mTable.readTag(b1, slotIndex) == tag || mTable.readTag(b2, slotIndex) == tag) {
+          checksum++;
+          break;
+        }
+      }
+    }
+    long duration1 = System.currentTimeMillis() - startTick;
+    System.out.printf("scalar probe: %d ms, %f Mops/sec, %d found\n", duration1,
+        1000L * numSlots / (double) duration1 / (1000 * 1000), checksum);
+
+    // 2. word-parallel probe of the table, the same sequence of probes
+    checksum = 0;
+    random = new Random(32749);
+    startTick = System.currentTimeMillis();
+    for (int i = 0; i < numSlots; i++) {
+      int b1 = random.nextInt(mNumBuckets);
+      int b2 = random.nextInt(mNumBuckets);
+      int tag = random.nextInt(tagMask) + 1;
+      if (TagPosition.isOk(mTable.findTagPosition(b1, b2, tag))) {
+        checksum++;
+      }
+    }
+    long duration2 = System.currentTimeMillis() - startTick;
+    System.out.printf("swar probe: %d ms, %f Mops/sec, %d found\n", duration2,
+        1000L * numSlots / (double) duration2 / (1000 * 1000), checksum);
+    mBenchmarkContext.mStream.printf("%d\t%d\t%d\n", mBitsPerTag, duration1, duration2);
+  }
 }
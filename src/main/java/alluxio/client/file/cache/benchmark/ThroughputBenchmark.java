@@ -12,12 +12,15 @@
 package alluxio.client.file.cache.benchmark;
 
 import alluxio.client.file.cache.PageId;
+import alluxio.client.file.cache.ScopeRegistry;
 import alluxio.client.file.cache.ShadowCache;
 import alluxio.client.file.cache.dataset.ClientDataset;
 import alluxio.client.file.cache.dataset.Dataset;
 import alluxio.client.file.cache.dataset.DatasetEntry;
 import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+import alluxio.client.quota.CacheScope;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -25,6 +28,8 @@ public class ThroughputBenchmark implements Benchmark {
   private final BenchmarkContext mBenchmarkContext;
   private final BenchmarkParameters mBenchmarkParameters;
   private final int mNumThreads;
+  private final int mBatchSize;
+  private final boolean mPrimitive;
   private final ShadowCache mShadowCache;
   private final List<CacheClient> mClients = new LinkedList<>();
   private EntryGenerator<String> mEntryGenerator;
@@ -34,6 +39,8 @@ public class ThroughputBenchmark implements Benchmark {
     mBenchmarkContext = benchmarkContext;
     mBenchmarkParameters = parameters;
     mNumThreads = parameters.mNumThreads;
+    mBatchSize = parameters.mBatchSize;
+    mPrimitive = parameters.mApi.equalsIgnoreCase("primitive");
     mEntryGenerator = BenchmarkUtils.createGenerator(parameters);
     mShadowCache = ShadowCache.create(parameters);
     mShadowCache.stopUpdate();
@@ -41,6 +48,10 @@ public class ThroughputBenchmark implements Benchmark {
 
   @Override
   public boolean prepare() {
+    if (mPrimitive && mBatchSize > 1) {
+      System.out.println("Error: the primitive api does not support batches");
+      return false;
+    }
     // dispatch entries to each client's dataset
     long startTick = System.currentTimeMillis();
     long count = 0;
@@ -50,7 +61,15 @@ public class ThroughputBenchmark implements Benchmark {
     }
     int nextThread = 0;
     while (mEntryGenerator.hasNext() && count < mBenchmarkParameters.mMaxEntries) {
-      clientDatasets.get(nextThread).insertEntry(mEntryGenerator.next());
+      DatasetEntry<String> entry = mEntryGenerator.next();
+      if (mBenchmarkParameters.mPrefill && mPrimitive) {
+        int scopeId = ScopeRegistry.idOf(entry.getScopeInfo());
+        mShadowCache.put(scopeId, entry.getItem().hashCode(), entry.getSize(), scopeId);
+      } else if (mBenchmarkParameters.mPrefill) {
+        PageId item = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
+        mShadowCache.put(item, entry.getSize(), entry.getScopeInfo());
+      }
+      clientDatasets.get(nextThread).insertEntry(entry);
       nextThread = (nextThread + 1) % mNumThreads;
       count++;
     }
@@ -58,8 +77,11 @@ public class ThroughputBenchmark implements Benchmark {
     mNumPeriodToRun = count / periodSize;
     long clientWindowSize =
         mBenchmarkParameters.mWindowSize / mNumThreads / mBenchmarkParameters.mAgeLevels;
+    // each client puts at most once per entry
+    int maxPutsPerClient = (int) (count / mNumThreads + 1);
     for (int i = 0; i < mNumThreads; i++) {
-      mClients.add(new CacheClient(i, mShadowCache, clientDatasets.get(i), clientWindowSize));
+      mClients.add(new CacheClient(i, mShadowCache, clientDatasets.get(i), clientWindowSize,
+          mBatchSize, maxPutsPerClient, mPrimitive));
     }
     long duration = (System.currentTimeMillis() - startTick);
     System.out.printf("Prepare %d entries cost %d ms\n", count, duration);
@@ -74,6 +96,11 @@ public class ThroughputBenchmark implements Benchmark {
     System.out.println("ConcurrencyBenchmark");
     System.out.println(mShadowCache.getSummary());
     System.out.printf("num_threads=%d\n", mNumThreads);
+    System.out.printf("batch_size=%d\n", mBatchSize);
+    System.out.printf("api=%s\n", mPrimitive ? "primitive" : "object");
+    System.out.printf("prefill=%b\n", mBenchmarkParameters.mPrefill);
+    long startPageRead = mShadowCache.getShadowCachePageRead();
+    long startPageHit = mShadowCache.getShadowCachePageHit();
     long startTick = System.currentTimeMillis();
     for (long w = 0; w < mNumPeriodToRun; w++) {
       List<Thread> threads = new LinkedList<>();
@@ -100,6 +127,43 @@ public class ThroughputBenchmark implements Benchmark {
     long duration = (System.currentTimeMillis() - startTick);
     System.out.printf("Insert %d entries, cost %d ms, Throughput %d ops/sec\n", opsdone, duration,
         opsdone * 1000 / runtimePerClient);
+    long pageRead = mShadowCache.getShadowCachePageRead() - startPageRead;
+    System.out.printf("Hit ratio %.4f\n",
+        (mShadowCache.getShadowCachePageHit() - startPageHit) / (double) Math.max(1, pageRead));
+    reportPutLatency();
+  }
+
+  /**
+   * Reports the percentiles of put latency of all clients, which include the opportunistic aging
+   * work done on the request path.
+   */
+  private void reportPutLatency() {
+    int numPuts = 0;
+    for (CacheClient client : mClients) {
+      numPuts += client.mNumPuts;
+    }
+    if (numPuts == 0) {
+      return;
+    }
+    long[] latencies = new long[numPuts];
+    int pos = 0;
+    for (CacheClient client : mClients) {
+      System.arraycopy(client.mPutLatencies, 0, latencies, pos, client.mNumPuts);
+      pos += client.mNumPuts;
+    }
+    Arrays.sort(latencies);
+    System.out.printf("Put latency (us): p50 %.2f, p99 %.2f, p999 %.2f, max %.2f\n",
+        percentile(latencies, 0.5) / 1000.0, percentile(latencies, 0.99) / 1000.0,
+        percentile(latencies, 0.999) / 1000.0, latencies[numPuts - 1] / 1000.0);
+  }
+
+  /**
+   * @param sorted the sorted values
+   * @param p the percentile in [0, 1]
+   * @return the value at given percentile
+   */
+  private static long percentile(long[] sorted, double p) {
+    return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
   }
 
   private static class CacheClient implements Runnable {
@@ -107,20 +171,72 @@ public class ThroughputBenchmark implements Benchmark {
     private final ShadowCache mShadowCache;
     private final Dataset<String> mClientDataset;
     private final long mWindowSize;
+    private final int mBatchSize;
+    private final PageId[] mItems;
+    private final int[] mSizes;
+    private final CacheScope[] mScopes;
+    private final int[] mBytesRead;
+    // the accesses of the primitive api, resolved from the dataset before measuring
+    private long[] mFileKeys;
+    private long[] mPageIndexes;
+    private int[] mEntrySizes;
+    private int[] mScopeIds;
+    private int mNumEntries = 0;
+    private int mNextEntry = 0;
+    // the latency of each put or putAll call in nanoseconds
+    private final long[] mPutLatencies;
+    private int mNumPuts = 0;
     private long mOpsDone = 0;
     private long mRuntime = 0;
 
     public CacheClient(int threadId, ShadowCache shadowCache, Dataset<String> clientDataset,
-        long windowSize) {
+        long windowSize, int batchSize, int maxPuts, boolean primitive) {
       mThreadId = threadId;
       mShadowCache = shadowCache;
       mClientDataset = clientDataset;
       mWindowSize = windowSize;
+      mBatchSize = batchSize;
+      mItems = new PageId[batchSize];
+      mSizes = new int[batchSize];
+      mScopes = new CacheScope[batchSize];
+      mBytesRead = new int[batchSize];
+      mPutLatencies = new long[maxPuts];
+      if (primitive) {
+        resolveEntries(maxPuts);
+      }
+    }
+
+    /**
+     * Resolves all entries of the dataset into primitive arrays. The scope stands for the file of
+     * a page as in the page ids of the object api, and is numbered by its scope id.
+     *
+     * @param maxEntries the maximum number of entries of this client
+     */
+    private void resolveEntries(int maxEntries) {
+      mFileKeys = new long[maxEntries];
+      mPageIndexes = new long[maxEntries];
+      mEntrySizes = new int[maxEntries];
+      mScopeIds = new int[maxEntries];
+      while (mClientDataset.hasNext() && mNumEntries < maxEntries) {
+        DatasetEntry<String> entry = mClientDataset.next();
+        int scopeId = ScopeRegistry.idOf(entry.getScopeInfo());
+        mFileKeys[mNumEntries] = scopeId;
+        mPageIndexes[mNumEntries] = entry.getItem().hashCode();
+        mEntrySizes[mNumEntries] = entry.getSize();
+        mScopeIds[mNumEntries] = scopeId;
+        mNumEntries++;
+      }
     }
 
     @Override
     public void run() {
-      runOneWindow();
+      if (mFileKeys != null) {
+        runOneWindowPrimitive();
+      } else if (mBatchSize > 1) {
+        runOneWindowBatched();
+      } else {
+        runOneWindow();
+      }
     }
 
     private void runOneWindow() {
@@ -132,12 +248,76 @@ public class ThroughputBenchmark implements Benchmark {
         PageId item = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
         int nread = mShadowCache.get(item, entry.getSize(), entry.getScopeInfo());
         if (nread <= 0) {
+          long putStart = System.nanoTime();
           mShadowCache.put(item, entry.getSize(), entry.getScopeInfo());
+          mPutLatencies[mNumPuts++] = System.nanoTime() - putStart;
         }
         mShadowCache.updateTimestamp(1);
       }
       mOpsDone += count;
       mRuntime += (System.currentTimeMillis() - startTick);
     }
+
+    private void runOneWindowPrimitive() {
+      long startTick = System.currentTimeMillis();
+      int count = 0;
+      while (mNextEntry < mNumEntries && count < mWindowSize) {
+        count++;
+        int i = mNextEntry++;
+        int nread =
+            mShadowCache.get(mFileKeys[i], mPageIndexes[i], mEntrySizes[i], mScopeIds[i]);
+        if (nread <= 0) {
+          long putStart = System.nanoTime();
+          mShadowCache.put(mFileKeys[i], mPageIndexes[i], mEntrySizes[i], mScopeIds[i]);
+          mPutLatencies[mNumPuts++] = System.nanoTime() - putStart;
+        }
+        mShadowCache.updateTimestamp(1);
+      }
+      mOpsDone += count;
+      mRuntime += (System.currentTimeMillis() - startTick);
+    }
+
+    private void runOneWindowBatched() {
+      long startTick = System.currentTimeMillis();
+      int count = 0;
+      while (mClientDataset.hasNext() && count < mWindowSize) {
+        int n = 0;
+        while (n < mBatchSize && mClientDataset.hasNext() && count + n < mWindowSize) {
+          DatasetEntry<String> entry = mClientDataset.next();
+          mItems[n] = new PageId(entry.getScopeInfo().toString(), entry.getItem().hashCode());
+          mSizes[n] = entry.getSize();
+          mScopes[n] = entry.getScopeInfo();
+          n++;
+        }
+        PageId[] items = n == mBatchSize ? mItems : Arrays.copyOf(mItems, n);
+        int[] sizes = n == mBatchSize ? mSizes : Arrays.copyOf(mSizes, n);
+        CacheScope[] scopes = n == mBatchSize ? mScopes : Arrays.copyOf(mScopes, n);
+        mShadowCache.getAll(items, sizes, scopes, mBytesRead);
+        // put the missed pages, which are compacted to the head of the arrays
+        int numMissed = 0;
+        for (int i = 0; i < n; i++) {
+          if (mBytesRead[i] <= 0) {
+            items[numMissed] = items[i];
+            sizes[numMissed] = sizes[i];
+            scopes[numMissed] = scopes[i];
+            numMissed++;
+          }
+        }
+        long putStart = System.nanoTime();
+        if (numMissed == n) {
+          mShadowCache.putAll(items, sizes, scopes);
+        } else if (numMissed > 0) {
+          mShadowCache.putAll(Arrays.copyOf(items, numMissed), Arrays.copyOf(sizes, numMissed),
+              Arrays.copyOf(scopes, numMissed));
+        }
+        if (numMissed > 0) {
+          mPutLatencies[mNumPuts++] = System.nanoTime() - putStart;
+        }
+        mShadowCache.updateTimestamp(n);
+        count += n;
+      }
+      mOpsDone += count;
+      mRuntime += (System.currentTimeMillis() - startTick);
+    }
   }
 }
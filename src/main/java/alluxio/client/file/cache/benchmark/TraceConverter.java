@@ -0,0 +1,68 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.benchmark;
+
+import alluxio.client.file.cache.dataset.BinaryTraceWriter;
+import alluxio.client.file.cache.dataset.DatasetEntry;
+import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+import java.io.File;
+
+/**
+ * Converts a text trace into the binary format of {@link BinaryTraceWriter}, which benchmarks
+ * read with {@code --dataset binary}. The text trace is parsed by the generator of its dataset.
+ */
+public class TraceConverter {
+  private static final class Parameters {
+    @Parameter(names = "--help")
+    public boolean mHelp = false;
+
+    // the dataset of the text trace: msr, twitter, multi or ycsb
+    @Parameter(names = "--dataset", required = true)
+    public String mDataset;
+
+    @Parameter(names = "--trace", required = true)
+    public String mTrace;
+
+    @Parameter(names = "--output", required = true)
+    public String mOutput;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Parameters parameters = new Parameters();
+    JCommander jc = JCommander.newBuilder().addObject(parameters).build();
+    jc.parse(args);
+    if (parameters.mHelp) {
+      jc.usage();
+      System.exit(0);
+    }
+    BenchmarkParameters conf = new BenchmarkParameters();
+    conf.mDataset = parameters.mDataset;
+    conf.mTrace = parameters.mTrace;
+    EntryGenerator<String> generator = BenchmarkUtils.createGenerator(conf);
+    long startTick = System.currentTimeMillis();
+    try (BinaryTraceWriter writer = new BinaryTraceWriter(new File(parameters.mOutput))) {
+      while (generator.hasNext()) {
+        DatasetEntry<String> entry = generator.next();
+        // text generators return null once the end of the trace is found
+        if (entry != null) {
+          writer.write(entry);
+        }
+      }
+      System.out.printf("converted %d records in %d ms%n", writer.getNumRecords(),
+          System.currentTimeMillis() - startTick);
+    }
+  }
+}
@@ -12,6 +12,8 @@
 package alluxio.client.file.cache.cuckoofilter;
 
 import alluxio.Constants;
+import alluxio.client.file.cache.PageId;
+import alluxio.client.file.cache.PageIdFunnel;
 import alluxio.client.file.cache.ShadowCacheParameters;
 import alluxio.client.file.cache.cuckoofilter.size.ISizeEncoder;
 import alluxio.client.file.cache.cuckoofilter.size.LogSizeEncoder;
@@ -20,8 +22,10 @@ import alluxio.client.file.cache.cuckoofilter.size.SizeEncodeType;
 import alluxio.client.file.cache.cuckoofilter.size.SizeEncoder;
 import alluxio.client.file.cache.cuckoofilter.size.TruncateSizeEncoder;
 import alluxio.client.quota.CacheScope;
+import alluxio.collections.AtomicBitSet;
 import alluxio.collections.BitSet;
-import alluxio.collections.SimpleBitSet;
+import alluxio.collections.LongBitSet;
+import alluxio.collections.MappedBitSet;
 import alluxio.util.FormatUtils;
 
 import com.google.common.base.Preconditions;
@@ -29,10 +33,15 @@ import com.google.common.hash.Funnel;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -47,6 +56,10 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
   private static final double DEFAULT_FPP = 0.01;
   // The default load factor is from "Cuckoo Filter: Practically Better Than Bloom" by Fan et al.
   private static final double DEFAULT_LOAD_FACTOR = 0.955;
+  // pools which age segments in parallel, shared by all filters of the same aging parallelism,
+  // so that filters which are dropped without being closed do not leak their threads
+  private static final ConcurrentHashMap<Integer, ForkJoinPool> AGING_POOLS =
+      new ConcurrentHashMap<>();
   private static int DEFAULT_NUM_LOCKS = 4096;
   // the maximum number of entries in a cuckoo path from "Algorithmic Improvements for Fast
   // Concurrent Cuckoo Hashing" by Li et al.
@@ -56,6 +69,8 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
   // so hard limited the aging number of each operation.
   private static final int MAX_AGING_PER_OPERATION = 500;
   private static final int AGING_STEP_SIZE = 5;
+  // the minimum number of segments aged by one task of parallel aging
+  private static final int MIN_SEGMENTS_PER_AGING_TASK = 16;
   private static int TAGS_PER_BUCKET = 4;
   private final AtomicLong mNumItems = new AtomicLong(0);
   private final AtomicLong mTotalBytes = new AtomicLong(0);
@@ -71,8 +86,12 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
   private final int mBitsPerScope;
   private final int mMaxSize;
   private final int mMaxAge;
+  // whether clocks are updated with compare-and-set instead of under write locks
+  private final boolean mLockFree;
   private final Funnel<? super T> mFunnel;
   private final HashFunction mHashFunction;
+  // whether the hash of an item is the one cached in its page id
+  private final boolean mUsePageIdHash;
   private final ScopeEncoder mScopeEncoder;
   private final ISizeEncoder mSizeEncoder;
   private final SegmentedLock mLocks;
@@ -86,6 +105,16 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
   private final CuckooTable mClockTable;
   private final CuckooTable mSizeTable;
   private final CuckooTable mScopeTable;
+  // per-thread scratch space of cuckoo path search, so that insertion does not allocate
+  private final transient ThreadLocal<CuckooScratch> mScratch =
+      ThreadLocal.withInitial(CuckooScratch::new);
+  // the pool which ages segments in parallel, or null to age segments serially
+  private transient ForkJoinPool mAgingPool;
+  // the maximum time to wait for the lock of a segment before deferring it, 0 for no limit
+  private long mAgingDeadlineNanos;
+  private final transient CuckooTable.SlotVisitor mStaleSlotEvictor = this::evictStaleSlot;
+  private final transient ThreadLocal<BatchScratch> mBatchScratch =
+      ThreadLocal.withInitial(BatchScratch::new);
 
   /**
    * The constructor of concurrent clock cuckoo filter.
@@ -113,10 +142,12 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     mBitsPerScope = scopeTable.getBitsPerTag();
     mMaxSize = (1 << mBitsPerSize);
     mMaxAge = (1 << mBitsPerClock) - 1;
+    mLockFree = clockTable.supportsCompareAndSwap();
     mSlidingWindowType = slidingWindowType;
     mWindowSize = windowSize;
     mFunnel = funnel;
     mHashFunction = hasher;
+    mUsePageIdHash = funnel == PageIdFunnel.FUNNEL && hasher.equals(Hashing.murmur3_128());
     mLocks = new SegmentedLock(Math.min(DEFAULT_NUM_LOCKS, mNumBuckets >> 1), mNumBuckets);
     // init scope statistics
     // note that the GLOBAL scope is the default scope and is always encoded to zero
@@ -138,7 +169,8 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
 
   private ConcurrentClockCuckooFilter(CuckooTable table, CuckooTable clockTable,
       CuckooTable sizeTable, CuckooTable scopeTable, SlidingWindowType slidingWindowType,
-      long windowSize, ISizeEncoder sizeEncoder, Funnel<? super T> funnel, HashFunction hasher) {
+      long windowSize, ScopeEncoder scopeEncoder, ISizeEncoder sizeEncoder,
+      Funnel<? super T> funnel, HashFunction hasher) {
     mTable = table;
     mNumBuckets = table.getNumBuckets();
     mBitsPerTag = table.getBitsPerTag();
@@ -150,14 +182,16 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     mBitsPerScope = scopeTable.getBitsPerTag();
     mMaxSize = (1 << mBitsPerSize);
     mMaxAge = (1 << mBitsPerClock) - 1;
+    mLockFree = clockTable.supportsCompareAndSwap();
     mSlidingWindowType = slidingWindowType;
     mWindowSize = windowSize;
     mFunnel = funnel;
     mHashFunction = hasher;
+    mUsePageIdHash = funnel == PageIdFunnel.FUNNEL && hasher.equals(Hashing.murmur3_128());
     mLocks = new SegmentedLock(Math.min(DEFAULT_NUM_LOCKS, mNumBuckets >> 1), mNumBuckets);
     // init scope statistics
     // note that the GLOBAL scope is the default scope and is always encoded to zero
-    mScopeEncoder = new ScopeEncoder(mBitsPerScope);
+    mScopeEncoder = scopeEncoder;
     mScopeEncoder.encode(CacheScope.GLOBAL);
     mSizeEncoder = sizeEncoder;
     int maxNumScopes = (1 << mBitsPerScope);
@@ -182,28 +216,70 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     int bitsPerClock = conf.mClockBits;
     int bitsPerSize = conf.mSizeBits;
     int bitsPerScope = conf.mScopeBits;
-    long bitsPerSlot = bitsPerTag + bitsPerClock + bitsPerSize + bitsPerScope;
+    int bitsPerSlot = bitsPerTag + bitsPerClock + bitsPerSize + bitsPerScope;
     long totalBuckets = budgetInBits / bitsPerSlot / TAGS_PER_BUCKET;
-    long numBuckets = Long.highestOneBit(totalBuckets);
-    long numBits = numBuckets * TAGS_PER_BUCKET * bitsPerTag;
-    BitSet bits = BitSet.createBitSet(conf.mBitSetType, (int) numBits);
-    CuckooTable table = new SimpleCuckooTable(bits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerTag);
-
-    BitSet clockBits =
-        BitSet.createBitSet(conf.mBitSetType, (int) (numBuckets * TAGS_PER_BUCKET * bitsPerClock));
-    CuckooTable clockTable =
-        new SimpleCuckooTable(clockBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerClock);
-
-    BitSet sizeBits =
-        BitSet.createBitSet(conf.mBitSetType, (int) (numBuckets * TAGS_PER_BUCKET * bitsPerSize));
-    CuckooTable sizeTable =
-        new SimpleCuckooTable(sizeBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerSize);
+    long maxBuckets = Long.highestOneBit(totalBuckets);
+    Preconditions.checkArgument(maxBuckets <= Integer.MAX_VALUE,
+        "memory budget %s requires too many buckets: %s", conf.mMemoryBudget, maxBuckets);
+    int numBuckets = (int) maxBuckets;
+    List<BitSet> bitSets = new ArrayList<>();
+    CuckooTable table;
+    CuckooTable clockTable;
+    CuckooTable sizeTable;
+    CuckooTable scopeTable;
+    if (conf.mTableLayoutType == TableLayoutType.INTERLEAVED) {
+      Preconditions.checkArgument(!conf.mLockFree, "lock free mode requires split layout");
+      // all fields of a slot are adjacent: | tag | clock | size | scope |
+      BitSet slotBits =
+          createBitSet(conf, "slots", (long) numBuckets * TAGS_PER_BUCKET * bitsPerSlot);
+      bitSets.add(slotBits);
+      table = createInterleavedTable(slotBits, numBuckets, bitsPerSlot, 0, bitsPerTag);
+      clockTable =
+          createInterleavedTable(slotBits, numBuckets, bitsPerSlot, bitsPerTag, bitsPerClock);
+      sizeTable = createInterleavedTable(slotBits, numBuckets, bitsPerSlot,
+          bitsPerTag + bitsPerClock, bitsPerSize);
+      scopeTable = (bitsPerScope == 0) ? new EmptyCuckooTable()
+          : createInterleavedTable(slotBits, numBuckets, bitsPerSlot,
+              bitsPerTag + bitsPerClock + bitsPerSize, bitsPerScope);
+    } else {
+      table = createTable(createBitSet(conf, "tag", numBuckets, bitsPerTag, bitSets), numBuckets,
+          bitsPerTag);
+      if (conf.mLockFree) {
+        Preconditions.checkArgument(!isPersistent(conf), "lock free mode can not be persisted");
+        Preconditions.checkArgument(Long.SIZE % bitsPerClock == 0,
+            "lock free mode requires clock bits to divide 64: %s", bitsPerClock);
+        long numClockBits = (long) numBuckets * TAGS_PER_BUCKET * bitsPerClock;
+        Preconditions.checkArgument(numClockBits <= Integer.MAX_VALUE,
+            "lock free mode supports at most 2^31 clock bits: %s", numClockBits);
+        clockTable = new SimpleCuckooTable(new AtomicBitSet((int) numClockBits), numBuckets,
+            TAGS_PER_BUCKET, bitsPerClock);
+      } else {
+        clockTable = createTable(createBitSet(conf, "clock", numBuckets, bitsPerClock, bitSets),
+            numBuckets, bitsPerClock);
+      }
+      sizeTable = createTable(createBitSet(conf, "size", numBuckets, bitsPerSize, bitSets),
+          numBuckets, bitsPerSize);
+      // NOTE: scope may be empty
+      scopeTable = (bitsPerScope == 0) ? new EmptyCuckooTable()
+          : createTable(createBitSet(conf, "scope", numBuckets, bitsPerScope, bitSets),
+              numBuckets, bitsPerScope);
+    }
 
-    // NOTE: scope may be empty
-    BitSet scopeBits =
-        BitSet.createBitSet(conf.mBitSetType, (int) (numBuckets * TAGS_PER_BUCKET * bitsPerScope));
-    CuckooTable scopeTable = (bitsPerScope == 0) ? new EmptyCuckooTable()
-        : new SimpleCuckooTable(scopeBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerScope);
+    // recover from persisted tables only if all of them are recovered
+    ScopeEncoder scopeEncoder = new ScopeEncoder(bitsPerScope);
+    boolean recovered = false;
+    if (isPersistent(conf)) {
+      File scopeJournal = new File(conf.mBitSetPath + ".scopes");
+      recovered = bitSets.stream()
+          .allMatch(bits -> bits instanceof MappedBitSet && ((MappedBitSet) bits).isRecovered());
+      if (!recovered) {
+        for (BitSet bits : bitSets) {
+          ((LongBitSet) bits).clear(0L, ((LongBitSet) bits).longSize());
+        }
+        scopeJournal.delete();
+      }
+      scopeEncoder = new ScopeEncoder(bitsPerScope, scopeJournal);
+    }
 
     // sliding window
     SlidingWindowType slidingWindowType = SlidingWindowType.NONE;
@@ -227,8 +303,15 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
       sizeEncoder = new NoOpSizeEncoder(conf.mNumSizeBucketBits + conf.mSizeBucketBits);
     }
 
-    return new ConcurrentClockCuckooFilter<>(table, clockTable, sizeTable, scopeTable,
-        slidingWindowType, conf.mWindowSize, sizeEncoder, funnel, Hashing.murmur3_128());
+    ConcurrentClockCuckooFilter<T> filter = new ConcurrentClockCuckooFilter<>(table, clockTable,
+        sizeTable, scopeTable, slidingWindowType, conf.mWindowSize, scopeEncoder, sizeEncoder,
+        funnel, Hashing.murmur3_128());
+    if (recovered) {
+      filter.recoverStatistics();
+    }
+    filter.configureAging(conf.mAgingParallelism,
+        TimeUnit.MICROSECONDS.toNanos(conf.mAgingDeadlineUs));
+    return filter;
   }
 
   /**
@@ -254,23 +337,23 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
       HashFunction hasher) {
     // make expectedInsertions a power of 2
     int bitsPerTag = CuckooUtils.optimalBitsPerTag(fpp, loadFactor);
-    long numBuckets = CuckooUtils.optimalBuckets(expectedInsertions, loadFactor, TAGS_PER_BUCKET);
-    long numBits = numBuckets * TAGS_PER_BUCKET * bitsPerTag;
-    BitSet bits = new SimpleBitSet((int) numBits);
-    CuckooTable table = new SimpleCuckooTable(bits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerTag);
-
-    BitSet clockBits = new SimpleBitSet((int) (numBuckets * TAGS_PER_BUCKET * bitsPerClock));
+    long optimalBuckets =
+        CuckooUtils.optimalBuckets(expectedInsertions, loadFactor, TAGS_PER_BUCKET);
+    Preconditions.checkArgument(optimalBuckets <= Integer.MAX_VALUE,
+        "expected insertions %s requires too many buckets: %s", expectedInsertions,
+        optimalBuckets);
+    int numBuckets = (int) optimalBuckets;
+    BitSet.BitSetType type = BitSet.BitSetType.DEFAULT;
+    long numSlots = (long) numBuckets * TAGS_PER_BUCKET;
+    CuckooTable table =
+        createTable(createBitSet(type, numSlots * bitsPerTag), numBuckets, bitsPerTag);
     CuckooTable clockTable =
-        new SimpleCuckooTable(clockBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerClock);
-
-    BitSet sizeBits = new SimpleBitSet((int) (numBuckets * TAGS_PER_BUCKET * bitsPerSize));
+        createTable(createBitSet(type, numSlots * bitsPerClock), numBuckets, bitsPerClock);
     CuckooTable sizeTable =
-        new SimpleCuckooTable(sizeBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerSize);
-
+        createTable(createBitSet(type, numSlots * bitsPerSize), numBuckets, bitsPerSize);
     // NOTE: scope may be empty
-    BitSet scopeBits = new SimpleBitSet((int) (numBuckets * TAGS_PER_BUCKET * bitsPerScope));
     CuckooTable scopeTable = (bitsPerScope == 0) ? new EmptyCuckooTable()
-        : new SimpleCuckooTable(scopeBits, (int) numBuckets, TAGS_PER_BUCKET, bitsPerScope);
+        : createTable(createBitSet(type, numSlots * bitsPerScope), numBuckets, bitsPerScope);
     return new ConcurrentClockCuckooFilter<>(table, clockTable, sizeTable, scopeTable,
         slidingWindowType, windowSize, funnel, hasher);
   }
@@ -364,15 +447,150 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
         SlidingWindowType.NONE, -1, DEFAULT_FPP);
   }
 
+  /**
+   * @param conf the shadow cache parameters
+   * @return true if the tables are persisted in memory-mapped files
+   */
+  private static boolean isPersistent(ShadowCacheParameters conf) {
+    return conf.mBitSetType == BitSet.BitSetType.MMAP && !conf.mBitSetPath.isEmpty();
+  }
+
+  /**
+   * Create the bit set of one field and add it to the created bit sets.
+   *
+   * @param conf the shadow cache parameters
+   * @param field the name of the field
+   * @param numBuckets the number of buckets
+   * @param bitsPerTag the number of bits of this field
+   * @param bitSets the list of created bit sets
+   * @return the created bit set
+   */
+  private static BitSet createBitSet(ShadowCacheParameters conf, String field, int numBuckets,
+      int bitsPerTag, List<BitSet> bitSets) {
+    BitSet bits = createBitSet(conf, field, (long) numBuckets * TAGS_PER_BUCKET * bitsPerTag);
+    bitSets.add(bits);
+    return bits;
+  }
+
+  /**
+   * Create a bit set of given number of bits. If the tables are persistent, the bit set is mapped
+   * from the file named by the bit set path and the field.
+   *
+   * @param conf the shadow cache parameters
+   * @param field the name of the field
+   * @param numBits the number of bits
+   * @return the created bit set
+   */
+  private static BitSet createBitSet(ShadowCacheParameters conf, String field, long numBits) {
+    if (isPersistent(conf)) {
+      return new MappedBitSet(new File(conf.mBitSetPath + "." + field), numBits);
+    }
+    return createBitSet(conf.mBitSetType, numBits);
+  }
+
+  /**
+   * Create a bit set of given number of bits. A bit set with more than {@link Integer#MAX_VALUE}
+   * bits is always long indexed.
+   *
+   * @param type the type of bit set
+   * @param numBits the number of bits
+   * @return the created bit set
+   */
+  private static BitSet createBitSet(BitSet.BitSetType type, long numBits) {
+    if (numBits > Integer.MAX_VALUE) {
+      return LongBitSet.createLongBitSet(type, numBits);
+    }
+    return BitSet.createBitSet(type, (int) numBits);
+  }
+
+  /**
+   * Create a table for one field on given bit set.
+   *
+   * @param bits the bit set of this field
+   * @param numBuckets the number of buckets
+   * @param bitsPerTag the number of bits of this field
+   * @return the created table
+   */
+  private static CuckooTable createTable(BitSet bits, int numBuckets, int bitsPerTag) {
+    if (bits instanceof LongBitSet) {
+      return new LongIndexedCuckooTable((LongBitSet) bits, numBuckets, TAGS_PER_BUCKET,
+          bitsPerTag);
+    }
+    return new SimpleCuckooTable(bits, numBuckets, TAGS_PER_BUCKET, bitsPerTag);
+  }
+
+  /**
+   * Create a table which accesses one field of the interleaved slots in given bit set.
+   *
+   * @param slotBits the bit set shared by all fields
+   * @param numBuckets the number of buckets
+   * @param bitsPerSlot the number of bits all fields of a slot have
+   * @param fieldOffset the offset of this field in a slot
+   * @param bitsPerField the number of bits of this field
+   * @return the created table
+   */
+  private static CuckooTable createInterleavedTable(BitSet slotBits, int numBuckets,
+      int bitsPerSlot, int fieldOffset, int bitsPerField) {
+    if (slotBits instanceof LongBitSet) {
+      return new LongIndexedCuckooTable((LongBitSet) slotBits, numBuckets, TAGS_PER_BUCKET,
+          bitsPerSlot, fieldOffset, bitsPerField);
+    }
+    return new InterleavedCuckooTable(slotBits, numBuckets, TAGS_PER_BUCKET, bitsPerSlot,
+        fieldOffset, bitsPerField);
+  }
+
+  /**
+   * @param parallelism the number of threads aging segments, 1 to age segments serially
+   * @param deadlineNanos the maximum time to wait for the lock of a segment, 0 for no limit
+   */
+  private void configureAging(int parallelism, long deadlineNanos) {
+    Preconditions.checkArgument(parallelism > 0, "aging parallelism must be positive");
+    mAgingPool = (parallelism > 1) ? AGING_POOLS.computeIfAbsent(parallelism, ForkJoinPool::new)
+        : null;
+    mAgingDeadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Rebuild statistics from the slots stored in tables, which is used when the tables are
+   * recovered from persisted files. Sizes are estimated from their encoded values.
+   */
+  private void recoverStatistics() {
+    for (int b = 0; b < mNumBuckets; b++) {
+      for (int slotIndex = 0; slotIndex < TAGS_PER_BUCKET; slotIndex++) {
+        if (mTable.readTag(b, slotIndex) == 0) {
+          continue;
+        }
+        int scope = mScopeTable.readTag(b, slotIndex);
+        int encodedSize = mSizeTable.readTag(b, slotIndex);
+        int size = mSizeEncoder.decode(encodedSize);
+        mSizeEncoder.add(size);
+        mNumItems.incrementAndGet();
+        mTotalBytes.addAndGet(encodedSize);
+        updateScopeStatistics(scope, 1, size);
+      }
+    }
+  }
+
   @Override
   public boolean put(T item, int size, CacheScope scopeInfo) {
+    return putByHash(hashValue(item), size, scopeInfo);
+  }
+
+  /**
+   * Insert an item by its hash value, for callers which hash items themselves.
+   *
+   * @param hv the hash value of the item
+   * @param size the size of the item
+   * @param scopeInfo the scope the item belongs to
+   * @return true if the item is inserted successfully; false otherwise
+   */
+  public boolean putByHash(long hv, int size, CacheScope scopeInfo) {
     // NOTE: zero size is not allowed in our clock filter, because we use zero size as
     // a special case to indicate an size overflow (size > mMaxSize), and all the
     // overflowed size will be revised to mMaxSize in method encodeSize()
     if (size <= 0) {
       return false;
     }
-    long hv = hashValue(item);
     int tag = tagHash(hv);
     int b1 = indexHash(hv);
     int b2 = altIndex(b1, tag);
@@ -385,22 +603,12 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     // This is because we expect cuckoo path search & move to be as fast as possible,
     // or it may be more possible to fail.
     writeLockAndOpportunisticAging(b1, b2);
-    TagPosition pos = cuckooInsertLoop(b1, b2, tag);
-    if (pos.mStatus == CuckooStatus.OK) {
+    long pos = cuckooInsertLoop(b1, b2, tag);
+    if (TagPosition.isOk(pos)) {
       // b1 and b2 should be insertable for fp, which means:
       // 1. b1 or b2 have at least one empty slot (this is guaranteed until we unlock two buckets);
       // 2. b1 and b2 do not contain duplicated fingerprint.
-      mTable.writeTag(pos.getBucketIndex(), pos.getSlotIndex(), tag);
-      mClockTable.set(pos.getBucketIndex(), pos.getSlotIndex());
-      mScopeTable.writeTag(pos.getBucketIndex(), pos.getSlotIndex(), scope);
-      mSizeEncoder.add(size);
-      int encodedSize = mSizeEncoder.encode(size);
-      mSizeTable.writeTag(pos.getBucketIndex(), pos.getSlotIndex(), encodedSize);
-      // update statistics
-      mNumItems.incrementAndGet();
-      mTotalBytes.addAndGet(encodedSize);
-      //updateScopeStatistics(scope, 1, encodedSize);
-      updateScopeStatistics(scope, 1, size);
+      writeSlot(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos), tag, size, scope);
       mLocks.unlockWrite(b1, b2);
       return true;
     }
@@ -408,55 +616,316 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     return false;
   }
 
+  /**
+   * Insert a batch of items, and reset the clock of the items which are already in this filter.
+   * All items are hashed first, then the lock of each segment touched by the batch is acquired
+   * once, and the buckets are probed in ascending order. Items that can not be placed without
+   * moving other items are inserted one by one after the segment locks are released.
+   *
+   * @param items the items to be inserted
+   * @param sizes the sizes of the items
+   * @param scopes the scopes the items belong to
+   * @param results the array to store whether each item is in this filter after the call
+   * @return the number of items which are in this filter after the call
+   */
+  public int putOrResetClock(T[] items, int[] sizes, CacheScope[] scopes, boolean[] results) {
+    int count = items.length;
+    BatchScratch batch = mBatchScratch.get();
+    int numSegments = prepareBatch(items, batch);
+    int[] segments = batch.mSegments;
+    for (int i = 0; i < numSegments; i++) {
+      mLocks.writeLockSegment(segments[i]);
+      opportunisticAgingSegment(segments[i]);
+    }
+    int numOk = 0;
+    int numDeferred = 0;
+    for (int k = 0; k < count; k++) {
+      int i = (int) batch.mOrder[k];
+      results[i] = false;
+      if (sizes[i] <= 0) {
+        continue;
+      }
+      int tag = batch.mTags[i];
+      int b1 = batch.mBuckets1[i];
+      int b2 = batch.mBuckets2[i];
+      long pos = mTable.findTagPosition(b1, b2, tag);
+      if (!TagPosition.isOk(pos)) {
+        pos = tryFindInsertBucket(b1, tag);
+        if (!TagPosition.isOk(pos)) {
+          pos = tryFindInsertBucket(b2, tag);
+        }
+        if (!TagPosition.isOk(pos)) {
+          // both buckets are full, fall back to cuckoo path search later
+          batch.mDeferred[numDeferred++] = i;
+          continue;
+        }
+        writeSlot(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos), tag, sizes[i],
+            encodeScope(scopes[i]));
+      } else {
+        mClockTable.set(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos));
+      }
+      results[i] = true;
+      numOk++;
+    }
+    for (int i = numSegments - 1; i >= 0; i--) {
+      mLocks.unlockWriteSegment(segments[i]);
+    }
+    for (int k = 0; k < numDeferred; k++) {
+      int i = batch.mDeferred[k];
+      results[i] = mightContainAndResetClock(items[i]) || put(items[i], sizes[i], scopes[i]);
+      if (results[i]) {
+        numOk++;
+      }
+    }
+    return numOk;
+  }
+
+  /**
+   * Check whether a batch of items are in cuckoo filter, and reset the clocks of the items found.
+   * All items are hashed first, then the lock of each segment touched by the batch is acquired
+   * once, and the buckets are probed in ascending order.
+   *
+   * @param items the items to be checked
+   * @param results the array to store whether each item is in cuckoo filter
+   * @return the number of items found
+   */
+  public int mightContainAndResetClock(T[] items, boolean[] results) {
+    return lookupAndResetClock(items, results, null);
+  }
+
+  /**
+   * Get the clocks of a batch of items before resetting them, see
+   * {@link #mightContainAndResetClock(Object[], boolean[])}.
+   *
+   * @param items the items to be checked
+   * @param clocks the array to store the clock of each item before reset, or -1 if not found
+   * @return the number of items found
+   */
+  public int getClockAndResetClock(T[] items, int[] clocks) {
+    return lookupAndResetClock(items, new boolean[items.length], clocks);
+  }
+
+  /**
+   * @param items the items to be checked
+   * @param results the array to store whether each item is in cuckoo filter
+   * @param clocks the array to store the clock of each item before reset, or null if not needed
+   * @return the number of items found
+   */
+  private int lookupAndResetClock(T[] items, boolean[] results, int[] clocks) {
+    int count = items.length;
+    BatchScratch batch = mBatchScratch.get();
+    int numSegments = prepareBatch(items, batch);
+    int[] segments = batch.mSegments;
+    for (int i = 0; i < numSegments; i++) {
+      mLocks.readLockSegment(segments[i]);
+    }
+    int numFound = 0;
+    int numToReset = 0;
+    for (int k = 0; k < count; k++) {
+      int i = (int) batch.mOrder[k];
+      long pos = mTable.findTagPosition(batch.mBuckets1[i], batch.mBuckets2[i], batch.mTags[i]);
+      results[i] = TagPosition.isOk(pos);
+      if (clocks != null) {
+        clocks[i] = -1;
+      }
+      if (results[i]) {
+        numFound++;
+        int clock =
+            mClockTable.readTag(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos));
+        if (clocks != null) {
+          clocks[i] = clock;
+        }
+        if (mLockFree) {
+          // the read locks keep the slot in place, and clocks tolerate concurrent updates
+          casResetClock(pos, clock);
+        } else if (clock != mMaxAge) {
+          // the consumed head of the order array is reused to hold the positions to reset
+          batch.mOrder[numToReset] = pos;
+          batch.mDeferred[numToReset++] = i;
+        }
+      }
+    }
+    for (int i = numSegments - 1; i >= 0; i--) {
+      mLocks.unlockReadSegment(segments[i]);
+    }
+    // clocks are written under write locks, which are only taken for the slots to reset
+    for (int k = 0; k < numToReset; k++) {
+      int i = batch.mDeferred[k];
+      if (!resetClock(batch.mOrder[k], batch.mTags[i])) {
+        int clock = lookupAndOptionalResetClock(hashValue(items[i]), true);
+        results[i] = clock >= 0;
+        if (clocks != null) {
+          clocks[i] = clock;
+        }
+        if (!results[i]) {
+          numFound--;
+        }
+      }
+    }
+    return numFound;
+  }
+
   @Override
   public boolean mightContainAndResetClock(T item) {
-    return mightContainAndOptionalResetClock(item, true);
+    return lookupAndOptionalResetClock(hashValue(item), true) >= 0;
+  }
+
+  /**
+   * Check whether an item is in cuckoo filter by its hash value, and reset its clock if found.
+   *
+   * @param hv the hash value of the item
+   * @return true if the item may be in cuckoo filter; false otherwise
+   */
+  public boolean mightContainAndResetClockByHash(long hv) {
+    return lookupAndOptionalResetClock(hv, true) >= 0;
   }
 
   @Override
   public boolean mightContain(T item) {
-    return mightContainAndOptionalResetClock(item, false);
+    return lookupAndOptionalResetClock(hashValue(item), false) >= 0;
   }
 
   /**
+   * Check whether an item is in cuckoo filter, and reset its clock if found. The clock before reset
+   * tells how many aging periods have passed since the item was last accessed.
+   *
    * @param item the item to be checked
+   * @return the clock of the item before reset, or -1 if item is not in cuckoo filter
+   */
+  public int getClockAndResetClock(T item) {
+    return lookupAndOptionalResetClock(hashValue(item), true);
+  }
+
+  /**
+   * Check whether an item is in cuckoo filter by its hash value, and reset its clock if found.
+   *
+   * @param hv the hash value of the item
+   * @return the clock of the item before reset, or -1 if item is not in cuckoo filter
+   */
+  public int getClockAndResetClockByHash(long hv) {
+    return lookupAndOptionalResetClock(hv, true);
+  }
+
+  /**
+   * Lookups first read the two buckets optimistically, which does not write to the locks. A write
+   * lock is taken only when the clock of the item found needs to be reset, or when the optimistic
+   * read is invalidated by a concurrent writer.
+   *
+   * @param hv the hash value of the item to be checked
    * @param shouldReset the flag to indicate whether to reset clock field
-   * @return true if item is in cuckoo filter; false otherwise
+   * @return the clock of the item before reset, or -1 if item is not in cuckoo filter
    */
-  private boolean mightContainAndOptionalResetClock(T item, boolean shouldReset) {
-    long hv = hashValue(item);
+  private int lookupAndOptionalResetClock(long hv, boolean shouldReset) {
     int tag = tagHash(hv);
     int b1 = indexHash(hv);
     int b2 = altIndex(b1, tag);
-    mLocks.readLock(b1, b2);
-    TagPosition pos = mTable.findTag(b1, b2, tag);
-    boolean found = pos.getStatus() == CuckooStatus.OK;
+    long stamp1 = mLocks.tryOptimisticRead(b1);
+    long stamp2 = mLocks.tryOptimisticRead(b2);
+    long pos = mTable.findTagPosition(b1, b2, tag);
+    boolean found = TagPosition.isOk(pos);
+    int clock = found
+        ? mClockTable.readTag(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos)) : 0;
+    boolean needsReset = found && shouldReset && clock != mMaxAge;
+    if (mLocks.validate(b1, stamp1) && mLocks.validate(b2, stamp2)) {
+      if (!needsReset) {
+        return found ? clock : -1;
+      }
+      if (mLockFree) {
+        // the slot is still valid if no writer has locked its segment since the lookup
+        casResetClock(pos, clock);
+        if (mLocks.validate(b1, stamp1) && mLocks.validate(b2, stamp2)) {
+          return clock;
+        }
+      } else if (resetClock(pos, tag)) {
+        return clock;
+      }
+    }
+    // fall back to pessimistic locking
+    if (shouldReset) {
+      mLocks.writeLock(b1, b2);
+    } else {
+      mLocks.readLock(b1, b2);
+    }
+    pos = mTable.findTagPosition(b1, b2, tag);
+    found = TagPosition.isOk(pos);
+    clock = found
+        ? mClockTable.readTag(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos)) : -1;
     if (found && shouldReset) {
       // set C to MAX
-      mClockTable.set(pos.getBucketIndex(), pos.getSlotIndex());
+      mClockTable.set(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos));
     }
-    mLocks.unlockRead(b1, b2);
-    return found;
+    if (shouldReset) {
+      mLocks.unlockWrite(b1, b2);
+    } else {
+      mLocks.unlockRead(b1, b2);
+    }
+    return clock;
+  }
+
+  /**
+   * Reset the clock of a slot to MAX with compare-and-set, retrying if it is concurrently aged.
+   *
+   * @param pos the packed position of the slot
+   * @param clock the clock value read from the slot
+   */
+  private void casResetClock(long pos, int clock) {
+    int bucketIndex = TagPosition.bucketIndexOf(pos);
+    int slotIndex = TagPosition.slotIndexOf(pos);
+    while (clock != mMaxAge
+        && !mClockTable.compareAndSwapTag(bucketIndex, slotIndex, clock, mMaxAge)) {
+      clock = mClockTable.readTag(bucketIndex, slotIndex);
+    }
+  }
+
+  /**
+   * Reset the clock of the slot found by an optimistic read, if it still holds the same tag.
+   *
+   * @param pos the packed position of the slot
+   * @param tag the fingerprint expected in the slot
+   * @return true if the clock is reset; false if the slot has changed
+   */
+  private boolean resetClock(long pos, int tag) {
+    int bucketIndex = TagPosition.bucketIndexOf(pos);
+    int slotIndex = TagPosition.slotIndexOf(pos);
+    mLocks.writeLock(bucketIndex);
+    boolean unchanged = mTable.readTag(bucketIndex, slotIndex) == tag;
+    if (unchanged) {
+      // set C to MAX
+      mClockTable.set(bucketIndex, slotIndex);
+    }
+    mLocks.unlockWrite(bucketIndex);
+    return unchanged;
   }
 
   @Override
   public boolean delete(T item) {
-    long hv = hashValue(item);
+    return deleteByHash(hashValue(item));
+  }
+
+  /**
+   * Delete an item by its hash value.
+   *
+   * @param hv the hash value of the item
+   * @return true if the item is deleted; false otherwise
+   */
+  public boolean deleteByHash(long hv) {
     int tag = tagHash(hv);
     int b1 = indexHash(hv);
     int b2 = altIndex(b1, tag);
     writeLockAndOpportunisticAging(b1, b2);
-    TagPosition pos = mTable.deleteTag(b1, tag);
-    if (pos.getStatus() != CuckooStatus.OK) {
-      pos = mTable.deleteTag(b2, tag);
+    long pos = mTable.deleteTagPosition(b1, tag);
+    if (!TagPosition.isOk(pos)) {
+      pos = mTable.deleteTagPosition(b2, tag);
     }
-    if (pos.getStatus() == CuckooStatus.OK) {
+    if (TagPosition.isOk(pos)) {
+      int bucketIndex = TagPosition.bucketIndexOf(pos);
+      int slotIndex = TagPosition.slotIndexOf(pos);
       mNumItems.decrementAndGet();
-      int scope = mScopeTable.readTag(pos.getBucketIndex(), pos.getSlotIndex());
-      int encodedSize = mSizeTable.readTag(pos.getBucketIndex(), pos.getSlotIndex());
+      int scope = mScopeTable.readTag(bucketIndex, slotIndex);
+      int encodedSize = mSizeTable.readTag(bucketIndex, slotIndex);
       updateScopeStatistics(scope, -1, -mSizeEncoder.dec(encodedSize));
       // Clear Clock
-      mClockTable.clear(pos.getBucketIndex(), pos.getSlotIndex());
+      mClockTable.clear(bucketIndex, slotIndex);
       mLocks.unlockWrite(b1, b2);
       return true;
     }
@@ -467,19 +936,62 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
   @Override
   public void aging() {
     int numSegments = mLocks.getNumLocks();
-    int bucketsPerSegment = mLocks.getNumBucketsPerSegment();
+    boolean[] deferred = new boolean[numSegments];
+    if (mAgingPool == null) {
+      agingSegments(0, numSegments, deferred);
+    } else {
+      mAgingPool.invoke(new AgingTask(0, numSegments, deferred));
+    }
+    // age the segments whose locks were not acquired before deadline
     for (int i = 0; i < numSegments; i++) {
-      // TODO(iluoeli): avoid acquire locks here since it may be blocked
-      // for a long time if this segment is contended by multiple users.
-      mLocks.writeLockSegment(i);
-      if (mSegmentedAgingPointers[i] < bucketsPerSegment) {
-        agingSegment(i, bucketsPerSegment);
+      if (deferred[i]) {
+        mLocks.writeLockSegment(i);
+        finishAgingSegment(i);
+        mLocks.unlockWriteSegment(i);
+      }
+    }
+  }
+
+  /**
+   * Age segments in range [from, to). A segment whose lock is not acquired within the deadline is
+   * skipped and marked as deferred, so that other segments are not blocked by a contended one.
+   *
+   * @param from the first segment to be aged
+   * @param to the end of the segments to be aged
+   * @param deferred the flags to mark deferred segments
+   */
+  private void agingSegments(int from, int to, boolean[] deferred) {
+    for (int i = from; i < to; i++) {
+      if (mAgingDeadlineNanos <= 0) {
+        mLocks.writeLockSegment(i);
+      } else if (!mLocks.tryWriteLockSegment(i, mAgingDeadlineNanos)) {
+        deferred[i] = true;
+        continue;
       }
-      mSegmentedAgingPointers[i] = 0;
+      finishAgingSegment(i);
       mLocks.unlockWriteSegment(i);
     }
   }
 
+  /**
+   * Age the remaining buckets of the ith segment in current period, and start a new period. Assume
+   * holding the lock of this segment.
+   *
+   * @param i the index of the segment to be aged
+   */
+  private void finishAgingSegment(int i) {
+    int bucketsPerSegment = mLocks.getNumBucketsPerSegment();
+    int remainingBuckets = bucketsPerSegment - mSegmentedAgingPointers[i];
+    if (remainingBuckets > 0) {
+      // no need to re-check window border in steps, age the remaining buckets at once
+      int from = mLocks.getSegmentStartPos(i) + mSegmentedAgingPointers[i];
+      mAgingCount.addAndGet(remainingBuckets);
+      mSegmentedAgingPointers[i] = bucketsPerSegment;
+      agingRange(from, from + remainingBuckets);
+    }
+    mSegmentedAgingPointers[i] = 0;
+  }
+
   /**
    * Get the item's clock value (age).
    *
@@ -491,17 +1003,58 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     int tag = tagHash(hv);
     int b1 = indexHash(hv);
     int b2 = altIndex(b1, tag);
-    mLocks.readLock(b1, b2);
-    TagPosition pos = mTable.findTag(b1, b2, tag);
-    if (pos.getStatus() == CuckooStatus.OK) {
-      int clock = mClockTable.readTag(pos.getBucketIndex(), pos.getSlotIndex());
-      mLocks.unlockRead(b1, b2);
+    long stamp1 = mLocks.tryOptimisticRead(b1);
+    long stamp2 = mLocks.tryOptimisticRead(b2);
+    int clock = readClock(b1, b2, tag);
+    if (mLocks.validate(b1, stamp1) && mLocks.validate(b2, stamp2)) {
       return clock;
     }
+    mLocks.readLock(b1, b2);
+    clock = readClock(b1, b2, tag);
     mLocks.unlockRead(b1, b2);
+    return clock;
+  }
+
+  /**
+   * @param b1 the first bucket
+   * @param b2 the second bucket
+   * @param tag the fingerprint
+   * @return the clock of the tag found in the two buckets, or zero if not found
+   */
+  private int readClock(int b1, int b2, int tag) {
+    long pos = mTable.findTagPosition(b1, b2, tag);
+    if (TagPosition.isOk(pos)) {
+      return mClockTable.readTag(TagPosition.bucketIndexOf(pos), TagPosition.slotIndexOf(pos));
+    }
     return 0;
   }
 
+  /**
+   * Sum the sizes of items by their clocks. Items of clock c were last accessed about
+   * (maxAge - c) aging periods ago, so the bytes of clocks no less than c estimate the footprint of
+   * the accesses in the last (maxAge - c + 1) periods.
+   *
+   * @return the bytes of items indexed by clock, whose length is 1 + max clock
+   */
+  public long[] getBytesByClock() {
+    long[] bytesByClock = new long[mMaxAge + 1];
+    int bucketsPerSegment = mLocks.getNumBucketsPerSegment();
+    for (int i = 0; i < mLocks.getNumLocks(); i++) {
+      int from = mLocks.getSegmentStartPos(i);
+      mLocks.readLockSegment(i);
+      for (int b = from; b < from + bucketsPerSegment; b++) {
+        for (int slotIndex = 0; slotIndex < TAGS_PER_BUCKET; slotIndex++) {
+          if (mTable.readTag(b, slotIndex) != 0) {
+            bytesByClock[mClockTable.readTag(b, slotIndex)] +=
+                mSizeEncoder.decode(mSizeTable.readTag(b, slotIndex));
+          }
+        }
+      }
+      mLocks.unlockReadSegment(i);
+    }
+    return bytesByClock;
+  }
+
   /**
    * @return the summary of this cuckoo filter
    */
@@ -509,17 +1062,16 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     return "numBuckets: " + getNumBuckets() + "\ntagsPerBucket: " + getTagsPerBucket()
         + "\nbitsPerTag: " + getBitsPerTag() + "\nbitsPerClock: " + getBitsPerClock()
         + "\nbitsPerSize: " + mBitsPerSize + "\nbitsPerScope: " + mBitsPerScope + "\nSizeInMB: "
-        + (getNumBuckets() * getTagsPerBucket() * getBitsPerTag() / 8.0 / Constants.MB
-            + getNumBuckets() * getTagsPerBucket() * getBitsPerClock() / 8.0 / Constants.MB
-            + getNumBuckets() * getTagsPerBucket() * mBitsPerSize / 8.0 / Constants.MB
-            + getNumBuckets() * getTagsPerBucket() * mBitsPerScope / 8.0 / Constants.MB);
+        + ((long) getNumBuckets() * getTagsPerBucket()
+            * (getBitsPerTag() + getBitsPerClock() + mBitsPerSize + mBitsPerScope) / 8.0
+            / Constants.MB);
   }
 
   @Override
   public double expectedFpp() {
     // equation from "Cuckoo Filter: Simplification and Analysis" by David Eppstein (Theorem 5.1)
     return 2 * mNumItems.doubleValue()
-        / (mNumBuckets * TAGS_PER_BUCKET * ((1L << mBitsPerTag) - 1));
+        / ((long) mNumBuckets * TAGS_PER_BUCKET * ((1L << mBitsPerTag) - 1));
   }
 
   @Override
@@ -598,11 +1150,81 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     return mSizeEncoder.dumpInfo();
   }
 
+  /**
+   * Write all fields of an item to the given empty slot and update statistics. Assume holding the
+   * lock of the bucket.
+   *
+   * @param bucketIndex the bucket index
+   * @param slotIndex the slot index
+   * @param tag the fingerprint
+   * @param size the size of the item
+   * @param scope the encoded scope of the item
+   */
+  private void writeSlot(int bucketIndex, int slotIndex, int tag, int size, int scope) {
+    mTable.writeTag(bucketIndex, slotIndex, tag);
+    mClockTable.set(bucketIndex, slotIndex);
+    mScopeTable.writeTag(bucketIndex, slotIndex, scope);
+    mSizeEncoder.add(size);
+    int encodedSize = mSizeEncoder.encode(size);
+    mSizeTable.writeTag(bucketIndex, slotIndex, encodedSize);
+    // update statistics
+    mNumItems.incrementAndGet();
+    mTotalBytes.addAndGet(encodedSize);
+    updateScopeStatistics(scope, 1, size);
+  }
+
+  /**
+   * Hash a batch of items into the batch scratch space, and sort them by their first bucket.
+   *
+   * @param items the items of the batch
+   * @param batch the scratch space
+   * @return the number of distinct segments touched by the batch, which are stored in ascending
+   *         order at the head of {@code batch.mSegments}
+   */
+  private int prepareBatch(T[] items, BatchScratch batch) {
+    int count = items.length;
+    batch.ensureCapacity(count);
+    int[] segments = batch.mSegments;
+    for (int i = 0; i < count; i++) {
+      long hv = hashValue(items[i]);
+      int tag = tagHash(hv);
+      int b1 = indexHash(hv);
+      int b2 = altIndex(b1, tag);
+      batch.mTags[i] = tag;
+      batch.mBuckets1[i] = b1;
+      batch.mBuckets2[i] = b2;
+      batch.mOrder[i] = ((long) b1 << 32) | i;
+      segments[2 * i] = mLocks.getSegmentIndex(b1);
+      segments[2 * i + 1] = mLocks.getSegmentIndex(b2);
+    }
+    // probing in ascending bucket order turns random accesses into a forward sweep
+    Arrays.sort(batch.mOrder, 0, count);
+    // segments are locked in ascending order, the same order as SegmentedLock, to avoid dead lock
+    Arrays.sort(segments, 0, 2 * count);
+    int numSegments = 0;
+    for (int i = 0; i < 2 * count; i++) {
+      if (numSegments == 0 || segments[numSegments - 1] != segments[i]) {
+        segments[numSegments++] = segments[i];
+      }
+    }
+    // touch the candidate buckets with independent loads so that their cache misses overlap with
+    // each other and with lock acquisition, instead of stalling the probe loop one by one
+    int sink = 0;
+    for (int i = 0; i < count; i++) {
+      sink += mTable.readTag(batch.mBuckets1[i], 0) + mTable.readTag(batch.mBuckets2[i], 0);
+    }
+    batch.mSink = sink;
+    return numSegments;
+  }
+
   /**
    * @param item the object to be hashed
    * @return the hash code of this item
    */
   private long hashValue(T item) {
+    if (mUsePageIdHash) {
+      return ((PageId) item).getHash();
+    }
     return mHashFunction.newHasher().putObject(item, mFunnel).hash().asLong();
   }
 
@@ -692,18 +1314,18 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @param b1 the first bucket
    * @param b2 the second bucket
    * @param fp the fingerprint
-   * @return a valid tag position pointing to the empty slot; otherwise an invalid tat position
-   *         indicating failure
+   * @return a valid packed tag position pointing to the empty slot; otherwise an invalid packed tag
+   *         position indicating failure
    */
-  private TagPosition cuckooInsertLoop(int b1, int b2, int fp) {
+  private long cuckooInsertLoop(int b1, int b2, int fp) {
     int maxRetryNum = 1;
     while (maxRetryNum-- > 0) {
-      TagPosition pos = cuckooInsert(b1, b2, fp);
-      if (pos.getStatus() == CuckooStatus.OK) {
+      long pos = cuckooInsert(b1, b2, fp);
+      if (TagPosition.isOk(pos)) {
         return pos;
       }
     }
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE);
+    return TagPosition.FAILURE;
   }
 
   /**
@@ -712,31 +1334,31 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @param b1 the first bucket
    * @param b2 the second bucket
    * @param fp the fingerprint
-   * @return a valid tag position pointing to the empty slot; otherwise an invalid tat position
-   *         indicating failure
+   * @return a valid packed tag position pointing to the empty slot; otherwise an invalid packed tag
+   *         position indicating failure
    */
-  private TagPosition cuckooInsert(int b1, int b2, int fp) {
+  private long cuckooInsert(int b1, int b2, int fp) {
     // try find b1 and b2 firstly
-    TagPosition pos1 = tryFindInsertBucket(b1, fp);
-    if (pos1.getStatus() == CuckooStatus.FAILURE_KEY_DUPLICATED) {
+    long pos1 = tryFindInsertBucket(b1, fp);
+    if (TagPosition.statusOf(pos1) == CuckooStatus.FAILURE_KEY_DUPLICATED) {
       return pos1;
     }
-    TagPosition pos2 = tryFindInsertBucket(b2, fp);
-    if (pos2.getStatus() == CuckooStatus.FAILURE_KEY_DUPLICATED) {
+    long pos2 = tryFindInsertBucket(b2, fp);
+    if (TagPosition.statusOf(pos2) == CuckooStatus.FAILURE_KEY_DUPLICATED) {
       return pos2;
     }
-    if (pos1.getStatus() == CuckooStatus.OK) {
+    if (TagPosition.isOk(pos1)) {
       return pos1;
     }
-    if (pos2.getStatus() == CuckooStatus.OK) {
+    if (TagPosition.isOk(pos2)) {
       return pos2;
     }
     // then BFS search from b1 and b2
-    TagPosition pos = runCuckoo(b1, b2, fp);
-    if (pos.getStatus() == CuckooStatus.OK) {
+    long pos = runCuckoo(b1, b2, fp);
+    if (TagPosition.isOk(pos)) {
       // avoid another duplicated key is inserted during runCuckoo.
-      if (mTable.findTag(b1, b2, fp).getStatus() == CuckooStatus.OK) {
-        pos.setStatus(CuckooStatus.FAILURE_KEY_DUPLICATED);
+      if (TagPosition.isOk(mTable.findTagPosition(b1, b2, fp))) {
+        pos = TagPosition.withStatus(pos, CuckooStatus.FAILURE_KEY_DUPLICATED);
       }
     }
     return pos;
@@ -748,26 +1370,23 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @param b1 the first bucket
    * @param b2 the second bucket
    * @param fp the fingerprint
-   * @return a valid tag position pointing to the empty slot; otherwise an invalid tat position
-   *         indicating failure
+   * @return a valid packed tag position pointing to the empty slot; otherwise an invalid packed tag
+   *         position indicating failure
    */
-  private TagPosition runCuckoo(int b1, int b2, int fp) {
+  private long runCuckoo(int b1, int b2, int fp) {
     mLocks.unlockWrite(b1, b2);
-    TagPosition pos = new TagPosition(-1, -1, CuckooStatus.FAILURE);
-    int maxPathLen = MAX_BFS_PATH_LEN;
-    CuckooRecord[] cuckooPath = new CuckooRecord[maxPathLen];
-    for (int i = 0; i < maxPathLen; i++) {
-      cuckooPath[i] = new CuckooRecord();
-    }
+    long pos = TagPosition.FAILURE;
+    CuckooScratch scratch = mScratch.get();
+    CuckooRecord[] cuckooPath = scratch.mPath;
     boolean done = false;
     while (!done) {
-      int depth = cuckooPathSearch(b1, b2, fp, cuckooPath);
+      int depth = cuckooPathSearch(b1, b2, fp, scratch);
       if (depth < 0) {
         break;
       }
       if (cuckooPathMove(b1, b2, fp, cuckooPath, depth)) {
-        pos.setBucketAndSlot(cuckooPath[0].mBucketIndex, cuckooPath[0].mSlotIndex);
-        pos.setStatus(CuckooStatus.OK);
+        pos = TagPosition.pack(cuckooPath[0].mBucketIndex, cuckooPath[0].mSlotIndex,
+            CuckooStatus.OK);
         done = true;
       }
     }
@@ -786,21 +1405,24 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @param b1 the first bucket
    * @param b2 the second bucket
    * @param fp the fingerprint
-   * @param cuckooPath the information of searched path
+   * @param scratch the scratch space to store the information of searched path
    * @return the depth the path
    */
-  private int cuckooPathSearch(int b1, int b2, int fp, CuckooRecord[] cuckooPath) {
+  private int cuckooPathSearch(int b1, int b2, int fp, CuckooScratch scratch) {
     // 1. search a path
-    BFSEntry x = slotBFSSearch(b1, b2, fp);
-    if (x.mDepth == -1) {
+    int x = slotBFSSearch(b1, b2, fp, scratch);
+    if (x < 0) {
       return -1;
     }
     // 2. re-construct path from x
-    for (int i = x.mDepth; i >= 0; i--) {
-      cuckooPath[i].mSlotIndex = x.mPathcode % TAGS_PER_BUCKET;
-      x.mPathcode /= TAGS_PER_BUCKET;
+    CuckooRecord[] cuckooPath = scratch.mPath;
+    int depth = scratch.mQueueDepths[x];
+    int pathcode = scratch.mQueuePathcodes[x];
+    for (int i = depth; i >= 0; i--) {
+      cuckooPath[i].mSlotIndex = pathcode % TAGS_PER_BUCKET;
+      pathcode /= TAGS_PER_BUCKET;
     }
-    if (x.mPathcode == 0) {
+    if (pathcode == 0) {
       cuckooPath[0].mBucketIndex = b1;
     } else {
       cuckooPath[0].mBucketIndex = b2;
@@ -815,7 +1437,7 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
       mLocks.unlockWrite(cuckooPath[0].mBucketIndex);
       cuckooPath[0].mFingerprint = tag;
     }
-    for (int i = 1; i <= x.mDepth; i++) {
+    for (int i = 1; i <= depth; i++) {
       CuckooRecord curr = cuckooPath[i];
       CuckooRecord prev = cuckooPath[i - 1];
       curr.mBucketIndex = altIndex(prev.mBucketIndex, prev.mFingerprint);
@@ -828,7 +1450,7 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
       curr.mFingerprint = tag;
       mLocks.unlockWrite(curr.mBucketIndex);
     }
-    return x.mDepth;
+    return depth;
   }
 
   /**
@@ -837,33 +1459,45 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @param b1 the first bucket
    * @param b2 the second bucket
    * @param fp the fingerprint
-   * @return the last entry of searched path
-   */
-  private BFSEntry slotBFSSearch(int b1, int b2, int fp) {
-    Queue<BFSEntry> queue = new LinkedList<>();
-    queue.offer(new BFSEntry(b1, 0, 0));
-    queue.offer(new BFSEntry(b2, 1, 0));
-    while (!queue.isEmpty()) {
-      BFSEntry x = queue.poll();
-      mLocks.writeLock(x.mBucketIndex);
+   * @param scratch the scratch space used as the BFS queue
+   * @return the index of the last entry of searched path in the queue of scratch space, or -1 if
+   *         no empty slot is found
+   */
+  private int slotBFSSearch(int b1, int b2, int fp, CuckooScratch scratch) {
+    int[] buckets = scratch.mQueueBuckets;
+    int[] pathcodes = scratch.mQueuePathcodes;
+    int[] depths = scratch.mQueueDepths;
+    int head = 0;
+    int tail = 0;
+    buckets[tail] = b1;
+    pathcodes[tail] = 0;
+    depths[tail++] = 0;
+    buckets[tail] = b2;
+    pathcodes[tail] = 1;
+    depths[tail++] = 0;
+    while (head < tail) {
+      int x = head++;
+      int bucketIndex = buckets[x];
+      mLocks.writeLock(bucketIndex);
       // pick a random slot to start on
-      int startingSlot = x.mPathcode % TAGS_PER_BUCKET;
+      int startingSlot = pathcodes[x] % TAGS_PER_BUCKET;
       for (int i = 0; i < TAGS_PER_BUCKET; i++) {
         int slot = (startingSlot + i) % TAGS_PER_BUCKET;
-        int tag = mTable.readTag(x.mBucketIndex, slot);
+        int tag = mTable.readTag(bucketIndex, slot);
         if (tag == 0) {
-          x.mPathcode = x.mPathcode * TAGS_PER_BUCKET + slot;
-          mLocks.unlockWrite(x.mBucketIndex);
+          pathcodes[x] = pathcodes[x] * TAGS_PER_BUCKET + slot;
+          mLocks.unlockWrite(bucketIndex);
           return x;
         }
-        if (x.mDepth < MAX_BFS_PATH_LEN - 1) {
-          queue.offer(new BFSEntry(altIndex(x.mBucketIndex, tag),
-              x.mPathcode * TAGS_PER_BUCKET + slot, x.mDepth + 1));
+        if (depths[x] < MAX_BFS_PATH_LEN - 1) {
+          buckets[tail] = altIndex(bucketIndex, tag);
+          pathcodes[tail] = pathcodes[x] * TAGS_PER_BUCKET + slot;
+          depths[tail++] = depths[x] + 1;
         }
       }
-      mLocks.unlockWrite(x.mBucketIndex);
+      mLocks.unlockWrite(bucketIndex);
     }
-    return new BFSEntry(0, 0, -1);
+    return -1;
   }
 
   /**
@@ -954,22 +1588,20 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    *
    * @param i the bucket index
    * @param fp the fingerprint
-   * @return true if no duplicated key is found, and `pos.slot` points to an empty slot (if pos.tag
-   *         != -1); otherwise return false, and store the position of duplicated key in `pos.slot`.
+   * @return a packed position with status OK pointing to an empty slot if no duplicated key is
+   *         found; a packed position with status FAILURE_KEY_DUPLICATED pointing to the duplicated
+   *         key; or a packed position with status FAILURE_TABLE_FULL if the bucket is full
    */
-  private TagPosition tryFindInsertBucket(int i, int fp) {
-    TagPosition pos = new TagPosition(i, -1, CuckooStatus.FAILURE_TABLE_FULL);
+  private long tryFindInsertBucket(int i, int fp) {
+    long pos = TagPosition.pack(i, -1, CuckooStatus.FAILURE_TABLE_FULL);
     for (int slotIndex = 0; slotIndex < TAGS_PER_BUCKET; slotIndex++) {
       int tag = mTable.readTag(i, slotIndex);
       if (tag != 0) {
         if (tag == fp) {
-          pos.setSlotIndex(slotIndex);
-          pos.setStatus(CuckooStatus.FAILURE_KEY_DUPLICATED);
-          return pos;
+          return TagPosition.pack(i, slotIndex, CuckooStatus.FAILURE_KEY_DUPLICATED);
         }
       } else {
-        pos.setSlotIndex(slotIndex);
-        pos.setStatus(CuckooStatus.OK);
+        pos = TagPosition.pack(i, slotIndex, CuckooStatus.OK);
       }
     }
     return pos;
@@ -984,6 +1616,10 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    */
   private void writeLockAndOpportunisticAging(int b1, int b2) {
     mLocks.writeLock(b1, b2);
+    if (mSlidingWindowType == SlidingWindowType.NONE) {
+      // opportunistic aging is disabled, all aging is done by aging()
+      return;
+    }
     opportunisticAgingSegment(mLocks.getSegmentIndex(b1));
     opportunisticAgingSegment(mLocks.getSegmentIndex(b2));
   }
@@ -1055,6 +1691,10 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
    * @return the number of cleaned buckets
    */
   private int agingRange(int from, int to) {
+    if (!mLockFree) {
+      // decrement whole words of clocks at once, and only look into the slots with zero clock
+      return mClockTable.decrementTags(from, to, mStaleSlotEvictor);
+    }
     int numCleaned = 0;
     for (int i = from; i < to; i++) {
       numCleaned += agingBucket(i);
@@ -1062,6 +1702,26 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
     return numCleaned;
   }
 
+  /**
+   * Evict the item in given slot whose clock is zero. Assume holding the lock of the bucket.
+   *
+   * @param b the bucket
+   * @param slotIndex the slot
+   * @return true if an item is evicted; false if the slot is empty
+   */
+  private boolean evictStaleSlot(int b, int slotIndex) {
+    if (mTable.readTag(b, slotIndex) == 0) {
+      return false;
+    }
+    mTable.clear(b, slotIndex);
+    mNumItems.decrementAndGet();
+    int scope = mScopeTable.readTag(b, slotIndex);
+    int encodedSize = mSizeTable.readTag(b, slotIndex);
+    updateScopeStatistics(scope, -1, -mSizeEncoder.dec(encodedSize));
+    mTotalBytes.addAndGet(-encodedSize);
+    return true;
+  }
+
   /**
    * @param b the bucket to be aged
    * @return the number of cleaned slots
@@ -1075,39 +1735,121 @@ public class ConcurrentClockCuckooFilter<T> implements ClockCuckooFilter<T>, Ser
       }
       int oldClock = mClockTable.readTag(b, slotIndex);
       if (oldClock > 0) {
-        mClockTable.writeTag(b, slotIndex, oldClock - 1);
-      } else {
-        // evict stale item
+        decrementClock(b, slotIndex, oldClock);
+      } else if (evictStaleSlot(b, slotIndex)) {
         numCleaned++;
-        mTable.clear(b, slotIndex);
-        mNumItems.decrementAndGet();
-        int scope = mScopeTable.readTag(b, slotIndex);
-        int encodedSize = mSizeTable.readTag(b, slotIndex);
-        // encodedSize = decodeSize(encodedSize);
-        updateScopeStatistics(scope, -1, -mSizeEncoder.dec(encodedSize));
-        mTotalBytes.addAndGet(-encodedSize);
       }
     }
     return numCleaned;
   }
 
   /**
-   * A basic entry that records information of a path node during cuckoo BFS search.
+   * Decrement a nonzero clock. Assume holding the lock of the bucket. In lock free mode, lookups
+   * may reset the clock concurrently, so the decrement is applied with compare-and-set.
+   *
+   * @param b the bucket
+   * @param slotIndex the slot
+   * @param clock the current clock value
    */
-  static final class BFSEntry {
-    public int mBucketIndex;
-    public int mPathcode; // encode slot position of ancestors and it own nodes
-    public int mDepth;
+  private void decrementClock(int b, int slotIndex, int clock) {
+    if (!mLockFree) {
+      mClockTable.writeTag(b, slotIndex, clock - 1);
+      return;
+    }
+    // lookups only raise the clock, so it stays nonzero across retries
+    while (!mClockTable.compareAndSwapTag(b, slotIndex, clock, clock - 1)) {
+      clock = mClockTable.readTag(b, slotIndex);
+    }
+  }
+
+  /**
+   * A task which ages a range of segments, and splits itself if the range is large.
+   */
+  private final class AgingTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int mFrom;
+    private final int mTo;
+    private final boolean[] mDeferred;
 
     /**
-     * @param bucketIndex the bucket of entry
-     * @param pathcode the encoded slot position of ancestors and it own
-     * @param depth the depth of the entry in path
+     * @param from the first segment to be aged
+     * @param to the end of the segments to be aged
+     * @param deferred the flags to mark deferred segments
      */
-    BFSEntry(int bucketIndex, int pathcode, int depth) {
-      mBucketIndex = bucketIndex;
-      mPathcode = pathcode;
-      mDepth = depth;
+    AgingTask(int from, int to, boolean[] deferred) {
+      mFrom = from;
+      mTo = to;
+      mDeferred = deferred;
+    }
+
+    @Override
+    protected void compute() {
+      if (mTo - mFrom <= MIN_SEGMENTS_PER_AGING_TASK) {
+        agingSegments(mFrom, mTo, mDeferred);
+        return;
+      }
+      int mid = (mFrom + mTo) >>> 1;
+      invokeAll(new AgingTask(mFrom, mid, mDeferred), new AgingTask(mid, mTo, mDeferred));
+    }
+  }
+
+  /**
+   * The reusable scratch space of cuckoo path search, including the searched path and a BFS queue
+   * stored as parallel arrays of bucket, pathcode and depth of each path node.
+   */
+  static final class CuckooScratch {
+    final CuckooRecord[] mPath = new CuckooRecord[MAX_BFS_PATH_LEN];
+    final int[] mQueueBuckets;
+    // encode slot position of ancestors and it own nodes
+    final int[] mQueuePathcodes;
+    final int[] mQueueDepths;
+
+    CuckooScratch() {
+      for (int i = 0; i < MAX_BFS_PATH_LEN; i++) {
+        mPath[i] = new CuckooRecord();
+      }
+      // each of the two initial buckets expands to at most sum(TAGS_PER_BUCKET^d) nodes
+      int capacity = 0;
+      int nodesAtDepth = 1;
+      for (int d = 0; d < MAX_BFS_PATH_LEN; d++) {
+        capacity += nodesAtDepth;
+        nodesAtDepth *= TAGS_PER_BUCKET;
+      }
+      capacity *= 2;
+      mQueueBuckets = new int[capacity];
+      mQueuePathcodes = new int[capacity];
+      mQueueDepths = new int[capacity];
+    }
+  }
+
+  /**
+   * The reusable scratch space of batched operations, holding the hashed fields of each item, the
+   * probing order and the segments to lock.
+   */
+  static final class BatchScratch {
+    int[] mTags = new int[0];
+    int[] mBuckets1 = new int[0];
+    int[] mBuckets2 = new int[0];
+    // the first bucket in high 32 bits and the index in batch in low 32 bits
+    long[] mOrder = new long[0];
+    int[] mSegments = new int[0];
+    int[] mDeferred = new int[0];
+    // keeps the loads of bucket touching alive
+    int mSink;
+
+    /**
+     * @param count the number of items in the batch
+     */
+    void ensureCapacity(int count) {
+      if (mTags.length >= count) {
+        return;
+      }
+      mTags = new int[count];
+      mBuckets1 = new int[count];
+      mBuckets2 = new int[count];
+      mOrder = new long[count];
+      mSegments = new int[2 * count];
+      mDeferred = new int[count];
     }
   }
 
@@ -40,6 +40,8 @@ enum CuckooStatus {
    */
   UNDEFINED(5);
 
+  private static final CuckooStatus[] CODE_TO_STATUS = values();
+
   public final int mCode;
 
   /**
@@ -55,4 +57,12 @@ enum CuckooStatus {
   public int getCode() {
     return mCode;
   }
+
+  /**
+   * @param code the code of status
+   * @return the status of given code
+   */
+  public static CuckooStatus fromCode(int code) {
+    return CODE_TO_STATUS[code];
+  }
 }
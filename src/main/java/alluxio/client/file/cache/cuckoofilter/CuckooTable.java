@@ -49,6 +49,51 @@ public interface CuckooTable {
    */
   void set(int bucketIndex, int slotIndex);
 
+  /**
+   * Atomically set the value of tag in specified position if it equals to the expected value.
+   *
+   * @param bucketIndex the bucket index
+   * @param slotIndex the slot in bucket
+   * @param expect the expected tag value
+   * @param update the new tag value
+   * @return true if successful; false if the tag is not equal to the expected value
+   * @throws UnsupportedOperationException if this table does not support atomic updates
+   */
+  default boolean compareAndSwapTag(int bucketIndex, int slotIndex, int expect, int update) {
+    throw new UnsupportedOperationException("compareAndSwapTag is not supported");
+  }
+
+  /**
+   * @return true if {@link #compareAndSwapTag(int, int, int, int)} is supported by this table
+   */
+  default boolean supportsCompareAndSwap() {
+    return false;
+  }
+
+  /**
+   * Decrement every nonzero tag in buckets [fromBucket, toBucket) by one, and visit the slots whose
+   * tags are zero. Assume no concurrent writers of these buckets.
+   *
+   * @param fromBucket the first bucket
+   * @param toBucket the end bucket
+   * @param zeroVisitor the visitor called on each slot with zero tag
+   * @return the number of visits which return true
+   */
+  default int decrementTags(int fromBucket, int toBucket, SlotVisitor zeroVisitor) {
+    int count = 0;
+    for (int bucketIndex = fromBucket; bucketIndex < toBucket; bucketIndex++) {
+      for (int slotIndex = 0; slotIndex < getNumTagsPerBuckets(); slotIndex++) {
+        int tag = readTag(bucketIndex, slotIndex);
+        if (tag > 0) {
+          writeTag(bucketIndex, slotIndex, tag - 1);
+        } else if (zeroVisitor.visit(bucketIndex, slotIndex)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
   /**
    * Find a tag in specified bucket and return its position.
    *
@@ -57,7 +102,9 @@ public interface CuckooTable {
    * @return the valid position of this tag if it is found; otherwise an invalid position indicates
    *         that tag is not found
    */
-  TagPosition findTag(int bucketIndex, int tag);
+  default TagPosition findTag(int bucketIndex, int tag) {
+    return TagPosition.unpack(findTagPosition(bucketIndex, tag));
+  }
 
   /**
    * Find a tag in specified two buckets and return its position.
@@ -68,7 +115,9 @@ public interface CuckooTable {
    * @return the valid position of this tag if it is found; otherwise an invalid position indicates
    *         that tag is not found
    */
-  TagPosition findTag(int bucketIndex1, int bucketIndex2, int tag);
+  default TagPosition findTag(int bucketIndex1, int bucketIndex2, int tag) {
+    return TagPosition.unpack(findTagPosition(bucketIndex1, bucketIndex2, tag));
+  }
 
   /**
    * Delete a tag in specified bucket and return its position.
@@ -78,7 +127,38 @@ public interface CuckooTable {
    * @return the valid position of this tag if it is found and deleted; otherwise an invalid
    *         position indicates that tag is not found
    */
-  TagPosition deleteTag(int bucketIndex, int tag);
+  default TagPosition deleteTag(int bucketIndex, int tag) {
+    return TagPosition.unpack(deleteTagPosition(bucketIndex, tag));
+  }
+
+  /**
+   * Find a tag in specified bucket without allocation.
+   *
+   * @param bucketIndex the bucket index
+   * @param tag the tag value to find
+   * @return the packed position of this tag, see {@link TagPosition#pack(int, int, CuckooStatus)}
+   */
+  long findTagPosition(int bucketIndex, int tag);
+
+  /**
+   * Find a tag in specified two buckets without allocation.
+   *
+   * @param bucketIndex1 the first bucket index
+   * @param bucketIndex2 the second bucket index
+   * @param tag the tag value to find
+   * @return the packed position of this tag, see {@link TagPosition#pack(int, int, CuckooStatus)}
+   */
+  long findTagPosition(int bucketIndex1, int bucketIndex2, int tag);
+
+  /**
+   * Delete a tag in specified bucket without allocation.
+   *
+   * @param bucketIndex the bucket to delete from
+   * @param tag the tag value to find
+   * @return the packed position of the deleted tag, see
+   *         {@link TagPosition#pack(int, int, CuckooStatus)}
+   */
+  long deleteTagPosition(int bucketIndex, int tag);
 
   /**
    * Insert a tag into specified bucket. If no empty slot found, it will kickout one randomly and
@@ -114,4 +194,17 @@ public interface CuckooTable {
    * @return the number of tags
    */
   int getSizeInTags();
+
+  /**
+   * A visitor of slots.
+   */
+  @FunctionalInterface
+  interface SlotVisitor {
+    /**
+     * @param bucketIndex the bucket index
+     * @param slotIndex the slot in bucket
+     * @return true if the slot is counted
+     */
+    boolean visit(int bucketIndex, int slotIndex);
+  }
 }
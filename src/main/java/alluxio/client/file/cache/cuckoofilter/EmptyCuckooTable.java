@@ -33,18 +33,18 @@ public class EmptyCuckooTable implements CuckooTable {
   public void set(int bucketIndex, int slotIndex) {}
 
   @Override
-  public TagPosition findTag(int bucketIndex, int tag) {
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+  public long findTagPosition(int bucketIndex, int tag) {
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
-  public TagPosition findTag(int bucketIndex1, int bucketIndex2, int tag) {
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+  public long findTagPosition(int bucketIndex1, int bucketIndex2, int tag) {
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
-  public TagPosition deleteTag(int bucketIndex, int tag) {
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+  public long deleteTagPosition(int bucketIndex, int tag) {
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
@@ -0,0 +1,159 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.cuckoofilter;
+
+import alluxio.collections.BitSet;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A cuckoo table that stores one field of a slot whose fields are interleaved in a shared bit set.
+ *
+ * <p>
+ * Each slot occupies {@code bitsPerSlot} consecutive bits of the shared bit set, and this table
+ * accesses the {@code bitsPerTag} bits starting at {@code fieldOffset} within each slot. Several
+ * instances with disjoint field offsets can share one bit set, so that all fields of a bucket are
+ * adjacent in memory and a lookup touches one or two cache lines instead of one per field.
+ */
+public class InterleavedCuckooTable implements CuckooTable {
+  private final int mTagsPerBucket;
+  private final int mBitsPerTag;
+  private final int mBitsPerSlot;
+  private final int mFieldOffset;
+  private final BitSet mBits;
+  private final int mNumBuckets;
+
+  /**
+   * Create a cuckoo table which accesses one field of the interleaved slots in given bit set.
+   *
+   * @param bitSet the bit set shared by all fields of the slots
+   * @param numBuckets the number of buckets this table has
+   * @param tagsPerBucket the number of slots each bucket has
+   * @param bitsPerSlot the number of bits all fields of a slot have
+   * @param fieldOffset the offset of this field in a slot
+   * @param bitsPerTag the number of bits this field has
+   */
+  public InterleavedCuckooTable(BitSet bitSet, int numBuckets, int tagsPerBucket, int bitsPerSlot,
+      int fieldOffset, int bitsPerTag) {
+    Preconditions.checkArgument(fieldOffset >= 0 && fieldOffset + bitsPerTag <= bitsPerSlot);
+    Preconditions.checkArgument(bitSet.size() >= numBuckets * tagsPerBucket * bitsPerSlot);
+    mBits = bitSet;
+    mNumBuckets = numBuckets;
+    mTagsPerBucket = tagsPerBucket;
+    mBitsPerSlot = bitsPerSlot;
+    mFieldOffset = fieldOffset;
+    mBitsPerTag = bitsPerTag;
+  }
+
+  @Override
+  public int readTag(int bucketIndex, int slotIndex) {
+    return (int) mBits.get(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public void writeTag(int bucketIndex, int slotIndex, int tag) {
+    mBits.set(getTagOffset(bucketIndex, slotIndex), mBitsPerTag, tag);
+  }
+
+  @Override
+  public void clear(int bucketIndex, int slotIndex) {
+    mBits.clear(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public void set(int bucketIndex, int slotIndex) {
+    mBits.set(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public long findTagPosition(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public long findTagPosition(int bucketIndex1, int bucketIndex2, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex1, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex1, slotIndex, CuckooStatus.OK);
+      } else if (readTag(bucketIndex2, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex2, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public long deleteTagPosition(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == tag) {
+        clear(bucketIndex, slotIndex);
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public int insertOrKickTag(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == 0) {
+        writeTag(bucketIndex, slotIndex, tag);
+        return 0;
+      }
+    }
+    int r = ThreadLocalRandom.current().nextInt(mTagsPerBucket);
+    int oldTag = readTag(bucketIndex, r);
+    writeTag(bucketIndex, r, tag);
+    return oldTag;
+  }
+
+  @Override
+  public int getNumTagsPerBuckets() {
+    return mTagsPerBucket;
+  }
+
+  @Override
+  public int getNumBuckets() {
+    return mNumBuckets;
+  }
+
+  @Override
+  public int getBitsPerTag() {
+    return mBitsPerTag;
+  }
+
+  @Override
+  public int getSizeInBytes() {
+    return (mNumBuckets * mTagsPerBucket * mBitsPerTag) >> 3;
+  }
+
+  @Override
+  public int getSizeInTags() {
+    return mNumBuckets * mTagsPerBucket;
+  }
+
+  /**
+   * @param bucketIndex the bucket index
+   * @param posInBucket the slot
+   * @return the start index of this field in bit set for given position
+   */
+  private int getTagOffset(int bucketIndex, int posInBucket) {
+    return (bucketIndex * mTagsPerBucket + posInBucket) * mBitsPerSlot + mFieldOffset;
+  }
+}
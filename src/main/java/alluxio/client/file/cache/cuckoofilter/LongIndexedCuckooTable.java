@@ -0,0 +1,208 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.cuckoofilter;
+
+import alluxio.collections.LongBitSet;
+import alluxio.util.BitsUtils;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A cuckoo table on a {@link LongBitSet}, whose bit offsets are {@code long} so that the table can
+ * be larger than {@link Integer#MAX_VALUE} bits.
+ *
+ * <p>
+ * Like {@link InterleavedCuckooTable}, this table can also access one field of interleaved slots
+ * by specifying the number of bits per slot and the offset of the field in a slot.
+ */
+public class LongIndexedCuckooTable implements CuckooTable {
+  private final int mTagsPerBucket;
+  private final int mBitsPerTag;
+  private final int mBitsPerSlot;
+  private final int mFieldOffset;
+  private final LongBitSet mBits;
+  private final int mNumBuckets;
+  // the highest bit of each tag packed in a word, or 0 if tags are not contiguous or may cross
+  // word boundaries
+  private final long mTagHighBits;
+
+  /**
+   * Create a cuckoo table on given bit set.
+   *
+   * @param bitSet the bit set will be used as the underlying storage
+   * @param numBuckets the number of buckets this table has
+   * @param tagsPerBucket the number of slots each bucket has
+   * @param bitsPerTag the number of bits each slot has
+   */
+  public LongIndexedCuckooTable(LongBitSet bitSet, int numBuckets, int tagsPerBucket,
+      int bitsPerTag) {
+    this(bitSet, numBuckets, tagsPerBucket, bitsPerTag, 0, bitsPerTag);
+  }
+
+  /**
+   * Create a cuckoo table which accesses one field of the interleaved slots in given bit set.
+   *
+   * @param bitSet the bit set shared by all fields of the slots
+   * @param numBuckets the number of buckets this table has
+   * @param tagsPerBucket the number of slots each bucket has
+   * @param bitsPerSlot the number of bits all fields of a slot have
+   * @param fieldOffset the offset of this field in a slot
+   * @param bitsPerTag the number of bits this field has
+   */
+  public LongIndexedCuckooTable(LongBitSet bitSet, int numBuckets, int tagsPerBucket,
+      int bitsPerSlot, int fieldOffset, int bitsPerTag) {
+    Preconditions.checkArgument(fieldOffset >= 0 && fieldOffset + bitsPerTag <= bitsPerSlot);
+    Preconditions
+        .checkArgument(bitSet.longSize() >= (long) numBuckets * tagsPerBucket * bitsPerSlot);
+    mBits = bitSet;
+    mNumBuckets = numBuckets;
+    mTagsPerBucket = tagsPerBucket;
+    mBitsPerSlot = bitsPerSlot;
+    mFieldOffset = fieldOffset;
+    mBitsPerTag = bitsPerTag;
+    mTagHighBits = (bitsPerSlot == bitsPerTag && Long.SIZE % bitsPerTag == 0)
+        ? BitsUtils.fieldHighBits(bitsPerTag) : 0L;
+  }
+
+  @Override
+  public int readTag(int bucketIndex, int slotIndex) {
+    return (int) mBits.get(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public void writeTag(int bucketIndex, int slotIndex, int tag) {
+    mBits.set(getTagOffset(bucketIndex, slotIndex), mBitsPerTag, tag);
+  }
+
+  @Override
+  public void clear(int bucketIndex, int slotIndex) {
+    mBits.clear(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public void set(int bucketIndex, int slotIndex) {
+    mBits.set(getTagOffset(bucketIndex, slotIndex), mBitsPerTag);
+  }
+
+  @Override
+  public int decrementTags(int fromBucket, int toBucket, SlotVisitor zeroVisitor) {
+    if (mTagHighBits == 0L) {
+      return CuckooTable.super.decrementTags(fromBucket, toBucket, zeroVisitor);
+    }
+    int count = 0;
+    long toIndex = getTagOffset(toBucket, 0);
+    // tags start at a tag boundary and chunks are multiples of tag size, so no tag is split
+    for (long offset = getTagOffset(fromBucket, 0); offset < toIndex; offset += Long.SIZE) {
+      int length = (int) Math.min(Long.SIZE, toIndex - offset);
+      long validBits = (length == Long.SIZE) ? -1L : (1L << length) - 1;
+      long word = mBits.get(offset, length);
+      long nonZeroTags = BitsUtils.nonZeroFields(word, mTagHighBits);
+      if (nonZeroTags != 0L) {
+        mBits.set(offset, length,
+            BitsUtils.decrementNonZeroFields(word, nonZeroTags, mBitsPerTag));
+      }
+      long zeroTags = ~nonZeroTags & mTagHighBits & validBits;
+      while (zeroTags != 0L) {
+        long slot = (offset + Long.numberOfTrailingZeros(zeroTags)) / mBitsPerTag;
+        zeroTags &= zeroTags - 1;
+        if (zeroVisitor.visit((int) (slot / mTagsPerBucket), (int) (slot % mTagsPerBucket))) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long findTagPosition(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public long findTagPosition(int bucketIndex1, int bucketIndex2, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex1, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex1, slotIndex, CuckooStatus.OK);
+      } else if (readTag(bucketIndex2, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex2, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public long deleteTagPosition(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == tag) {
+        clear(bucketIndex, slotIndex);
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
+
+  @Override
+  public int insertOrKickTag(int bucketIndex, int tag) {
+    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+      if (readTag(bucketIndex, slotIndex) == 0) {
+        writeTag(bucketIndex, slotIndex, tag);
+        return 0;
+      }
+    }
+    int r = ThreadLocalRandom.current().nextInt(mTagsPerBucket);
+    int oldTag = readTag(bucketIndex, r);
+    writeTag(bucketIndex, r, tag);
+    return oldTag;
+  }
+
+  @Override
+  public int getNumTagsPerBuckets() {
+    return mTagsPerBucket;
+  }
+
+  @Override
+  public int getNumBuckets() {
+    return mNumBuckets;
+  }
+
+  @Override
+  public int getBitsPerTag() {
+    return mBitsPerTag;
+  }
+
+  @Override
+  public int getSizeInBytes() {
+    long sizeInBits = (long) mNumBuckets * mTagsPerBucket * mBitsPerTag;
+    return (int) Math.min(Integer.MAX_VALUE, sizeInBits >> 3);
+  }
+
+  @Override
+  public int getSizeInTags() {
+    return (int) Math.min(Integer.MAX_VALUE, (long) mNumBuckets * mTagsPerBucket);
+  }
+
+  /**
+   * @param bucketIndex the bucket index
+   * @param posInBucket the slot
+   * @return the start index of this field in bit set for given position
+   */
+  private long getTagOffset(int bucketIndex, int posInBucket) {
+    return ((long) bucketIndex * mTagsPerBucket + posInBucket) * mBitsPerSlot + mFieldOffset;
+  }
+}
@@ -13,6 +13,13 @@ package alluxio.client.file.cache.cuckoofilter;
 
 import alluxio.client.quota.CacheScope;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -23,6 +30,7 @@ public class ScopeEncoder {
   private final int mScopeMask;
   private final ConcurrentHashMap<CacheScope, Integer> mScopeToId;
   private final ConcurrentHashMap<Integer, CacheScope> mIdToScope;
+  private final File mJournal;
   private int mCount; // the next scope id
 
   /**
@@ -31,11 +39,27 @@ public class ScopeEncoder {
    * @param bitsPerScope the number of bits the scope has
    */
   public ScopeEncoder(int bitsPerScope) {
+    this(bitsPerScope, null);
+  }
+
+  /**
+   * Create a scope encoder whose encoded scopes are appended to a journal file. If the journal
+   * already exists, the scopes in it are loaded with their original ids, so that scopes stored in
+   * a persisted table can be decoded after a restart.
+   *
+   * @param bitsPerScope the number of bits the scope has
+   * @param journal the journal file, or null if scopes are not persisted
+   */
+  public ScopeEncoder(int bitsPerScope, File journal) {
     mMaxNumScopes = (1 << bitsPerScope);
     mScopeMask = mMaxNumScopes - 1;
     mCount = 0;
     mScopeToId = new ConcurrentHashMap<>();
     mIdToScope = new ConcurrentHashMap<>();
+    mJournal = journal;
+    if (journal != null && journal.exists()) {
+      loadJournal(journal);
+    }
   }
 
   /**
@@ -62,6 +86,9 @@ public class ScopeEncoder {
           if (oldId != null) {
             return oldId & mScopeMask;
           }
+          if (mJournal != null) {
+            appendJournal(id, scopeInfo);
+          }
         }
       }
     }
@@ -77,4 +104,31 @@ public class ScopeEncoder {
   public CacheScope decode(int id) {
     return mIdToScope.get(id);
   }
+
+  private void loadJournal(File journal) {
+    try (BufferedReader reader = new BufferedReader(new FileReader(journal))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length != 2) {
+          continue;
+        }
+        int id = Integer.parseInt(fields[0]);
+        CacheScope scopeInfo = CacheScope.create(fields[1]);
+        mIdToScope.put(id, scopeInfo);
+        mScopeToId.put(scopeInfo, id);
+        mCount = Math.max(mCount, id + 1);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to load scope journal " + journal, e);
+    }
+  }
+
+  private void appendJournal(int id, CacheScope scopeInfo) {
+    try (Writer writer = new FileWriter(mJournal, true)) {
+      writer.write(id + "\t" + scopeInfo.getId() + "\n");
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append scope journal " + mJournal, e);
+    }
+  }
 }
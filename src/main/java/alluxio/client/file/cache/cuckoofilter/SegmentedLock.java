@@ -11,6 +11,7 @@
 
 package alluxio.client.file.cache.cuckoofilter;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.StampedLock;
 
 /**
@@ -109,6 +110,31 @@ public class SegmentedLock {
     }
   }
 
+  /**
+   * Returns a stamp for optimistically reading the bucket without writing to the lock, or zero if
+   * the segment of the bucket is exclusively locked.
+   *
+   * @param b the bucket to be read
+   * @return a stamp to be validated by {@link #validate(int, long)}
+   */
+  public long tryOptimisticRead(int b) {
+    int i = getSegmentIndex(b);
+    return mLocks[i].tryOptimisticRead();
+  }
+
+  /**
+   * Checks whether the segment of the bucket has not been exclusively locked since the stamp was
+   * issued, which means the values read optimistically are consistent.
+   *
+   * @param b the bucket which was read
+   * @param stamp the stamp returned by {@link #tryOptimisticRead(int)}
+   * @return true if the optimistic read is valid; false otherwise
+   */
+  public boolean validate(int b, long stamp) {
+    int i = getSegmentIndex(b);
+    return mLocks[i].validate(stamp);
+  }
+
   /**
    * Exclusively acquires the lock of the bucket, blocking if necessary until available.
    *
@@ -241,6 +267,24 @@ public class SegmentedLock {
     }
   }
 
+  /**
+   * Non-exclusively acquires the lock of ith segment, blocking if necessary until available.
+   *
+   * @param i the segment to be locked
+   */
+  public void readLockSegment(int i) {
+    mLocks[i].readLock();
+  }
+
+  /**
+   * Releases the read lock of ith segment if it is held.
+   *
+   * @param i the segment to be unlocked
+   */
+  public void unlockReadSegment(int i) {
+    mLocks[i].tryUnlockRead();
+  }
+
   /**
    * Exclusively acquires the lock of ith segment, blocking if necessary until available.
    *
@@ -250,6 +294,22 @@ public class SegmentedLock {
     mLocks[i].writeLock();
   }
 
+  /**
+   * Exclusively acquires the lock of ith segment if it becomes available within the given time.
+   *
+   * @param i the segment to be locked
+   * @param timeoutNanos the maximum time to wait in nanoseconds
+   * @return true if the lock is acquired; false if timed out or interrupted
+   */
+  public boolean tryWriteLockSegment(int i, long timeoutNanos) {
+    try {
+      return mLocks[i].tryWriteLock(timeoutNanos, TimeUnit.NANOSECONDS) != 0L;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
   /**
    * Releases the write lock of ith segment if it is held.
    *
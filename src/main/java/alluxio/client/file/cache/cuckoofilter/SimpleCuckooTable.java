@@ -11,7 +11,9 @@
 
 package alluxio.client.file.cache.cuckoofilter;
 
+import alluxio.collections.AtomicBitSet;
 import alluxio.collections.BitSet;
+import alluxio.util.BitsUtils;
 
 import com.google.common.base.Preconditions;
 
@@ -24,7 +26,13 @@ public class SimpleCuckooTable implements CuckooTable {
   private final int mTagsPerBucket;
   private final int mBitsPerTag;
   private final BitSet mBits;
+  // the same bit set as mBits if it supports atomic updates of a tag; null otherwise
+  private final AtomicBitSet mAtomicBits;
   private final int mNumBuckets;
+  // the highest bit of each tag packed in a word, or 0 if tags may cross word boundaries
+  private final long mTagHighBits;
+  // the highest bit of each tag in a bucket, or 0 if a bucket cannot be probed as one word
+  private final long mBucketHighBits;
 
   /**
    * Create a single cuckoo table on given bit set.
@@ -37,9 +45,19 @@ public class SimpleCuckooTable implements CuckooTable {
   public SimpleCuckooTable(BitSet bitSet, int numBuckets, int tagsPerBucket, int bitsPerTag) {
     Preconditions.checkArgument(bitSet.size() == numBuckets * tagsPerBucket * bitsPerTag);
     mBits = bitSet;
+    // a tag can be updated atomically only if it never crosses a word boundary
+    mAtomicBits = (bitSet instanceof AtomicBitSet && Long.SIZE % bitsPerTag == 0)
+        ? (AtomicBitSet) bitSet : null;
     mNumBuckets = numBuckets;
     mTagsPerBucket = tagsPerBucket;
     mBitsPerTag = bitsPerTag;
+    mTagHighBits = (Long.SIZE % bitsPerTag == 0) ? BitsUtils.fieldHighBits(bitsPerTag) : 0L;
+    int bitsPerBucket = tagsPerBucket * bitsPerTag;
+    if (bitsPerBucket < Long.SIZE) {
+      mBucketHighBits = mTagHighBits & ((1L << bitsPerBucket) - 1);
+    } else {
+      mBucketHighBits = (bitsPerBucket == Long.SIZE) ? mTagHighBits : 0L;
+    }
   }
 
   @Override
@@ -63,45 +81,120 @@ public class SimpleCuckooTable implements CuckooTable {
   }
 
   @Override
-  public TagPosition findTag(int bucketIndex, int tag) {
+  public boolean compareAndSwapTag(int bucketIndex, int slotIndex, int expect, int update) {
+    if (mAtomicBits == null) {
+      throw new UnsupportedOperationException("the underlying bit set is not atomic");
+    }
+    return mAtomicBits.compareAndSet(getTagOffset(bucketIndex, slotIndex), mBitsPerTag, expect,
+        update);
+  }
+
+  @Override
+  public boolean supportsCompareAndSwap() {
+    return mAtomicBits != null;
+  }
+
+  @Override
+  public int decrementTags(int fromBucket, int toBucket, SlotVisitor zeroVisitor) {
+    if (mTagHighBits == 0L) {
+      return CuckooTable.super.decrementTags(fromBucket, toBucket, zeroVisitor);
+    }
+    int count = 0;
+    int toIndex = getTagOffset(toBucket, 0);
+    // tags start at a tag boundary and chunks are multiples of tag size, so no tag is split
+    for (int offset = getTagOffset(fromBucket, 0); offset < toIndex; offset += Long.SIZE) {
+      int length = Math.min(Long.SIZE, toIndex - offset);
+      long validBits = (length == Long.SIZE) ? -1L : (1L << length) - 1;
+      long word = mBits.get(offset, length);
+      long nonZeroTags = BitsUtils.nonZeroFields(word, mTagHighBits);
+      if (nonZeroTags != 0L) {
+        mBits.set(offset, length,
+            BitsUtils.decrementNonZeroFields(word, nonZeroTags, mBitsPerTag));
+      }
+      long zeroTags = ~nonZeroTags & mTagHighBits & validBits;
+      while (zeroTags != 0L) {
+        int slot = (offset + Long.numberOfTrailingZeros(zeroTags)) / mBitsPerTag;
+        zeroTags &= zeroTags - 1;
+        if (zeroVisitor.visit(slot / mTagsPerBucket, slot % mTagsPerBucket)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long findTagPosition(int bucketIndex, int tag) {
+    if (mBucketHighBits != 0L) {
+      int slotIndex = findSlot(bucketIndex, tag);
+      return (slotIndex < mTagsPerBucket)
+          ? TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK) : TagPosition.NOT_FOUND;
+    }
     for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
       if (readTag(bucketIndex, slotIndex) == tag) {
-        return new TagPosition(bucketIndex, slotIndex, CuckooStatus.OK);
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
       }
     }
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
-  public TagPosition findTag(int bucketIndex1, int bucketIndex2, int tag) {
+  public long findTagPosition(int bucketIndex1, int bucketIndex2, int tag) {
+    if (mBucketHighBits != 0L) {
+      int slotIndex1 = findSlot(bucketIndex1, tag);
+      int slotIndex2 = findSlot(bucketIndex2, tag);
+      // keep the probe order of the per-slot loop: slot by slot, the first bucket first
+      if (slotIndex1 <= slotIndex2 && slotIndex1 < mTagsPerBucket) {
+        return TagPosition.pack(bucketIndex1, slotIndex1, CuckooStatus.OK);
+      } else if (slotIndex2 < mTagsPerBucket) {
+        return TagPosition.pack(bucketIndex2, slotIndex2, CuckooStatus.OK);
+      }
+      return TagPosition.NOT_FOUND;
+    }
     for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
       if (readTag(bucketIndex1, slotIndex) == tag) {
-        return new TagPosition(bucketIndex1, slotIndex, CuckooStatus.OK);
+        return TagPosition.pack(bucketIndex1, slotIndex, CuckooStatus.OK);
       } else if (readTag(bucketIndex2, slotIndex) == tag) {
-        return new TagPosition(bucketIndex2, slotIndex, CuckooStatus.OK);
+        return TagPosition.pack(bucketIndex2, slotIndex, CuckooStatus.OK);
       }
     }
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
-  public TagPosition deleteTag(int bucketIndex, int tag) {
+  public long deleteTagPosition(int bucketIndex, int tag) {
+    if (mBucketHighBits != 0L) {
+      int slotIndex = findSlot(bucketIndex, tag);
+      if (slotIndex < mTagsPerBucket) {
+        clear(bucketIndex, slotIndex);
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
+      }
+      return TagPosition.NOT_FOUND;
+    }
     for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
       if (readTag(bucketIndex, slotIndex) == tag) {
         clear(bucketIndex, slotIndex);
-        return new TagPosition(bucketIndex, slotIndex, CuckooStatus.OK);
+        return TagPosition.pack(bucketIndex, slotIndex, CuckooStatus.OK);
       }
     }
-    return new TagPosition(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+    return TagPosition.NOT_FOUND;
   }
 
   @Override
   public int insertOrKickTag(int bucketIndex, int tag) {
-    for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
-      if (readTag(bucketIndex, slotIndex) == 0) {
+    if (mBucketHighBits != 0L) {
+      int slotIndex = findSlot(bucketIndex, 0);
+      if (slotIndex < mTagsPerBucket) {
         writeTag(bucketIndex, slotIndex, tag);
         return 0;
       }
+    } else {
+      for (int slotIndex = 0; slotIndex < mTagsPerBucket; slotIndex++) {
+        if (readTag(bucketIndex, slotIndex) == 0) {
+          writeTag(bucketIndex, slotIndex, tag);
+          return 0;
+        }
+      }
     }
     int r = ThreadLocalRandom.current().nextInt(mTagsPerBucket);
     int oldTag = readTag(bucketIndex, r);
@@ -134,6 +227,24 @@ public class SimpleCuckooTable implements CuckooTable {
     return this.mNumBuckets * mTagsPerBucket;
   }
 
+  /**
+   * Compare all slots of a bucket with the tag at once, which requires a bucket to fit in a word.
+   *
+   * @param bucketIndex the bucket index
+   * @param tag the tag
+   * @return the first slot storing the tag, or the number of slots per bucket if not found
+   */
+  private int findSlot(int bucketIndex, int tag) {
+    if ((tag >>> mBitsPerTag) != 0) {
+      // a tag wider than the slot never matches, and would disturb the broadcast otherwise
+      return mTagsPerBucket;
+    }
+    long word = mBits.get(getTagOffset(bucketIndex, 0), mTagsPerBucket * mBitsPerTag);
+    long matches = BitsUtils.equalFields(word, tag, mBucketHighBits, mBitsPerTag);
+    // numberOfTrailingZeros returns 64 if no slot matches
+    return Long.numberOfTrailingZeros(matches) / mBitsPerTag;
+  }
+
   /**
    * @param bucketIndex the bucket index
    * @param posInBucket the slot
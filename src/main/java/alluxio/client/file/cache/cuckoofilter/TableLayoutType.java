@@ -0,0 +1,27 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.cuckoofilter;
+
+/**
+ * This class represents how the fields of a clock cuckoo filter slot are laid out in memory.
+ */
+public enum TableLayoutType {
+  /**
+   * Tag, clock, size and scope fields are stored in four separate tables.
+   */
+  SPLIT,
+  /**
+   * All fields of a slot are stored contiguously in one table, so that a bucket probe touches as
+   * few cache lines as possible.
+   */
+  INTERLEAVED
+}
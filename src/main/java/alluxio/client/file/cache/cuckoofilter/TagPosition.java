@@ -13,8 +13,28 @@ package alluxio.client.file.cache.cuckoofilter;
 
 /**
  * This class represents a position of a tag.
+ *
+ * <p>
+ * On hot paths a position is passed around as a packed {@code long} instead of an object to avoid
+ * allocation: the high 32 bits hold the bucket index, the next 16 bits hold the slot index and the
+ * low 16 bits hold the code of {@link CuckooStatus}. Use the static methods of this class to pack
+ * and unpack such values.
  */
 public class TagPosition {
+  private static final int SLOT_SHIFT = 16;
+  private static final int BUCKET_SHIFT = 32;
+  private static final long STATUS_MASK = 0xffffL;
+
+  /**
+   * The packed position indicating that tag is not found.
+   */
+  public static final long NOT_FOUND = pack(-1, -1, CuckooStatus.FAILURE_KEY_NOT_FOUND);
+
+  /**
+   * The packed position indicating a general failure.
+   */
+  public static final long FAILURE = pack(-1, -1, CuckooStatus.FAILURE);
+
   public int mBucketIndex;
   public int mSlotIndex;
   public CuckooStatus mStatus;
@@ -115,6 +135,75 @@ public class TagPosition {
     mSlotIndex = slot;
   }
 
+  /**
+   * @return this position packed into a long value
+   */
+  public long pack() {
+    return pack(mBucketIndex, mSlotIndex, mStatus);
+  }
+
+  /**
+   * Pack a position into a long value.
+   *
+   * @param bucketIndex the bucket index
+   * @param slotIndex the slot
+   * @param status the status
+   * @return the packed position
+   */
+  public static long pack(int bucketIndex, int slotIndex, CuckooStatus status) {
+    return ((long) bucketIndex << BUCKET_SHIFT) | ((slotIndex & 0xffffL) << SLOT_SHIFT)
+        | status.getCode();
+  }
+
+  /**
+   * @param pos the packed position
+   * @return the bucket index of the packed position
+   */
+  public static int bucketIndexOf(long pos) {
+    return (int) (pos >> BUCKET_SHIFT);
+  }
+
+  /**
+   * @param pos the packed position
+   * @return the slot index of the packed position
+   */
+  public static int slotIndexOf(long pos) {
+    return (short) (pos >>> SLOT_SHIFT);
+  }
+
+  /**
+   * @param pos the packed position
+   * @return the status of the packed position
+   */
+  public static CuckooStatus statusOf(long pos) {
+    return CuckooStatus.fromCode((int) (pos & STATUS_MASK));
+  }
+
+  /**
+   * @param pos the packed position
+   * @return true if the status of the packed position is {@link CuckooStatus#OK}
+   */
+  public static boolean isOk(long pos) {
+    return (pos & STATUS_MASK) == CuckooStatus.OK.getCode();
+  }
+
+  /**
+   * @param pos the packed position
+   * @param status the new status
+   * @return the packed position with its status replaced
+   */
+  public static long withStatus(long pos, CuckooStatus status) {
+    return (pos & ~STATUS_MASK) | status.getCode();
+  }
+
+  /**
+   * @param pos the packed position
+   * @return a tag position object unpacked from the packed position
+   */
+  public static TagPosition unpack(long pos) {
+    return new TagPosition(bucketIndexOf(pos), slotIndexOf(pos), statusOf(pos));
+  }
+
   @Override
   public String toString() {
     return "TagPosition{" + "bucketIndex=" + mBucketIndex + ", tagIndex=" + mSlotIndex + '}';
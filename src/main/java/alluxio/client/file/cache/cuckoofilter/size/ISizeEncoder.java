@@ -24,5 +24,16 @@ public interface ISizeEncoder {
 
   public int encode(int size);
 
+  /**
+   * Estimates a size which is encoded to the given group. This is used to rebuild statistics from
+   * a persisted table, where only encoded sizes are available.
+   *
+   * @param group the encoded size
+   * @return a size which is encoded to the group
+   */
+  default int decode(int group) {
+    return group;
+  }
+
   String dumpInfo();
 }
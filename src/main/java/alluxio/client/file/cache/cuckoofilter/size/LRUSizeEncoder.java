@@ -82,6 +82,11 @@ public class LRUSizeEncoder implements ISizeEncoder {
     return getGroup(size);
   }
 
+  @Override
+  public int decode(int group) {
+    return group * sizePerGroup + (sizePerGroup >> 1);
+  }
+
   static class LRUGroup {
     private final int totalBits;
     private final int numBucketBits;
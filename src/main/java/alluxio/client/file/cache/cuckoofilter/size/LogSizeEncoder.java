@@ -80,6 +80,16 @@ public class LogSizeEncoder implements ISizeEncoder {
     return getSizeGroup(size);
   }
 
+  @Override
+  public int decode(int group) {
+    int lower = (group > 0) ? bucketBounds[group - 1] : 0;
+    if (group == numBuckets - 1) {
+      // the last bucket is unbounded
+      return lower + 1;
+    }
+    return lower + (bucketBounds[group] - lower) / 2;
+  }
+
   @Override
   public String dumpInfo() {
     StringBuilder stringBuilder = new StringBuilder();
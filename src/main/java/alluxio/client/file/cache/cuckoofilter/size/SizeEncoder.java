@@ -70,6 +70,11 @@ public class SizeEncoder implements ISizeEncoder {
     return getSizeGroup(size);
   }
 
+  @Override
+  public int decode(int group) {
+    return (group << bitsPerBucket) + ((1 << bitsPerBucket) >> 1);
+  }
+
   @Override
   public String dumpInfo() {
     StringBuilder stringBuilder = new StringBuilder();
@@ -57,6 +57,11 @@ public class TruncateSizeEncoder implements ISizeEncoder {
     return (Math.min(size, sizeMask)) >> truncateSizeBits;
   }
 
+  @Override
+  public int decode(int group) {
+    return group << truncateSizeBits;
+  }
+
   @Override
   public String dumpInfo() {
     return "";
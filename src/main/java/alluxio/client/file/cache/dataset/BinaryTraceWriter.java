@@ -0,0 +1,181 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.dataset;
+
+import alluxio.client.quota.CacheScope;
+import alluxio.util.MurmurHash3;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a trace in a binary columnar format, which is read without parsing by
+ * {@link alluxio.client.file.cache.dataset.generator.BinaryTraceEntryGenerator}. All values are
+ * big-endian:
+ *
+ * <pre>
+ * header:  int magic, int version, long numRecords, long firstTimestamp,
+ *          int numScopes, numScopes * modified UTF-8 scope id, zero padding to 8 bytes
+ * columns: numRecords * long key, the 64-bit murmur3 hash of the item
+ *          numRecords * int timestamp delta, from the previous record or firstTimestamp
+ *          numRecords * int scope, the index of the scope in the header
+ *          numRecords * int size
+ * </pre>
+ *
+ * Each column is appended to its own temporary file while writing, and the columns are
+ * concatenated after the header on {@link #close()}, so that traces of any length are written in
+ * one pass without buffering records in memory.
+ */
+public class BinaryTraceWriter implements Closeable {
+  /** The magic number at the beginning of a binary trace, "ATRC". */
+  public static final int MAGIC = 0x41545243;
+  /** The version of the format. */
+  public static final int VERSION = 1;
+
+  private static final String[] COLUMNS = {"key", "timestamp", "scope", "size"};
+
+  private final File mFile;
+  private final File[] mColumnFiles = new File[COLUMNS.length];
+  private final DataOutputStream[] mColumns = new DataOutputStream[COLUMNS.length];
+  private final Map<CacheScope, Integer> mScopeToIndex = new HashMap<>();
+  private final List<String> mScopeIds = new ArrayList<>();
+  private long mNumRecords = 0;
+  private long mFirstTimestamp = 0;
+  private long mLastTimestamp = 0;
+
+  /**
+   * @param file the file of the trace, which is overwritten
+   */
+  public BinaryTraceWriter(File file) throws IOException {
+    mFile = file;
+    try {
+      for (int i = 0; i < COLUMNS.length; i++) {
+        mColumnFiles[i] = File.createTempFile("trace-" + COLUMNS[i], ".bin");
+        mColumnFiles[i].deleteOnExit();
+        mColumns[i] =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mColumnFiles[i])));
+      }
+    } catch (IOException e) {
+      closeColumns();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends an entry of a dataset to the trace.
+   *
+   * @param entry the entry
+   */
+  public void write(DatasetEntry<String> entry) throws IOException {
+    write(MurmurHash3.hash64(entry.getItem(), 0L, 0), entry.getTimestamp(), entry.getScopeInfo(),
+        entry.getSize());
+  }
+
+  /**
+   * Appends a record to the trace.
+   *
+   * @param key the 64-bit key of the item
+   * @param timestamp the timestamp
+   * @param scope the scope of the item
+   * @param size the size of the item
+   */
+  public void write(long key, long timestamp, CacheScope scope, int size) throws IOException {
+    if (mNumRecords == 0) {
+      mFirstTimestamp = timestamp;
+      mLastTimestamp = timestamp;
+    }
+    long delta = timestamp - mLastTimestamp;
+    Preconditions.checkArgument(delta == (int) delta,
+        "timestamp delta out of int range: %s -> %s", mLastTimestamp, timestamp);
+    Integer scopeIndex = mScopeToIndex.get(scope);
+    if (scopeIndex == null) {
+      scopeIndex = mScopeIds.size();
+      mScopeToIndex.put(scope, scopeIndex);
+      mScopeIds.add(scope.getId());
+    }
+    mColumns[0].writeLong(key);
+    mColumns[1].writeInt((int) delta);
+    mColumns[2].writeInt(scopeIndex);
+    mColumns[3].writeInt(size);
+    mLastTimestamp = timestamp;
+    mNumRecords++;
+  }
+
+  /**
+   * @return the number of records written
+   */
+  public long getNumRecords() {
+    return mNumRecords;
+  }
+
+  /**
+   * Writes the header and the columns to the file of the trace.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      closeColumns();
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(mNumRecords);
+        out.writeLong(mFirstTimestamp);
+        out.writeInt(mScopeIds.size());
+        for (String scopeId : mScopeIds) {
+          out.writeUTF(scopeId);
+        }
+        // align the columns, so that no value crosses a mapped segment of the reader
+        while (out.size() % Long.BYTES != 0) {
+          out.writeByte(0);
+        }
+        for (File columnFile : mColumnFiles) {
+          Files.copy(columnFile.toPath(), out);
+        }
+      }
+    } finally {
+      for (File columnFile : mColumnFiles) {
+        if (columnFile != null) {
+          columnFile.delete();
+        }
+      }
+    }
+  }
+
+  private void closeColumns() throws IOException {
+    IOException error = null;
+    for (DataOutputStream column : mColumns) {
+      if (column == null) {
+        continue;
+      }
+      try {
+        column.close();
+      } catch (IOException e) {
+        error = e;
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
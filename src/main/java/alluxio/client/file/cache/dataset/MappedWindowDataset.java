@@ -0,0 +1,229 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.dataset;
+
+import alluxio.client.file.cache.ScopeRegistry;
+import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+import alluxio.client.quota.CacheScope;
+import alluxio.collections.LongHashIndex;
+import alluxio.collections.MappedLongQueue;
+import alluxio.util.MurmurHash3;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A dataset which records the exact WSS of the most recent entries like {@link GeneralDataset},
+ * but scales to windows of billions of entries. The window is a queue of 64-bit item keys in a
+ * memory-mapped file, whose cold middle is spilled to disk by the operating system. The items in
+ * the window are counted in entries of primitive arrays found by a {@link LongHashIndex}, which
+ * costs 28 to 56 bytes per distinct item and no object at all.
+ *
+ * <p>
+ * Items are identified by their keys: a string is hashed by 64-bit murmur3 and a number is mixed
+ * bijectively, so the WSS is exact up to 64-bit hash collisions of strings. Any other item is keyed
+ * by its 32-bit {@link Object#hashCode()}. As in {@link GeneralDataset}, the size and scope of an
+ * item are those of its first entry in the window, and the sizes of its later entries are forced
+ * to it. Sizes and counts larger than {@link Integer#MAX_VALUE} saturate.
+ */
+public class MappedWindowDataset<T> implements Dataset<T> {
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final int NIL = LongHashIndex.NIL;
+
+  private final Lock mLock = new ReentrantLock();
+  private final EntryGenerator<T> mGenerator;
+  private final long mWindowSize;
+  // one more entry than the window, which is added before the stale one is dropped
+  private final MappedLongQueue mWindow;
+
+  // entries of items in the window with the number of their entries in the window
+  private long[] mKeys = new long[INITIAL_CAPACITY];
+  private int[] mCounts = new int[INITIAL_CAPACITY];
+  private int[] mSizes = new int[INITIAL_CAPACITY];
+  private int[] mScopeIds = new int[INITIAL_CAPACITY];
+  // entries in [0, mNumAllocated) have been used, the count of a released one is the next one
+  private int mNumAllocated = 0;
+  private int mFree = NIL;
+  private final LongHashIndex mIndex = new LongHashIndex(entry -> mKeys[entry]);
+
+  // indexed by scope id
+  private long[] mScopeNumbers = new long[1];
+  private long[] mScopeSizes = new long[1];
+  private long mRealNumber;
+  private long mRealSize;
+
+  /**
+   * Creates a dataset whose window is backed by a temporary file, which is deleted on exit.
+   *
+   * @param generator the generator of entries
+   * @param windowSize the number of most recent entries in the window
+   */
+  public MappedWindowDataset(EntryGenerator<T> generator, long windowSize) {
+    this(generator, windowSize, new MappedLongQueue(windowSize + 1));
+  }
+
+  /**
+   * Creates a dataset whose window is backed by given file.
+   *
+   * @param generator the generator of entries
+   * @param windowSize the number of most recent entries in the window
+   * @param file the backing file of the window
+   * @param segmentShift the log2 of the number of entries per mapped segment of the file
+   */
+  public MappedWindowDataset(EntryGenerator<T> generator, long windowSize, File file,
+      int segmentShift) {
+    this(generator, windowSize, new MappedLongQueue(file, windowSize + 1, segmentShift));
+  }
+
+  private MappedWindowDataset(EntryGenerator<T> generator, long windowSize,
+      MappedLongQueue window) {
+    mGenerator = generator;
+    mWindowSize = windowSize;
+    mWindow = window;
+  }
+
+  @Override
+  public DatasetEntry<T> next() {
+    DatasetEntry<T> entry = mGenerator.next();
+    Preconditions.checkNotNull(entry, "entry");
+    long key = keyOf(entry.getItem());
+    mLock.lock();
+    try {
+      mWindow.offer(key);
+      int item = mIndex.find(key);
+      if (item != NIL) {
+        mCounts[item]++;
+        // workaround: force the same item should have the same size
+        entry.setSize(mSizes[item]);
+      } else {
+        int scopeId = ScopeRegistry.idOf(entry.getScopeInfo());
+        ensureScope(scopeId);
+        item = allocate();
+        mKeys[item] = key;
+        mCounts[item] = 1;
+        mSizes[item] = entry.getSize();
+        mScopeIds[item] = scopeId;
+        mIndex.add(item);
+        mScopeNumbers[scopeId]++;
+        mScopeSizes[scopeId] += entry.getSize();
+        mRealNumber++;
+        mRealSize += entry.getSize();
+      }
+      // shrink window
+      if (mWindow.size() > mWindowSize) {
+        release(mWindow.poll());
+      }
+    } finally {
+      mLock.unlock();
+    }
+    return entry;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return mGenerator.hasNext();
+  }
+
+  @Override
+  public int getRealEntryNumber() {
+    return saturatedInt(mRealNumber);
+  }
+
+  @Override
+  public int getRealEntryNumber(CacheScope scope) {
+    int scopeId = ScopeRegistry.findId(scope);
+    return scopeId != ScopeRegistry.UNKNOWN_ID && scopeId < mScopeNumbers.length
+        ? saturatedInt(mScopeNumbers[scopeId]) : 0;
+  }
+
+  @Override
+  public int getRealEntrySize() {
+    return saturatedInt(mRealSize);
+  }
+
+  @Override
+  public int getRealEntrySize(CacheScope scope) {
+    int scopeId = ScopeRegistry.findId(scope);
+    return scopeId != ScopeRegistry.UNKNOWN_ID && scopeId < mScopeSizes.length
+        ? saturatedInt(mScopeSizes[scopeId]) : 0;
+  }
+
+  /**
+   * @param item the item
+   * @return the 64-bit key of the item
+   */
+  static long keyOf(Object item) {
+    if (item instanceof String) {
+      return MurmurHash3.hash64((String) item, 0L, 0);
+    }
+    if (item instanceof Long || item instanceof Integer) {
+      return MurmurHash3.fmix64(((Number) item).longValue());
+    }
+    return MurmurHash3.fmix64(item.hashCode());
+  }
+
+  /**
+   * Drops one entry of an item from the window, and the item itself if it was its last entry.
+   *
+   * @param key the key of the item
+   */
+  private void release(long key) {
+    int item = mIndex.find(key);
+    Preconditions.checkState(item != NIL, "item of the window is not counted");
+    if (--mCounts[item] > 0) {
+      return;
+    }
+    int scopeId = mScopeIds[item];
+    mScopeNumbers[scopeId]--;
+    mScopeSizes[scopeId] -= mSizes[item];
+    mRealNumber--;
+    mRealSize -= mSizes[item];
+    mIndex.remove(item);
+    mCounts[item] = mFree;
+    mFree = item;
+  }
+
+  /**
+   * @return an unused entry
+   */
+  private int allocate() {
+    if (mFree != NIL) {
+      int item = mFree;
+      mFree = mCounts[item];
+      return item;
+    }
+    if (mNumAllocated == mKeys.length) {
+      int newCapacity = mKeys.length * 2;
+      mKeys = Arrays.copyOf(mKeys, newCapacity);
+      mCounts = Arrays.copyOf(mCounts, newCapacity);
+      mSizes = Arrays.copyOf(mSizes, newCapacity);
+      mScopeIds = Arrays.copyOf(mScopeIds, newCapacity);
+    }
+    return mNumAllocated++;
+  }
+
+  private void ensureScope(int scopeId) {
+    if (scopeId >= mScopeNumbers.length) {
+      int newLength = Math.max(scopeId + 1, mScopeNumbers.length * 2);
+      mScopeNumbers = Arrays.copyOf(mScopeNumbers, newLength);
+      mScopeSizes = Arrays.copyOf(mScopeSizes, newLength);
+    }
+  }
+
+  private static int saturatedInt(long value) {
+    return (int) Math.min(value, Integer.MAX_VALUE);
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.dataset.generator;
+
+import alluxio.client.file.cache.dataset.BinaryTraceWriter;
+import alluxio.client.file.cache.dataset.DatasetEntry;
+import alluxio.client.quota.CacheScope;
+import alluxio.collections.MappedSegments;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Generates the entries of a trace written by {@link BinaryTraceWriter}. The columns are read in
+ * place from a memory-mapped file, and the scopes are created once when the trace is opened.
+ *
+ * <p>
+ * Besides {@link #next()}, which creates an entry whose item is the hex string of the key of the
+ * record, the records can be read without any allocation by calling {@link #advance()} and the
+ * getters of the current record.
+ */
+public class BinaryTraceEntryGenerator implements EntryGenerator<String> {
+  /** The default log2 of the number of bytes per mapped segment, i.e. 1GB segments. */
+  public static final int DEFAULT_SEGMENT_SHIFT = MappedSegments.MAX_SEGMENT_SHIFT;
+
+  private final MappedSegments mSegments;
+  private final CacheScope[] mScopes;
+  private final long mNumRecords;
+  private final long mKeyOffset;
+  private final long mTimestampOffset;
+  private final long mScopeOffset;
+  private final long mSizeOffset;
+
+  // the index of the current record, -1 before the first one
+  private long mIndex = -1;
+  private long mTimestamp;
+  private long mKey;
+  private int mScope;
+  private int mSize;
+
+  /**
+   * @param path the path of the trace
+   */
+  public BinaryTraceEntryGenerator(String path) {
+    this(new File(path), DEFAULT_SEGMENT_SHIFT);
+  }
+
+  /**
+   * @param file the file of the trace
+   * @param segmentShift the log2 of the number of bytes per mapped segment
+   */
+  public BinaryTraceEntryGenerator(File file, int segmentShift) {
+    long headerBytes;
+    // counts the bytes taken from the buffer, which are the bytes of the header
+    try (CountingInputStream counter =
+        new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+         DataInputStream in = new DataInputStream(counter)) {
+      int magic = in.readInt();
+      int version = in.readInt();
+      if (magic != BinaryTraceWriter.MAGIC || version != BinaryTraceWriter.VERSION) {
+        throw new IllegalArgumentException(String.format(
+            "%s is not a binary trace of version %d", file, BinaryTraceWriter.VERSION));
+      }
+      mNumRecords = in.readLong();
+      mTimestamp = in.readLong();
+      mScopes = new CacheScope[in.readInt()];
+      for (int i = 0; i < mScopes.length; i++) {
+        mScopes[i] = CacheScope.create(in.readUTF());
+      }
+      headerBytes = counter.getCount();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read trace header " + file, e);
+    }
+    mKeyOffset = (headerBytes + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    mTimestampOffset = mKeyOffset + mNumRecords * Long.BYTES;
+    mScopeOffset = mTimestampOffset + mNumRecords * Integer.BYTES;
+    mSizeOffset = mScopeOffset + mNumRecords * Integer.BYTES;
+    long numBytes = mSizeOffset + mNumRecords * Integer.BYTES;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      Preconditions.checkArgument(raf.length() == numBytes,
+          "%s has %s bytes, expected %s", file, raf.length(), numBytes);
+      // the columns are written by DataOutputStream, which is big-endian
+      mSegments = new MappedSegments(channel, FileChannel.MapMode.READ_ONLY, numBytes,
+          segmentShift, ByteOrder.BIG_ENDIAN);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to map trace file " + file, e);
+    }
+  }
+
+  /**
+   * Moves to the next record.
+   *
+   * @return false if there is no more record
+   */
+  public boolean advance() {
+    if (mIndex + 1 >= mNumRecords) {
+      return false;
+    }
+    mIndex++;
+    mKey = mSegments.getLong(mKeyOffset + mIndex * Long.BYTES);
+    mTimestamp += mSegments.getInt(mTimestampOffset + mIndex * Integer.BYTES);
+    mScope = mSegments.getInt(mScopeOffset + mIndex * Integer.BYTES);
+    mSize = mSegments.getInt(mSizeOffset + mIndex * Integer.BYTES);
+    return true;
+  }
+
+  /**
+   * @return the 64-bit key of the item of the current record
+   */
+  public long getKey() {
+    return mKey;
+  }
+
+  /**
+   * @return the timestamp of the current record
+   */
+  public long getTimestamp() {
+    return mTimestamp;
+  }
+
+  /**
+   * @return the index of the scope of the current record, in [0, {@link #getNumScopes()})
+   */
+  public int getScopeIndex() {
+    return mScope;
+  }
+
+  /**
+   * @return the scope of the current record
+   */
+  public CacheScope getScope() {
+    return mScopes[mScope];
+  }
+
+  /**
+   * @return the size of the item of the current record
+   */
+  public int getSize() {
+    return mSize;
+  }
+
+  /**
+   * @return the number of scopes of the trace
+   */
+  public int getNumScopes() {
+    return mScopes.length;
+  }
+
+  /**
+   * @return the number of records of the trace
+   */
+  public long getNumRecords() {
+    return mNumRecords;
+  }
+
+  @Override
+  public DatasetEntry<String> next() {
+    if (!advance()) {
+      return null;
+    }
+    return new DatasetEntry<>(Long.toHexString(mKey), mSize, mScopes[mScope], mTimestamp);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return mIndex + 1 < mNumRecords;
+  }
+}
@@ -116,7 +116,7 @@ public class CacheScope {
   }
 
   public String getId(){
-    return this.mId;
+    return mId.substring(0, mLength);
   }
 
   /**
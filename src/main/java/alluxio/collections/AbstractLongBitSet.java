@@ -0,0 +1,181 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import alluxio.util.BitsUtils;
+
+/**
+ * A base class of long indexed bit sets, which implements bit operations on top of the word
+ * accessors provided by subclasses.
+ */
+public abstract class AbstractLongBitSet implements LongBitSet {
+  private static final int ADDRESS_BITS_PER_WORD = 6;
+  private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+  private static final int BIT_INDEX_MASK = BITS_PER_WORD - 1;
+  private static final long WORD_MASK = 0xffffffffffffffffL;
+
+  /**
+   * @param wordIndex the index of the word
+   * @return the word of given index
+   */
+  protected abstract long getWord(long wordIndex);
+
+  /**
+   * @param wordIndex the index of the word
+   * @param word the new value of the word
+   */
+  protected abstract void setWord(long wordIndex, long word);
+
+  /**
+   * @return the number of words in this bit set
+   */
+  protected abstract long getNumWords();
+
+  /**
+   * @param nbits the number of bits
+   * @return the number of words needed to hold given number of bits
+   */
+  protected static long numWords(long nbits) {
+    if (nbits < 0) {
+      throw new NegativeArraySizeException("nbits < 0: " + nbits);
+    }
+    return (nbits + BIT_INDEX_MASK) >>> ADDRESS_BITS_PER_WORD;
+  }
+
+  @Override
+  public boolean get(long bitIndex) {
+    checkIndex(bitIndex);
+    return (getWord(wordIndex(bitIndex)) & (1L << bitIndex)) != 0;
+  }
+
+  @Override
+  public long get(long fromIndex, int length) {
+    if (length == 0) {
+      return 0L;
+    }
+    long toIndex = fromIndex + length;
+    long startWordIndex = wordIndex(fromIndex);
+    long endWordIndex = wordIndex(toIndex - 1);
+    int fromBitIndex = (int) (fromIndex & BIT_INDEX_MASK);
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      int toBitIndex = (int) (toIndex & BIT_INDEX_MASK);
+      toBitIndex = toBitIndex == 0 ? BITS_PER_WORD : toBitIndex;
+      return BitsUtils.getValueFromWord(getWord(startWordIndex), fromBitIndex, toBitIndex);
+    }
+    // Case 2: Two words, which may be in different pages
+    int len1 = BITS_PER_WORD - fromBitIndex;
+    long lowerBits =
+        BitsUtils.getValueFromWord(getWord(startWordIndex), fromBitIndex, BITS_PER_WORD);
+    long upperBits =
+        BitsUtils.getValueFromWord(getWord(endWordIndex), 0, (int) (toIndex & BIT_INDEX_MASK));
+    return (upperBits << len1) | lowerBits;
+  }
+
+  @Override
+  public void set(long bitIndex) {
+    checkIndex(bitIndex);
+    long wordIndex = wordIndex(bitIndex);
+    setWord(wordIndex, getWord(wordIndex) | (1L << bitIndex));
+  }
+
+  @Override
+  public void set(long fromIndex, long length) {
+    fill(fromIndex, length, true);
+  }
+
+  @Override
+  public void set(long fromIndex, int length, long value) {
+    if (length == 0) {
+      return;
+    }
+    long toIndex = fromIndex + length;
+    long startWordIndex = wordIndex(fromIndex);
+    long endWordIndex = wordIndex(toIndex - 1);
+    int fromBitIndex = (int) (fromIndex & BIT_INDEX_MASK);
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      int toBitIndex = (int) (toIndex & BIT_INDEX_MASK);
+      toBitIndex = toBitIndex == 0 ? BITS_PER_WORD : toBitIndex;
+      setWord(startWordIndex,
+          BitsUtils.mergeWord(getWord(startWordIndex), value, fromBitIndex, toBitIndex));
+      return;
+    }
+    // Case 2: Two words, which may be in different pages
+    int len1 = BITS_PER_WORD - fromBitIndex;
+    setWord(startWordIndex,
+        BitsUtils.mergeWord(getWord(startWordIndex), value, fromBitIndex, BITS_PER_WORD));
+    setWord(endWordIndex, BitsUtils.mergeWord(getWord(endWordIndex), value >> len1, 0,
+        (int) (toIndex & BIT_INDEX_MASK)));
+  }
+
+  @Override
+  public void clear(long bitIndex) {
+    checkIndex(bitIndex);
+    long wordIndex = wordIndex(bitIndex);
+    setWord(wordIndex, getWord(wordIndex) & ~(1L << bitIndex));
+  }
+
+  @Override
+  public void clear(long fromIndex, long length) {
+    fill(fromIndex, length, false);
+  }
+
+  @Override
+  public long longSize() {
+    return getNumWords() * BITS_PER_WORD;
+  }
+
+  /**
+   * Sets or clears all bits in range [fromIndex, fromIndex + length).
+   *
+   * @param fromIndex the start index of the range
+   * @param length the length of the range
+   * @param value true to set bits; false to clear bits
+   */
+  private void fill(long fromIndex, long length, boolean value) {
+    if (length <= 0) {
+      return;
+    }
+    long toIndex = fromIndex + length;
+    long startWordIndex = wordIndex(fromIndex);
+    long endWordIndex = wordIndex(toIndex - 1);
+    long firstWordMask = WORD_MASK << fromIndex;
+    long lastWordMask = WORD_MASK >>> -toIndex;
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      fillWord(startWordIndex, firstWordMask & lastWordMask, value);
+    } else {
+      // Case 2: Multiple words
+      fillWord(startWordIndex, firstWordMask, value);
+      for (long i = startWordIndex + 1; i < endWordIndex; i++) {
+        setWord(i, value ? WORD_MASK : 0L);
+      }
+      fillWord(endWordIndex, lastWordMask, value);
+    }
+  }
+
+  private void fillWord(long wordIndex, long mask, boolean value) {
+    long word = getWord(wordIndex);
+    setWord(wordIndex, value ? (word | mask) : (word & ~mask));
+  }
+
+  private static long wordIndex(long bitIndex) {
+    return bitIndex >>> ADDRESS_BITS_PER_WORD;
+  }
+
+  private static void checkIndex(long bitIndex) {
+    if (bitIndex < 0) {
+      throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+  }
+}
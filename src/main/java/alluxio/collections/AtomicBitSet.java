@@ -0,0 +1,214 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import alluxio.util.BitsUtils;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bit set whose words are updated atomically, so that concurrent writers of different bits in
+ * the same word never lose each other's updates. Bit ranges within a single word can also be
+ * updated with compare-and-set.
+ */
+public class AtomicBitSet implements BitSet {
+  private static final int ADDRESS_BITS_PER_WORD = 6;
+  private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+  private static final int BIT_INDEX_MASK = BITS_PER_WORD - 1;
+  private static final long WORD_MASK = 0xffffffffffffffffL;
+
+  private final AtomicLongArray mWords;
+
+  /**
+   * Creates a new bit set. All bits are initially {@code false}.
+   *
+   * @param nbits the number of bits
+   */
+  public AtomicBitSet(int nbits) {
+    if (nbits < 0) {
+      throw new NegativeArraySizeException("nbits < 0: " + nbits);
+    }
+    mWords = new AtomicLongArray((int) (((long) nbits + BIT_INDEX_MASK) >>> ADDRESS_BITS_PER_WORD));
+  }
+
+  @Override
+  public boolean get(int bitIndex) {
+    checkIndex(bitIndex);
+    return (mWords.get(wordIndex(bitIndex)) & (1L << bitIndex)) != 0;
+  }
+
+  @Override
+  public long get(int fromIndex, int length) {
+    if (length == 0) {
+      return 0L;
+    }
+    int toIndex = fromIndex + length;
+    int startWordIndex = wordIndex(fromIndex);
+    int endWordIndex = wordIndex(toIndex - 1);
+    int fromBitIndex = fromIndex & BIT_INDEX_MASK;
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      return BitsUtils.getValueFromWord(mWords.get(startWordIndex), fromBitIndex,
+          toBitIndex(toIndex));
+    }
+    // Case 2: Two words, which are not read atomically
+    int len1 = BITS_PER_WORD - fromBitIndex;
+    long lowerBits =
+        BitsUtils.getValueFromWord(mWords.get(startWordIndex), fromBitIndex, BITS_PER_WORD);
+    long upperBits =
+        BitsUtils.getValueFromWord(mWords.get(endWordIndex), 0, toIndex & BIT_INDEX_MASK);
+    return (upperBits << len1) | lowerBits;
+  }
+
+  @Override
+  public void set(int bitIndex) {
+    checkIndex(bitIndex);
+    mergeWord(wordIndex(bitIndex), 1L << bitIndex, WORD_MASK);
+  }
+
+  @Override
+  public void set(int fromIndex, int length) {
+    fill(fromIndex, length, WORD_MASK);
+  }
+
+  @Override
+  public void set(int fromIndex, int length, long value) {
+    if (length == 0) {
+      return;
+    }
+    int toIndex = fromIndex + length;
+    int startWordIndex = wordIndex(fromIndex);
+    int endWordIndex = wordIndex(toIndex - 1);
+    int fromBitIndex = fromIndex & BIT_INDEX_MASK;
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      mergeWord(startWordIndex, BitsUtils.genMask(fromBitIndex, toBitIndex(toIndex)),
+          value << fromBitIndex);
+      return;
+    }
+    // Case 2: Two words, each of which is updated atomically
+    int len1 = BITS_PER_WORD - fromBitIndex;
+    mergeWord(startWordIndex, BitsUtils.genMask(fromBitIndex, BITS_PER_WORD),
+        value << fromBitIndex);
+    mergeWord(endWordIndex, BitsUtils.genMask(0, toIndex & BIT_INDEX_MASK), value >> len1);
+  }
+
+  @Override
+  public void clear(int bitIndex) {
+    checkIndex(bitIndex);
+    mergeWord(wordIndex(bitIndex), 1L << bitIndex, 0L);
+  }
+
+  @Override
+  public void clear(int fromIndex, int length) {
+    fill(fromIndex, length, 0L);
+  }
+
+  @Override
+  public int size() {
+    return mWords.length() * BITS_PER_WORD;
+  }
+
+  /**
+   * Atomically sets the bits in range [fromIndex, fromIndex + length) to {@code update} if they
+   * currently equal to {@code expect}. The range must not cross a word boundary.
+   *
+   * @param fromIndex the start index of the bits
+   * @param length the length of bits
+   * @param expect the expected value
+   * @param update the new value
+   * @return true if successful; false if the current value is not equal to the expected value
+   */
+  public boolean compareAndSet(int fromIndex, int length, long expect, long update) {
+    int toIndex = fromIndex + length;
+    int wordIndex = wordIndex(fromIndex);
+    Preconditions.checkArgument(length > 0 && wordIndex == wordIndex(toIndex - 1),
+        "bits [%s, %s) cross a word boundary", fromIndex, toIndex);
+    int fromBitIndex = fromIndex & BIT_INDEX_MASK;
+    long mask = BitsUtils.genMask(fromBitIndex, toBitIndex(toIndex));
+    long expectBits = (expect << fromBitIndex) & mask;
+    long updateBits = (update << fromBitIndex) & mask;
+    while (true) {
+      long word = mWords.get(wordIndex);
+      if ((word & mask) != expectBits) {
+        return false;
+      }
+      // other bits of the word may change concurrently, which only requires a retry
+      if (mWords.compareAndSet(wordIndex, word, (word & ~mask) | updateBits)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Sets or clears all bits in range [fromIndex, fromIndex + length).
+   *
+   * @param fromIndex the start index of the range
+   * @param length the length of the range
+   * @param value all ones to set bits; zero to clear bits
+   */
+  private void fill(int fromIndex, int length, long value) {
+    if (length <= 0) {
+      return;
+    }
+    int toIndex = fromIndex + length;
+    int startWordIndex = wordIndex(fromIndex);
+    int endWordIndex = wordIndex(toIndex - 1);
+    long firstWordMask = WORD_MASK << fromIndex;
+    long lastWordMask = WORD_MASK >>> -toIndex;
+    if (startWordIndex == endWordIndex) {
+      // Case 1: One word
+      mergeWord(startWordIndex, firstWordMask & lastWordMask, value);
+    } else {
+      // Case 2: Multiple words
+      mergeWord(startWordIndex, firstWordMask, value);
+      for (int i = startWordIndex + 1; i < endWordIndex; i++) {
+        mWords.set(i, value);
+      }
+      mergeWord(endWordIndex, lastWordMask, value);
+    }
+  }
+
+  /**
+   * Atomically replaces the masked bits of a word.
+   *
+   * @param wordIndex the index of the word
+   * @param mask 1 where bits should be replaced
+   * @param value the word holding the new bits
+   */
+  private void mergeWord(int wordIndex, long mask, long value) {
+    while (true) {
+      long word = mWords.get(wordIndex);
+      long merged = BitsUtils.mergeWord(word, value, mask);
+      if (merged == word || mWords.compareAndSet(wordIndex, word, merged)) {
+        return;
+      }
+    }
+  }
+
+  private static int toBitIndex(int toIndex) {
+    int toBitIndex = toIndex & BIT_INDEX_MASK;
+    return toBitIndex == 0 ? BITS_PER_WORD : toBitIndex;
+  }
+
+  private static int wordIndex(int bitIndex) {
+    return bitIndex >> ADDRESS_BITS_PER_WORD;
+  }
+
+  private static void checkIndex(int bitIndex) {
+    if (bitIndex < 0) {
+      throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An array of fixed-width fields packed into the longs of an {@link AtomicLongArray}, as many as
+ * fit in a long without crossing it. A field is replaced by compare-and-set of its whole long
+ * against the long read by the caller, so that a read-modify-write of a field is atomic and
+ * concurrent writers of other fields in the same long only cause a retry.
+ */
+public class AtomicPackedArray {
+  private final AtomicLongArray mWords;
+  private final int mLength;
+  private final int mBitsPerField;
+  private final int mFieldsPerWord;
+  private final long mFieldMask;
+
+  /**
+   * Creates a new array. All fields are initially zero.
+   *
+   * @param length the number of fields
+   * @param bitsPerField the number of bits of a field, in [1, 64]
+   */
+  public AtomicPackedArray(int length, int bitsPerField) {
+    Preconditions.checkArgument(length >= 0, "length must be non-negative: %s", length);
+    Preconditions.checkArgument(bitsPerField > 0 && bitsPerField <= Long.SIZE,
+        "bits per field must be in [1, %s]: %s", Long.SIZE, bitsPerField);
+    mLength = length;
+    mBitsPerField = bitsPerField;
+    mFieldsPerWord = Long.SIZE / bitsPerField;
+    mFieldMask = (bitsPerField < Long.SIZE) ? (1L << bitsPerField) - 1 : -1L;
+    mWords = new AtomicLongArray((length + mFieldsPerWord - 1) / mFieldsPerWord);
+  }
+
+  /**
+   * @return the number of fields
+   */
+  public int length() {
+    return mLength;
+  }
+
+  /**
+   * @return the number of fields in a long
+   */
+  public int getFieldsPerWord() {
+    return mFieldsPerWord;
+  }
+
+  /**
+   * @return the number of longs
+   */
+  public int getNumWords() {
+    return mWords.length();
+  }
+
+  /**
+   * @return the memory taken by the longs in bits
+   */
+  public long getSpaceBits() {
+    return (long) mWords.length() * Long.SIZE;
+  }
+
+  /**
+   * @param index the index of a field
+   * @return the index of the long holding the field
+   */
+  public int wordIndex(int index) {
+    return index / mFieldsPerWord;
+  }
+
+  /**
+   * @param index the index of a field
+   * @return the long holding the field
+   */
+  public long getWord(int index) {
+    return mWords.get(wordIndex(index));
+  }
+
+  /**
+   * @param wordIndex the index of a long
+   * @return the long
+   */
+  public long getWordAt(int wordIndex) {
+    return mWords.get(wordIndex);
+  }
+
+  /**
+   * @param index the index of a field
+   * @return the field
+   */
+  public long get(int index) {
+    return fieldOf(getWord(index), index);
+  }
+
+  /**
+   * @param word the long holding the field
+   * @param index the index of the field
+   * @return the field in the long
+   */
+  public long fieldOf(long word, int index) {
+    return (word >>> shiftOf(index)) & mFieldMask;
+  }
+
+  /**
+   * @param word the long holding the field
+   * @param index the index of the field
+   * @param field the new field, which must fit in the bits of a field
+   * @return the long with the field replaced
+   */
+  public long withField(long word, int index, long field) {
+    int shift = shiftOf(index);
+    return (word & ~(mFieldMask << shift)) | (field << shift);
+  }
+
+  /**
+   * Atomically replaces a field if its long is not changed since read.
+   *
+   * @param index the index of the field
+   * @param word the long holding the field as read
+   * @param field the new field
+   * @return true if successful; false if the long has changed
+   */
+  public boolean compareAndSet(int index, long word, long field) {
+    long newWord = withField(word, index, field);
+    return newWord == word || mWords.compareAndSet(wordIndex(index), word, newWord);
+  }
+
+  /**
+   * Atomically replaces a whole long, to update several of its fields at once.
+   *
+   * @param wordIndex the index of the long
+   * @param expect the long as read
+   * @param update the new long
+   * @return true if successful; false if the long has changed
+   */
+  public boolean compareAndSetWord(int wordIndex, long expect, long update) {
+    return expect == update || mWords.compareAndSet(wordIndex, expect, update);
+  }
+
+  private int shiftOf(int index) {
+    return (index % mFieldsPerWord) * mBitsPerField;
+  }
+}
@@ -18,13 +18,19 @@ public interface BitSet {
 
   enum BitSetType {
     BUILTIN,
-    DEFAULT
+    DEFAULT,
+    PAGED,
+    MMAP
   }
 
   static BitSet createBitSet(BitSetType type, int nbits) {
     switch (type) {
       case BUILTIN:
         return new BuiltinBitSet(nbits);
+      case PAGED:
+        return new PagedBitSet(nbits);
+      case MMAP:
+        return new MappedBitSet(nbits);
       case DEFAULT:
       default:
         return new SimpleBitSet(nbits);
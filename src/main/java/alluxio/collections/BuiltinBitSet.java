@@ -53,11 +53,11 @@ public class BuiltinBitSet implements BitSet {
 
   @Override
   public long get(int startIndex, int length) {
-    int tag = 0;
+    long tag = 0;
     for (int k = 0; k < length; k++) {
       // set corresponding bit in tag
       if (mBits.get(startIndex + k)) {
-        tag |= (1 << k);
+        tag |= (1L << k);
       }
     }
     return tag;
@@ -0,0 +1,127 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog counter which estimates the number of distinct items from their 64-bit hashes,
+ * with a relative standard error of about 1.04 / sqrt(2^precision). This class is not thread-safe.
+ */
+public class HyperLogLog {
+  private final int mPrecision;
+  private final byte[] mRegisters;
+
+  /**
+   * @param precision the number of hash bits indexing the registers, in [4, 18]
+   */
+  public HyperLogLog(int precision) {
+    Preconditions.checkArgument(precision >= 4 && precision <= 18,
+        "precision must be in [4, 18]: %s", precision);
+    mPrecision = precision;
+    mRegisters = new byte[1 << precision];
+  }
+
+  /**
+   * Add an item by its hash.
+   *
+   * @param hash the 64-bit hash of the item
+   * @return true if a register is updated, which means the item has not been added before
+   */
+  public boolean add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - mPrecision));
+    // the sentinel bit bounds the rank when all remaining bits are zero
+    long remaining = (hash << mPrecision) | (1L << (mPrecision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > mRegisters[index]) {
+      mRegisters[index] = rank;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Merge another counter of the same precision into this one, so that this counter estimates the
+   * number of distinct items added to either of them.
+   *
+   * @param other the other counter
+   */
+  public void merge(HyperLogLog other) {
+    Preconditions.checkArgument(other.mPrecision == mPrecision, "mismatched precision");
+    for (int i = 0; i < mRegisters.length; i++) {
+      if (other.mRegisters[i] > mRegisters[i]) {
+        mRegisters[i] = other.mRegisters[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct items added
+   */
+  public long cardinality() {
+    int m = mRegisters.length;
+    double sum = 0;
+    int numZeros = 0;
+    for (byte register : mRegisters) {
+      sum += Double.longBitsToDouble((1023L - register) << 52);
+      if (register == 0) {
+        numZeros++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && numZeros > 0) {
+      // linear counting is more accurate for small cardinalities
+      estimate = m * Math.log(m / (double) numZeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Reset this counter to empty.
+   */
+  public void clear() {
+    Arrays.fill(mRegisters, (byte) 0);
+  }
+
+  /**
+   * @return the precision of this counter
+   */
+  public int getPrecision() {
+    return mPrecision;
+  }
+
+  /**
+   * @return the memory of registers in bytes
+   */
+  public int getSizeInBytes() {
+    return mRegisters.length;
+  }
+
+  /**
+   * @param m the number of registers
+   * @return the bias correction constant
+   */
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+}
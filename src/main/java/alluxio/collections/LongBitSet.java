@@ -0,0 +1,132 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+/**
+ * A {@link BitSet} whose bits are addressed by {@code long} indices, so that it can hold more than
+ * {@link Integer#MAX_VALUE} bits. The {@code int} indexed methods of {@link BitSet} are delegated
+ * to their {@code long} indexed counterparts.
+ */
+public interface LongBitSet extends BitSet {
+
+  /**
+   * Creates a long indexed bit set of the specified type.
+   *
+   * @param type the type of bit set
+   * @param nbits the number of bits
+   * @return the created bit set
+   */
+  static LongBitSet createLongBitSet(BitSetType type, long nbits) {
+    switch (type) {
+      case MMAP:
+        return new MappedBitSet(nbits);
+      case PAGED:
+      default:
+        return new PagedBitSet(nbits);
+    }
+  }
+
+  /**
+   * @param index the index of the bit to get
+   * @return the bit value of the specified index
+   */
+  boolean get(long index);
+
+  /**
+   * @param startIndex the start index of the bit to get
+   * @param length the length of bits to get, at most 64
+   * @return the bit value of the specified index
+   */
+  long get(long startIndex, int length);
+
+  /**
+   * Sets the bit at the specified index to {@code true}.
+   *
+   * @param index the index of the bit to be set
+   */
+  void set(long index);
+
+  /**
+   * @param startIndex the start index of the bit to set
+   * @param length the length of bits to set
+   */
+  void set(long startIndex, long length);
+
+  /**
+   * @param startIndex the start index of the bit to set
+   * @param length the length of bits to set, at most 64
+   * @param value the value to set
+   */
+  void set(long startIndex, int length, long value);
+
+  /**
+   * Sets the bit specified by the index to {@code false}.
+   *
+   * @param index the index of the bit to be cleared
+   */
+  void clear(long index);
+
+  /**
+   * @param startIndex the start index of the bit to clear
+   * @param length the length of bits to clear
+   */
+  void clear(long startIndex, long length);
+
+  /**
+   * @return the number of bits currently in this bit set
+   */
+  long longSize();
+
+  @Override
+  default boolean get(int index) {
+    return get((long) index);
+  }
+
+  @Override
+  default long get(int startIndex, int length) {
+    return get((long) startIndex, length);
+  }
+
+  @Override
+  default void set(int index) {
+    set((long) index);
+  }
+
+  @Override
+  default void set(int startIndex, int length) {
+    set((long) startIndex, (long) length);
+  }
+
+  @Override
+  default void set(int startIndex, int length, long value) {
+    set((long) startIndex, length, value);
+  }
+
+  @Override
+  default void clear(int index) {
+    clear((long) index);
+  }
+
+  @Override
+  default void clear(int startIndex, int length) {
+    clear((long) startIndex, (long) length);
+  }
+
+  /**
+   * @return the number of bits currently in this bit set, or {@link Integer#MAX_VALUE} if it does
+   *         not fit in an {@code int}
+   */
+  @Override
+  default int size() {
+    return (int) Math.min(Integer.MAX_VALUE, longSize());
+  }
+}
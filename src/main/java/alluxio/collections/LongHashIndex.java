@@ -0,0 +1,134 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * A linear probing index from 64-bit keys to the entries of primitive arrays kept by the caller.
+ * The index only holds entry numbers, and reads the key of an entry through a function, so that
+ * keys are stored once, by the caller. Removal shifts back the entries probed past the removed
+ * one, so that no tombstone is left and lookups stay short under churn. The index is at most half
+ * full, and is not thread-safe.
+ *
+ * <p>
+ * Keys are expected to be hashes already, so their bits are only folded to pick a slot.
+ */
+public class LongHashIndex {
+  /** The entry returned for an absent key. */
+  public static final int NIL = -1;
+
+  private static final int INITIAL_LENGTH = 1 << 11;
+
+  private final IntToLongFunction mKeyOf;
+  // holds entry + 1, and 0 for an empty slot
+  private int[] mSlots = new int[INITIAL_LENGTH];
+  private int mMask = INITIAL_LENGTH - 1;
+  private int mSize = 0;
+
+  /**
+   * @param keyOf the function returning the key of an entry
+   */
+  public LongHashIndex(IntToLongFunction keyOf) {
+    mKeyOf = keyOf;
+  }
+
+  /**
+   * @param key the key
+   * @return the entry of the key, or {@link #NIL} if the key is absent
+   */
+  public int find(long key) {
+    for (int slot = slotOf(key); ; slot = (slot + 1) & mMask) {
+      int entry = mSlots[slot] - 1;
+      if (entry == NIL || mKeyOf.applyAsLong(entry) == key) {
+        return entry;
+      }
+    }
+  }
+
+  /**
+   * Indexes an entry, whose key must be absent from the index.
+   *
+   * @param entry the entry, non-negative
+   */
+  public void add(int entry) {
+    Preconditions.checkArgument(entry >= 0, "entry must be non-negative: %s", entry);
+    if ((mSize + 1) * 2 > mSlots.length) {
+      resize(mSlots.length * 2);
+    }
+    addSlot(entry);
+    mSize++;
+  }
+
+  /**
+   * Removes an indexed entry from the index.
+   *
+   * @param entry the entry
+   */
+  public void remove(int entry) {
+    int slot = slotOf(mKeyOf.applyAsLong(entry));
+    while (mSlots[slot] != entry + 1) {
+      Preconditions.checkState(mSlots[slot] != 0, "entry %s is not indexed", entry);
+      slot = (slot + 1) & mMask;
+    }
+    mSlots[slot] = 0;
+    mSize--;
+    for (int next = (slot + 1) & mMask; mSlots[next] != 0; next = (next + 1) & mMask) {
+      int home = slotOf(mKeyOf.applyAsLong(mSlots[next] - 1));
+      // the entry may fill the empty slot only if its home slot is not in (slot, next]
+      if (((next - home) & mMask) >= ((next - slot) & mMask)) {
+        mSlots[slot] = mSlots[next];
+        mSlots[next] = 0;
+        slot = next;
+      }
+    }
+  }
+
+  /**
+   * @return the number of indexed entries
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * @return the number of slots
+   */
+  public int capacity() {
+    return mSlots.length;
+  }
+
+  private int slotOf(long key) {
+    return (int) (key ^ (key >>> 32)) & mMask;
+  }
+
+  private void addSlot(int entry) {
+    int slot = slotOf(mKeyOf.applyAsLong(entry));
+    while (mSlots[slot] != 0) {
+      slot = (slot + 1) & mMask;
+    }
+    mSlots[slot] = entry + 1;
+  }
+
+  private void resize(int newLength) {
+    int[] slots = mSlots;
+    mSlots = new int[newLength];
+    mMask = newLength - 1;
+    for (int slot : slots) {
+      if (slot != 0) {
+        addSlot(slot - 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A long indexed bit set stored off-heap in a memory-mapped file. The file is mapped in segments
+ * of fixed size, so that the number of bits is not limited by the maximum size of one mapping.
+ *
+ * <p>
+ * If the file already exists and has exactly the size of this bit set, its content is kept, so
+ * that a structure built on this bit set can be recovered after a process restart. Otherwise the
+ * file is truncated and all bits are initially {@code false}.
+ */
+public class MappedBitSet extends AbstractLongBitSet {
+  /** The default log2 of the number of words per segment, i.e. 1GB segments. */
+  public static final int DEFAULT_SEGMENT_SHIFT = 27;
+
+  private static final int ADDRESS_BYTES_PER_WORD = 3;
+
+  private final MappedSegments mSegments;
+  private final long mNumWords;
+  private final boolean mRecovered;
+
+  /**
+   * Creates a new bit set backed by a temporary file, which is deleted on exit.
+   *
+   * @param nbits the number of bits
+   */
+  public MappedBitSet(long nbits) {
+    this(createTempFile(), nbits);
+  }
+
+  /**
+   * Creates a bit set backed by given file with default segment size.
+   *
+   * @param file the backing file
+   * @param nbits the number of bits
+   */
+  public MappedBitSet(File file, long nbits) {
+    this(file, nbits, DEFAULT_SEGMENT_SHIFT);
+  }
+
+  /**
+   * Creates a bit set backed by given file.
+   *
+   * @param file the backing file
+   * @param nbits the number of bits
+   * @param segmentShift the log2 of the number of words per segment
+   */
+  public MappedBitSet(File file, long nbits, int segmentShift) {
+    if (segmentShift < 0 || segmentShift > 27) {
+      throw new IllegalArgumentException("segmentShift out of range [0, 27]: " + segmentShift);
+    }
+    mNumWords = numWords(nbits);
+    long numBytes = mNumWords << ADDRESS_BYTES_PER_WORD;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      mRecovered = raf.length() == numBytes && numBytes > 0;
+      if (!mRecovered) {
+        raf.setLength(0);
+        raf.setLength(numBytes);
+      }
+      mSegments = new MappedSegments(channel, FileChannel.MapMode.READ_WRITE, numBytes,
+          segmentShift + ADDRESS_BYTES_PER_WORD, ByteOrder.nativeOrder());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to map bit set file " + file, e);
+    }
+  }
+
+  /**
+   * @return true if the content of this bit set is recovered from an existing file
+   */
+  public boolean isRecovered() {
+    return mRecovered;
+  }
+
+  /**
+   * Forces all changes of this bit set to be written to the backing file.
+   */
+  public void flush() {
+    mSegments.force();
+  }
+
+  @Override
+  protected long getWord(long wordIndex) {
+    return mSegments.getLong(wordIndex << ADDRESS_BYTES_PER_WORD);
+  }
+
+  @Override
+  protected void setWord(long wordIndex, long word) {
+    mSegments.putLong(wordIndex << ADDRESS_BYTES_PER_WORD, word);
+  }
+
+  @Override
+  protected long getNumWords() {
+    return mNumWords;
+  }
+
+  private static File createTempFile() {
+    try {
+      File file = File.createTempFile("bitset", ".bin");
+      file.deleteOnExit();
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create bit set file", e);
+    }
+  }
+}
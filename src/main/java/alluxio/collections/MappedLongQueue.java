@@ -0,0 +1,129 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A bounded FIFO queue of longs stored off-heap in a memory-mapped file, used as a ring. The
+ * file is mapped in segments of fixed size, so that the capacity is not limited by the maximum
+ * size of one mapping.
+ *
+ * <p>
+ * Only the pages around the head and the tail of the queue are accessed, so a queue much larger
+ * than memory keeps a small resident set: the operating system writes the cold middle back to
+ * the file and drops it from the page cache. The content of the file is not kept across restarts.
+ */
+public class MappedLongQueue {
+  /** The default log2 of the number of longs per segment, i.e. 1GB segments. */
+  public static final int DEFAULT_SEGMENT_SHIFT = 27;
+
+  private static final int ADDRESS_BYTES_PER_LONG = 3;
+
+  private final MappedSegments mSegments;
+  private final long mCapacity;
+  // positions in [0, mCapacity) of the next long to poll and to offer
+  private long mHead;
+  private long mTail;
+  private long mSize;
+
+  /**
+   * Creates a new queue backed by a temporary file, which is deleted on exit.
+   *
+   * @param capacity the maximum number of longs in the queue
+   */
+  public MappedLongQueue(long capacity) {
+    this(createTempFile(), capacity, DEFAULT_SEGMENT_SHIFT);
+  }
+
+  /**
+   * Creates a queue backed by given file. Any content of the file is discarded.
+   *
+   * @param file the backing file
+   * @param capacity the maximum number of longs in the queue
+   * @param segmentShift the log2 of the number of longs per segment
+   */
+  public MappedLongQueue(File file, long capacity, int segmentShift) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+    Preconditions.checkArgument(segmentShift >= 0 && segmentShift <= 27,
+        "segmentShift out of range [0, 27]: %s", segmentShift);
+    mCapacity = capacity;
+    long numBytes = capacity << ADDRESS_BYTES_PER_LONG;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      raf.setLength(0);
+      raf.setLength(numBytes);
+      mSegments = new MappedSegments(channel, FileChannel.MapMode.READ_WRITE, numBytes,
+          segmentShift + ADDRESS_BYTES_PER_LONG, ByteOrder.nativeOrder());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to map queue file " + file, e);
+    }
+  }
+
+  /**
+   * Appends a value at the tail of the queue.
+   *
+   * @param value the value
+   * @throws IllegalStateException if the queue is full
+   */
+  public void offer(long value) {
+    Preconditions.checkState(mSize < mCapacity, "queue is full: %s", mCapacity);
+    mSegments.putLong(mTail << ADDRESS_BYTES_PER_LONG, value);
+    mTail = mTail + 1 == mCapacity ? 0 : mTail + 1;
+    mSize++;
+  }
+
+  /**
+   * Removes the value at the head of the queue.
+   *
+   * @return the value
+   * @throws IllegalStateException if the queue is empty
+   */
+  public long poll() {
+    Preconditions.checkState(mSize > 0, "queue is empty");
+    long value = mSegments.getLong(mHead << ADDRESS_BYTES_PER_LONG);
+    mHead = mHead + 1 == mCapacity ? 0 : mHead + 1;
+    mSize--;
+    return value;
+  }
+
+  /**
+   * @return the number of values in the queue
+   */
+  public long size() {
+    return mSize;
+  }
+
+  /**
+   * @return the maximum number of values in the queue
+   */
+  public long capacity() {
+    return mCapacity;
+  }
+
+  private static File createTempFile() {
+    try {
+      File file = File.createTempFile("queue", ".bin");
+      file.deleteOnExit();
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create queue file", e);
+    }
+  }
+}
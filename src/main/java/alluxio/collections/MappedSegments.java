@@ -0,0 +1,99 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A region of a file mapped in segments of a fixed power-of-2 number of bytes, so that it is not
+ * limited by the maximum size of one mapping, and addressed by a long byte position. A long or an
+ * int must be aligned to its size, so that it never crosses two segments.
+ */
+public class MappedSegments {
+  /** The minimum log2 of the number of bytes per segment, so that a segment holds a long. */
+  public static final int MIN_SEGMENT_SHIFT = 3;
+  /** The maximum log2 of the number of bytes per segment, i.e. 1GB segments. */
+  public static final int MAX_SEGMENT_SHIFT = 30;
+
+  private final MappedByteBuffer[] mSegments;
+  private final int mSegmentShift;
+  private final long mSegmentMask;
+
+  /**
+   * Maps the first bytes of a file. The mapping stays valid after the channel is closed.
+   *
+   * @param channel the channel of the file, whose size is at least the number of bytes
+   * @param mode the mode of mapping
+   * @param numBytes the number of bytes to map
+   * @param segmentShift the log2 of the number of bytes per segment
+   * @param order the byte order of values
+   * @throws IOException if the file fails to be mapped
+   */
+  public MappedSegments(FileChannel channel, FileChannel.MapMode mode, long numBytes,
+      int segmentShift, ByteOrder order) throws IOException {
+    Preconditions.checkArgument(
+        segmentShift >= MIN_SEGMENT_SHIFT && segmentShift <= MAX_SEGMENT_SHIFT,
+        "segmentShift out of range [%s, %s]: %s", MIN_SEGMENT_SHIFT, MAX_SEGMENT_SHIFT,
+        segmentShift);
+    mSegmentShift = segmentShift;
+    mSegmentMask = (1L << segmentShift) - 1;
+    long numSegments = (numBytes + mSegmentMask) >>> segmentShift;
+    Preconditions.checkArgument(numSegments <= Integer.MAX_VALUE,
+        "too many segments for %s bytes", numBytes);
+    mSegments = new MappedByteBuffer[(int) numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      long position = (long) i << segmentShift;
+      long size = Math.min(numBytes - position, 1L << segmentShift);
+      mSegments[i] = channel.map(mode, position, size);
+      mSegments[i].order(order);
+    }
+  }
+
+  /**
+   * @param position the byte position, aligned to a long
+   * @return the long at the position
+   */
+  public long getLong(long position) {
+    return mSegments[(int) (position >>> mSegmentShift)].getLong((int) (position & mSegmentMask));
+  }
+
+  /**
+   * @param position the byte position, aligned to a long
+   * @param value the long to write at the position
+   */
+  public void putLong(long position, long value) {
+    mSegments[(int) (position >>> mSegmentShift)]
+        .putLong((int) (position & mSegmentMask), value);
+  }
+
+  /**
+   * @param position the byte position, aligned to an int
+   * @return the int at the position
+   */
+  public int getInt(long position) {
+    return mSegments[(int) (position >>> mSegmentShift)].getInt((int) (position & mSegmentMask));
+  }
+
+  /**
+   * Forces all changes to be written to the file.
+   */
+  public void force() {
+    for (MappedByteBuffer segment : mSegments) {
+      segment.force();
+    }
+  }
+}
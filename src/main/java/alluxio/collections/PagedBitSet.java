@@ -0,0 +1,74 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+/**
+ * A long indexed bit set whose words are stored in fixed-size on-heap pages, so that the number
+ * of bits is not limited by the maximum length of a java array.
+ */
+public class PagedBitSet extends AbstractLongBitSet {
+  /** The default log2 of the number of words per page, i.e. 8MB pages. */
+  public static final int DEFAULT_PAGE_SHIFT = 20;
+
+  private final long[][] mPages;
+  private final int mPageShift;
+  private final long mPageMask;
+  private final long mNumWords;
+
+  /**
+   * Creates a new bit set with default page size. All bits are initially {@code false}.
+   *
+   * @param nbits the number of bits
+   */
+  public PagedBitSet(long nbits) {
+    this(nbits, DEFAULT_PAGE_SHIFT);
+  }
+
+  /**
+   * Creates a new bit set. All bits are initially {@code false}.
+   *
+   * @param nbits the number of bits
+   * @param pageShift the log2 of the number of words per page
+   */
+  public PagedBitSet(long nbits, int pageShift) {
+    if (pageShift < 0 || pageShift > 30) {
+      throw new IllegalArgumentException("pageShift out of range [0, 30]: " + pageShift);
+    }
+    mPageShift = pageShift;
+    mPageMask = (1L << pageShift) - 1;
+    mNumWords = numWords(nbits);
+    long numPages = (mNumWords + mPageMask) >>> pageShift;
+    if (numPages > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("too many pages for nbits " + nbits);
+    }
+    mPages = new long[(int) numPages][];
+    for (int i = 0; i < numPages; i++) {
+      long remainingWords = mNumWords - ((long) i << pageShift);
+      mPages[i] = new long[(int) Math.min(remainingWords, 1L << pageShift)];
+    }
+  }
+
+  @Override
+  protected long getWord(long wordIndex) {
+    return mPages[(int) (wordIndex >>> mPageShift)][(int) (wordIndex & mPageMask)];
+  }
+
+  @Override
+  protected void setWord(long wordIndex, long word) {
+    mPages[(int) (wordIndex >>> mPageShift)][(int) (wordIndex & mPageMask)] = word;
+  }
+
+  @Override
+  protected long getNumWords() {
+    return mNumWords;
+  }
+}
@@ -48,6 +48,59 @@ public class BitsUtils {
         return a ^ ((a ^ b) & mask);
     }
 
+    /**
+     * @param bitsPerField the number of bits per field, which must divide 64
+     * @return a word with the highest bit of each packed field set
+     */
+    public static long fieldHighBits(int bitsPerField) {
+        long highBits = 0L;
+        for (int i = bitsPerField - 1; i < Long.SIZE; i += bitsPerField) {
+            highBits |= 1L << i;
+        }
+        return highBits;
+    }
+
+    /**
+     * Finds the nonzero fields of a word of packed fields with SWAR (SIMD within a register).
+     *
+     * @param word the word of packed fields
+     * @param highBits the highest bit of each field, see {@link #fieldHighBits(int)}
+     * @return a word with the highest bit of each nonzero field set
+     */
+    public static long nonZeroFields(long word, long highBits) {
+        // adding all ones to the lower bits of a field carries into its highest bit iff the lower
+        // bits are nonzero, and never carries out of the field
+        return (((word & ~highBits) + ~highBits) | word) & highBits;
+    }
+
+    /**
+     * Decrements every nonzero packed field of a word by one, zero fields stay zero.
+     *
+     * @param word the word of packed fields
+     * @param nonZeroFields the result of {@link #nonZeroFields(long, long)} on the word
+     * @param bitsPerField the number of bits per field
+     * @return the word after decrement
+     */
+    public static long decrementNonZeroFields(long word, long nonZeroFields, int bitsPerField) {
+        // subtract one from the lowest bit of each nonzero field, which never borrows across fields
+        return word - (nonZeroFields >>> (bitsPerField - 1));
+    }
+
+    /**
+     * Finds the packed fields of a word equal to a value with SWAR (SIMD within a register).
+     *
+     * @param word the word of packed fields
+     * @param value the value to compare, which must fit in a field
+     * @param highBits the highest bit of each field to compare, see {@link #fieldHighBits(int)}
+     * @param bitsPerField the number of bits per field
+     * @return a word with the highest bit of each matching field set
+     */
+    public static long equalFields(long word, long value, long highBits, int bitsPerField) {
+        // fields equal to the value become zero after xor with the value broadcast to all fields
+        long diff = word ^ ((highBits >>> (bitsPerField - 1)) * value);
+        return ~nonZeroFields(diff, highBits) & highBits;
+    }
+
     public static boolean hasZero4(long x) {
         return hasZero4Internal(x) != 0;
     }
@@ -86,11 +86,11 @@ public class LRU {
         return true;
     }
     public boolean remove(PageId pageId){
-        Node node = idToNode.get(pageId);
-        idToNode.remove(node.item);
+        Node node = idToNode.remove(pageId);
         if(node==null){
             return false;
         }else{
+            size--;
             if(node==head){
                 head = head.next;
                 if(head!=null){
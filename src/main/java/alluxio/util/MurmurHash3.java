@@ -0,0 +1,136 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.util;
+
+/**
+ * An allocation-free MurmurHash3 x64 128-bit hash over a string and a long, or over two longs,
+ * which reads its input in place instead of copying it through a Guava {@code Hasher}. The result
+ * is the same as {@code Hashing.murmur3_128(seed).newHasher().putUnencodedChars(s).putLong(l)
+ * .hash().asLong()}, or {@code putLong(l1).putLong(l2)} for two longs.
+ */
+public final class MurmurHash3 {
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+  // 16-bit chars per 16-byte block
+  private static final int CHARS_PER_BLOCK = 8;
+
+  private MurmurHash3() {} // prevent instantiation
+
+  /**
+   * @param s the string, hashed as little-endian UTF-16 code units
+   * @param l the long appended to the string
+   * @param seed the seed
+   * @return the first 64 bits of the 128-bit hash
+   */
+  public static long hash64(String s, long l, int seed) {
+    int n = s.length();
+    long h1 = seed;
+    long h2 = seed;
+    int i = 0;
+    // blocks of the string only
+    for (; i + CHARS_PER_BLOCK <= n; i += CHARS_PER_BLOCK) {
+      long k1 = s.charAt(i) | (long) s.charAt(i + 1) << 16 | (long) s.charAt(i + 2) << 32
+          | (long) s.charAt(i + 3) << 48;
+      long k2 = s.charAt(i + 4) | (long) s.charAt(i + 5) << 16 | (long) s.charAt(i + 6) << 32
+          | (long) s.charAt(i + 7) << 48;
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    // the rest of the string followed by the 4 chars of the long, at most one block and a tail
+    int end = n + Long.BYTES / Character.BYTES;
+    for (; i < end; i += CHARS_PER_BLOCK) {
+      long k1 = 0;
+      long k2 = 0;
+      for (int j = 0; j < CHARS_PER_BLOCK && i + j < end; j++) {
+        long c = i + j < n ? s.charAt(i + j) : (l >>> ((i + j - n) * Character.SIZE)) & 0xffff;
+        if (j < CHARS_PER_BLOCK / 2) {
+          k1 |= c << (j * Character.SIZE);
+        } else {
+          k2 |= c << ((j - CHARS_PER_BLOCK / 2) * Character.SIZE);
+        }
+      }
+      h1 ^= mixK1(k1);
+      if (i + CHARS_PER_BLOCK <= end) {
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        h1 = h1 * 5 + 0x52dce729;
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = h2 * 5 + 0x38495ab5;
+      } else {
+        // a tail is only xor-ed in
+        h2 ^= mixK2(k2);
+      }
+    }
+    long length = (long) end * Character.BYTES;
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    return h1 + h2;
+  }
+
+  /**
+   * @param l1 the first long
+   * @param l2 the second long
+   * @param seed the seed
+   * @return the first 64 bits of the 128-bit hash
+   */
+  public static long hash64(long l1, long l2, int seed) {
+    long h1 = seed;
+    long h2 = seed;
+    // exactly one block
+    h1 ^= mixK1(l1);
+    h1 = Long.rotateLeft(h1, 27) + h2;
+    h1 = h1 * 5 + 0x52dce729;
+    h2 ^= mixK2(l2);
+    h2 = Long.rotateLeft(h2, 31) + h1;
+    h2 = h2 * 5 + 0x38495ab5;
+    h1 ^= 2 * Long.BYTES;
+    h2 ^= 2 * Long.BYTES;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    return h1 + h2;
+  }
+
+  /**
+   * @param k a 64-bit value
+   * @return the value with its bits avalanched, which can derive an independent hash
+   */
+  public static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    return k1 * C2;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    return k2 * C1;
+  }
+}
@@ -29,8 +29,6 @@ public class TinyTable extends SimpleBitwiseArray
 	private final byte[] offsets;
 	private final byte[] chain;
 	private long maxIter = 500;
-	public long findEmptyTime;
-	public long addItemTime;
 	static int chainLength = 64;
 	//Hash function with an object pool... recycle! 
 	GreenHashMaker hashFunc;
@@ -146,20 +144,16 @@ public class TinyTable extends SimpleBitwiseArray
 	 */
 	protected boolean addItem(FingerPrintAux fpAux)
 	{
-		long start = System.currentTimeMillis();
 		int nextBucket = this.findFreeBucket(fpAux.bucketId);
-		findEmptyTime+= System.currentTimeMillis()-start;
 		if(nextBucket == -1){
 			return false;
 		}
 
 		upscaleBuckets(fpAux.bucketId,nextBucket);// slow!! scal up or down
 		//System.out.println("insert bucket with num:"+getNrItems(fpAux.bucketId)+"and with offsets:"+offsets[64]);
-		start = System.currentTimeMillis();
 		int idxToAdd = RankIndexingTechnique.addItem(fpAux, I0, IStar,offsets,chain);// FAST 21MS AT TOTAL
 		// if we need to, we steal items from other buckets.
 		this.PutAndPush(fpAux.bucketId, idxToAdd, fpAux.fingerprint); // fast too 7ms???
-		addItemTime+=System.currentTimeMillis()-start;
 		return true;
 	}
 
@@ -0,0 +1,170 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BitMapWithClockSketchCacheManagerTest {
+  private static final int NUM_THREADS = 8;
+  private static final int PAGES_PER_THREAD = 1 << 12;
+  private static final int PAGE_SIZE = 100;
+  private static final CacheScope SCOPE = CacheScope.create("schema1.table1");
+
+  private static ShadowCache createCache() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "BMC";
+    conf.mMemoryBudget = "1MB";
+    ShadowCache cache = ShadowCache.create(conf);
+    cache.stopUpdate();
+    return cache;
+  }
+
+  @Test
+  public void testPutGet() {
+    ShadowCache cache = createCache();
+    PageId pageId = new PageId("0", 0);
+    assertEquals(0, cache.get(pageId, PAGE_SIZE, SCOPE));
+    assertTrue(cache.put(pageId, PAGE_SIZE, SCOPE));
+    assertEquals(PAGE_SIZE, cache.get(pageId, PAGE_SIZE, SCOPE));
+    assertEquals(1, cache.getShadowCachePages());
+    assertEquals(PAGE_SIZE, cache.getShadowCacheBytes(SCOPE));
+    assertTrue(cache.delete(pageId));
+    assertEquals(0, cache.get(pageId, PAGE_SIZE, SCOPE));
+    assertEquals(0, cache.getShadowCachePages());
+  }
+
+  /**
+   * @return two pages whose buckets are different but share one long
+   */
+  private static PageId[] findNeighbours(BitMapWithClockSketchCacheManager cache) {
+    PageId first = new PageId("0", 0);
+    int pos = cache.bucketIndex(first.getHash());
+    for (int i = 1; ; i++) {
+      PageId second = new PageId("0", i);
+      int otherPos = cache.bucketIndex(second.getHash());
+      if (otherPos != pos && otherPos / cache.mBucketsPerWord == pos / cache.mBucketsPerWord) {
+        return new PageId[] {first, second};
+      }
+    }
+  }
+
+  @Test
+  public void testSpaceBits() {
+    ShadowCache cache = createCache();
+    assertEquals(8L * 1024 * 1024, cache.getSpaceBits());
+  }
+
+  @Test
+  public void testNeighbourBuckets() {
+    BitMapWithClockSketchCacheManager cache = (BitMapWithClockSketchCacheManager) createCache();
+    CacheScope otherScope = CacheScope.create("schema1.table2");
+    PageId[] pages = findNeighbours(cache);
+    assertTrue(cache.put(pages[0], PAGE_SIZE, SCOPE));
+    assertTrue(cache.put(pages[1], 2 * PAGE_SIZE, otherScope));
+    assertEquals(2, cache.getShadowCachePages());
+    assertEquals(PAGE_SIZE, cache.getShadowCacheBytes(SCOPE));
+    assertEquals(2 * PAGE_SIZE, cache.getShadowCacheBytes(otherScope));
+    assertEquals(PAGE_SIZE, cache.get(pages[0], PAGE_SIZE, SCOPE));
+    assertEquals(0, cache.get(pages[0], PAGE_SIZE, otherScope));
+    // deleting one bucket leaves the other bucket of the long intact
+    assertTrue(cache.delete(pages[0]));
+    assertEquals(0, cache.get(pages[0], PAGE_SIZE, SCOPE));
+    assertEquals(2 * PAGE_SIZE, cache.get(pages[1], 2 * PAGE_SIZE, otherScope));
+    assertEquals(1, cache.getShadowCachePages());
+    assertEquals(0, cache.getShadowCachePages(SCOPE));
+    assertEquals(2 * PAGE_SIZE, cache.getShadowCacheBytes());
+    assertEquals(2 * PAGE_SIZE, cache.getShadowCacheBytes(otherScope));
+    // and so does a put into a neighbour bucket, which keeps the clock of the other
+    for (int i = 0; i < cache.mClockMask - 1; i++) {
+      cache.aging();
+    }
+    assertTrue(cache.put(pages[0], PAGE_SIZE, SCOPE));
+    cache.aging();
+    assertEquals(0, cache.get(pages[1], 2 * PAGE_SIZE, otherScope));
+    assertEquals(PAGE_SIZE, cache.get(pages[0], PAGE_SIZE, SCOPE));
+  }
+
+  @Test
+  public void testAgingMixedWord() {
+    BitMapWithClockSketchCacheManager cache = (BitMapWithClockSketchCacheManager) createCache();
+    PageId[] pages = findNeighbours(cache);
+    assertTrue(cache.put(pages[0], PAGE_SIZE, SCOPE));
+    cache.aging();
+    assertTrue(cache.put(pages[1], 3 * PAGE_SIZE, SCOPE));
+    // the first bucket reaches clock 1 while the second one is one aging younger
+    for (int i = 0; i < cache.mClockMask - 2; i++) {
+      cache.aging();
+    }
+    assertEquals(2, cache.getShadowCachePages());
+    assertEquals(4 * PAGE_SIZE, cache.getShadowCacheBytes());
+    cache.aging();
+    // only the clock 1 bucket expires, and only its size leaves the counters
+    assertEquals(0, cache.get(pages[0], PAGE_SIZE, SCOPE));
+    assertEquals(1, cache.getShadowCachePages());
+    assertEquals(3 * PAGE_SIZE, cache.getShadowCacheBytes());
+    assertEquals(3 * PAGE_SIZE, cache.get(pages[1], 3 * PAGE_SIZE, SCOPE));
+  }
+
+  @Test
+  public void testSizeSaturates() {
+    ShadowCache cache = createCache();
+    int maxSize = (1 << new ShadowCacheParameters().mSizeBits) - 1;
+    // a size past the size field saturates instead of wrapping to a small size
+    assertTrue(cache.put(new PageId("0", 0), maxSize + 2, SCOPE));
+    assertEquals(maxSize, cache.getShadowCacheBytes());
+  }
+
+  @Test
+  public void testConcurrentAccessWithAging() throws Exception {
+    ShadowCache cache = createCache();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < NUM_THREADS; t++) {
+      String fileId = Integer.toString(t);
+      threads.add(new Thread(() -> {
+        for (int round = 0; round < 4; round++) {
+          for (int i = 0; i < PAGES_PER_THREAD; i++) {
+            PageId pageId = new PageId(fileId, i);
+            if (cache.get(pageId, PAGE_SIZE, SCOPE) <= 0) {
+              cache.put(pageId, PAGE_SIZE, SCOPE);
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    // age concurrently with the clients, which refresh their pages
+    for (int i = 0; i < 8; i++) {
+      cache.aging();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int numPages = NUM_THREADS * PAGES_PER_THREAD;
+    assertEquals(numPages, cache.getShadowCachePages(), numPages * 0.05);
+    // the counters stay consistent with the buckets after all of them expire
+    for (int i = 0; i < 1 << 4; i++) {
+      cache.aging();
+    }
+    assertEquals(0, cache.getShadowCachePages());
+    assertEquals(0, cache.getShadowCachePages(SCOPE));
+  }
+}
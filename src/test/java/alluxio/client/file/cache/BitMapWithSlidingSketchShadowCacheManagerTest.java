@@ -0,0 +1,91 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.file.cache.cuckoofilter.SlidingWindowType;
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class BitMapWithSlidingSketchShadowCacheManagerTest {
+  private static final int WINDOW_SIZE = 1 << 14;
+  private static final int PAGE_SIZE = 100;
+
+  private static ShadowCache createCache() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "BMS";
+    conf.mMemoryBudget = "256KB";
+    conf.mWindowSize = WINDOW_SIZE;
+    ShadowCache cache = ShadowCache.create(conf);
+    cache.stopUpdate();
+    return cache;
+  }
+
+  @Test
+  public void testPutGet() {
+    ShadowCache cache = createCache();
+    PageId pageId = new PageId("0", 0);
+    assertEquals(0, cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL));
+    assertTrue(cache.put(pageId, PAGE_SIZE, CacheScope.GLOBAL));
+    assertEquals(PAGE_SIZE, cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL));
+    // all positions of a page are set
+    assertEquals(1, cache.getShadowCachePages());
+    assertTrue(cache.delete(pageId));
+    assertEquals(0, cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL));
+    assertEquals(0, cache.getShadowCachePages());
+  }
+
+  @Test
+  public void testSlidingWindow() {
+    ShadowCache cache = createCache();
+    int numPages = WINDOW_SIZE / 4;
+    for (int i = 0; i < numPages; i++) {
+      cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.aging();
+    }
+    assertEquals(numPages, cache.getShadowCachePages(), numPages * 0.05);
+    // every bucket is swept twice in two windows, which clears all pages
+    for (int i = 0; i < 2 * WINDOW_SIZE; i++) {
+      cache.aging();
+    }
+    assertEquals(0, cache.getShadowCachePages());
+    for (int i = 0; i < numPages; i++) {
+      assertEquals(0, cache.get(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL));
+    }
+  }
+
+  @Test
+  public void testTimeBasedCatchUp() throws Exception {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "BMS";
+    conf.mMemoryBudget = "256KB";
+    conf.mSlidingWindowType = SlidingWindowType.TIME_BASED;
+    // 100 ms
+    conf.mWindowSize = 100;
+    ShadowCache cache = ShadowCache.create(conf);
+    try {
+      int numPages = 1000;
+      for (int i = 0; i < numPages; i++) {
+        cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      }
+      assertEquals(numPages, cache.getShadowCachePages(), numPages * 0.05);
+      // the background task sweeps the idle shadow cache
+      Thread.sleep(400);
+      assertEquals(0, cache.getShadowCachePages());
+    } finally {
+      cache.stopUpdate();
+    }
+  }
+}
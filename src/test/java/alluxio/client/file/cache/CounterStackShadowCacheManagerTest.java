@@ -0,0 +1,68 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class CounterStackShadowCacheManagerTest {
+  private static final int PAGE_SIZE = 100;
+
+  private static ShadowCache createCache(long windowSize) {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "CS";
+    conf.mWindowSize = windowSize;
+    ShadowCache cache = ShadowCache.create(conf);
+    assertTrue(cache instanceof CounterStackShadowCacheManager);
+    return cache;
+  }
+
+  /**
+   * Read pages 0, 1, ..., numPages - 1 in a loop.
+   */
+  private static void readLoop(ShadowCache cache, int numPages, int numReads) {
+    for (int i = 0; i < numReads; i++) {
+      PageId pageId = new PageId("0", i % numPages);
+      if (cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL) <= 0) {
+        cache.put(pageId, PAGE_SIZE, CacheScope.GLOBAL);
+      }
+      cache.updateTimestamp(1);
+    }
+  }
+
+  @Test
+  public void testWorkingSetSize() {
+    // the window covers 4 rounds of the loop
+    ShadowCache cache = createCache(1 << 14);
+    readLoop(cache, 4096, 1 << 16);
+    cache.updateWorkingSetSize();
+    assertEquals(4096, cache.getShadowCachePages(), 4096 * 0.05);
+    assertEquals(4096 * PAGE_SIZE, cache.getShadowCacheBytes(), 4096 * PAGE_SIZE * 0.05);
+    // only the first round misses
+    double hitRatio = cache.getShadowCachePageHit() / (double) cache.getShadowCachePageRead();
+    assertEquals(1 - 1 / 16.0, hitRatio, 0.02);
+  }
+
+  @Test
+  public void testMissRatioCurve() {
+    ShadowCache cache = createCache(1 << 16);
+    readLoop(cache, 4096, 1 << 16);
+    MissRatioCurve curve = cache.getMissRatioCurve();
+    // an LRU cache smaller than the loop always misses, and a larger one only misses at first
+    assertTrue(curve.getPageMissRatio(2048 * PAGE_SIZE) > 0.9);
+    assertEquals(1 / 16.0, curve.getPageMissRatio(8192 * PAGE_SIZE), 0.02);
+  }
+}
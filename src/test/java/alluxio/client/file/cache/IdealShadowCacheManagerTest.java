@@ -0,0 +1,126 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IdealShadowCacheManagerTest {
+  private static final int PAGE_SIZE = 100;
+
+  private static IdealShadowCacheManager createCache(long windowSize) {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mWindowSize = windowSize;
+    return new IdealShadowCacheManager(conf);
+  }
+
+  @Test
+  public void testWindow() {
+    IdealShadowCacheManager cache = createCache(100);
+    for (int i = 0; i < 300; i++) {
+      cache.put(new PageId("0", i % 200), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.updateTimestamp(1);
+    }
+    cache.updateWorkingSetSize();
+    // pages 0 to 99 are accessed again within the last 100 accesses
+    assertEquals(100, cache.getShadowCachePages());
+    assertEquals(100 * PAGE_SIZE, cache.getShadowCacheBytes());
+    assertEquals(PAGE_SIZE, cache.get(new PageId("0", 99), PAGE_SIZE, CacheScope.GLOBAL));
+    assertEquals(0, cache.get(new PageId("0", 100), PAGE_SIZE, CacheScope.GLOBAL));
+    assertEquals(1, cache.getShadowCachePageHit());
+    assertEquals(2, cache.getShadowCachePageRead());
+  }
+
+  @Test
+  public void testScopesAndDelete() {
+    IdealShadowCacheManager cache = createCache(1000);
+    CacheScope scope = CacheScope.create("schema1");
+    int scopeId = ScopeRegistry.idOf(scope);
+    for (int i = 0; i < 10; i++) {
+      cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.put(i, i, 2 * PAGE_SIZE, scopeId);
+    }
+    assertEquals(20, cache.getShadowCachePages());
+    assertEquals(10, cache.getShadowCachePages(scope));
+    assertEquals(20 * PAGE_SIZE, cache.getShadowCacheBytes(scope));
+    assertEquals(0, cache.getShadowCachePages(CacheScope.create("schema2")));
+    assertTrue(cache.delete(3, 3));
+    assertFalse(cache.delete(3, 3));
+    assertTrue(cache.delete(new PageId("0", 3)));
+    assertEquals(18, cache.getShadowCachePages());
+    assertEquals(9, cache.getShadowCachePages(scope));
+    assertEquals(0, cache.get(3, 3, PAGE_SIZE, scopeId));
+    assertEquals(2 * PAGE_SIZE, cache.get(4, 4, PAGE_SIZE, scopeId));
+  }
+
+  @Test
+  public void testSameAsModel() {
+    long windowSize = 5000;
+    IdealShadowCacheManager cache = createCache(windowSize);
+    // the model keeps pages in access order with their timestamps
+    LinkedHashMap<Integer, Long> model = new LinkedHashMap<>(16, 0.75f, true);
+    Map<Integer, Integer> sizes = new HashMap<>();
+    Random random = new Random(7);
+    long now = 0;
+    for (int i = 0; i < 200000; i++) {
+      int page = random.nextInt(20000);
+      int op = random.nextInt(10);
+      if (op == 0) {
+        assertEquals(model.remove(page) != null, cache.delete(new PageId("f", page)));
+      } else {
+        PageId pageId = new PageId("f", page);
+        Long timestamp = model.get(page);
+        boolean hit = timestamp != null && timestamp >= now - windowSize;
+        int nread = cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL);
+        assertEquals(hit ? (int) sizes.get(page) : 0, nread);
+        if (hit) {
+          model.put(page, now);
+        } else {
+          if (timestamp == null) {
+            sizes.put(page, 1 + random.nextInt(PAGE_SIZE));
+          }
+          cache.put(pageId, sizes.get(page), CacheScope.GLOBAL);
+          model.put(page, now);
+        }
+      }
+      cache.updateTimestamp(1);
+      now++;
+      if (i % 1000 == 0) {
+        cache.aging();
+        for (Iterator<Map.Entry<Integer, Long>> it = model.entrySet().iterator(); it.hasNext();) {
+          if (it.next().getValue() < now - windowSize) {
+            it.remove();
+          } else {
+            break;
+          }
+        }
+        long bytes = 0;
+        for (int cached : model.keySet()) {
+          bytes += sizes.get(cached);
+        }
+        assertEquals(model.size(), cache.getShadowCachePages());
+        assertEquals(bytes, cache.getShadowCacheBytes());
+      }
+    }
+  }
+}
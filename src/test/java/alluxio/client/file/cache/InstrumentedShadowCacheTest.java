@@ -0,0 +1,79 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.file.cache.ShadowCacheMetrics.Operation;
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class InstrumentedShadowCacheTest {
+  private static ShadowCache createCache(int sampleInterval) {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "IDEAL";
+    conf.mLatencySampleInterval = sampleInterval;
+    ShadowCache cache = ShadowCache.create(conf);
+    cache.stopUpdate();
+    return cache;
+  }
+
+  @Test
+  public void testDisabled() {
+    assertFalse(createCache(0) instanceof InstrumentedShadowCache);
+  }
+
+  @Test
+  public void testRecordEveryOperation() {
+    ShadowCache cache = createCache(1);
+    assertTrue(cache instanceof InstrumentedShadowCache);
+    for (int i = 0; i < 100; i++) {
+      PageId pageId = new PageId("0", i);
+      if (cache.get(pageId, 100, CacheScope.GLOBAL) <= 0) {
+        cache.put(pageId, 100, CacheScope.GLOBAL);
+      }
+    }
+    PageId[] pageIds = new PageId[10];
+    int[] sizes = new int[10];
+    CacheScope[] scopes = new CacheScope[10];
+    for (int i = 0; i < pageIds.length; i++) {
+      pageIds[i] = new PageId("1", i);
+      sizes[i] = 100;
+      scopes[i] = CacheScope.GLOBAL;
+    }
+    cache.putAll(pageIds, sizes, scopes);
+    cache.aging();
+    HistogramShadowCacheMetrics metrics =
+        (HistogramShadowCacheMetrics) ((InstrumentedShadowCache) cache).getMetrics();
+    assertEquals(100, metrics.getHistogram(Operation.GET).getCount());
+    assertEquals(110, metrics.getHistogram(Operation.PUT).getCount());
+    assertEquals(1, metrics.getHistogram(Operation.AGING).getCount());
+    assertEquals(0, metrics.getHistogram(Operation.DELETE).getCount());
+    assertTrue(cache.getSummary().contains("GET\t100\t"));
+    // counts are those of the instrumented shadow cache
+    assertEquals(100, cache.getShadowCachePageRead());
+  }
+
+  @Test
+  public void testSampling() {
+    ShadowCache cache = createCache(8);
+    for (int i = 0; i < 8000; i++) {
+      cache.get(new PageId("0", i), 100, CacheScope.GLOBAL);
+    }
+    long count = ((HistogramShadowCacheMetrics) ((InstrumentedShadowCache) cache).getMetrics())
+        .getHistogram(Operation.GET).getCount();
+    assertEquals(1000, count, 200);
+  }
+}
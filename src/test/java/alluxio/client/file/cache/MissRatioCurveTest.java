@@ -0,0 +1,104 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class MissRatioCurveTest {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testInterpolate() {
+    MissRatioCurve curve = new MissRatioCurve(new long[] {0, 100, 100, 300},
+        new double[] {1.0, 0.8, 0.6, 0.2}, new double[] {1.0, 0.5, 0.5, 0.0});
+    assertEquals(0.9, curve.getPageMissRatio(50), DELTA);
+    // a step at the same size is taken fully
+    assertEquals(0.6, curve.getPageMissRatio(100), DELTA);
+    assertEquals(0.4, curve.getPageMissRatio(200), DELTA);
+    assertEquals(0.25, curve.getByteMissRatio(200), DELTA);
+    assertEquals(0.2, curve.getPageMissRatio(1000), DELTA);
+  }
+
+  @Test
+  public void testFromAgeHistogram() {
+    // a snapshot right after aging: the newest age is empty, each older age holds 100 bytes
+    long[] bytesByAge = new long[] {0, 100, 100, 100};
+    long[] hitsByAge = new long[] {10, 20, 30, 0};
+    MissRatioCurve curve =
+        MissRatioCurve.fromAgeHistogram(bytesByAge, hitsByAge, hitsByAge, 100, 100);
+    long[] sizes = curve.getCacheSizes();
+    assertEquals(5, sizes.length);
+    // hits of age a are placed at the footprint of (a + 0.5) periods
+    assertEquals(0, sizes[0]);
+    assertEquals(50, sizes[1]);
+    assertEquals(150, sizes[2]);
+    assertEquals(250, sizes[3]);
+    assertEquals(300, sizes[4]);
+    assertEquals(1.0, curve.getByteMissRatios()[0], DELTA);
+    assertEquals(0.9, curve.getByteMissRatios()[1], DELTA);
+    assertEquals(0.7, curve.getByteMissRatios()[2], DELTA);
+    assertEquals(0.4, curve.getByteMissRatios()[3], DELTA);
+    assertEquals(0.4, curve.getByteMissRatio(1000), DELTA);
+  }
+
+  @Test
+  public void testClockCuckooShadowCache() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "1MB";
+    conf.mWindowSize = 1 << 14;
+    ShadowCache cache = ShadowCache.create(conf);
+    cache.stopUpdate();
+    long agingPeriod = conf.mWindowSize / conf.mAgeLevels;
+    int numPages = 1024;
+    // read a loop of pages, an LRU cache holding the loop hits everything but the first round
+    for (int i = 0; i < 8 * numPages; i++) {
+      PageId pageId = new PageId("0", i % numPages);
+      if (cache.get(pageId, 100, CacheScope.GLOBAL) <= 0) {
+        cache.put(pageId, 100, CacheScope.GLOBAL);
+      }
+      cache.updateTimestamp(1);
+      if ((i + 1) % agingPeriod == 0) {
+        cache.aging();
+      }
+    }
+    MissRatioCurve curve = cache.getMissRatioCurve();
+    assertEquals(1.0 / 8, curve.getByteMissRatio(2L * numPages * 100), 0.01);
+    assertTrue(curve.getByteMissRatio(numPages * 50) > 0.5);
+  }
+
+  @Test
+  public void testMissRatioCurveKeepsWorkingSetSize() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "1MB";
+    conf.mWindowSize = 1 << 14;
+    ShadowCache cache = ShadowCache.create(conf);
+    cache.stopUpdate();
+    for (int i = 0; i < 1000; i++) {
+      cache.put(new PageId("0", i), 100, CacheScope.GLOBAL);
+    }
+    cache.updateWorkingSetSize();
+    long pages = cache.getShadowCachePages();
+    long bytes = cache.getShadowCacheBytes();
+    assertTrue(pages > 0);
+    // building the curve only reads the filter
+    cache.getMissRatioCurve();
+    cache.getMissRatioCurve();
+    cache.updateWorkingSetSize();
+    assertEquals(pages, cache.getShadowCachePages());
+    assertEquals(bytes, cache.getShadowCacheBytes());
+  }
+}
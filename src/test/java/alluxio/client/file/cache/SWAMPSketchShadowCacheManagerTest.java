@@ -3,6 +3,7 @@ package alluxio.client.file.cache;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import alluxio.client.quota.CacheScope;
 import alluxio.util.TinyTable.TinyTable;
 import alluxio.util.TinyTable.TinyTableWithCounters;
 
@@ -10,7 +11,9 @@ import com.beust.jcommander.JCommander;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class SWAMPSketchShadowCacheManagerTest {
   @Test
@@ -41,4 +44,41 @@ public class SWAMPSketchShadowCacheManagerTest {
     long a = tinyTable.getItemSize(10);
     System.out.print(a);
   }
+
+  @Test
+  public void testShardedConcurrentAccess() throws Exception {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "SWAMP";
+    conf.mSwampShards = 8;
+    conf.mWindowSize = 1 << 16;
+    conf.mMemoryBudget = "1MB";
+    ShadowCache cache = ShadowCache.create(conf);
+    int numThreads = 4;
+    int pagesPerThread = 1024;
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      String fileId = Integer.toString(t);
+      threads.add(new Thread(() -> {
+        // the second round hits
+        for (int round = 0; round < 2; round++) {
+          for (int i = 0; i < pagesPerThread; i++) {
+            PageId pageId = new PageId(fileId, i);
+            if (cache.get(pageId, 100, CacheScope.GLOBAL) <= 0) {
+              cache.put(pageId, 100, CacheScope.GLOBAL);
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int numPages = numThreads * pagesPerThread;
+    assertEquals(numPages, cache.getShadowCachePages(), numPages * 0.02);
+    assertEquals(100L * numPages, cache.getShadowCacheBytes(), 100 * numPages * 0.02);
+    assertEquals(numPages, cache.getShadowCachePageHit(), numPages * 0.02);
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class SampledShadowCacheTest {
+  private static final int NUM_PAGES = 1 << 16;
+  private static final int PAGE_SIZE = 100;
+
+  private static ShadowCacheParameters createParameters() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "IDEAL";
+    conf.mWindowSize = 4 * NUM_PAGES;
+    return conf;
+  }
+
+  @Test
+  public void testScaledCounts() {
+    ShadowCacheParameters conf = createParameters();
+    conf.mSamplingRate = 0.1;
+    ShadowCache cache = ShadowCache.create(conf);
+    assertTrue(cache instanceof SampledShadowCache);
+    cache.stopUpdate();
+    // every page is read twice, the second read hits
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < NUM_PAGES; i++) {
+        PageId pageId = new PageId("0", i);
+        if (cache.get(pageId, PAGE_SIZE, CacheScope.GLOBAL) <= 0) {
+          cache.put(pageId, PAGE_SIZE, CacheScope.GLOBAL);
+        }
+        cache.updateTimestamp(1);
+      }
+    }
+    cache.updateWorkingSetSize();
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.05);
+    assertEquals((long) NUM_PAGES * PAGE_SIZE, cache.getShadowCacheBytes(),
+        NUM_PAGES * PAGE_SIZE * 0.05);
+    assertEquals(2 * NUM_PAGES, cache.getShadowCachePageRead());
+    assertEquals(NUM_PAGES, cache.getShadowCachePageHit(), NUM_PAGES * 0.05);
+  }
+
+  @Test
+  public void testAdaptiveSamplingRate() {
+    ShadowCacheParameters conf = createParameters();
+    conf.mMaxSampledPages = NUM_PAGES / 8;
+    SampledShadowCache cache = (SampledShadowCache) ShadowCache.create(conf);
+    cache.stopUpdate();
+    assertEquals(1.0, cache.getSamplingRate(), 0);
+    for (int i = 0; i < NUM_PAGES; i++) {
+      cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.updateTimestamp(1);
+    }
+    cache.aging();
+    assertEquals(1.0 / 8, cache.getSamplingRate(), 0.01);
+    // pages no longer sampled are dropped, so that counts are not inflated by the lower rate
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.05);
+    assertEquals((long) NUM_PAGES * PAGE_SIZE, cache.getShadowCacheBytes(),
+        NUM_PAGES * PAGE_SIZE * 0.05);
+    // and the estimate holds after more sampled accesses under the new rate
+    for (int i = NUM_PAGES; i < 2 * NUM_PAGES; i++) {
+      cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.updateTimestamp(1);
+    }
+    cache.updateWorkingSetSize();
+    assertEquals(2 * NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.1);
+  }
+
+  @Test
+  public void testAdaptiveSamplingRatePrimitive() {
+    ShadowCacheParameters conf = createParameters();
+    conf.mMaxSampledPages = NUM_PAGES / 8;
+    SampledShadowCache cache = (SampledShadowCache) ShadowCache.create(conf);
+    cache.stopUpdate();
+    for (int i = 0; i < NUM_PAGES; i++) {
+      cache.put(0L, i, PAGE_SIZE, ScopeRegistry.GLOBAL_ID);
+      cache.updateTimestamp(1);
+    }
+    cache.aging();
+    // pages put through the primitive API are dropped by their file key and page index
+    assertEquals(1.0 / 8, cache.getSamplingRate(), 0.01);
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.05);
+  }
+
+  @Test
+  public void testAdaptiveSamplingRateWithoutDelete() {
+    ShadowCacheParameters conf = createParameters();
+    conf.mShadowCacheType = "MBF";
+    conf.mMaxSampledPages = NUM_PAGES / 8;
+    SampledShadowCache cache = (SampledShadowCache) ShadowCache.create(conf);
+    cache.stopUpdate();
+    for (int i = 0; i < NUM_PAGES; i++) {
+      cache.put(new PageId("0", i), PAGE_SIZE, CacheScope.GLOBAL);
+      cache.updateTimestamp(1);
+    }
+    cache.aging();
+    // pages the inner shadow cache cannot delete are subtracted until they age out
+    assertEquals(1.0 / 8, cache.getSamplingRate(), 0.01);
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.1);
+  }
+
+  @Test
+  public void testNoSampling() {
+    ShadowCache cache = ShadowCache.create(createParameters());
+    cache.stopUpdate();
+    assertTrue(cache instanceof IdealShadowCacheManager);
+  }
+}
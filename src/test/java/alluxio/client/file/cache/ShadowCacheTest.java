@@ -0,0 +1,85 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import alluxio.client.file.cache.ShadowCache.ShadowCacheType;
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class ShadowCacheTest {
+  private static final int NUM_PAGES = 256;
+  private static final int PAGE_SIZE = 100;
+
+  @Test
+  public void testScopeRegistry() {
+    assertSame(CacheScope.GLOBAL, ScopeRegistry.scopeOf(ScopeRegistry.GLOBAL_ID));
+    assertEquals(ScopeRegistry.GLOBAL_ID, ScopeRegistry.idOf(CacheScope.GLOBAL));
+    for (int i = 0; i < 10; i++) {
+      CacheScope scope = CacheScope.create("schema" + i);
+      int id = ScopeRegistry.idOf(scope);
+      assertEquals(id, ScopeRegistry.idOf(CacheScope.create("schema" + i)));
+      assertEquals(scope, ScopeRegistry.scopeOf(id));
+    }
+  }
+
+  @Test
+  public void testFindIdDoesNotRegister() {
+    CacheScope scope = CacheScope.create("schema.unregistered");
+    assertEquals(ScopeRegistry.UNKNOWN_ID, ScopeRegistry.findId(scope));
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    IdealShadowCacheManager cache = new IdealShadowCacheManager(conf);
+    assertEquals(0, cache.getShadowCachePages(scope));
+    assertEquals(0, cache.getShadowCacheBytes(scope));
+    assertEquals(ScopeRegistry.UNKNOWN_ID, ScopeRegistry.findId(scope));
+    int id = ScopeRegistry.idOf(scope);
+    assertEquals(id, ScopeRegistry.findId(scope));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownScopeId() {
+    ScopeRegistry.scopeOf(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testPrimitiveApi() {
+    int scopeId = ScopeRegistry.idOf(CacheScope.create("schema"));
+    for (ShadowCacheType type : ShadowCacheType.values()) {
+      ShadowCacheParameters conf = new ShadowCacheParameters();
+      conf.mShadowCacheType = type.name();
+      conf.mMemoryBudget = "1MB";
+      conf.mWindowSize = 1 << 16;
+      ShadowCache cache = ShadowCache.create(conf);
+      cache.stopUpdate();
+      for (int i = 0; i < NUM_PAGES; i++) {
+        cache.put(i % 16, i, PAGE_SIZE, scopeId);
+        cache.updateTimestamp(1);
+      }
+      int numHits = 0;
+      for (int i = 0; i < NUM_PAGES; i++) {
+        if (cache.get(i % 16, i, PAGE_SIZE, scopeId) > 0) {
+          numHits++;
+        }
+      }
+      assertEquals(type.name(), NUM_PAGES, cache.getShadowCachePageRead());
+      if (type != ShadowCacheType.CS && type != ShadowCacheType.SHLL) {
+        // counters based shadow caches do not answer whether a page is cached
+        assertEquals(type.name(), NUM_PAGES, numHits, NUM_PAGES * 0.05);
+      }
+      cache.updateWorkingSetSize();
+      assertEquals(type.name(), NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.2);
+    }
+  }
+}
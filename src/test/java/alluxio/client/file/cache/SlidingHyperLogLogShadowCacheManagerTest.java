@@ -0,0 +1,78 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+public class SlidingHyperLogLogShadowCacheManagerTest {
+  private static final int NUM_PAGES = 1 << 14;
+  private static final CacheScope SCOPE = CacheScope.create("schema1.table1");
+
+  private static ShadowCache createCache() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mShadowCacheType = "SHLL";
+    conf.mHllSegments = 4;
+    ShadowCache cache = ShadowCache.create(conf);
+    assertTrue(cache instanceof SlidingHyperLogLogShadowCacheManager);
+    return cache;
+  }
+
+  private static void read(ShadowCache cache, PageId pageId, int size, CacheScope scope) {
+    if (cache.get(pageId, size, scope) <= 0) {
+      cache.put(pageId, size, scope);
+    }
+  }
+
+  @Test
+  public void testWorkingSetSize() {
+    ShadowCache cache = createCache();
+    // pages of the scope are twice as large as others
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < NUM_PAGES; i++) {
+        read(cache, new PageId("0", i), 100, CacheScope.GLOBAL);
+        read(cache, new PageId("1", i), 200, SCOPE);
+      }
+      cache.aging();
+    }
+    cache.updateWorkingSetSize();
+    assertEquals(2 * NUM_PAGES, cache.getShadowCachePages(), 2 * NUM_PAGES * 0.05);
+    assertEquals(300L * NUM_PAGES, cache.getShadowCacheBytes(), 300 * NUM_PAGES * 0.05);
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(SCOPE), NUM_PAGES * 0.05);
+    assertEquals(200L * NUM_PAGES, cache.getShadowCacheBytes(SCOPE), 200 * NUM_PAGES * 0.05);
+    // the second round hits
+    assertEquals(2 * NUM_PAGES, cache.getShadowCachePageHit(), 2 * NUM_PAGES * 0.05);
+  }
+
+  @Test
+  public void testAging() {
+    ShadowCache cache = createCache();
+    for (int i = 0; i < NUM_PAGES; i++) {
+      read(cache, new PageId("0", i), 100, SCOPE);
+    }
+    // pages leave the window after all segments are replaced
+    for (int i = 0; i < 3; i++) {
+      cache.aging();
+    }
+    cache.updateWorkingSetSize();
+    assertEquals(NUM_PAGES, cache.getShadowCachePages(), NUM_PAGES * 0.05);
+    cache.aging();
+    cache.updateWorkingSetSize();
+    assertEquals(0, cache.getShadowCachePages());
+    assertEquals(0, cache.getShadowCacheBytes());
+    assertEquals(0, cache.getShadowCachePages(SCOPE));
+  }
+}
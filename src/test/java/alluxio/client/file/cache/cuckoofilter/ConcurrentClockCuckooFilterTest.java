@@ -17,13 +17,17 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import alluxio.Constants;
+import alluxio.client.file.cache.ShadowCacheParameters;
 import alluxio.client.quota.CacheScope;
+import alluxio.collections.BitSet;
 import alluxio.test.util.ConcurrencyUtils;
 
 import com.google.common.hash.Funnels;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -125,6 +129,107 @@ public class ConcurrentClockCuckooFilterTest {
     assertEquals(0, mClockFilter.approximateElementSize(SCOPE1));
   }
 
+  @Test
+  public void testInterleavedLayout() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "64KB";
+    // wide tags to avoid fingerprint collisions among the inserted items
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = BITS_PER_SCOPE;
+    conf.mOpportunisticAging = false;
+    conf.mTableLayoutType = TableLayoutType.INTERLEAVED;
+    mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+      assertTrue(mClockFilter.put(i, i, (i % 2 == 0) ? SCOPE1 : SCOPE2));
+    }
+    for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+      assertTrue(mClockFilter.mightContain(i));
+      assertEquals(MAX_AGE, mClockFilter.getAge(i));
+    }
+    long scope1Size = 0;
+    for (int i = 2; i <= EXPECTED_INSERTIONS; i += 2) {
+      scope1Size += i;
+    }
+    assertEquals(EXPECTED_INSERTIONS / 2, mClockFilter.approximateElementCount(SCOPE1));
+    assertEquals(scope1Size, mClockFilter.approximateElementSize(SCOPE1));
+    for (int i = 0; i <= MAX_AGE; i++) {
+      mClockFilter.aging();
+    }
+    assertEquals(0, mClockFilter.approximateElementCount(SCOPE1));
+    assertEquals(0, mClockFilter.approximateElementSize(SCOPE2));
+  }
+
+  @Test
+  public void testLongIndexedTable() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    // 2^24 buckets * 4 slots * 40 bits per slot, which exceeds Integer.MAX_VALUE bits
+    conf.mMemoryBudget = "320MB";
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = 0;
+    conf.mOpportunisticAging = false;
+    conf.mTableLayoutType = TableLayoutType.INTERLEAVED;
+    mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    assertEquals(1 << 24, mClockFilter.getNumBuckets());
+    assertTrue((long) mClockFilter.getNumBuckets() * mClockFilter.getTagsPerBucket()
+        * (16 + BITS_PER_CLOCK + BITS_PER_SIZE) > Integer.MAX_VALUE);
+    // items are spread over all buckets, so that many of them are stored beyond 2^31 bits
+    int numItems = 64 * EXPECTED_INSERTIONS;
+    for (int i = 1; i <= numItems; i++) {
+      mClockFilter.put(i, i, CacheScope.GLOBAL);
+    }
+    for (int i = 1; i <= numItems; i++) {
+      assertTrue(mClockFilter.mightContain(i));
+      assertEquals(MAX_AGE, mClockFilter.getAge(i));
+    }
+    mClockFilter.aging();
+    for (int i = 1; i <= numItems; i++) {
+      assertEquals(MAX_AGE - 1, mClockFilter.getAge(i));
+    }
+  }
+
+  @Test
+  public void testWarmRestart() throws Exception {
+    File dir = Files.createTempDirectory("ccf").toFile();
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "64KB";
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = BITS_PER_SCOPE;
+    conf.mOpportunisticAging = false;
+    conf.mBitSetType = BitSet.BitSetType.MMAP;
+    conf.mBitSetPath = new File(dir, "filter").getPath();
+    try {
+      mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+      for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+        assertTrue(mClockFilter.put(i, i, (i % 2 == 0) ? SCOPE1 : SCOPE2));
+      }
+      mClockFilter.aging();
+
+      // a new filter on the same files sees the same items, clocks and statistics
+      ConcurrentClockCuckooFilter<Integer> restarted =
+          ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+      for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+        assertTrue(restarted.mightContain(i));
+        assertEquals(MAX_AGE - 1, restarted.getAge(i));
+      }
+      assertEquals(EXPECTED_INSERTIONS, restarted.approximateElementCount());
+      assertEquals(mClockFilter.approximateElementSize(), restarted.approximateElementSize());
+      assertEquals(EXPECTED_INSERTIONS / 2, restarted.approximateElementCount(SCOPE1));
+      assertEquals(mClockFilter.approximateElementSize(SCOPE2),
+          restarted.approximateElementSize(SCOPE2));
+    } finally {
+      for (File file : dir.listFiles()) {
+        file.delete();
+      }
+      dir.delete();
+    }
+  }
+
   @Test
   public void testComputeFpp() {
     double epsilon = 1e-6;
@@ -152,6 +257,199 @@ public class ConcurrentClockCuckooFilterTest {
     ConcurrencyUtils.assertConcurrent(runnables, DEFAULT_TIMEOUT_SECONDS);
   }
 
+  @Test
+  public void testConcurrentReadWithMovement() throws Exception {
+    // items being read are moved by the cuckoo paths of concurrent puts
+    int numReadItems = EXPECTED_INSERTIONS / 4;
+    for (int i = 1; i <= numReadItems; i++) {
+      assertTrue(mClockFilter.put(i, 1, SCOPE1));
+    }
+    List<Runnable> runnables = new ArrayList<>();
+    for (int k = 0; k < DEFAULT_THREAD_AMOUNT; k++) {
+      if (k % 2 == 0) {
+        int base = numReadItems + k * EXPECTED_INSERTIONS;
+        runnables.add(() -> {
+          for (int i = 1; i <= EXPECTED_INSERTIONS / DEFAULT_THREAD_AMOUNT; i++) {
+            mClockFilter.put(base + i, 1, SCOPE2);
+          }
+        });
+      } else {
+        runnables.add(() -> {
+          for (int r = 0; r < 8; r++) {
+            for (int i = 1; i <= numReadItems; i++) {
+              assertTrue(mClockFilter.mightContain(i));
+              assertTrue(mClockFilter.mightContainAndResetClock(i));
+              assertEquals(MAX_AGE, mClockFilter.getAge(i));
+            }
+          }
+        });
+      }
+    }
+    ConcurrencyUtils.assertConcurrent(runnables, DEFAULT_TIMEOUT_SECONDS);
+  }
+
+  @Test
+  public void testLockFreeClock() throws Exception {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "64KB";
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = BITS_PER_SCOPE;
+    conf.mOpportunisticAging = false;
+    conf.mLockFree = true;
+    mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    int numItems = EXPECTED_INSERTIONS / 4;
+    for (int i = 1; i <= numItems; i++) {
+      assertTrue(mClockFilter.put(i, 1, SCOPE1));
+    }
+    mClockFilter.aging();
+    assertEquals(MAX_AGE - 1, mClockFilter.getAge(1));
+    assertTrue(mClockFilter.mightContainAndResetClock(1));
+    assertEquals(MAX_AGE, mClockFilter.getAge(1));
+    // lookups reset clocks while puts move items and aging decrements clocks
+    List<Runnable> runnables = new ArrayList<>();
+    for (int k = 0; k < DEFAULT_THREAD_AMOUNT; k++) {
+      if (k == 0) {
+        runnables.add(() -> {
+          for (int r = 0; r < MAX_AGE - 1; r++) {
+            mClockFilter.aging();
+          }
+        });
+      } else if (k % 2 == 0) {
+        int base = numItems + k * EXPECTED_INSERTIONS;
+        runnables.add(() -> {
+          for (int i = 1; i <= EXPECTED_INSERTIONS / DEFAULT_THREAD_AMOUNT; i++) {
+            mClockFilter.put(base + i, 1, SCOPE2);
+          }
+        });
+      } else {
+        runnables.add(() -> {
+          for (int r = 0; r < 8; r++) {
+            for (int i = 1; i <= numItems; i++) {
+              assertTrue(mClockFilter.mightContainAndResetClock(i));
+            }
+          }
+        });
+      }
+    }
+    ConcurrencyUtils.assertConcurrent(runnables, DEFAULT_TIMEOUT_SECONDS);
+    for (int i = 1; i <= numItems; i++) {
+      assertTrue(mClockFilter.mightContainAndResetClock(i));
+      assertEquals(MAX_AGE, mClockFilter.getAge(i));
+    }
+  }
+
+  @Test
+  public void testParallelAging() throws Exception {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "64KB";
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = BITS_PER_SCOPE;
+    conf.mOpportunisticAging = false;
+    ConcurrentClockCuckooFilter<Integer> serialFilter =
+        ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    conf.mAgingParallelism = 4;
+    conf.mAgingDeadlineUs = 1;
+    mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    // item i is aged (i % MAX_AGE) times since its last access
+    for (int r = 0; r < MAX_AGE; r++) {
+      for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+        if (i % MAX_AGE == MAX_AGE - r) {
+          assertTrue(serialFilter.put(i, 1, SCOPE1));
+          assertTrue(mClockFilter.put(i, 1, SCOPE1));
+        }
+      }
+      serialFilter.aging();
+      // concurrent readers contend the segment locks with the aging tasks
+      List<Runnable> runnables = new ArrayList<>();
+      runnables.add(() -> mClockFilter.aging());
+      for (int k = 1; k < DEFAULT_THREAD_AMOUNT; k++) {
+        runnables.add(() -> {
+          for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+            mClockFilter.getAge(i);
+          }
+        });
+      }
+      ConcurrencyUtils.assertConcurrent(runnables, DEFAULT_TIMEOUT_SECONDS);
+    }
+    for (int i = 1; i <= EXPECTED_INSERTIONS; i++) {
+      assertEquals(serialFilter.getAge(i), mClockFilter.getAge(i));
+    }
+    assertEquals(serialFilter.approximateElementCount(), mClockFilter.approximateElementCount());
+  }
+
+  @Test
+  public void testBatchOperations() {
+    ShadowCacheParameters conf = new ShadowCacheParameters();
+    conf.mMemoryBudget = "64KB";
+    // wide tags to avoid false positives among the inserted items
+    conf.mTagBits = 16;
+    conf.mClockBits = BITS_PER_CLOCK;
+    conf.mSizeBits = BITS_PER_SIZE;
+    conf.mScopeBits = BITS_PER_SCOPE;
+    conf.mOpportunisticAging = false;
+    mClockFilter = ConcurrentClockCuckooFilter.create(Funnels.integerFunnel(), conf);
+    int batchSize = 64;
+    Integer[] items = new Integer[batchSize];
+    int[] sizes = new int[batchSize];
+    CacheScope[] scopes = new CacheScope[batchSize];
+    boolean[] results = new boolean[batchSize];
+    for (int start = 1; start <= EXPECTED_INSERTIONS; start += batchSize) {
+      for (int i = 0; i < batchSize; i++) {
+        items[i] = start + i;
+        sizes[i] = 1;
+        scopes[i] = SCOPE1;
+      }
+      assertEquals(0, mClockFilter.mightContainAndResetClock(items, results));
+      for (int i = 0; i < batchSize; i++) {
+        assertFalse(results[i]);
+      }
+      assertEquals(batchSize, mClockFilter.putOrResetClock(items, sizes, scopes, results));
+      assertEquals(batchSize, mClockFilter.mightContainAndResetClock(items, results));
+      for (int i = 0; i < batchSize; i++) {
+        assertTrue(results[i]);
+        assertEquals(MAX_AGE, mClockFilter.getAge(items[i]));
+      }
+    }
+    assertEquals(EXPECTED_INSERTIONS, mClockFilter.approximateElementCount());
+    assertEquals(EXPECTED_INSERTIONS, mClockFilter.approximateElementCount(SCOPE1));
+    // putting existing items again only resets their clocks
+    mClockFilter.aging();
+    assertEquals(MAX_AGE - 1, mClockFilter.getAge(items[0]));
+    assertEquals(batchSize, mClockFilter.putOrResetClock(items, sizes, scopes, results));
+    assertEquals(MAX_AGE, mClockFilter.getAge(items[0]));
+    assertEquals(EXPECTED_INSERTIONS, mClockFilter.approximateElementCount());
+  }
+
+  @Test
+  public void testConcurrentBatchPut() throws Exception {
+    List<Runnable> runnables = new ArrayList<>();
+    for (int k = 0; k < DEFAULT_THREAD_AMOUNT; k++) {
+      runnables.add(() -> {
+        int batchSize = 16;
+        Integer[] items = new Integer[batchSize];
+        int[] sizes = new int[batchSize];
+        CacheScope[] scopes = new CacheScope[batchSize];
+        boolean[] results = new boolean[batchSize];
+        for (int start = 1; start < 500; start += batchSize) {
+          for (int i = 0; i < batchSize; i++) {
+            items[i] = start + i;
+            sizes[i] = 1;
+            scopes[i] = SCOPE1;
+          }
+          mClockFilter.putOrResetClock(items, sizes, scopes, results);
+          for (int i = 0; i < batchSize; i++) {
+            assertTrue(mClockFilter.mightContain(items[i]));
+          }
+        }
+      });
+    }
+    ConcurrencyUtils.assertConcurrent(runnables, DEFAULT_TIMEOUT_SECONDS);
+  }
+
   @Test
   public void testBackwardMovement() throws Exception {
     // put item 1 into filter,
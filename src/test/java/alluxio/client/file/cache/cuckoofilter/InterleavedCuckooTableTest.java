@@ -0,0 +1,87 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.cuckoofilter;
+
+import static org.junit.Assert.assertEquals;
+
+import alluxio.collections.BitSet;
+import alluxio.collections.SimpleBitSet;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class InterleavedCuckooTableTest {
+  static final int NUM_BUCKETS = 16;
+  static final int TAGS_PER_BUCKET = 4;
+  static final int BITS_PER_TAG = 8;
+  static final int BITS_PER_CLOCK = 4;
+  static final int BITS_PER_SIZE = 20;
+  static final int BITS_PER_SLOT = BITS_PER_TAG + BITS_PER_CLOCK + BITS_PER_SIZE;
+
+  private final BitSet mBits = new SimpleBitSet(NUM_BUCKETS * TAGS_PER_BUCKET * BITS_PER_SLOT);
+  private final CuckooTable mTagTable = new InterleavedCuckooTable(mBits, NUM_BUCKETS,
+      TAGS_PER_BUCKET, BITS_PER_SLOT, 0, BITS_PER_TAG);
+  private final CuckooTable mClockTable = new InterleavedCuckooTable(mBits, NUM_BUCKETS,
+      TAGS_PER_BUCKET, BITS_PER_SLOT, BITS_PER_TAG, BITS_PER_CLOCK);
+  private final CuckooTable mSizeTable = new InterleavedCuckooTable(mBits, NUM_BUCKETS,
+      TAGS_PER_BUCKET, BITS_PER_SLOT, BITS_PER_TAG + BITS_PER_CLOCK, BITS_PER_SIZE);
+
+  @Test
+  public void readWriteFieldsTest() {
+    Random random = new Random();
+    int[][][] expected = new int[NUM_BUCKETS][TAGS_PER_BUCKET][3];
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        expected[i][j][0] = random.nextInt(1 << BITS_PER_TAG);
+        expected[i][j][1] = random.nextInt(1 << BITS_PER_CLOCK);
+        expected[i][j][2] = random.nextInt(1 << BITS_PER_SIZE);
+        mTagTable.writeTag(i, j, expected[i][j][0]);
+        mClockTable.writeTag(i, j, expected[i][j][1]);
+        mSizeTable.writeTag(i, j, expected[i][j][2]);
+      }
+    }
+    // writing one field must not disturb the other fields of the same or adjacent slots
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+        assertEquals(expected[i][j][0], mTagTable.readTag(i, j));
+        assertEquals(expected[i][j][1], mClockTable.readTag(i, j));
+        assertEquals(expected[i][j][2], mSizeTable.readTag(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void setAndClearFieldTest() {
+    mTagTable.writeTag(3, 2, 0xab);
+    mSizeTable.writeTag(3, 2, 0x12345);
+    mClockTable.set(3, 2);
+    assertEquals((1 << BITS_PER_CLOCK) - 1, mClockTable.readTag(3, 2));
+    mClockTable.clear(3, 2);
+    assertEquals(0, mClockTable.readTag(3, 2));
+    assertEquals(0xab, mTagTable.readTag(3, 2));
+    assertEquals(0x12345, mSizeTable.readTag(3, 2));
+  }
+
+  @Test
+  public void findAndDeleteTagTest() {
+    mTagTable.writeTag(5, 3, 0x7f);
+    mClockTable.set(5, 3);
+    TagPosition pos = mTagTable.findTag(4, 5, 0x7f);
+    assertEquals(CuckooStatus.OK, pos.getStatus());
+    assertEquals(5, pos.getBucketIndex());
+    assertEquals(3, pos.getSlotIndex());
+    assertEquals(CuckooStatus.OK, mTagTable.deleteTag(5, 0x7f).getStatus());
+    assertEquals(CuckooStatus.FAILURE_KEY_NOT_FOUND, mTagTable.findTag(5, 0x7f).getStatus());
+    assertEquals((1 << BITS_PER_CLOCK) - 1, mClockTable.readTag(5, 3));
+  }
+}
@@ -12,6 +12,8 @@
 package alluxio.client.file.cache.cuckoofilter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import alluxio.test.util.ConcurrencyUtils;
 
@@ -52,6 +54,36 @@ public class SegmentedLockTest {
     assertEquals(128, mLocks.getNumLocks());
   }
 
+  @Test
+  public void testOptimisticRead() {
+    int bucketsPerSegment = mLocks.getNumBucketsPerSegment();
+    long stamp = mLocks.tryOptimisticRead(0);
+    // neither readers nor writers of other segments invalidate the stamp
+    mLocks.readLock(0);
+    mLocks.unlockRead(0);
+    mLocks.writeLock(bucketsPerSegment);
+    mLocks.unlockWrite(bucketsPerSegment);
+    assertTrue(mLocks.validate(0, stamp));
+    assertTrue(mLocks.validate(bucketsPerSegment - 1, stamp));
+    // a writer of the same segment does
+    mLocks.writeLock(bucketsPerSegment - 1);
+    assertEquals(0, mLocks.tryOptimisticRead(0));
+    mLocks.unlockWrite(bucketsPerSegment - 1);
+    assertFalse(mLocks.validate(0, stamp));
+  }
+
+  @Test
+  public void testTryWriteLockSegment() {
+    assertTrue(mLocks.tryWriteLockSegment(1, 1000));
+    // the segment is held, so the second attempt times out
+    assertFalse(mLocks.tryWriteLockSegment(1, 1000));
+    assertTrue(mLocks.tryWriteLockSegment(2, 1000));
+    mLocks.unlockWriteSegment(1);
+    mLocks.unlockWriteSegment(2);
+    assertTrue(mLocks.tryWriteLockSegment(1, 1000));
+    mLocks.unlockWriteSegment(1);
+  }
+
   @Test
   public void testConcurrency() throws Exception {
     List<Runnable> runnables = new ArrayList<>();
@@ -105,4 +105,103 @@ public class SimpleCuckooTableTest {
       assertTrue(seen.contains(oldTag));
     }
   }
+
+  @Test
+  public void findTagPositionTest() {
+    CuckooTable cuckooTable = createCuckooTable();
+    cuckooTable.writeTag(NUM_BUCKETS - 1, TAGS_PER_BUCKET - 1, 0x5a);
+    long pos = cuckooTable.findTagPosition(0, NUM_BUCKETS - 1, 0x5a);
+    assertTrue(TagPosition.isOk(pos));
+    assertEquals(NUM_BUCKETS - 1, TagPosition.bucketIndexOf(pos));
+    assertEquals(TAGS_PER_BUCKET - 1, TagPosition.slotIndexOf(pos));
+    assertTrue(TagPosition.isOk(cuckooTable.deleteTagPosition(NUM_BUCKETS - 1, 0x5a)));
+    pos = cuckooTable.findTagPosition(NUM_BUCKETS - 1, 0x5a);
+    assertEquals(CuckooStatus.FAILURE_KEY_NOT_FOUND, TagPosition.statusOf(pos));
+    assertEquals(-1, TagPosition.bucketIndexOf(pos));
+    assertEquals(-1, TagPosition.slotIndexOf(pos));
+  }
+
+  @Test
+  public void decrementTagsTest() {
+    for (int bitsPerTag : new int[] {4, 8, 6}) {
+      BitSet bits = new BuiltinBitSet(NUM_BUCKETS * TAGS_PER_BUCKET * bitsPerTag);
+      CuckooTable cuckooTable =
+          new SimpleCuckooTable(bits, NUM_BUCKETS, TAGS_PER_BUCKET, bitsPerTag);
+      Random random = new Random(bitsPerTag);
+      int[][] expected = new int[NUM_BUCKETS][TAGS_PER_BUCKET];
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+          expected[i][j] = random.nextInt(3) == 0 ? 0 : random.nextInt(1 << bitsPerTag);
+          cuckooTable.writeTag(i, j, expected[i][j]);
+        }
+      }
+      int from = 3;
+      int to = NUM_BUCKETS - 2;
+      Set<Integer> visited = new HashSet<>();
+      int count = cuckooTable.decrementTags(from, to, (b, s) -> {
+        visited.add(b * TAGS_PER_BUCKET + s);
+        return (b & 1) == 0;
+      });
+      int expectedCount = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+          boolean inRange = i >= from && i < to;
+          boolean zero = expected[i][j] == 0;
+          assertEquals(inRange && zero, visited.contains(i * TAGS_PER_BUCKET + j));
+          if (inRange && zero && (i & 1) == 0) {
+            expectedCount++;
+          }
+          int tag = (inRange && !zero) ? expected[i][j] - 1 : expected[i][j];
+          assertEquals(tag, cuckooTable.readTag(i, j));
+        }
+      }
+      assertEquals(expectedCount, count);
+    }
+  }
+
+  @Test
+  public void wordProbeTest() {
+    // 4 and 8 bits probe a bucket in a word, 16 bits fill a whole word, 6 bits use the slot loop
+    for (int bitsPerTag : new int[] {4, 6, 8, 16}) {
+      for (BitSet.BitSetType type : new BitSet.BitSetType[] {BitSet.BitSetType.BUILTIN,
+          BitSet.BitSetType.DEFAULT, BitSet.BitSetType.PAGED}) {
+        BitSet bits = BitSet.createBitSet(type, NUM_BUCKETS * TAGS_PER_BUCKET * bitsPerTag);
+        CuckooTable cuckooTable =
+            new SimpleCuckooTable(bits, NUM_BUCKETS, TAGS_PER_BUCKET, bitsPerTag);
+        Random random = new Random(bitsPerTag);
+        // a small tag range makes duplicated tags within and across buckets common
+        int numTags = Math.min(1 << bitsPerTag, 8);
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+          for (int j = 0; j < TAGS_PER_BUCKET; j++) {
+            cuckooTable.writeTag(i, j, random.nextInt(numTags));
+          }
+        }
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+          int i2 = (i * 7 + 3) % NUM_BUCKETS;
+          for (int tag = 0; tag < numTags; tag++) {
+            assertEquals(scanTagPosition(cuckooTable, i, i2, tag),
+                cuckooTable.findTagPosition(i, i2, tag));
+            assertEquals(scanTagPosition(cuckooTable, i, i, tag),
+                cuckooTable.findTagPosition(i, tag));
+          }
+        }
+        assertEquals(TagPosition.NOT_FOUND, cuckooTable.findTagPosition(0, 1 << bitsPerTag));
+      }
+    }
+  }
+
+  /**
+   * @return the position found by probing slot by slot, the first bucket first
+   */
+  private static long scanTagPosition(CuckooTable table, int bucketIndex1, int bucketIndex2,
+      int tag) {
+    for (int slotIndex = 0; slotIndex < table.getNumTagsPerBuckets(); slotIndex++) {
+      if (table.readTag(bucketIndex1, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex1, slotIndex, CuckooStatus.OK);
+      } else if (table.readTag(bucketIndex2, slotIndex) == tag) {
+        return TagPosition.pack(bucketIndex2, slotIndex, CuckooStatus.OK);
+      }
+    }
+    return TagPosition.NOT_FOUND;
+  }
 }
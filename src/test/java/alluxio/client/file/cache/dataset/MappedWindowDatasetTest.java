@@ -0,0 +1,101 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.dataset;
+
+import static org.junit.Assert.assertEquals;
+
+import alluxio.client.file.cache.ScopeRegistry;
+import alluxio.client.file.cache.dataset.generator.EntryGenerator;
+import alluxio.client.file.cache.dataset.generator.RandomEntryGenerator;
+import alluxio.client.quota.CacheScope;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+public class MappedWindowDatasetTest {
+  private static final int NUM_ENTRIES = 20000;
+  private static final int WINDOW_SIZE = 1000;
+  private static final CacheScope[] SCOPES = new CacheScope[] {CacheScope.GLOBAL,
+      CacheScope.create("schema1.table1"), CacheScope.create("schema1.table2")};
+
+  @Test
+  public void sameAsGeneralDataset() throws Exception {
+    File file = File.createTempFile("window", ".bin");
+    file.deleteOnExit();
+    // a few entries per segment, so that segment boundaries are crossed frequently
+    Dataset<String> dataset =
+        new MappedWindowDataset<>(new ScopedEntryGenerator(7), WINDOW_SIZE, file, 4);
+    Dataset<String> expected = new GeneralDataset<>(new ScopedEntryGenerator(7), WINDOW_SIZE);
+    while (expected.hasNext()) {
+      DatasetEntry<String> entry = dataset.next();
+      assertEquals(expected.next(), entry);
+      assertEquals(expected.getRealEntryNumber(), dataset.getRealEntryNumber());
+      assertEquals(expected.getRealEntrySize(), dataset.getRealEntrySize());
+      for (CacheScope scope : SCOPES) {
+        assertEquals(expected.getRealEntryNumber(scope), dataset.getRealEntryNumber(scope));
+        assertEquals(expected.getRealEntrySize(scope), dataset.getRealEntrySize(scope));
+      }
+    }
+  }
+
+  @Test
+  public void randomSizes() {
+    // the size of an item may change after it leaves the window, so only numbers are compared
+    Dataset<String> dataset = new MappedWindowDataset<>(
+        new RandomEntryGenerator(NUM_ENTRIES, 1, 2000, 1, 1024, 1, 32749), WINDOW_SIZE);
+    Dataset<String> expected = new GeneralDataset<>(
+        new RandomEntryGenerator(NUM_ENTRIES, 1, 2000, 1, 1024, 1, 32749), WINDOW_SIZE);
+    while (expected.hasNext()) {
+      dataset.next();
+      expected.next();
+      assertEquals(expected.getRealEntryNumber(), dataset.getRealEntryNumber());
+    }
+  }
+
+  @Test
+  public void unknownScope() {
+    Dataset<String> dataset = new MappedWindowDataset<>(new ScopedEntryGenerator(7), WINDOW_SIZE);
+    dataset.next();
+    assertEquals(0, dataset.getRealEntryNumber(CacheScope.create("schema2.table1")));
+    assertEquals(0, dataset.getRealEntrySize(CacheScope.create("schema2.table1")));
+    // asking about a scope does not register it
+    assertEquals(ScopeRegistry.UNKNOWN_ID,
+        ScopeRegistry.findId(CacheScope.create("schema2.table1")));
+  }
+
+  /**
+   * Generates items whose size and scope only depend on the item.
+   */
+  private static class ScopedEntryGenerator implements EntryGenerator<String> {
+    private final Random mRandom;
+    private int mCount = 0;
+
+    ScopedEntryGenerator(long seed) {
+      mRandom = new Random(seed);
+    }
+
+    @Override
+    public DatasetEntry<String> next() {
+      mCount++;
+      int item = mRandom.nextInt(3000);
+      int size = item % 100 + 1;
+      return new DatasetEntry<>("page" + item, size, SCOPES[item % SCOPES.length]);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return mCount < NUM_ENTRIES;
+    }
+  }
+}
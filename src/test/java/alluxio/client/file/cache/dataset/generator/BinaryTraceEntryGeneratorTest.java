@@ -0,0 +1,115 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.client.file.cache.dataset.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.client.file.cache.dataset.BinaryTraceWriter;
+import alluxio.client.file.cache.dataset.DatasetEntry;
+import alluxio.client.quota.CacheScope;
+import alluxio.util.MurmurHash3;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BinaryTraceEntryGeneratorTest {
+  private static final String MSR_SAMPLE_RELATIVE_PATH = "data/prxy_0_100.csv";
+  // 8-byte segments, so that every value is read from a segment boundary
+  private static final int SEGMENT_SHIFT = 3;
+
+  @Test
+  public void sameAsMSR() throws Exception {
+    String path = getClass().getResource("/").getPath() + MSR_SAMPLE_RELATIVE_PATH;
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    List<DatasetEntry<String>> expected = new ArrayList<>();
+    MSREntryGenerator msr = new MSREntryGenerator(path);
+    try (BinaryTraceWriter writer = new BinaryTraceWriter(file)) {
+      while (msr.hasNext()) {
+        DatasetEntry<String> entry = msr.next();
+        if (entry != null) {
+          writer.write(entry);
+          expected.add(entry);
+        }
+      }
+    }
+    BinaryTraceEntryGenerator generator = new BinaryTraceEntryGenerator(file, SEGMENT_SHIFT);
+    assertEquals(100, generator.getNumRecords());
+    for (DatasetEntry<String> entry : expected) {
+      assertTrue(generator.hasNext());
+      DatasetEntry<String> actual = generator.next();
+      assertEquals(Long.toHexString(MurmurHash3.hash64(entry.getItem(), 0L, 0)), actual.getItem());
+      assertEquals(entry.getSize(), actual.getSize());
+      assertEquals(entry.getScopeInfo(), actual.getScopeInfo());
+      assertEquals(entry.getTimestamp(), actual.getTimestamp());
+    }
+    assertFalse(generator.hasNext());
+    assertNull(generator.next());
+  }
+
+  @Test
+  public void advance() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    CacheScope[] scopes = new CacheScope[] {CacheScope.GLOBAL,
+        CacheScope.create("schema1.table1"), CacheScope.create("schema1.table2.partition1")};
+    Random random = new Random(7);
+    long[] keys = new long[1000];
+    long[] timestamps = new long[keys.length];
+    int[] scopeIndexes = new int[keys.length];
+    int[] sizes = new int[keys.length];
+    try (BinaryTraceWriter writer = new BinaryTraceWriter(file)) {
+      long timestamp = 1L << 40;
+      for (int i = 0; i < keys.length; i++) {
+        // timestamps may go back a little, as in traces merged from several hosts
+        timestamp += random.nextInt(1000) - 100;
+        keys[i] = random.nextLong();
+        timestamps[i] = timestamp;
+        scopeIndexes[i] = random.nextInt(scopes.length);
+        sizes[i] = random.nextInt(1 << 20);
+        writer.write(keys[i], timestamps[i], scopes[scopeIndexes[i]], sizes[i]);
+      }
+    }
+    BinaryTraceEntryGenerator generator = new BinaryTraceEntryGenerator(file, SEGMENT_SHIFT);
+    assertEquals(scopes.length, generator.getNumScopes());
+    for (int i = 0; i < keys.length; i++) {
+      assertTrue(generator.advance());
+      assertEquals(keys[i], generator.getKey());
+      assertEquals(timestamps[i], generator.getTimestamp());
+      assertEquals(scopes[scopeIndexes[i]], generator.getScope());
+      assertEquals(sizes[i], generator.getSize());
+    }
+    assertFalse(generator.advance());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncated() throws Exception {
+    File file = File.createTempFile("trace", ".bin");
+    file.deleteOnExit();
+    try (BinaryTraceWriter writer = new BinaryTraceWriter(file)) {
+      writer.write(1L, 0L, CacheScope.GLOBAL, 1);
+    }
+    // a trace truncated by one byte
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+    new BinaryTraceEntryGenerator(file, SEGMENT_SHIFT);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import alluxio.test.util.ConcurrencyUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AtomicBitSetTest {
+  private static final long WORD_MASK = 0xffffffffffffffffL;
+
+  @Test
+  public void rangeTest() {
+    AtomicBitSet bitSet = new AtomicBitSet(512);
+    bitSet.set(0, bitSet.size());
+    for (int i = 0; i < bitSet.size(); i += 64) {
+      assertEquals(WORD_MASK, bitSet.get(i, 64));
+    }
+    bitSet.clear(0, bitSet.size());
+    // values crossing word boundaries
+    for (int i = 0; i <= 256; i++) {
+      bitSet.clear(0, bitSet.size());
+      bitSet.set(i, 64, WORD_MASK);
+      assertEquals(WORD_MASK, bitSet.get(i, 64));
+      assertEquals(0L, bitSet.get(i + 64, 64));
+    }
+  }
+
+  @Test
+  public void compareAndSetTest() {
+    AtomicBitSet bitSet = new AtomicBitSet(128);
+    bitSet.set(60, 4, 0x5L);
+    assertFalse(bitSet.compareAndSet(60, 4, 0x4L, 0xFL));
+    assertTrue(bitSet.compareAndSet(60, 4, 0x5L, 0xFL));
+    assertEquals(0xFL, bitSet.get(60, 4));
+    assertEquals(0L, bitSet.get(56, 4));
+    assertEquals(0L, bitSet.get(64, 4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void compareAndSetAcrossWordsTest() {
+    new AtomicBitSet(128).compareAndSet(62, 4, 0L, 1L);
+  }
+
+  @Test
+  public void concurrentUpdateTest() throws Exception {
+    // each thread owns one 4-bit field of the same word and counts it up with compare-and-set
+    int numThreads = 8;
+    AtomicBitSet bitSet = new AtomicBitSet(64);
+    List<Runnable> runnables = new ArrayList<>();
+    for (int k = 0; k < numThreads; k++) {
+      int value = k;
+      int offset = k * 4;
+      runnables.add(() -> {
+        for (int r = 0; r < 1000; r++) {
+          for (int v = 0; v < 15; v++) {
+            assertTrue(bitSet.compareAndSet(offset, 4, v, v + 1));
+          }
+          bitSet.clear(offset, 4);
+        }
+        bitSet.set(offset, 4, value);
+      });
+    }
+    ConcurrencyUtils.assertConcurrent(runnables, 10);
+    for (int k = 0; k < numThreads; k++) {
+      assertEquals(k, bitSet.get(k * 4, 4));
+    }
+  }
+}
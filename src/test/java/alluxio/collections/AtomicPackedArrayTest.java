@@ -0,0 +1,97 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AtomicPackedArrayTest {
+  @Test
+  public void layoutTest() {
+    // 28-bit fields leave 8 bits of every long unused
+    AtomicPackedArray array = new AtomicPackedArray(5, 28);
+    assertEquals(5, array.length());
+    assertEquals(2, array.getFieldsPerWord());
+    assertEquals(3, array.getNumWords());
+    assertEquals(3 * Long.SIZE, array.getSpaceBits());
+    assertEquals(1, array.wordIndex(2));
+    assertEquals(2, array.wordIndex(4));
+    assertEquals(0, new AtomicPackedArray(3, Long.SIZE).fieldOf(0L, 0));
+  }
+
+  @Test
+  public void compareAndSetTest() {
+    AtomicPackedArray array = new AtomicPackedArray(8, 20);
+    long word = array.getWord(4);
+    assertTrue(array.compareAndSet(4, word, 0xFFFFFL));
+    // a stale long is rejected even if the field itself is unchanged
+    assertFalse(array.compareAndSet(5, word, 0x1L));
+    assertTrue(array.compareAndSet(5, array.getWord(5), 0x1L));
+    assertEquals(0xFFFFFL, array.get(4));
+    assertEquals(0x1L, array.get(5));
+    assertEquals(0L, array.get(3));
+    assertEquals(0L, array.get(6));
+  }
+
+  @Test
+  public void compareAndSetWordTest() {
+    AtomicPackedArray array = new AtomicPackedArray(4, 16);
+    long word = array.getWordAt(0);
+    long newWord = word;
+    for (int i = 0; i < 4; i++) {
+      newWord = array.withField(newWord, i, i + 1);
+    }
+    assertTrue(array.compareAndSetWord(0, word, newWord));
+    assertFalse(array.compareAndSetWord(0, word, 1L));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(i + 1, array.get(i));
+      assertEquals(i + 1, array.fieldOf(newWord, i));
+    }
+  }
+
+  @Test
+  public void concurrentTest() throws Exception {
+    int numThreads = 4;
+    int numIncrements = 10000;
+    // all threads increment their own field of the same long
+    AtomicPackedArray array = new AtomicPackedArray(numThreads, 16);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      int index = t;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < numIncrements; i++) {
+          while (true) {
+            long word = array.getWord(index);
+            if (array.compareAndSet(index, word, array.fieldOf(word, index) + 1)) {
+              break;
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int t = 0; t < numThreads; t++) {
+      assertEquals(numIncrements, array.get(t));
+    }
+  }
+}
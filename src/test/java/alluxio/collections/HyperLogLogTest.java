@@ -0,0 +1,62 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+public class HyperLogLogTest {
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  @Test
+  public void testCardinality() {
+    HyperLogLog hll = new HyperLogLog(12);
+    assertEquals(0, hll.cardinality());
+    for (int n : new int[] {100, 10000, 1000000}) {
+      hll.clear();
+      for (int i = 0; i < n; i++) {
+        hll.add(HASH_FUNCTION.hashInt(i).asLong());
+      }
+      // 3 standard errors of 4096 registers
+      assertEquals(n, hll.cardinality(), n * 0.05);
+    }
+  }
+
+  @Test
+  public void testAddIdempotent() {
+    HyperLogLog hll = new HyperLogLog(10);
+    for (int i = 0; i < 1000; i++) {
+      hll.add(HASH_FUNCTION.hashInt(i).asLong());
+    }
+    long count = hll.cardinality();
+    for (int i = 0; i < 1000; i++) {
+      assertFalse(hll.add(HASH_FUNCTION.hashInt(i).asLong()));
+    }
+    assertEquals(count, hll.cardinality());
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLog hll1 = new HyperLogLog(12);
+    HyperLogLog hll2 = new HyperLogLog(12);
+    for (int i = 0; i < 20000; i++) {
+      hll1.add(HASH_FUNCTION.hashInt(i).asLong());
+      hll2.add(HASH_FUNCTION.hashInt(i + 10000).asLong());
+    }
+    hll1.merge(hll2);
+    assertEquals(30000, hll1.cardinality(), 30000 * 0.05);
+  }
+}
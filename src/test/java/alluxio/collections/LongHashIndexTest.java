@@ -0,0 +1,79 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongHashIndexTest {
+  private static final int NUM_ENTRIES = 1 << 14;
+
+  @Test
+  public void findAddRemoveTest() {
+    long[] keys = new long[NUM_ENTRIES];
+    LongHashIndex index = new LongHashIndex(entry -> keys[entry]);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      keys[i] = i * 0x9E3779B97F4A7C15L;
+      assertEquals(LongHashIndex.NIL, index.find(keys[i]));
+      index.add(i);
+    }
+    assertEquals(NUM_ENTRIES, index.size());
+    assertEquals(NUM_ENTRIES * 2, index.capacity());
+    for (int i = 0; i < NUM_ENTRIES; i += 2) {
+      index.remove(i);
+    }
+    assertEquals(NUM_ENTRIES / 2, index.size());
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEquals(i % 2 == 0 ? LongHashIndex.NIL : i, index.find(keys[i]));
+    }
+  }
+
+  @Test
+  public void collidingKeysTest() {
+    // keys sharing their home slot form long probe sequences, which removal must keep intact
+    int numEntries = 1 << 10;
+    long[] keys = new long[numEntries];
+    LongHashIndex index = new LongHashIndex(entry -> keys[entry]);
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(42);
+    int numAllocated = 0;
+    for (int op = 0; op < 20000; op++) {
+      if (!expected.isEmpty() && random.nextInt(3) == 0) {
+        long key = expected.keySet().iterator().next();
+        index.remove(expected.remove(key));
+      } else if (numAllocated < numEntries) {
+        // the folded bits of the key, which pick its home slot, take 16 values
+        long x = random.nextInt(1 << 20);
+        long key = (x << 32) | (x ^ (x & 15));
+        if (!expected.containsKey(key)) {
+          keys[numAllocated] = key;
+          index.add(numAllocated);
+          expected.put(key, numAllocated++);
+        }
+      }
+    }
+    assertEquals(expected.size(), index.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals((int) entry.getValue(), index.find(entry.getKey()));
+    }
+    for (int i = 0; i < numAllocated; i++) {
+      if (!expected.containsKey(keys[i])) {
+        assertEquals(LongHashIndex.NIL, index.find(keys[i]));
+      }
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+
+public class MappedBitSetTest {
+  private static final long WORD_MASK = 0xffffffffffffffffL;
+  // two words per segment, so that segment boundaries are crossed frequently
+  private static final int SEGMENT_SHIFT = 1;
+
+  @Test
+  public void rangeTest() throws Exception {
+    File file = File.createTempFile("bitset", ".bin");
+    file.deleteOnExit();
+    LongBitSet bitSet = new MappedBitSet(file, 512, SEGMENT_SHIFT);
+    for (int i = 0; i <= 256; i++) {
+      bitSet.clear(0L, bitSet.longSize());
+      bitSet.set(i, 64, WORD_MASK);
+      assertEquals(WORD_MASK, bitSet.get(i, 64));
+      assertEquals(0L, bitSet.get(i + 64, 64));
+    }
+  }
+
+  @Test
+  public void recoverTest() throws Exception {
+    File file = File.createTempFile("bitset", ".bin");
+    file.deleteOnExit();
+    // an empty file of another size is not recovered
+    MappedBitSet bitSet = new MappedBitSet(file, 1000, SEGMENT_SHIFT);
+    assertFalse(bitSet.isRecovered());
+    bitSet.set(100L, 20, 0xABCDEL);
+    bitSet.set(999L);
+    bitSet.flush();
+
+    MappedBitSet recovered = new MappedBitSet(file, 1000, SEGMENT_SHIFT);
+    assertTrue(recovered.isRecovered());
+    assertEquals(0xABCDEL, recovered.get(100L, 20));
+    assertTrue(recovered.get(999L));
+
+    // a bit set of different size starts empty
+    MappedBitSet resized = new MappedBitSet(file, 2000, SEGMENT_SHIFT);
+    assertFalse(resized.isRecovered());
+    assertEquals(0L, resized.get(100L, 20));
+  }
+}
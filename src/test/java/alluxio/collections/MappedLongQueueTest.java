@@ -0,0 +1,59 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+
+public class MappedLongQueueTest {
+  // two longs per segment, so that segment boundaries are crossed frequently
+  private static final int SEGMENT_SHIFT = 1;
+
+  @Test
+  public void sameAsDeque() throws Exception {
+    File file = File.createTempFile("queue", ".bin");
+    file.deleteOnExit();
+    MappedLongQueue queue = new MappedLongQueue(file, 7, SEGMENT_SHIFT);
+    Queue<Long> expected = new ArrayDeque<>();
+    Random random = new Random(7);
+    // wraps around the ring many times, with the queue empty, full and in between
+    for (int i = 0; i < 10000; i++) {
+      if (expected.size() < queue.capacity() && (expected.isEmpty() || random.nextBoolean())) {
+        long value = random.nextLong();
+        queue.offer(value);
+        expected.offer(value);
+      } else {
+        assertEquals((long) expected.poll(), queue.poll());
+      }
+      assertEquals(expected.size(), queue.size());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void offerFull() {
+    MappedLongQueue queue = new MappedLongQueue(2);
+    queue.offer(1L);
+    queue.offer(2L);
+    queue.offer(3L);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void pollEmpty() {
+    new MappedLongQueue(2).poll();
+  }
+}
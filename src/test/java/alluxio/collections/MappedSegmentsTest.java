@@ -0,0 +1,65 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+public class MappedSegmentsTest {
+  // 16 bytes per segment, so that segment boundaries are crossed frequently
+  private static final int SEGMENT_SHIFT = 4;
+  private static final int NUM_BYTES = 1000;
+
+  @Test
+  public void readWriteTest() throws Exception {
+    File file = File.createTempFile("segments", ".bin");
+    file.deleteOnExit();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      raf.setLength(NUM_BYTES);
+      MappedSegments segments = new MappedSegments(channel, FileChannel.MapMode.READ_WRITE,
+          NUM_BYTES, SEGMENT_SHIFT, ByteOrder.BIG_ENDIAN);
+      for (int position = 0; position + Long.BYTES <= NUM_BYTES; position += Long.BYTES) {
+        segments.putLong(position, position * 31L + 7);
+      }
+      segments.force();
+    }
+    // the last segment is shorter than the others
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      MappedSegments segments = new MappedSegments(channel, FileChannel.MapMode.READ_ONLY,
+          NUM_BYTES, SEGMENT_SHIFT, ByteOrder.BIG_ENDIAN);
+      for (int position = 0; position + Long.BYTES <= NUM_BYTES; position += Long.BYTES) {
+        long value = position * 31L + 7;
+        assertEquals(value, segments.getLong(position));
+        assertEquals((int) (value >>> 32), segments.getInt(position));
+        assertEquals((int) value, segments.getInt(position + Integer.BYTES));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void segmentShiftTooSmallTest() throws Exception {
+    File file = File.createTempFile("segments", ".bin");
+    file.deleteOnExit();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      new MappedSegments(channel, FileChannel.MapMode.READ_WRITE, 0, 2, ByteOrder.BIG_ENDIAN);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PagedBitSetTest {
+  private static final long INT_MASK = 0xffffffffL;
+  private static final long WORD_MASK = 0xffffffffffffffffL;
+  // two words per page, so that page boundaries are crossed frequently
+  private static final int PAGE_SHIFT = 1;
+
+  @Test
+  public void basicTest() {
+    LongBitSet bitSet = new PagedBitSet(1000, PAGE_SHIFT);
+    bitSet.set(9L);
+    bitSet.set(999L);
+    assertTrue(bitSet.get(9L));
+    assertTrue(bitSet.get(999));
+    assertFalse(bitSet.get(8L));
+    bitSet.clear(999L);
+    assertFalse(bitSet.get(999L));
+    assertEquals(1024, bitSet.longSize());
+  }
+
+  @Test
+  public void rangeTest() {
+    LongBitSet bitSet = new PagedBitSet(512, PAGE_SHIFT);
+    bitSet.set(0L, bitSet.longSize());
+    for (long i = 0; i < bitSet.longSize(); i += 64) {
+      assertEquals(WORD_MASK, bitSet.get(i, 64));
+    }
+    bitSet.clear(0L, bitSet.longSize());
+    for (long i = 0; i < bitSet.longSize(); i += 64) {
+      assertEquals(0L, bitSet.get(i, 64));
+    }
+    // values crossing word and page boundaries
+    for (int i = 0; i <= 256; i++) {
+      bitSet.clear(0L, bitSet.longSize());
+      bitSet.set(i, 64, WORD_MASK);
+      assertEquals(WORD_MASK, bitSet.get(i, 64));
+      assertEquals(0L, bitSet.get(i + 64, 64));
+    }
+  }
+
+  @Test
+  public void overlapTest() {
+    LongBitSet bitSet = new PagedBitSet(256, PAGE_SHIFT);
+    bitSet.set(120L, 12, 0xFFFL);
+    bitSet.set(132L, 20, 0x0L);
+    bitSet.set(152L, 32, INT_MASK);
+    assertEquals(0xFFFL, bitSet.get(120L, 12));
+    assertEquals(0x0L, bitSet.get(132L, 20));
+    assertEquals(INT_MASK, bitSet.get(152L, 32));
+    // clearing a range which crosses a page boundary only clears that range
+    bitSet.clear(124L, 8L);
+    assertEquals(0xFL, bitSet.get(120L, 12));
+    assertEquals(INT_MASK, bitSet.get(152L, 32));
+  }
+}
@@ -18,7 +18,37 @@ import alluxio.collections.SimpleBitSet;
 
 import org.junit.Test;
 
+import java.util.Random;
+
 public class BitsUtilsTest {
+    @Test
+    public void testDecrementNonZeroFields() {
+        Random random = new Random(7);
+        for (int bits : new int[] {1, 2, 4, 8, 16}) {
+            long highBits = BitsUtils.fieldHighBits(bits);
+            long mask = (1L << bits) - 1;
+            for (int n = 0; n < 100; n++) {
+                long word = random.nextLong() & (random.nextBoolean() ? random.nextLong() : -1L);
+                long expected = 0L;
+                for (int i = 0; i < Long.SIZE; i += bits) {
+                    long field = (word >>> i) & mask;
+                    expected |= (field > 0 ? field - 1 : 0L) << i;
+                }
+                long nonZero = BitsUtils.nonZeroFields(word, highBits);
+                assertEquals(expected, BitsUtils.decrementNonZeroFields(word, nonZero, bits));
+            }
+        }
+    }
+
+    @Test
+    public void testEqualFields() {
+        long highBits = BitsUtils.fieldHighBits(8);
+        long word = 0x00ff12ab12340012L;
+        assertEquals(0x0000800080000080L, BitsUtils.equalFields(word, 0x12, highBits, 8));
+        assertEquals(0x8000000000008000L, BitsUtils.equalFields(word, 0, highBits, 8));
+        assertEquals(0L, BitsUtils.equalFields(word, 0x56, highBits, 8));
+    }
+
     @Test
     public void testHasZero4() {
         BitSet bitSet = new SimpleBitSet(128);
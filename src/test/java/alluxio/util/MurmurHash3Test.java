@@ -0,0 +1,54 @@
+/*
+ * The Alluxio Open Foundation licenses this work under the Apache License, version 2.0
+ * (the "License"). You may not use this work except in compliance with the License, which is
+ * available at www.apache.org/licenses/LICENSE-2.0
+ *
+ * This software is distributed on an "AS IS" basis, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied, as more fully set forth in the License.
+ *
+ * See the NOTICE file distributed with this work for information regarding copyright ownership.
+ */
+
+package alluxio.util;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MurmurHash3Test {
+  @Test
+  public void testSameAsGuava() {
+    Random random = new Random(7);
+    for (int seed : new int[] {0, 32713, -1}) {
+      // lengths cover strings without full blocks, with a block ending in the long and tails
+      for (int length = 0; length < 40; length++) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+          sb.append((char) random.nextInt(Character.MAX_VALUE + 1));
+        }
+        String s = sb.toString();
+        long l = random.nextLong();
+        long expected =
+            Hashing.murmur3_128(seed).newHasher().putUnencodedChars(s).putLong(l).hash().asLong();
+        assertEquals(expected, MurmurHash3.hash64(s, l, seed));
+      }
+    }
+  }
+
+  @Test
+  public void testTwoLongsSameAsGuava() {
+    Random random = new Random(7);
+    for (int seed : new int[] {0, 32713, -1}) {
+      for (int i = 0; i < 100; i++) {
+        long l1 = random.nextLong();
+        long l2 = random.nextLong();
+        long expected =
+            Hashing.murmur3_128(seed).newHasher().putLong(l1).putLong(l2).hash().asLong();
+        assertEquals(expected, MurmurHash3.hash64(l1, l2, seed));
+      }
+    }
+  }
+}